@@ -21,16 +21,18 @@
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * A thread-safe implementation of the {@link java.util.Map} interface providing advanced concurrency features.
@@ -41,8 +43,13 @@
  * the {@link java.util.Map} interface), as well as all other methods for retrieving, adding, modifying or
  * removing mappings, iteration, etc.
  * <p>
+ * The hash code of the map is cached in its internal structure once computed, and maps with different cached hash
+ * codes are considered not equal without comparing their mappings. Not only keys but also values must therefore
+ * not be modified in any way that changes their {@code equals} or {@code hashCode} while they are in the map.
+ * <p>
  * The map can therefore never be read in a partially modified state, and its exact <em>snapshot</em> state for
- * an arbitrary number of mappings can be obtained at any time.
+ * an arbitrary number of mappings can be obtained at any time. Likewise, any number of dependent operations can be
+ * applied to the map as a single atomic operation by means of {@link #update(UnaryOperator)}.
  * <p>
  * This is achieved by internally implementing an immutable variation of a CTRIE
  * (<a href="https://en.wikipedia.org/wiki/Ctrie">Concurrent Hash-Trie</a>). This structure is composed of a tree of
@@ -65,6 +72,11 @@
  * calling any of its static convenience factory <kbd>AtomicHashMap.of(...)</kbd> methods: <kbd>of()</kbd>,
  * <kbd>of(k1, v1)</kbd>, <kbd>of(k1, v1, k2, v2)</kbd>, <kbd>of(k1, v1, k2, v2, k3, v3)</kbd>, etc.
  * <p>
+ * Maps subject to heavy write contention can be created with a {@link ContentionStrategy} that determines how
+ * write operations are retried when another thread modifies the map first. On the contrary, maps that are only
+ * modified by a single thread can be more efficiently written by means of a {@link Writer}, obtained by calling
+ * {@link #writer()}.
+ * <p>
  * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
  * consistent.
  *
@@ -78,6 +90,9 @@
     private static final long serialVersionUID = 6117491851316897982L;
 
     private final AtomicReference<Root> root;
+    private final Contention contention;
+    private final Combiner combiner; // Only in combining mode
+    private final KeyLocks keyLocks; // Only in key locking mode
 
 
     
@@ -167,27 +182,44 @@ public static <K,V> AtomicHashMap<K,V> of(K k1, V v1, K k2, V v2, K k3, V v3, K
 
 
     public AtomicHashMap() {
-        super();
-        this.root = new AtomicReference<>();
-        this.root.set(Root.EMPTY_ROOT);
+        this(ContentionStrategy.none());
+    }
+
+
+    /**
+     * Creates a new, empty map that will follow the specified strategy when write operations need to be retried
+     * because of contention with other threads.
+     *
+     * @param contentionStrategy the contention strategy.
+     */
+    public AtomicHashMap(final ContentionStrategy contentionStrategy) {
+        this(Root.EMPTY_ROOT, contentionStrategy);
     }
 
 
     public AtomicHashMap(final Map<? extends K, ? extends V> map) {
-        super();
-        final Set<io.arxila.atomichash.Entry> mapEntries = new HashSet<>();
-        for (final Entry<? extends K, ? extends V> entry : map.entrySet()) {
-            mapEntries.add(entry(entry.getKey(), entry.getValue()));
-        }
-        this.root = new AtomicReference<>();
-        this.root.set(Root.EMPTY_ROOT.putAll(mapEntries));
+        this(map, ContentionStrategy.none());
+    }
+
+
+    public AtomicHashMap(final Map<? extends K, ? extends V> map, final ContentionStrategy contentionStrategy) {
+        this(Root.EMPTY_ROOT.putAll(io.arxila.atomichash.Entry.entries(map)), contentionStrategy);
     }
 
 
     private AtomicHashMap(final Root root) {
+        this(root, ContentionStrategy.none());
+    }
+
+
+    private AtomicHashMap(final Root root, final ContentionStrategy contentionStrategy) {
         super();
+        Objects.requireNonNull(contentionStrategy);
         this.root = new AtomicReference<>();
         this.root.set(root);
+        this.contention = new Contention(contentionStrategy);
+        this.combiner = (contentionStrategy.type == ContentionStrategy.Type.COMBINING) ? new Combiner() : null;
+        this.keyLocks = (contentionStrategy.type == ContentionStrategy.Type.KEY_LOCKING) ? new KeyLocks() : null;
     }
 
 
@@ -198,11 +230,187 @@ Root innerRoot() {
     }
 
 
+    // Replaces the root if unchanged, applying the contention strategy if not. Failed is the number of previous
+    // failed attempts of the same operation.
+    private boolean compareAndSetRoot(final Root root, final Root newRoot, final int failed) {
+        if (this.root.compareAndSet(root, newRoot)) {
+            this.contention.succeeded(failed);
+            return true;
+        }
+        this.contention.failed(failed + 1);
+        return false;
+    }
+
+
+    // Applies a mutation on the mapping for a single key, which reports back both the previous and resulting values
+    // of the mapping, so that they do not need to be looked up again once the root has been replaced
+    private void mutate(final int hash, final Object key, final Mutation mutation) {
+        if (this.keyLocks != null) {
+            this.keyLocks.mutate(this.root, this.contention, hash, key, mutation);
+            return;
+        }
+        Root root, newRoot;
+        int failed = 0;
+        do {
+            root = this.root.get();
+            newRoot = root.mutate(hash, key, mutation);
+        } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+    }
+
+
+    // Write operations on several keys hold all the key locks (if in key locking mode) so that they cannot modify
+    // a key while an operation on that key is in progress
+    private void lockAll() {
+        if (this.keyLocks != null) {
+            this.keyLocks.lockAll();
+        }
+    }
+
+    private void unlockAll() {
+        if (this.keyLocks != null) {
+            this.keyLocks.unlockAll();
+        }
+    }
+
+
+    // Not a part of the java.util.Map interface
+    public ContentionStrategy contentionStrategy() {
+        return this.contention.strategy;
+    }
+
+
+    /**
+     * Returns the number of attempts at replacing the internal structure of the map performed by all the write
+     * operations completed so far, including both successful and failed ones (see {@link #casFailures()}).
+     * Operations that did not need to modify the map are not counted.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @return the number of attempts.
+     */
+    public long casAttempts() {
+        return this.contention.attempts();
+    }
+
+
+    /**
+     * Returns the number of attempts at replacing the internal structure of the map that failed (and therefore had
+     * to be retried, or made {@link #compareAndSetStore(AtomicHashStore, AtomicHashStore)} return {@code false})
+     * because another thread modified the map first, as counted for all the write operations completed so far.
+     * This, compared to {@link #casAttempts()}, can be used for choosing the most adequate
+     * {@link ContentionStrategy} for the map.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @return the number of failed attempts.
+     */
+    public long casFailures() {
+        return this.contention.failures();
+    }
+
+
     public AtomicHashStore<K,V> store() {
         return new AtomicHashStore<>(this.root.get());
     }
 
 
+    /**
+     * Atomically replaces the contents of this map with the store returned by the specified function, which is
+     * applied to a snapshot of the current contents of the map (see {@link #store()}).
+     * <p>
+     * This allows performing any number of dependent read and write operations (e.g. read two keys, put a third
+     * one and remove a fourth one) as a single atomic operation: the contents of the map will only be replaced if
+     * they were not modified by other threads since the snapshot was taken, in which case the function is applied
+     * again on a new snapshot. The function should therefore be free of side effects. If the function returns the
+     * same snapshot it received, the map is not modified.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param updateFunction the function computing the new contents of the map from the current ones.
+     * @return the new contents of the map.
+     */
+    public AtomicHashStore<K,V> update(final UnaryOperator<AtomicHashStore<K,V>> updateFunction) {
+        Objects.requireNonNull(updateFunction);
+        lockAll();
+        try {
+            Root root, newRoot;
+            AtomicHashStore<K,V> newStore;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newStore = Objects.requireNonNull(updateFunction.apply(new AtomicHashStore<>(root)));
+                newRoot = newStore.innerRoot();
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+            return newStore;
+        } finally {
+            unlockAll();
+        }
+    }
+
+
+    /**
+     * Atomically replaces the contents of this map with the specified replacement store, but only if the current
+     * contents of the map are exactly the specified expected snapshot, i.e. if the map was not modified since the
+     * expected store was obtained by calling {@link #store()} (or by a previous replacement). Note this is an
+     * identity comparison, so stores with equal mappings but not obtained from this map will never match.
+     * <p>
+     * This allows implementing custom optimistic update loops, though in most cases using
+     * {@link #update(UnaryOperator)} will be simpler.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param expected the snapshot of the contents of the map expected to be current.
+     * @param replacement the new contents of the map.
+     * @return {@code true} if successful, {@code false} if the contents of the map were not the expected ones.
+     */
+    public boolean compareAndSetStore(final AtomicHashStore<K,V> expected, final AtomicHashStore<K,V> replacement) {
+        Objects.requireNonNull(expected);
+        Objects.requireNonNull(replacement);
+        lockAll();
+        try {
+            // A single attempt, but counted and reported to the contention strategy like any other
+            if (compareAndSetRoot(expected.innerRoot(), replacement.innerRoot(), 0)) {
+                return true;
+            }
+            this.contention.abandoned(1);
+            return false;
+        } finally {
+            unlockAll();
+        }
+    }
+
+
+    /**
+     * Creates a new {@link Writer} for this map, owned by the current thread, which will only publish its
+     * modifications when {@link Writer#publish()} is called.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @return the new writer.
+     */
+    public Writer<K,V> writer() {
+        return new Writer<>(this.root, 0);
+    }
+
+
+    /**
+     * Creates a new {@link Writer} for this map, owned by the current thread, which will automatically publish
+     * its modifications every time the specified number of them has been performed (as well as when
+     * {@link Writer#publish()} is called).
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param publishInterval the number of modifications after which they are automatically published.
+     * @return the new writer.
+     */
+    public Writer<K,V> writer(final int publishInterval) {
+        if (publishInterval < 1) {
+            throw new IllegalArgumentException("Publish interval must be greater than zero");
+        }
+        return new Writer<>(this.root, publishInterval);
+    }
+
+
     @Override
     public int size() {
         return this.root.get().size();
@@ -238,76 +446,274 @@ public V getOrDefault(final Object key, final V defaultValue) {
 
 
     // Not a part of the java.util.Map interface
+    /**
+     * Returns the mappings for the specified keys, as a compact read-only map containing only the keys that are
+     * present.
+     * <p>
+     * Keys are sorted by their position in the internal tree before being looked up, so that every part of the
+     * tree shared by the paths of several keys is traversed only once.
+     *
+     * @param keys the keys to be looked up.
+     * @return a read-only map containing the mappings found for the specified keys.
+     */
     public Map<K,V> getAll(final Object... keys) {
         return (Map<K,V>) this.root.get().getAll(keys);
     }
 
+    // Not a part of the java.util.Map interface
+    /**
+     * Returns the mappings for the specified keys, as a compact read-only map containing only the keys that are
+     * present. See {@link #getAll(Object...)}.
+     *
+     * @param keys the keys to be looked up.
+     * @return a read-only map containing the mappings found for the specified keys.
+     */
+    public Map<K,V> getAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        return (Map<K,V>) this.root.get().getAll(keys);
+    }
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Looks up the specified keys, setting the value mapped to each of them at its same position in the
+     * specified values array (or {@code null} if the key is not present). No other objects are created apart
+     * from those needed for sorting the keys. See {@link #getAll(Object...)}.
+     *
+     * @param keys the keys to be looked up.
+     * @param values the array to be filled with values, of at least the same length as keys.
+     * @return the number of keys that were found.
+     * @throws IllegalArgumentException if the values array is shorter than the keys array.
+     */
+    public int getAll(final Object[] keys, final V[] values) {
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(values);
+        return this.root.get().getAll(keys, values);
+    }
+
 
     @Override
     public V put(final K key, final V newValue) {
-        final io.arxila.atomichash.Entry newEntry = entry(key, newValue);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.put(newEntry);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) root.get(key);
+        if (this.combiner != null) {
+            return (V) this.combiner.put(this.root, this.contention, entry(key, newValue));
+        }
+        final Mutation mutation = new Mutation.Put(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
     }
 
     @Override
     public V putIfAbsent(final K key, final V newValue) {
-        final io.arxila.atomichash.Entry newEntry = entry(key, newValue);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.putIfAbsent(newEntry);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) root.get(key);
+        final Mutation mutation = new Mutation.PutIfAbsent(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
     }
 
     @Override
     public void putAll(final Map<? extends K, ? extends V> newMappings) {
         Objects.requireNonNull(newMappings);
-        // Building a set of entries needs an iteration on the new mappings, but it pays off because
+        if (newMappings instanceof AtomicHashMap<?,?>) {
+            // Structures can be directly merged: no need to create new Entry objects
+            putAll(((AtomicHashMap<? extends K, ? extends V>) newMappings).store());
+            return;
+        }
+        // Building an array of entries needs an iteration on the new mappings, but it pays off because
         // the Entry objects will already be instanced outside the critical (and repeatable) region.
-        final Set<io.arxila.atomichash.Entry> newEntries = new HashSet<>();
-        for (final Entry<? extends K, ? extends V> entry : newMappings.entrySet()) {
-            newEntries.add(entry(entry.getKey(), entry.getValue()));
+        final io.arxila.atomichash.Entry[] newEntries = io.arxila.atomichash.Entry.entries(newMappings);
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.putAll(newEntries);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+        } finally {
+            unlockAll();
+        }
+    }
+
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Copies all the specified mappings into this map, building and merging the internal structure for the new
+     * mappings in parallel if there are enough of them.
+     * <p>
+     * Mappings are partitioned by their position in the internal structure of the map, and each of the resulting
+     * independent parts is built (and then merged with the corresponding part of this map) by a different task
+     * in the {@link java.util.concurrent.ForkJoinPool#commonPool()}. Parts containing fewer mappings than the
+     * specified threshold are processed sequentially, so a threshold of {@code Long.MAX_VALUE} means sequential
+     * execution and a threshold of {@code 1} means maximum parallelism.
+     * <p>
+     * All the new mappings are still applied to the map atomically.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param newMappings the mappings to be added.
+     */
+    public void putAll(final long parallelismThreshold, final Map<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        // The new mappings are built into a tree of their own only once, outside the critical (and repeatable) region
+        final Root newMappingsRoot =
+                (newMappings instanceof AtomicHashMap<?,?>) ?
+                        ((AtomicHashMap<?,?>) newMappings).innerRoot() :
+                        Root.build(io.arxila.atomichash.Entry.entries(newMappings), parallelismThreshold);
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.putAll(newMappingsRoot, null, parallelismThreshold);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Not a part of the java.util.Map interface
+    public void putAll(final AtomicHashStore<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        final Root newMappingsRoot = newMappings.innerRoot();
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.putAll(newMappingsRoot, null);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Not a part of the java.util.Map interface
+    public void putAll(final AtomicHashStore<? extends K, ? extends V> newMappings,
+                       final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(newMappings);
+        Objects.requireNonNull(remappingFunction);
+        final Root newMappingsRoot = newMappings.innerRoot();
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.putAll(newMappingsRoot, (BiFunction<Object,Object,Object>) remappingFunction);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+        } finally {
+            unlockAll();
         }
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.putAll(newEntries);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
     }
 
 
     @Override
     public V remove(final Object key) {
         final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.remove(hash, key);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) root.get(key);
+        if (this.combiner != null) {
+            return (V) this.combiner.remove(this.root, this.contention, hash, key);
+        }
+        final Mutation mutation = new Mutation.Remove();
+        mutate(hash, key, mutation);
+        return (V) mutation.previous();
     }
 
     @Override
     public boolean remove(final Object key, final Object oldValue) {
-        final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.remove(hash, key, oldValue);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (root != newRoot);
+        final Mutation.RemoveIfEquals mutation = new Mutation.RemoveIfEquals(oldValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return mutation.removed();
+    }
+
+
+    /**
+     * Atomically removes all the mappings for the specified keys, if present, with a single replacement of the
+     * internal structure of the map (see {@link AtomicHashStore#removeAll(Collection)}).
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param keys the keys to be removed.
+     * @return {@code true} if any mappings were removed.
+     */
+    public boolean removeAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        final KeyNode keysNode = Root.keysNode(keys);
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.removeAll(keysNode);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+            return (root != newRoot);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Atomically removes all the mappings except those for the specified keys, with a single replacement of the
+     * internal structure of the map (see {@link AtomicHashStore#retainAll(Collection)}).
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param keys the keys to be retained.
+     * @return {@code true} if any mappings were removed.
+     */
+    public boolean retainAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        final KeyNode keysNode = Root.keysNode(keys);
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.retainAll(keysNode);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+            return (root != newRoot);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Atomically removes all the mappings that match the specified filter, with a single replacement of the
+     * internal structure of the map (see {@link AtomicHashStore#removeIf(BiPredicate)}). The filter might be
+     * applied more than once to the same mapping if the operation needs to be retried because of concurrent
+     * modifications by other threads.
+     * <p>
+     * Not a part of the {@link java.util.Map} interface.
+     *
+     * @param filter the filter, returning {@code true} for mappings to be removed.
+     * @return {@code true} if any mappings were removed.
+     */
+    public boolean removeIf(final BiPredicate<? super K, ? super V> filter) {
+        Objects.requireNonNull(filter);
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.removeIf((BiPredicate<Object,Object>) filter);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+            return (root != newRoot);
+        } finally {
+            unlockAll();
+        }
     }
 
 
     @Override
     public void clear() {
-        this.root.set(Root.EMPTY_ROOT);
+        lockAll();
+        try {
+            this.root.set(Root.EMPTY_ROOT);
+        } finally {
+            unlockAll();
+        }
     }
 
 
@@ -318,7 +724,7 @@ public Set<K> keySet() {
 
     @Override
     public Collection<V> values() {
-        return (List<V>) this.root.get().values();
+        return (Collection<V>) this.root.get().values();
     }
 
     @Override
@@ -327,84 +733,153 @@ public Set<Entry<K, V>> entrySet() {
     }
 
 
+    // Not a part of the java.util.Map interface
+    public Stream<Entry<K,V>> stream() {
+        // Streams always operate on the snapshot of the map existing at the moment of their creation
+        return entrySet().stream();
+    }
+
+    // Not a part of the java.util.Map interface
+    public Stream<Entry<K,V>> parallelStream() {
+        return entrySet().parallelStream();
+    }
+
+
     @Override
     public void forEach(final BiConsumer<? super K, ? super V> action) {
-        // This implementation applies minor optimizations on the default (e.g. entrySet is immutable)
         Objects.requireNonNull(action);
-        // We try to benefit from entrySet being cached to iterate
-        for (io.arxila.atomichash.Entry entry : this.root.get().entrySet()) {
-            action.accept((K)entry.key, (V)entry.value);
-        }
+        // Mappings are traversed directly on the internal structure, without creating any iterators
+        this.root.get().forEach((BiConsumer<Object,Object>) action);
+    }
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Performs the given action for each mapping in a snapshot of the map, in parallel if the map is large enough.
+     * <p>
+     * Parallel execution happens in the {@link java.util.concurrent.ForkJoinPool#commonPool()}, splitting the
+     * internal structure of the map into independent parts. Parts containing fewer mappings than the
+     * specified threshold are processed sequentially, so a threshold of {@code Long.MAX_VALUE} means sequential
+     * execution and a threshold of {@code 1} means maximum parallelism.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param action the action to be performed for each mapping.
+     */
+    public void forEach(final long parallelismThreshold, final BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        this.root.get().forEach(parallelismThreshold, (BiConsumer<Object,Object>) action);
+    }
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Returns a non-null result from applying the given search function on each mapping, or {@code null} if none.
+     * Upon success, further element processing is suppressed and the results of any other parallel invocations of
+     * the search function are ignored. See {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param searchFunction a function returning a non-null result on success, or null otherwise.
+     * @return a non-null result from applying the given search function on some mapping, or null if none.
+     * @param <U> the type of the result.
+     */
+    public <U> U search(final long parallelismThreshold,
+                        final BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        Objects.requireNonNull(searchFunction);
+        return (U) this.root.get().search(parallelismThreshold, (BiFunction<Object,Object,Object>) searchFunction);
+    }
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Returns the result of accumulating the given transformation of all mappings using the given reducer to
+     * combine values, or {@code null} if none. Transformations returning {@code null} are ignored. See
+     * {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param transformer a function returning the transformation for a mapping, or null if there is none (in which
+     *                    case it is not combined).
+     * @param reducer a commutative associative combining function.
+     * @return the result of accumulating the given transformation of all mappings.
+     * @param <U> the type of the result.
+     */
+    public <U> U reduce(final long parallelismThreshold,
+                        final BiFunction<? super K, ? super V, ? extends U> transformer,
+                        final BiFunction<? super U, ? super U, ? extends U> reducer) {
+        Objects.requireNonNull(transformer);
+        Objects.requireNonNull(reducer);
+        return (U) this.root.get().reduce(parallelismThreshold,
+                (BiFunction<Object,Object,Object>) transformer, (BiFunction<Object,Object,Object>) reducer);
+    }
+
+    // Not a part of the java.util.Map interface
+    /**
+     * Returns the result of accumulating all values using the given reducer to combine them, or {@code null} if
+     * none. Null values are ignored. See {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param reducer a commutative associative combining function.
+     * @return the result of accumulating all values.
+     */
+    public V reduceValues(final long parallelismThreshold, final BiFunction<? super V, ? super V, ? extends V> reducer) {
+        Objects.requireNonNull(reducer);
+        return (V) this.root.get().reduce(parallelismThreshold, (k, v) -> v, (BiFunction<Object,Object,Object>) reducer);
     }
 
 
     @Override
     public V replace(final K key, final V newValue) {
-        final io.arxila.atomichash.Entry newEntry = entry(key, newValue);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.replace(newEntry);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (root != newRoot) ? (V) root.get(key) : null;
+        final Mutation mutation = new Mutation.Replace(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
     }
 
     @Override
     public boolean replace(final K key, final V oldValue, final V newValue) {
-        final io.arxila.atomichash.Entry newEntry = entry(key, newValue);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.replace(newEntry, oldValue);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (root != newRoot);
+        final Mutation.ReplaceIfEquals mutation = new Mutation.ReplaceIfEquals(oldValue, newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return mutation.replaced();
     }
 
     @Override
     public void replaceAll(final BiFunction<? super K, ? super V, ? extends V> function) {
         Objects.requireNonNull(function);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.replaceAll((BiFunction<Object,Object,Object>)function);
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
+        lockAll();
+        try {
+            Root root, newRoot;
+            int failed = 0;
+            do {
+                root = this.root.get();
+                newRoot = root.replaceAll((BiFunction<Object,Object,Object>)function);
+            } while (root != newRoot && !compareAndSetRoot(root, newRoot, failed++));
+        } finally {
+            unlockAll();
+        }
     }
 
 
     @Override
     public V compute(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         Objects.requireNonNull(remappingFunction);
-        final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.compute(hash, key, ((BiFunction<Object,Object,Object>)remappingFunction));
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) newRoot.get(key);
+        final Mutation mutation = new Mutation.Compute((BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
     }
 
     @Override
     public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
         Objects.requireNonNull(mappingFunction);
-        final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.computeIfAbsent(hash, key, ((Function<Object,Object>)mappingFunction));
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) newRoot.get(key);
+        final Mutation mutation = new Mutation.ComputeIfAbsent((Function<Object,Object>) mappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
     }
 
     @Override
     public V computeIfPresent(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         Objects.requireNonNull(remappingFunction);
-        final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot = root.computeIfPresent(hash, key, ((BiFunction<Object,Object,Object>)remappingFunction));
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) newRoot.get(key);
+        final Mutation mutation = new Mutation.ComputeIfPresent((BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
     }
 
 
@@ -413,12 +888,13 @@ public V merge(final K key, final V newValue, final BiFunction<? super V, ? supe
         Objects.requireNonNull(remappingFunction);
         Objects.requireNonNull(newValue);
         final int hash = io.arxila.atomichash.Entry.hash(key);
-        Root root, newRoot;
-        do {
-            root = this.root.get();
-            newRoot =  root.merge(hash, key, newValue, ((BiFunction<Object,Object,Object>)remappingFunction));
-        } while (root != newRoot && !this.root.compareAndSet(root, newRoot));
-        return (V) newRoot.get(key);
+        if (this.combiner != null) {
+            return (V) this.combiner.merge(
+                    this.root, this.contention, hash, key, newValue, (BiFunction<Object,Object,Object>) remappingFunction);
+        }
+        final Mutation mutation = new Mutation.Merge(newValue, (BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(hash, key, mutation);
+        return (V) mutation.current();
     }
 
 
@@ -431,6 +907,10 @@ public boolean equals(final Object other) {
         if (!(other instanceof Map)) {
             return false;
         }
+        if (other instanceof AtomicHashMap<?,?>) {
+            // Snapshots of both maps can be directly compared, skipping any parts of their structures they share
+            return this.root.get().sameMappings(((AtomicHashMap<?,?>) other).root.get());
+        }
         // To ensure consistency of the operation, only one call (".entrySet()") will be performed on "this" and
         // on the "other" variable. This avoids possible issues that could arise if first "other.size()"
         // was checked and then "other.entrySet()", but "other" was modified in between.
@@ -442,13 +922,9 @@ public boolean equals(final Object other) {
 
     @Override
     public int hashCode() {
-        // Implemented per the definition of Map.hashCode()
-        final Set<Entry<K,V>> entrySet = entrySet();
-        int hashCode = 0;
-        for (final Entry<K,V> entry : entrySet) {
-            hashCode += entry.hashCode();
-        }
-        return hashCode;
+        // Implemented per the definition of Map.hashCode(), though hash codes are cached in the internal structure
+        // (which assumes the hash codes of values do not change while they are in the map)
+        return this.root.get().mappingsHashCode();
     }
 
 
@@ -475,4 +951,140 @@ public String toString() {
         }
     }
 
+
+
+
+
+    /**
+     * Single-thread writer for an {@link AtomicHashMap}, meant for maps that are written by exactly one thread
+     * (e.g. an ingestion thread) and read by any number of them.
+     * <p>
+     * Modifications performed by a writer are not immediately visible to the rest of the threads. Instead of
+     * copying the path from the modified position up to the root and replacing the root with a compare-and-swap
+     * operation for every modification, a writer modifies in place all the tree nodes it created since its last
+     * publication (exactly as an {@link AtomicHashStore.Builder} does), and only replaces the root of the map when
+     * its modifications are published, either explicitly by calling {@link #publish()} or automatically after a
+     * number of modifications (see {@link AtomicHashMap#writer(int)}). Readers of the map always see the last
+     * published state, and keep all the guarantees of {@link AtomicHashMap}.
+     * <p>
+     * Publication is performed by means of a simple release store (no compare-and-swap), so it is the
+     * responsibility of the user to make sure no other writes are performed on the map, through its own methods or
+     * through another writer, while a writer is in use. Modifications of the map by others will be detected on a
+     * best-effort basis when publishing, raising a {@link ConcurrentModificationException}. Writers can only be used
+     * by the thread that created them, any other thread will receive an {@link IllegalStateException}.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     */
+    public static final class Writer<K,V> {
+
+        private final AtomicReference<Root> root;
+        private final Thread owner;
+        private final int publishInterval;
+        private Root published;
+        private TransientNode transientNode;
+        private int unpublished;
+
+
+        private Writer(final AtomicReference<Root> root, final int publishInterval) {
+            super();
+            this.root = root;
+            this.owner = Thread.currentThread();
+            this.publishInterval = publishInterval;
+            this.published = root.get();
+            this.transientNode = null;
+            this.unpublished = 0;
+        }
+
+
+        private void checkOwner() {
+            if (Thread.currentThread() != this.owner) {
+                throw new IllegalStateException("Writer can only be used by the thread that created it");
+            }
+        }
+
+
+        private TransientNode transientNode() {
+            if (this.transientNode == null) {
+                this.transientNode = TransientNode.of(this.published.node);
+            }
+            return this.transientNode;
+        }
+
+
+        private void modified() {
+            if (++this.unpublished == this.publishInterval) {
+                publish();
+            }
+        }
+
+
+        public int size() {
+            checkOwner();
+            return (this.transientNode != null) ? this.transientNode.size : this.published.size();
+        }
+
+
+        // Includes unpublished modifications
+        public V get(final Object key) {
+            checkOwner();
+            final Object value =
+                    (this.transientNode != null) ?
+                            this.transientNode.get(io.arxila.atomichash.Entry.hash(key), key) :
+                            this.published.node.get(key);
+            return (value == io.arxila.atomichash.Entry.NOT_FOUND) ? null : (V) value;
+        }
+
+
+        public Writer<K,V> put(final K key, final V value) {
+            checkOwner();
+            transientNode().put(entry(key, value));
+            modified();
+            return this;
+        }
+
+        public Writer<K,V> putAll(final Map<? extends K, ? extends V> newMappings) {
+            Objects.requireNonNull(newMappings);
+            checkOwner();
+            for (final Map.Entry<? extends K, ? extends V> entry : newMappings.entrySet()) {
+                transientNode().put(entry(entry.getKey(), entry.getValue()));
+                modified();
+            }
+            return this;
+        }
+
+
+        public Writer<K,V> remove(final Object key) {
+            checkOwner();
+            if (transientNode().remove(io.arxila.atomichash.Entry.hash(key), key)) {
+                modified();
+            }
+            return this;
+        }
+
+
+        /**
+         * Publishes all the modifications performed by this writer since its last publication, making them
+         * visible (atomically) to all readers of the map.
+         *
+         * @throws ConcurrentModificationException if the map was modified by someone other than this writer
+         *                                         since its last publication.
+         */
+        public void publish() {
+            checkOwner();
+            if (this.transientNode == null) {
+                return;
+            }
+            if (this.root.get() != this.published) {
+                throw new ConcurrentModificationException("Map was modified by another writer");
+            }
+            final Root newRoot = Root.of(this.transientNode.freeze());
+            this.transientNode = null;
+            this.unpublished = 0;
+            this.published = newRoot;
+            this.root.setRelease(newRoot);
+        }
+
+    }
+
 }
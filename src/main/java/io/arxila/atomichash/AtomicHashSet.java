@@ -0,0 +1,299 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe implementation of the {@link java.util.Set} interface providing the same advanced concurrency
+ * features as {@link AtomicHashMap}.
+ * <p>
+ * This implementation is <strong>thread-safe</strong>, <strong>atomic</strong> and <strong>non-blocking</strong> for
+ * all of its methods, including multi-element methods such as {@link #addAll(Collection)},
+ * {@link #removeAll(Collection)}, {@link #retainAll(Collection)} or {@link #containsAll(Collection)}, which are
+ * always applied on (or to) a single snapshot of the set. Iteration is also performed on a snapshot, and the exact
+ * snapshot state of the set can be obtained at any time as an {@link AtomicHashStoreSet} by calling
+ * {@link #store()}.
+ * <p>
+ * The hash code of the set is cached in its internal structure once computed, and sets with different cached
+ * hash codes are considered not equal without comparing their elements, so elements must not be modified in any
+ * way that changes their {@code equals} or {@code hashCode} while they are in the set.
+ * <p>
+ * Elements are stored in a tree with the same structure as that of {@link AtomicHashMap}, but whose nodes only
+ * hold keys. Every element takes a single slot in the tree, no per-element objects are created other than the
+ * elements themselves, and the set needs roughly half the memory of a map containing the same keys.
+ * <p>
+ * Iterators returned by this set are unmodifiable (elements can only be removed by calling the methods of the set).
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <E> the type of elements maintained by this set
+ */
+@SuppressWarnings("unchecked")
+public final class AtomicHashSet<E> implements Set<E>, Serializable {
+
+    private static final long serialVersionUID = -2174406382713055610L;
+
+    private final AtomicReference<KeyNode> node;
+
+
+
+    @SafeVarargs
+    public static <E> AtomicHashSet<E> of(final E... elements) {
+        Objects.requireNonNull(elements);
+        return new AtomicHashSet<>(KeyNode.build(elements));
+    }
+
+
+
+    public AtomicHashSet() {
+        super();
+        this.node = new AtomicReference<>();
+        this.node.set(KeyNode.EMPTY_NODE);
+    }
+
+
+    public AtomicHashSet(final Collection<? extends E> elements) {
+        super();
+        this.node = new AtomicReference<>();
+        this.node.set(KeyNode.build(elements.toArray()));
+    }
+
+
+    public AtomicHashSet(final AtomicHashStoreSet<? extends E> store) {
+        super();
+        Objects.requireNonNull(store);
+        this.node = new AtomicReference<>();
+        this.node.set(store.innerNode());
+    }
+
+
+    private AtomicHashSet(final KeyNode node) {
+        super();
+        this.node = new AtomicReference<>();
+        this.node.set(node);
+    }
+
+
+
+
+    KeyNode innerNode() {
+        return this.node.get();
+    }
+
+
+    public AtomicHashStoreSet<E> store() {
+        return new AtomicHashStoreSet<>(this.node.get());
+    }
+
+
+    @Override
+    public int size() {
+        return this.node.get().size;
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        return this.node.get().size == 0;
+    }
+
+
+    @Override
+    public boolean contains(final Object element) {
+        return this.node.get().contains(element);
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> elements) {
+        // All elements are checked on the same snapshot
+        return store().containsAll(elements);
+    }
+
+
+    @Override
+    public boolean add(final E element) {
+        final int hash = io.arxila.atomichash.Entry.hash(element);
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = node.add(hash, element);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node != newNode);
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends E> elements) {
+        Objects.requireNonNull(elements);
+        if (elements instanceof AtomicHashSet<?>) {
+            // Structures can be directly merged
+            return addAll(((AtomicHashSet<? extends E>) elements).store());
+        }
+        // Elements are bulk-loaded into a tree only once, which is then merged on every attempt
+        final KeyNode elementsNode = KeyNode.build(elements.toArray());
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = KeyNode.union(node, elementsNode);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node.size != newNode.size);
+    }
+
+    // Not a part of the java.util.Set interface
+    public boolean addAll(final AtomicHashStoreSet<? extends E> elements) {
+        Objects.requireNonNull(elements);
+        final KeyNode elementsNode = elements.innerNode();
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = KeyNode.union(node, elementsNode);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node.size != newNode.size);
+    }
+
+
+    @Override
+    public boolean remove(final Object element) {
+        final int hash = io.arxila.atomichash.Entry.hash(element);
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = node.remove(hash, element);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node != newNode);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> elements) {
+        Objects.requireNonNull(elements);
+        if (elements.isEmpty()) {
+            return false;
+        }
+        final KeyNode elementsNode = KeyNode.build(elements.toArray());
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = KeyNode.removeAll(node, elementsNode);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node != newNode);
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> elements) {
+        Objects.requireNonNull(elements);
+        final KeyNode elementsNode = KeyNode.build(elements.toArray());
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = KeyNode.retainAll(node, elementsNode);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node != newNode);
+    }
+
+
+    @Override
+    public boolean removeIf(final Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        KeyNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = KeyNode.removeIf(node, (Predicate<Object>) filter);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return (node != newNode);
+    }
+
+
+    @Override
+    public void clear() {
+        this.node.set(KeyNode.EMPTY_NODE);
+    }
+
+
+    @Override
+    public Iterator<E> iterator() {
+        // Iterators always operate on the snapshot of the set existing at the moment of their creation
+        return (Iterator<E>) this.node.get().iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return (Spliterator<E>) this.node.get().spliterator();
+    }
+
+
+    @Override
+    public Object[] toArray() {
+        return this.node.get().asSet().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(final T[] a) {
+        return this.node.get().asSet().toArray(a);
+    }
+
+
+    @Override
+    public void forEach(final Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        // Elements are traversed directly on the internal structure, without creating any iterators
+        this.node.get().forEach((Consumer<Object>) action);
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Set.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof Set)) {
+            return false;
+        }
+        if (other instanceof AtomicHashSet<?>) {
+            // Snapshots of both sets can be directly compared, skipping any parts of their structures they share
+            return KeyNode.sameKeys(this.node.get(), ((AtomicHashSet<?>) other).node.get());
+        }
+        // The comparison is performed on a single snapshot of this set
+        return this.node.get().asSet().equals(other);
+    }
+
+
+    @Override
+    public int hashCode() {
+        // Implemented per the definition of Set.hashCode(), cached in the internal structure
+        return this.node.get().keysHashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return this.node.get().asSet().toString();
+    }
+
+}
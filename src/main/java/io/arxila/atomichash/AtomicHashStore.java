@@ -21,13 +21,17 @@
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * A thread-safe, immutable key-value store.
@@ -36,6 +40,11 @@
  * are <strong>thread-safe</strong>, <strong>atomic</strong> and <strong>non-blocking</strong>, including both reads
  * and writes. All modifications return a new instance of {@link AtomicHashStore} containing the modified data.
  * <p>
+ * Being immutable, stores compute their hash code only once, caching it in their internal structure (shared with
+ * any stores derived from them), and use it for quickly telling unequal stores apart. This assumes that neither
+ * keys nor values are modified in any way that changes their {@code equals} or {@code hashCode} while they are
+ * contained in a store.
+ * <p>
  * This class internall implements an immutable variation of a CTRIE
  * (<a href="https://en.wikipedia.org/wiki/Ctrie">Concurrent Hash-Trie</a>). This structure is composed of a tree of
  * compact (bitmap-managed) arrays that map keys to positions in each of the tree levels depending on the value of
@@ -52,6 +61,9 @@
  * calling any of its static convenience factory <kbd>AtomicHashStore.of(...)</kbd> methods: <kbd>of()</kbd>,
  * <kbd>of(k1, v1)</kbd>, <kbd>of(k1, v1, k2, v2)</kbd>, <kbd>of(k1, v1, k2, v2, k3, v3)</kbd>, etc.
  * <p>
+ * Stores containing a large number of mappings can be more efficiently constructed by means of a
+ * {@link Builder}, obtained by calling {@link #builder()} or {@link #toBuilder()}.
+ * <p>
  * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
  * consistent.
  *
@@ -153,6 +165,19 @@ public static <K,V> AtomicHashStore<K,V> of(K k1, V v1, K k2, V v2, K k3, V v3,
 
 
 
+    /**
+     * Creates a new, empty {@link Builder} for {@link AtomicHashStore} objects.
+     *
+     * @return the new builder.
+     * @param <K> the type of keys maintained by the built store
+     * @param <V> the type of mapped values
+     */
+    public static <K,V> Builder<K,V> builder() {
+        return new Builder<>(Node.EMPTY_NODE);
+    }
+
+
+
     public AtomicHashStore() {
         this.root = Root.EMPTY_ROOT;
     }
@@ -172,6 +197,18 @@ public AtomicHashStore<K,V> toStore() {
     }
 
 
+    /**
+     * Creates a new {@link Builder} initialized with the mappings contained in this store.
+     * <p>
+     * This store is not affected by any operations performed on the returned builder.
+     *
+     * @return the new builder.
+     */
+    public Builder<K,V> toBuilder() {
+        return new Builder<>(this.root.node);
+    }
+
+
     public int size() {
         return this.root.size();
     }
@@ -200,10 +237,48 @@ public V getOrDefault(final Object key, final V defaultValue) {
     }
 
 
+    /**
+     * Returns the mappings for the specified keys, as a compact read-only map containing only the keys that are
+     * present.
+     * <p>
+     * Keys are sorted by their position in the internal tree before being looked up, so that every part of the
+     * tree shared by the paths of several keys is traversed only once.
+     *
+     * @param keys the keys to be looked up.
+     * @return a read-only map containing the mappings found for the specified keys.
+     */
     public Map<K,V> getAll(final Object... keys) {
         return (Map<K,V>) this.root.getAll(keys);
     }
 
+    /**
+     * Returns the mappings for the specified keys, as a compact read-only map containing only the keys that are
+     * present. See {@link #getAll(Object...)}.
+     *
+     * @param keys the keys to be looked up.
+     * @return a read-only map containing the mappings found for the specified keys.
+     */
+    public Map<K,V> getAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        return (Map<K,V>) this.root.getAll(keys);
+    }
+
+    /**
+     * Looks up the specified keys, setting the value mapped to each of them at its same position in the
+     * specified values array (or {@code null} if the key is not present). No other objects are created apart
+     * from those needed for sorting the keys. See {@link #getAll(Object...)}.
+     *
+     * @param keys the keys to be looked up.
+     * @param values the array to be filled with values, of at least the same length as keys.
+     * @return the number of keys that were found.
+     * @throws IllegalArgumentException if the values array is shorter than the keys array.
+     */
+    public int getAll(final Object[] keys, final V[] values) {
+        Objects.requireNonNull(keys);
+        Objects.requireNonNull(values);
+        return this.root.getAll(keys, values);
+    }
+
 
     public AtomicHashStore<K,V> put(final K key, final V newValue) {
         final Root newRoot = this.root.put(entry(key, newValue));
@@ -217,10 +292,72 @@ public AtomicHashStore<K,V> putIfAbsent(final K key, final V newValue) {
 
     public AtomicHashStore<K,V> putAll(final Map<? extends K, ? extends V> newMappings) {
         Objects.requireNonNull(newMappings);
-        Root newRoot = this.root;
-        for (final Map.Entry<? extends K, ? extends V> entry : newMappings.entrySet()) {
-            newRoot = newRoot.put(entry(entry.getKey(), entry.getValue()));
-        }
+        final Root newRoot = this.root.putAll(Entry.entries(newMappings));
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing all the mappings in this store plus all the specified mappings, building and
+     * merging the internal structure for the new mappings in parallel if there are enough of them.
+     * <p>
+     * Mappings are partitioned by their position in the internal structure of the store, and each of the resulting
+     * independent parts is built (and then merged with the corresponding part of this store) by a different task
+     * in the {@link java.util.concurrent.ForkJoinPool#commonPool()}. Parts containing fewer mappings than the
+     * specified threshold are processed sequentially, so a threshold of {@code Long.MAX_VALUE} means sequential
+     * execution and a threshold of {@code 1} means maximum parallelism.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param newMappings the mappings to be added.
+     * @return the resulting store.
+     */
+    public AtomicHashStore<K,V> putAll(final long parallelismThreshold,
+                                       final Map<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        final Root newMappingsRoot =
+                (newMappings instanceof AtomicHashMap<?,?>) ?
+                        ((AtomicHashMap<?,?>) newMappings).innerRoot() :
+                        Root.build(Entry.entries(newMappings), parallelismThreshold);
+        final Root newRoot = this.root.putAll(newMappingsRoot, null, parallelismThreshold);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing all the mappings in this store plus all the mappings in the specified store,
+     * the latter taking precedence for keys mapped in both stores.
+     * <p>
+     * This operation structurally merges both stores, reusing any parts of their internal structure that
+     * exist in only one of them (or are shared by both), so its cost depends on the size of the overlap between
+     * the two stores and not on the size of the specified store.
+     *
+     * @param newMappings the store containing the mappings to be added.
+     * @return the resulting store.
+     */
+    public AtomicHashStore<K,V> putAll(final AtomicHashStore<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        final Root newRoot = this.root.putAll(newMappings.root, null);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing all the mappings in this store plus all the mappings in the specified store,
+     * using the specified remapping function to compute the resulting value for keys mapped in both stores.
+     * <p>
+     * The remapping function will be called with the value in this store as its first argument and the value
+     * in the specified store as its second one. Contrary to {@link #merge(Object, Object, BiFunction)},
+     * a <kbd>null</kbd> result will not remove the mapping, but be set as its value.
+     * <p>
+     * This operation structurally merges both stores (see {@link #putAll(AtomicHashStore)}).
+     *
+     * @param newMappings the store containing the mappings to be added.
+     * @param remappingFunction the function used for computing the value of keys mapped in both stores.
+     * @return the resulting store.
+     */
+    public AtomicHashStore<K,V> putAll(final AtomicHashStore<? extends K, ? extends V> newMappings,
+                                       final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(newMappings);
+        Objects.requireNonNull(remappingFunction);
+        final Root newRoot = this.root.putAll(newMappings.root, (BiFunction<Object,Object,Object>) remappingFunction);
         return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
     }
 
@@ -236,6 +373,52 @@ public AtomicHashStore<K,V> remove(final Object key, final Object oldValue) {
     }
 
 
+    /**
+     * Removes all the mappings for the specified keys, if present.
+     * <p>
+     * Keys are structurally matched with the mappings in this store, so that only the parts of the store containing
+     * any of the keys are traversed and every modified node is rebuilt only once, whatever the number of mappings
+     * removed from it.
+     *
+     * @param keys the keys to be removed.
+     * @return the new store, or the same store if no mappings were removed.
+     */
+    public AtomicHashStore<K,V> removeAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        final Root newRoot = this.root.removeAll(keys);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Removes all the mappings except those for the specified keys.
+     * <p>
+     * Keys are structurally matched with the mappings in this store, so that whole parts of the store containing
+     * none of the keys are removed without being traversed.
+     *
+     * @param keys the keys to be retained.
+     * @return the new store, or the same store if no mappings were removed.
+     */
+    public AtomicHashStore<K,V> retainAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        final Root newRoot = this.root.retainAll(keys);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Removes all the mappings that match the specified filter, rebuilding every modified node only once
+     * (whatever the number of mappings removed from it) and dropping whole parts of the store as soon as they
+     * are left empty.
+     *
+     * @param filter the filter, returning {@code true} for mappings to be removed.
+     * @return the new store, or the same store if no mappings were removed.
+     */
+    public AtomicHashStore<K,V> removeIf(final BiPredicate<? super K, ? super V> filter) {
+        Objects.requireNonNull(filter);
+        final Root newRoot = this.root.removeIf((BiPredicate<Object,Object>) filter);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+
     public AtomicHashStore<K,V> clear() {
         return (this.root.isEmpty()) ? this : new AtomicHashStore<>();
     }
@@ -254,13 +437,102 @@ public Set<Map.Entry<K, V>> entrySet() {
     }
 
 
+    /**
+     * Returns a sequential {@link Stream} on the mappings of this store.
+     *
+     * @return the stream.
+     */
+    public Stream<Map.Entry<K,V>> stream() {
+        return entrySet().stream();
+    }
+
+    /**
+     * Returns a (possibly) parallel {@link Stream} on the mappings of this store.
+     * <p>
+     * The internal structure of the store is split among the threads performing the operation, each of them
+     * knowing the exact amount of mappings it is in charge of.
+     *
+     * @return the stream.
+     */
+    public Stream<Map.Entry<K,V>> parallelStream() {
+        return entrySet().parallelStream();
+    }
+
+
     public void forEach(final BiConsumer<? super K, ? super V> action) {
-        // This implementation applies minor optimizations on the default (e.g. entrySet is immutable)
         Objects.requireNonNull(action);
-        // We try to benefit from entrySet being cached to iterate
-        for (Entry entry : ((Set<Entry>)(Set<?>) entrySet())) {
-            action.accept((K)entry.key, (V)entry.value);
-        }
+        // Mappings are traversed directly on the internal structure, without creating any iterators
+        this.root.forEach((BiConsumer<Object,Object>) action);
+    }
+
+    /**
+     * Performs the given action for each mapping, in parallel if the store is large enough.
+     * <p>
+     * Parallel execution happens in the {@link java.util.concurrent.ForkJoinPool#commonPool()}, splitting the
+     * internal structure of the store into independent parts. Parts containing fewer mappings than the
+     * specified threshold are processed sequentially, so a threshold of {@code Long.MAX_VALUE} means sequential
+     * execution and a threshold of {@code 1} means maximum parallelism.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param action the action to be performed for each mapping.
+     */
+    public void forEach(final long parallelismThreshold, final BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        this.root.forEach(parallelismThreshold, (BiConsumer<Object,Object>) action);
+    }
+
+    /**
+     * Returns a non-null result from applying the given search function on each mapping, or {@code null} if none.
+     * Upon success, further element processing is suppressed and the results of any other parallel invocations of
+     * the search function are ignored. See {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param searchFunction a function returning a non-null result on success, or null otherwise.
+     * @return a non-null result from applying the given search function on some mapping, or null if none.
+     * @param <U> the type of the result.
+     */
+    public <U> U search(final long parallelismThreshold,
+                        final BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        Objects.requireNonNull(searchFunction);
+        return (U) this.root.search(parallelismThreshold, (BiFunction<Object,Object,Object>) searchFunction);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation of all mappings using the given reducer to
+     * combine values, or {@code null} if none. Transformations returning {@code null} are ignored. See
+     * {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param transformer a function returning the transformation for a mapping, or null if there is none (in which
+     *                    case it is not combined).
+     * @param reducer a commutative associative combining function.
+     * @return the result of accumulating the given transformation of all mappings.
+     * @param <U> the type of the result.
+     */
+    public <U> U reduce(final long parallelismThreshold,
+                        final BiFunction<? super K, ? super V, ? extends U> transformer,
+                        final BiFunction<? super U, ? super U, ? extends U> reducer) {
+        Objects.requireNonNull(transformer);
+        Objects.requireNonNull(reducer);
+        return (U) this.root.reduce(parallelismThreshold,
+                (BiFunction<Object,Object,Object>) transformer, (BiFunction<Object,Object,Object>) reducer);
+    }
+
+    /**
+     * Returns the result of accumulating all values using the given reducer to combine them, or {@code null} if
+     * none. Null values are ignored. See {@link #forEach(long, BiConsumer)} for the meaning of the threshold.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed for an operation to be executed in
+     *                             parallel.
+     * @param reducer a commutative associative combining function.
+     * @return the result of accumulating all values.
+     */
+    public V reduceValues(final long parallelismThreshold, final BiFunction<? super V, ? super V, ? extends V> reducer) {
+        Objects.requireNonNull(reducer);
+        return (V) this.root.reduce(parallelismThreshold, (k, v) -> v, (BiFunction<Object,Object,Object>) reducer);
     }
 
 
@@ -280,6 +552,24 @@ public AtomicHashStore<K,V> replaceAll(final BiFunction<? super K, ? super V, ?
         return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
     }
 
+    /**
+     * Returns a store with the same keys as this one, each of them mapped to the result of applying the specified
+     * function to its current mapping.
+     * <p>
+     * Given the keys do not change, the internal structure of this store is reused: every internal node is copied
+     * only once, and the parts of the store in which the function returns the same value objects are shared between
+     * both stores.
+     *
+     * @param function the function to be applied to each mapping.
+     * @return the new store, or this same store if the function returned the same value objects for all mappings.
+     * @param <W> the type of the values in the new store.
+     */
+    public <W> AtomicHashStore<K,W> mapValues(final BiFunction<? super K, ? super V, ? extends W> function) {
+        Objects.requireNonNull(function);
+        final Root newRoot = this.root.replaceAll((BiFunction<Object,Object,Object>)function);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : (AtomicHashStore<K,W>) this;
+    }
+
 
     public AtomicHashStore<K,V> compute(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         Objects.requireNonNull(remappingFunction);
@@ -308,6 +598,142 @@ public AtomicHashStore<K,V> merge(final K key, final V newValue, final BiFunctio
     }
 
 
+    /**
+     * Returns a store containing the union of the mappings in this store and the specified one, the mappings in
+     * this store taking precedence for keys mapped in both stores.
+     * <p>
+     * Both stores are walked together, reusing any parts of their internal structure that exist in only one of
+     * them (or are shared by both), so the cost of this operation depends on the size of the overlap between both
+     * stores and not on their sizes. See {@link #putAll(AtomicHashStore)} for the inverse precedence.
+     *
+     * @param other the other store.
+     * @return the resulting store, or this same store if the specified one contains no keys absent from it.
+     */
+    public AtomicHashStore<K,V> union(final AtomicHashStore<? extends K, ? extends V> other) {
+        Objects.requireNonNull(other);
+        final Root newRoot = this.root.union(other.root);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing the mappings in this store for keys that are also mapped in the specified store
+     * (whatever their values).
+     * <p>
+     * Both stores are walked together: parts of this store at positions that are empty in the other one are
+     * dropped without being traversed, and those shared by both stores are kept as they are.
+     *
+     * @param other the other store.
+     * @return the resulting store, or this same store if all its keys are mapped in the specified one.
+     */
+    public AtomicHashStore<K,V> intersect(final AtomicHashStore<?,?> other) {
+        Objects.requireNonNull(other);
+        final Root newRoot = this.root.intersect(other.root);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing the mappings in this store for the keys in the specified set. Equivalent to
+     * {@link #intersect(AtomicHashStore)}, but for a set of keys.
+     *
+     * @param keys the keys to be retained.
+     * @return the resulting store, or this same store if all its keys are contained in the specified set.
+     */
+    public AtomicHashStore<K,V> intersect(final AtomicHashStoreSet<?> keys) {
+        Objects.requireNonNull(keys);
+        final Root newRoot = this.root.retainAll(keys.innerNode());
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing the mappings in this store for keys that are not mapped in the specified store
+     * (whatever their values).
+     * <p>
+     * Both stores are walked together: parts of this store at positions that are empty in the other one are kept
+     * without being traversed, and those shared by both stores are dropped as a whole.
+     *
+     * @param other the other store.
+     * @return the resulting store, or this same store if none of its keys are mapped in the specified one.
+     */
+    public AtomicHashStore<K,V> difference(final AtomicHashStore<?,?> other) {
+        Objects.requireNonNull(other);
+        final Root newRoot = this.root.difference(other.root);
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+    /**
+     * Returns a store containing the mappings in this store for keys not in the specified set. Equivalent to
+     * {@link #difference(AtomicHashStore)}, but for a set of keys.
+     *
+     * @param keys the keys to be removed.
+     * @return the resulting store, or this same store if none of its keys are contained in the specified set.
+     */
+    public AtomicHashStore<K,V> difference(final AtomicHashStoreSet<?> keys) {
+        Objects.requireNonNull(keys);
+        final Root newRoot = this.root.removeAll(keys.innerNode());
+        return (this.root != newRoot) ? new AtomicHashStore<>(newRoot) : this;
+    }
+
+
+    /**
+     * Performs the given action for each key mapped in both this store and the specified one, passing it the key
+     * and the values mapped to it in this (left) and the specified (right) store.
+     * <p>
+     * Both stores are walked together in a single pass, given keys are always placed in the same positions of the
+     * internal structure of any store. This means no lookups are performed on the specified store for keys that
+     * are not mapped in it, and parts of the internal structure shared by both stores are not even compared.
+     *
+     * @param other the other (right) store.
+     * @param action the action to be performed for each key mapped in both stores.
+     * @param <W> the type of the values in the other store.
+     */
+    public <W> void join(final AtomicHashStore<? extends K, ? extends W> other,
+                         final TriConsumer<? super K, ? super V, ? super W> action) {
+        join(other, action, null, null);
+    }
+
+    /**
+     * Performs the given actions for each key mapped in this store and/or the specified one: keys mapped in both
+     * stores are passed to the action along with their values in this (left) and the specified (right) store,
+     * and keys mapped in only one of them are passed to the corresponding left or right action along with their
+     * value (see {@link #join(AtomicHashStore, TriConsumer)}).
+     * <p>
+     * The left and right actions can be {@code null}, in which case parts of the internal structure of each
+     * store that do not exist in the other one are skipped without being traversed.
+     *
+     * @param other the other (right) store.
+     * @param action the action to be performed for each key mapped in both stores.
+     * @param leftAction the action to be performed for each key mapped only in this store, or null if none.
+     * @param rightAction the action to be performed for each key mapped only in the other store, or null if none.
+     * @param <W> the type of the values in the other store.
+     */
+    public <W> void join(final AtomicHashStore<? extends K, ? extends W> other,
+                         final TriConsumer<? super K, ? super V, ? super W> action,
+                         final BiConsumer<? super K, ? super V> leftAction,
+                         final BiConsumer<? super K, ? super W> rightAction) {
+        Objects.requireNonNull(other);
+        Objects.requireNonNull(action);
+        this.root.join(other.root, (TriConsumer<Object,Object,Object>) action,
+                (BiConsumer<Object,Object>) leftAction, (BiConsumer<Object,Object>) rightAction);
+    }
+
+
+    /**
+     * Computes the differences between this store and an older one, typically a previous snapshot of the same
+     * {@link AtomicHashMap} (see {@link AtomicHashMap#store()}).
+     * <p>
+     * Any parts of the internal structure shared by both stores are skipped, so the cost of this operation depends
+     * on the amount of differences between the stores and not on their size. Values are compared using
+     * {@link Object#equals(Object)}.
+     *
+     * @param older the store to be compared with this one, considered the older version.
+     * @return the differences between both stores.
+     */
+    public Diff<K,V> diff(final AtomicHashStore<? extends K, ? extends V> older) {
+        Objects.requireNonNull(older);
+        return new Diff<>(this.root, older.root);
+    }
+
+
     @Override
     public boolean equals(final Object other) {
         // Implemented per the definition of Map.equals()
@@ -317,24 +743,18 @@ public boolean equals(final Object other) {
         if (!(other instanceof AtomicHashStore<?,?>)) {
             return false;
         }
-        // In order to ensure consistency of the operation, only one call (".entrySet()") will be performed
-        // on "this" and on the "other" variable. This avoids possible issues that could arise if first "other.size()"
-        // was checked and then "other.entrySet()", but "other" was modified in between.
-        final Set<Map.Entry<K,V>> entrySet = entrySet();
+        // Both stores are immutable, so their internal structures can be directly compared. Any parts of these
+        // structures shared by both stores will be skipped.
         final AtomicHashStore<?,?> otherStore = (AtomicHashStore<?,?>) other;
-        return entrySet.equals(otherStore.entrySet());
+        return this.root.sameMappings(otherStore.root);
     }
 
 
     @Override
     public int hashCode() {
-        // Implemented per the definition of Map.hashCode()
-        final Set<Map.Entry<K,V>> entrySet = entrySet();
-        int hashCode = 0;
-        for (final Map.Entry<K,V> entry : entrySet) {
-            hashCode += entry.hashCode();
-        }
-        return hashCode;
+        // Implemented per the definition of Map.hashCode(), though hash codes are cached in the internal structure
+        // (which assumes the hash codes of values do not change while they are in the store)
+        return this.root.mappingsHashCode();
     }
 
 
@@ -361,4 +781,160 @@ public String toString() {
         }
     }
 
+
+
+
+    /**
+     * Builder for {@link AtomicHashStore} objects, meant for the efficient construction of stores containing
+     * a large number of mappings.
+     * <p>
+     * Contrary to {@link AtomicHashStore}, builders are mutable: instead of copying the path from the modified
+     * position up to the root of the tree for every new mapping (as {@link AtomicHashStore#put(Object, Object)}
+     * needs to do), a builder modifies in place all the tree nodes that it has created itself, and only copies
+     * (once) the nodes shared with the store it was created from. Calling {@link #build()} turns the result into a
+     * normal immutable {@link AtomicHashStore}.
+     * <p>
+     * A builder can continue to be used after calling {@link #build()}. Further modifications will not affect
+     * any of the stores previously built.
+     * <p>
+     * Builders are <strong>not thread-safe</strong>, and should never be shared among threads.
+     *
+     * @param <K> the type of keys maintained by the built store
+     * @param <V> the type of mapped values
+     */
+    public static final class Builder<K,V> {
+
+        private Node node;
+        private TransientNode transientNode;
+
+
+        private Builder(final Node node) {
+            super();
+            this.node = node;
+            this.transientNode = null;
+        }
+
+
+        private TransientNode transientNode() {
+            if (this.transientNode == null) {
+                this.transientNode = TransientNode.of(this.node);
+            }
+            return this.transientNode;
+        }
+
+
+        public int size() {
+            return (this.transientNode != null) ? this.transientNode.size : this.node.size;
+        }
+
+
+        public Builder<K,V> put(final K key, final V value) {
+            transientNode().put(entry(key, value));
+            return this;
+        }
+
+        public Builder<K,V> putAll(final Map<? extends K, ? extends V> newMappings) {
+            Objects.requireNonNull(newMappings);
+            final TransientNode transientNode = transientNode();
+            for (final Map.Entry<? extends K, ? extends V> entry : newMappings.entrySet()) {
+                transientNode.put(entry(entry.getKey(), entry.getValue()));
+            }
+            return this;
+        }
+
+
+        public Builder<K,V> remove(final Object key) {
+            transientNode().remove(Entry.hash(key), key);
+            return this;
+        }
+
+
+        /**
+         * Creates a new {@link AtomicHashStore} containing all the mappings currently in this builder.
+         *
+         * @return the new store.
+         */
+        public AtomicHashStore<K,V> build() {
+            if (this.transientNode != null) {
+                this.node = this.transientNode.freeze();
+                this.transientNode = null;
+            }
+            return new AtomicHashStore<>(Root.of(this.node));
+        }
+
+    }
+
+
+
+    /**
+     * The differences between two stores, as computed by {@link AtomicHashStore#diff(AtomicHashStore)}.
+     * <p>
+     * All maps returned by this class are unmodifiable.
+     *
+     * @param <K> the type of keys maintained by the compared stores
+     * @param <V> the type of mapped values
+     */
+    public static final class Diff<K,V> {
+
+        private final Map<K,V> added;
+        private final Map<K,V> removed;
+        private final Map<K,V> changed;
+
+
+        private Diff(final Root newer, final Root older) {
+            super();
+            final Map<Object,Object> added = new HashMap<>();
+            final Map<Object,Object> removed = new HashMap<>();
+            final Map<Object,Object> changed = new HashMap<>();
+            newer.diff(older, added, removed, changed);
+            this.added = (Map<K,V>) (added.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(added));
+            this.removed = (Map<K,V>) (removed.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(removed));
+            this.changed = (Map<K,V>) (changed.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(changed));
+        }
+
+
+        /**
+         * Returns the mappings that exist in the newer store but not in the older one.
+         *
+         * @return the added mappings.
+         */
+        public Map<K,V> added() {
+            return this.added;
+        }
+
+        /**
+         * Returns the mappings that exist in the older store but not in the newer one, with their old values.
+         *
+         * @return the removed mappings.
+         */
+        public Map<K,V> removed() {
+            return this.removed;
+        }
+
+        /**
+         * Returns the mappings that exist in both stores with values that are not equal, with their new values.
+         *
+         * @return the changed mappings.
+         */
+        public Map<K,V> changed() {
+            return this.changed;
+        }
+
+        /**
+         * Returns whether there are no differences at all between the compared stores.
+         *
+         * @return <kbd>true</kbd> if the compared stores contain the same mappings, <kbd>false</kbd> if not.
+         */
+        public boolean isEmpty() {
+            return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty();
+        }
+
+
+        @Override
+        public String toString() {
+            return "{added=" + this.added + ", removed=" + this.removed + ", changed=" + this.changed + "}";
+        }
+
+    }
+
 }
@@ -0,0 +1,266 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe, immutable set of elements.
+ * <p>
+ * This class corresponds to the internal data store used by {@link AtomicHashSet}, in the same way that
+ * {@link AtomicHashStore} corresponds to {@link AtomicHashMap}. All of its operations are
+ * <strong>thread-safe</strong>, <strong>atomic</strong> and <strong>non-blocking</strong>, and all modifications
+ * return a new instance of {@link AtomicHashStoreSet} containing the modified data.
+ * <p>
+ * Hash codes of stores are computed only once and cached in their internal structure, which assumes that elements
+ * are not modified in any way that changes their {@code equals} or {@code hashCode} while they are in a store.
+ * <p>
+ * Elements are stored in a tree with the same structure as that of {@link AtomicHashStore}, but which only holds
+ * keys: every element occupies a single slot in the tree instead of the two (key and value) taken by a mapping, so
+ * a set needs roughly half the memory of a store mapping the same keys. As both trees place elements at the same
+ * positions, set operations between stores and sets ({@link AtomicHashStore#intersect(AtomicHashStoreSet)},
+ * {@link AtomicHashStore#difference(AtomicHashStoreSet)}) can still be performed structurally.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <E> the type of elements maintained by this set
+ */
+@SuppressWarnings("unchecked")
+public final class AtomicHashStoreSet<E> implements Iterable<E>, Serializable {
+
+    private static final long serialVersionUID = 8049147537611240218L;
+
+    private final KeyNode node;
+
+
+
+    @SafeVarargs
+    public static <E> AtomicHashStoreSet<E> of(final E... elements) {
+        Objects.requireNonNull(elements);
+        return new AtomicHashStoreSet<>(KeyNode.build(elements));
+    }
+
+
+
+    public AtomicHashStoreSet() {
+        this.node = KeyNode.EMPTY_NODE;
+    }
+
+    AtomicHashStoreSet(final KeyNode node) {
+        this.node = node;
+    }
+
+
+    KeyNode innerNode() {
+        return this.node;
+    }
+
+
+    private AtomicHashStoreSet<E> store(final KeyNode newNode) {
+        return (this.node != newNode) ? new AtomicHashStoreSet<>(newNode) : this;
+    }
+
+
+    public int size() {
+        return this.node.size;
+    }
+
+
+    public boolean isEmpty() {
+        return this.node.size == 0;
+    }
+
+
+    public boolean contains(final Object element) {
+        return this.node.contains(element);
+    }
+
+    public boolean containsAll(final Collection<?> elements) {
+        Objects.requireNonNull(elements);
+        for (final Object element : elements) {
+            if (!this.node.contains(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    public AtomicHashStoreSet<E> add(final E element) {
+        return store(this.node.add(element));
+    }
+
+    public AtomicHashStoreSet<E> addAll(final Collection<? extends E> elements) {
+        Objects.requireNonNull(elements);
+        return store(KeyNode.union(this.node, KeyNode.build(elements.toArray())));
+    }
+
+    /**
+     * Returns a set containing all the elements in this set plus all the elements in the specified set.
+     * <p>
+     * This operation structurally merges both sets, reusing any parts of their internal structure that
+     * exist in only one of them (or are shared by both), so its cost depends on the size of the overlap between
+     * both sets and not on their sizes.
+     *
+     * @param elements the set containing the elements to be added.
+     * @return the resulting set.
+     */
+    public AtomicHashStoreSet<E> addAll(final AtomicHashStoreSet<? extends E> elements) {
+        Objects.requireNonNull(elements);
+        return store(KeyNode.union(this.node, elements.node));
+    }
+
+
+    public AtomicHashStoreSet<E> remove(final Object element) {
+        return store(this.node.remove(element));
+    }
+
+    public AtomicHashStoreSet<E> removeAll(final Collection<?> elements) {
+        Objects.requireNonNull(elements);
+        if (this.node.size == 0 || elements.isEmpty()) {
+            return this;
+        }
+        return store(KeyNode.removeAll(this.node, KeyNode.build(elements.toArray())));
+    }
+
+    public AtomicHashStoreSet<E> retainAll(final Collection<?> elements) {
+        Objects.requireNonNull(elements);
+        if (this.node.size == 0) {
+            return this;
+        }
+        return store(KeyNode.retainAll(this.node, KeyNode.build(elements.toArray())));
+    }
+
+
+    /**
+     * Returns a set containing the elements in this set that are also contained in the specified set.
+     * <p>
+     * Both sets are walked together: parts of this set at positions that are empty in the other one are dropped
+     * without being traversed, and those shared by both sets are kept as they are. See
+     * {@link #addAll(AtomicHashStoreSet)} for the union of two sets.
+     *
+     * @param elements the other set.
+     * @return the resulting set.
+     */
+    public AtomicHashStoreSet<E> intersect(final AtomicHashStoreSet<?> elements) {
+        Objects.requireNonNull(elements);
+        return store(KeyNode.retainAll(this.node, elements.node));
+    }
+
+    /**
+     * Returns a set containing the elements in this set that are not contained in the specified set.
+     * <p>
+     * Both sets are walked together: parts of this set at positions that are empty in the other one are kept
+     * without being traversed, and those shared by both sets are dropped as a whole.
+     *
+     * @param elements the other set.
+     * @return the resulting set.
+     */
+    public AtomicHashStoreSet<E> difference(final AtomicHashStoreSet<?> elements) {
+        Objects.requireNonNull(elements);
+        return store(KeyNode.removeAll(this.node, elements.node));
+    }
+
+
+    public AtomicHashStoreSet<E> removeIf(final Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        return store(KeyNode.removeIf(this.node, (Predicate<Object>) filter));
+    }
+
+
+    public AtomicHashStoreSet<E> clear() {
+        return store(KeyNode.EMPTY_NODE);
+    }
+
+
+    /**
+     * Returns an unmodifiable {@link Set} view of this store. As the store is immutable, the view will never
+     * change and can be created in constant time.
+     *
+     * @return the set view.
+     */
+    public Set<E> toSet() {
+        return (Set<E>) this.node.asSet();
+    }
+
+
+    @Override
+    public Iterator<E> iterator() {
+        return (Iterator<E>) this.node.iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return (Spliterator<E>) this.node.spliterator();
+    }
+
+
+    public Stream<E> stream() {
+        return toSet().stream();
+    }
+
+    public Stream<E> parallelStream() {
+        return toSet().parallelStream();
+    }
+
+
+    @Override
+    public void forEach(final Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        this.node.forEach((Consumer<Object>) action);
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Set.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof AtomicHashStoreSet<?>)) {
+            return false;
+        }
+        return KeyNode.sameKeys(this.node, ((AtomicHashStoreSet<?>) other).node);
+    }
+
+
+    @Override
+    public int hashCode() {
+        // Implemented per the definition of Set.hashCode(), cached in the internal structure
+        return this.node.keysHashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return toSet().toString();
+    }
+
+
+}
@@ -0,0 +1,314 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+
+/*
+ * Flat combiner for the write operations of an AtomicHashMap (see ContentionStrategy#combining()).
+ *
+ * Instead of each writer building its own new version of the tree and competing for replacing the root, writers
+ * publish their operations in an array of slots. Whichever of them manages to acquire the combiner lock applies all
+ * the published operations at once on a single transient (mutable) copy of the tree, so that the path to each
+ * modified position is only copied once per batch, freezes it and replaces the root with a single compare-and-swap.
+ * Results are then handed back to the waiting writers.
+ *
+ * Other write operations on the map (not published here) keep replacing the root directly, so the combiner's
+ * compare-and-swap can still fail, in which case the batch is simply applied again on the new root.
+ */
+final class Combiner implements Serializable {
+
+    private static final long serialVersionUID = -3102763395651270831L;
+
+    private static final int MAX_SLOTS = 64;
+
+    private final int slotCount;
+    // Slots and lock only make sense while operations are in progress, so they are never serialized
+    private final transient AtomicReferenceArray<Operation> slots;
+    private final transient AtomicBoolean lock;
+    // Only read and written by the thread holding the lock, so that it can detect its own re-entrant calls
+    private transient Thread combinerThread;
+    private transient TransientNode combining;
+    private transient boolean combiningModified;
+
+
+
+    Combiner() {
+        this(Math.min(MAX_SLOTS, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() << 1)));
+    }
+
+
+    private Combiner(final int slotCount) {
+        super();
+        this.slotCount = slotCount;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.lock = new AtomicBoolean(false);
+    }
+
+
+    private Object readResolve() {
+        return new Combiner(this.slotCount);
+    }
+
+
+
+    // Returns the previous value, or null if not mapped
+    Object put(final AtomicReference<Root> root, final Contention contention, final Entry entry) {
+        return combine(root, contention, new Put(entry));
+    }
+
+
+    // Returns the previous value, or null if not mapped
+    Object remove(final AtomicReference<Root> root, final Contention contention, final int hash, final Object key) {
+        return combine(root, contention, new Remove(hash, key));
+    }
+
+
+    // Returns the resulting value, or null if the mapping was removed
+    Object merge(final AtomicReference<Root> root, final Contention contention,
+                 final int hash, final Object key, final Object value,
+                 final BiFunction<Object,Object,Object> remappingFunction) {
+        return combine(root, contention, new Merge(hash, key, value, remappingFunction));
+    }
+
+
+
+    private Object combine(final AtomicReference<Root> root, final Contention contention, final Operation operation) {
+
+        if (this.combinerThread == Thread.currentThread()) {
+            // Called from a function executed by the combiner itself: waiting for a combiner would never end, so the
+            // operation is applied directly as a part of the batch in progress (and applied again if it is retried)
+            this.combiningModified |= operation.apply(this.combining);
+            return operation.result;
+        }
+
+        publish(operation);
+
+        while (!operation.done) {
+            if (!this.lock.get() && this.lock.compareAndSet(false, true)) {
+                this.combinerThread = Thread.currentThread();
+                try {
+                    // The operation might have been completed by the previous combiner right before acquiring
+                    if (!operation.done) {
+                        combineAll(root, contention);
+                    }
+                } finally {
+                    this.combinerThread = null;
+                    this.combining = null;
+                    this.lock.set(false);
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+
+        final Throwable failure = operation.failure;
+        if (failure != null) {
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure; // Functions in operations cannot throw checked exceptions
+        }
+        return operation.result;
+
+    }
+
+
+    private void publish(final Operation operation) {
+        final int mask = this.slotCount - 1;
+        // Each thread starts probing at a different slot, so that threads rarely compete for the same one
+        int slot = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        while (!this.slots.compareAndSet((slot & mask), null, operation)) {
+            // If all slots are in use, one of their writers will combine and free them soon
+            slot++;
+            Thread.onSpinWait();
+        }
+    }
+
+
+    private void combineAll(final AtomicReference<Root> root, final Contention contention) {
+
+        final Operation[] operations = new Operation[this.slotCount];
+        int len = 0;
+        Operation operation;
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            if ((operation = this.slots.get(slot)) != null) {
+                operation.slot = slot;
+                operations[len++] = operation;
+            }
+        }
+
+        Root oldRoot, newRoot;
+        int failed = 0;
+        do {
+            oldRoot = root.get();
+            final TransientNode node = TransientNode.of(oldRoot.node);
+            this.combining = node;
+            this.combiningModified = false;
+            boolean modified = false;
+            for (int i = 0; i < len; i++) {
+                operation = operations[i];
+                operation.failure = null;
+                try {
+                    modified |= operation.apply(node);
+                } catch (final Throwable t) {
+                    operation.result = null;
+                    operation.failure = t;
+                }
+            }
+            modified |= this.combiningModified;
+            newRoot = modified ? Root.of(node.freeze()) : oldRoot;
+        } while (oldRoot != newRoot && !compareAndSetRoot(root, contention, oldRoot, newRoot, failed++));
+
+        for (int i = 0; i < len; i++) {
+            operation = operations[i];
+            // The slot needs to be freed before signaling completion, so that the writer can publish again
+            this.slots.set(operation.slot, null);
+            operation.done = true;
+        }
+
+    }
+
+
+    private static boolean compareAndSetRoot(final AtomicReference<Root> root, final Contention contention,
+                                             final Root oldRoot, final Root newRoot, final int failed) {
+        if (root.compareAndSet(oldRoot, newRoot)) {
+            contention.succeeded(failed);
+            return true;
+        }
+        contention.failed(failed + 1);
+        return false;
+    }
+
+
+
+
+    private abstract static class Operation {
+
+        int slot;
+        Object result;
+        Throwable failure;
+        // Set by the combiner once result and failure can be read by the writer
+        volatile boolean done;
+
+        Operation() {
+            super();
+        }
+
+        // Returns whether the node was modified, setting the result of the operation
+        abstract boolean apply(final TransientNode node);
+
+    }
+
+
+    private static final class Put extends Operation {
+
+        private final Entry entry;
+
+        Put(final Entry entry) {
+            super();
+            this.entry = entry;
+        }
+
+        @Override
+        boolean apply(final TransientNode node) {
+            final Object value = node.get(this.entry.hash, this.entry.key);
+            if (value == Entry.NOT_FOUND) {
+                this.result = null;
+            } else {
+                this.result = value;
+                if (value == this.entry.value && node.containsSame(this.entry.hash, this.entry.key, value)) {
+                    // Same as Root#put(), putting the very key and value objects already mapped does not modify it
+                    return false;
+                }
+            }
+            node.put(this.entry);
+            return true;
+        }
+
+    }
+
+
+    private static final class Remove extends Operation {
+
+        private final int hash;
+        private final Object key;
+
+        Remove(final int hash, final Object key) {
+            super();
+            this.hash = hash;
+            this.key = key;
+        }
+
+        @Override
+        boolean apply(final TransientNode node) {
+            final Object value = node.get(this.hash, this.key);
+            if (value == Entry.NOT_FOUND) {
+                this.result = null;
+                return false;
+            }
+            this.result = value;
+            return node.remove(this.hash, this.key);
+        }
+
+    }
+
+
+    private static final class Merge extends Operation {
+
+        private final int hash;
+        private final Object key;
+        private final Object value;
+        private final BiFunction<Object,Object,Object> remappingFunction;
+
+        Merge(final int hash, final Object key, final Object value,
+              final BiFunction<Object,Object,Object> remappingFunction) {
+            super();
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        boolean apply(final TransientNode node) {
+            // Same semantics as Root#merge()
+            final Object oldValue = node.get(this.hash, this.key);
+            final Object newValue =
+                    (oldValue == null || oldValue == Entry.NOT_FOUND) ?
+                            this.value : this.remappingFunction.apply(oldValue, this.value);
+            this.result = newValue;
+            if (newValue == null) {
+                return node.remove(this.hash, this.key);
+            }
+            if (newValue == oldValue && node.containsSame(this.hash, this.key, newValue)) {
+                return false;
+            }
+            node.put(new Entry(this.hash, this.key, newValue, null));
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Per-map state used for applying a ContentionStrategy: counters of compare-and-swap attempts and failures, plus
+ * an estimate of the recent failure rate used by adaptive backoff.
+ *
+ * Counters are only updated once per write operation, adding all the attempts it needed, and are striped (LongAdder)
+ * so that they do not become a point of contention themselves.
+ */
+final class Contention implements Serializable {
+
+    private static final long serialVersionUID = -1749024603388187032L;
+
+    // Failure rate is kept as a fixed-point value in [0, RATE_ONE], decaying by 1/16 on every update
+    private static final int RATE_SHIFT = 10;
+    private static final int RATE_ONE = 1 << RATE_SHIFT;
+    private static final int RATE_DECAY_SHIFT = 4;
+
+    final ContentionStrategy strategy;
+    private final LongAdder attempts;
+    private final LongAdder failures;
+
+    // Racy on purpose: this is a mere estimate, and lost updates are irrelevant to it
+    private transient int failureRate;
+
+
+
+    Contention(final ContentionStrategy strategy) {
+        super();
+        this.strategy = strategy;
+        this.attempts = new LongAdder();
+        this.failures = new LongAdder();
+        this.failureRate = 0;
+    }
+
+
+
+    long attempts() {
+        return this.attempts.sum();
+    }
+
+
+    long failures() {
+        return this.failures.sum();
+    }
+
+
+    // Called once an operation succeeds after the specified number of failed attempts
+    void succeeded(final int failed) {
+        this.attempts.add(failed + 1);
+        if (failed > 0) {
+            this.failures.add(failed);
+        }
+        if (this.strategy.type == ContentionStrategy.Type.ADAPTIVE_BACKOFF) {
+            final int rate = this.failureRate;
+            if (rate != 0) { // Avoids writing to shared memory when there is no contention
+                this.failureRate = rate - (rate >> RATE_DECAY_SHIFT) - 1;
+            }
+        }
+    }
+
+
+    // Called after an attempt fails, before retrying. The number of consecutive failures includes this one.
+    void failed(final int failed) {
+        switch (this.strategy.type) {
+            case EXPONENTIAL_BACKOFF:
+                spin(Math.min(this.strategy.maxSpins, 1 << Math.min(failed - 1, 30)));
+                break;
+            case ADAPTIVE_BACKOFF:
+                final int rate = this.failureRate;
+                this.failureRate = rate + ((RATE_ONE - rate) >> RATE_DECAY_SHIFT);
+                if (rate == 0) { // No recent failures: retry immediately
+                    break;
+                }
+                // The first wait grows from 1 spin (few recent failures) to maxSpins / 16 (all attempts failing)
+                final int initialSpins =
+                        Math.max(1, (int) (((long) this.strategy.maxSpins * rate) >> (RATE_SHIFT + RATE_DECAY_SHIFT)));
+                spin((int) Math.min(this.strategy.maxSpins, (long) initialSpins << Math.min(failed - 1, 30)));
+                break;
+            default:
+                break;
+        }
+    }
+
+
+    // Called once an operation gives up after the specified number of failed attempts instead of retrying (leaving
+    // retries to the caller, as in AtomicHashMap#compareAndSetStore()), after failed() was called for the last one
+    void abandoned(final int failed) {
+        this.attempts.add(failed);
+        this.failures.add(failed);
+    }
+
+
+    private static void spin(final int spins) {
+        for (int i = 0; i < spins; i++) {
+            Thread.onSpinWait();
+        }
+    }
+
+}
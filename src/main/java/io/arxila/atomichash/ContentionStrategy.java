@@ -0,0 +1,179 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+
+/**
+ * Strategy followed by an {@link AtomicHashMap} when one of its write operations fails to replace the internal
+ * structure of the map because another thread replaced it first, before retrying the operation.
+ * <p>
+ * Under heavy write contention, retrying immediately means most threads will keep failing, wasting both CPU and
+ * the memory used for the discarded copies of the modified structure. Waiting (by means of
+ * {@link Thread#onSpinWait()}) before retrying reduces the number of threads competing at any given moment:
+ * <ul>
+ *   <li>{@link #none()}: retries immediately. This is the default, and the best option when contention is low.</li>
+ *   <li>{@link #exponentialBackoff()}: waits before each retry, doubling the wait on every consecutive failure of
+ *       the same operation up to a maximum.</li>
+ *   <li>{@link #adaptiveBackoff()}: like exponential backoff, but starting with longer waits the higher the rate
+ *       of failures recently observed on the map is, and not waiting at all when there have been none.</li>
+ *   <li>{@link #combining()}: avoids most retries altogether by combining the operations of concurrent writers
+ *       into batches applied by a single thread (see below).</li>
+ *   <li>{@link #keyLocking()}: serializes the write operations on the same key by means of striped locks, so that
+ *       remapping functions are executed exactly once per call (see below).</li>
+ * </ul>
+ * <p>
+ * In combining mode, the {@link AtomicHashMap#put(Object, Object)}, {@link AtomicHashMap#remove(Object)} and
+ * {@link AtomicHashMap#merge(Object, Object, java.util.function.BiFunction)} operations are published by their
+ * writers instead of being directly applied. The first of these writers that finds no other one combining applies
+ * all the operations published so far in a single pass on a mutable copy of the internal structure, replaces the
+ * structure of the map once for the whole batch and hands the results back to the other writers, which wait for
+ * them (or become the next combiner). The operations in a batch are applied one after the other, so each of them
+ * is still atomic and sees the effects of the previous ones. Remapping functions are executed by the combiner
+ * thread, and any writes they perform on the same map are applied as a part of the batch in progress. All other
+ * write operations are applied directly, retrying immediately as with {@link #none()}. As direct writes can replace
+ * the structure of the map while a batch is being applied, the whole batch is applied again when that happens, so
+ * remapping functions might also be executed more than once per call in this mode.
+ * <p>
+ * With all strategies except key locking, the functions passed to the {@code compute*} and {@code merge}
+ * operations might be executed more than once per call, as they are executed again on every retry. In key locking
+ * mode, every write operation on a single key holds a lock selected by the hash of the key (shared with other keys,
+ * but only a few) while it executes, so that the value mapped to the key cannot change during the operation and the
+ * function only needs to be executed once, on that value. Writers of keys using different locks still compete for replacing the
+ * internal structure, retrying immediately as with {@link #none()}, but without executing the function again.
+ * Write operations on several keys ({@code putAll}, {@code replaceAll}, {@code clear}) hold all the locks. Read
+ * operations never use the locks and are therefore never blocked. As a consequence of locking, functions executed
+ * in this mode must not modify the map themselves, or they might cause a deadlock.
+ * <p>
+ * The number of attempts and failures of each map can be monitored by means of
+ * {@link AtomicHashMap#casAttempts()} and {@link AtomicHashMap#casFailures()}.
+ * <p>
+ * Instances of this class are immutable and can be shared among any number of maps.
+ */
+public final class ContentionStrategy implements Serializable {
+
+    private static final long serialVersionUID = 4530871166428392815L;
+
+    static final int DEFAULT_MAX_SPINS = 1 << 10;
+
+    private static final ContentionStrategy NONE = new ContentionStrategy(Type.NONE, 0);
+    private static final ContentionStrategy EXPONENTIAL_BACKOFF =
+            new ContentionStrategy(Type.EXPONENTIAL_BACKOFF, DEFAULT_MAX_SPINS);
+    private static final ContentionStrategy ADAPTIVE_BACKOFF =
+            new ContentionStrategy(Type.ADAPTIVE_BACKOFF, DEFAULT_MAX_SPINS);
+    private static final ContentionStrategy COMBINING = new ContentionStrategy(Type.COMBINING, 0);
+    private static final ContentionStrategy KEY_LOCKING = new ContentionStrategy(Type.KEY_LOCKING, 0);
+
+
+    enum Type { NONE, EXPONENTIAL_BACKOFF, ADAPTIVE_BACKOFF, COMBINING, KEY_LOCKING }
+
+    final Type type;
+    final int maxSpins;
+
+
+
+    public static ContentionStrategy none() {
+        return NONE;
+    }
+
+
+    public static ContentionStrategy exponentialBackoff() {
+        return EXPONENTIAL_BACKOFF;
+    }
+
+
+    /**
+     * Creates an exponential backoff strategy that will never wait for more than the specified number of spins.
+     *
+     * @param maxSpins the maximum number of calls to {@link Thread#onSpinWait()} before each retry.
+     * @return the strategy.
+     */
+    public static ContentionStrategy exponentialBackoff(final int maxSpins) {
+        return new ContentionStrategy(Type.EXPONENTIAL_BACKOFF, checkMaxSpins(maxSpins));
+    }
+
+
+    public static ContentionStrategy adaptiveBackoff() {
+        return ADAPTIVE_BACKOFF;
+    }
+
+
+    /**
+     * Creates an adaptive backoff strategy that will never wait for more than the specified number of spins.
+     *
+     * @param maxSpins the maximum number of calls to {@link Thread#onSpinWait()} before each retry.
+     * @return the strategy.
+     */
+    public static ContentionStrategy adaptiveBackoff(final int maxSpins) {
+        return new ContentionStrategy(Type.ADAPTIVE_BACKOFF, checkMaxSpins(maxSpins));
+    }
+
+
+    public static ContentionStrategy combining() {
+        return COMBINING;
+    }
+
+
+    public static ContentionStrategy keyLocking() {
+        return KEY_LOCKING;
+    }
+
+
+    private static int checkMaxSpins(final int maxSpins) {
+        if (maxSpins < 1) {
+            throw new IllegalArgumentException("Maximum number of spins must be greater than zero");
+        }
+        return maxSpins;
+    }
+
+
+
+    private ContentionStrategy(final Type type, final int maxSpins) {
+        super();
+        this.type = type;
+        this.maxSpins = maxSpins;
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ContentionStrategy)) {
+            return false;
+        }
+        final ContentionStrategy otherStrategy = (ContentionStrategy) other;
+        return this.type == otherStrategy.type && this.maxSpins == otherStrategy.maxSpins;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * this.type.hashCode() + this.maxSpins;
+    }
+
+
+    @Override
+    public String toString() {
+        return (this.maxSpins == 0) ? this.type.name().toLowerCase() : (this.type.name().toLowerCase() + "(maxSpins=" + this.maxSpins + ")");
+    }
+
+}
@@ -68,6 +68,23 @@ static int hash(final Object object) {
 
 
 
+    // Creates an array containing a (simple, non-collision) entry for each of the mappings in the map
+    static Entry[] entries(final Map<?,?> map) {
+        Entry[] entries = new Entry[map.size()];
+        int i = 0;
+        for (final Map.Entry<?,?> mapping : map.entrySet()) {
+            if (i == entries.length) {
+                // Map was modified during iteration (only possible if it is a concurrent map)
+                entries = Arrays.copyOf(entries, entries.length + (entries.length >> 1) + 1);
+            }
+            final Object key = mapping.getKey();
+            entries[i++] = new Entry(hash(key), key, mapping.getValue(), null);
+        }
+        return (i == entries.length) ? entries : Arrays.copyOf(entries, i);
+    }
+
+
+
     boolean containsKey(final int hash, final Object key) {
         return (this.collisions == null) ? containsKeySimple(hash, key) : containsKeyMultiple(hash, key);
     }
@@ -125,6 +142,17 @@ private Object getMultiple(final Object key) {
     }
 
 
+    // Only for collision buckets: whether these exact key and value objects are mapped (see set())
+    boolean containsSame(final Object key, final Object value) {
+        for (final Entry collision : this.collisions) {
+            if (collision.key == key) {
+                return collision.value == value;
+            }
+        }
+        return false;
+    }
+
+
     Entry set(final Entry newEntry) {
         // In order to determine whether a mapping already exists, key and value will be applied
         // referential equality and not object equality. This leaves room for the possibility of a mapping
@@ -0,0 +1,312 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * A thread-safe map specialized for primitive <kbd>int</kbd> keys, providing the same advanced concurrency
+ * features as {@link AtomicHashMap}.
+ * <p>
+ * This implementation is <strong>thread-safe</strong>, <strong>atomic</strong> and <strong>non-blocking</strong> for
+ * all of its methods, including multi-element methods such as {@link #getAll(int...)}. Its exact <em>snapshot</em>
+ * state can be obtained at any time as a {@link IntAtomicHashStore} by calling {@link #store()}.
+ * <p>
+ * Keys are never boxed: this map is a view of a {@link LongAtomicHashMap} whose keys are all <kbd>int</kbd> values,
+ * so they are stored as primitive values in the same internal tree structure, and the position of each key in the
+ * tree is computed from the key itself (previously mixed so that sequential keys are uniformly distributed). This
+ * means that hash collisions are not possible and lookups never need to call {@link Object#hashCode()} or
+ * {@link Object#equals(Object)} on keys.
+ * <p>
+ * Given keys are primitive values, this class does not implement the {@link java.util.Map} interface, though its
+ * methods follow the semantics of their equivalents in that interface.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings("unchecked")
+public final class IntAtomicHashMap<V> implements Serializable {
+
+    private static final long serialVersionUID = 4471896530218837751L;
+
+    // All operations are delegated, widening keys to long. Only those returning keys or depending on their type
+    // (getAll, keys, forEach, hashCode) need to be specific to int keys
+    private final LongAtomicHashMap<V> map;
+
+
+
+    /**
+     * Creates a new, empty map.
+     */
+    public IntAtomicHashMap() {
+        super();
+        this.map = new LongAtomicHashMap<>();
+    }
+
+
+    /**
+     * Creates a new map containing the same mappings as the specified store.
+     *
+     * @param store the store containing the initial mappings of the map.
+     */
+    public IntAtomicHashMap(final IntAtomicHashStore<? extends V> store) {
+        super();
+        Objects.requireNonNull(store);
+        this.map = new LongAtomicHashMap<>(store.innerStore());
+    }
+
+
+
+
+    /**
+     * Returns the exact <em>snapshot</em> state of this map, as an immutable {@link IntAtomicHashStore}.
+     *
+     * @return the current contents of the map.
+     */
+    public IntAtomicHashStore<V> store() {
+        return new IntAtomicHashStore<>(this.map.store());
+    }
+
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings.
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+
+    /**
+     * Returns whether this map contains no mappings.
+     *
+     * @return {@code true} if the map contains no mappings.
+     */
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+
+    /**
+     * Returns whether this map contains a mapping for the specified key.
+     *
+     * @param key the key to be checked.
+     * @return {@code true} if the key is mapped.
+     */
+    public boolean containsKey(final int key) {
+        return this.map.containsKey(key);
+    }
+
+    /**
+     * Returns whether this map maps any keys to the specified value, which requires traversing the whole map.
+     *
+     * @param value the value to be checked.
+     * @return {@code true} if any keys are mapped to the value.
+     */
+    public boolean containsValue(final Object value) {
+        return this.map.containsValue(value);
+    }
+
+
+    /**
+     * Returns the value mapped to the specified key, or {@code null} if the key is not mapped (or is mapped to
+     * {@code null}, see {@link #containsKey(int)}).
+     *
+     * @param key the key to be looked up.
+     * @return the value mapped to the key, or {@code null}.
+     */
+    public V get(final int key) {
+        return this.map.get(key);
+    }
+
+    /**
+     * Returns the value mapped to the specified key, or the specified default value if the key is not mapped.
+     *
+     * @param key the key to be looked up.
+     * @param defaultValue the value to be returned if the key is not mapped.
+     * @return the value mapped to the key, or the default value.
+     */
+    public V getOrDefault(final int key, final V defaultValue) {
+        return this.map.getOrDefault(key, defaultValue);
+    }
+
+
+    /**
+     * Returns the mappings for the specified keys, all of them looked up on the same snapshot of the map, as a new
+     * map containing only the keys that are present.
+     *
+     * @param keys the keys to be looked up.
+     * @return a map containing the mappings found for the specified keys.
+     */
+    public Map<Integer,V> getAll(final int... keys) {
+        return (Map<Integer,V>) (Map<Integer,?>) this.map.innerNode().getAll(keys);
+    }
+
+
+    /**
+     * Maps the specified value to the specified key, replacing the previous value if the key was already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V put(final int key, final V newValue) {
+        return this.map.put(key, newValue);
+    }
+
+    /**
+     * Maps the specified value to the specified key, only if the key is not mapped (or is mapped to {@code null}).
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped (and the new value was).
+     */
+    public V putIfAbsent(final int key, final V newValue) {
+        return this.map.putIfAbsent(key, newValue);
+    }
+
+
+    /**
+     * Removes the mapping for the specified key, if present.
+     *
+     * @param key the key to be removed.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V remove(final int key) {
+        return this.map.remove(key);
+    }
+
+    /**
+     * Removes the mapping for the specified key, only if the key is currently mapped to the specified value.
+     *
+     * @param key the key to be removed.
+     * @param oldValue the value the key is expected to be mapped to.
+     * @return {@code true} if the mapping was removed.
+     */
+    public boolean remove(final int key, final Object oldValue) {
+        return this.map.remove(key, oldValue);
+    }
+
+
+    /**
+     * Removes all the mappings from this map.
+     */
+    public void clear() {
+        this.map.clear();
+    }
+
+
+    /**
+     * Replaces the value mapped to the specified key, only if the key is already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V replace(final int key, final V newValue) {
+        return this.map.replace(key, newValue);
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the value computed by the
+     * specified function, unless that value is {@code null}. The function might be executed more than once if the
+     * map is concurrently modified by other threads.
+     *
+     * @param key the key.
+     * @param mappingFunction the function computing the value to be mapped to the key.
+     * @return the value mapped to the key after the operation, or {@code null} if none.
+     */
+    public V computeIfAbsent(final int key, final IntFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        return this.map.computeIfAbsent(key, k -> mappingFunction.apply(key));
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the specified value. Otherwise,
+     * maps it to the result of applying the specified function to its current value and the specified one, or
+     * removes the mapping if the result is {@code null}. The function might be executed more than once if the map
+     * is concurrently modified by other threads.
+     *
+     * @param key the key.
+     * @param newValue the value to be merged with the current one (cannot be {@code null}).
+     * @param remappingFunction the function computing the new value from the current and the specified ones.
+     * @return the value mapped to the key after the operation, or {@code null} if none.
+     */
+    public V merge(final int key, final V newValue,
+                   final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return this.map.merge(key, newValue, remappingFunction);
+    }
+
+
+    /**
+     * Returns all the keys in this map, obtained from a snapshot of the map.
+     *
+     * @return a new array containing all the keys, in iteration order.
+     */
+    public int[] keys() {
+        return this.map.innerNode().intKeys();
+    }
+
+
+    /**
+     * Performs the specified action for every mapping in a snapshot of this map.
+     *
+     * @param action the action to be performed.
+     */
+    public void forEach(final IntObjConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        this.map.forEach((key, value) -> action.accept((int) key, value));
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Map.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof IntAtomicHashMap<?>)) {
+            return false;
+        }
+        return this.map.equals(((IntAtomicHashMap<?>) other).map);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return store().hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return this.map.toString();
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * A thread-safe, immutable key-value store specialized for primitive <kbd>int</kbd> keys.
+ * <p>
+ * This class is the <kbd>int</kbd>-keyed counterpart of {@link AtomicHashStore}, and corresponds to the internal
+ * data store used by {@link IntAtomicHashMap}. All of its operations are <strong>thread-safe</strong>,
+ * <strong>atomic</strong> and <strong>non-blocking</strong>, and all modifications return a new instance of
+ * {@link IntAtomicHashStore} containing the modified data.
+ * <p>
+ * Keys are never boxed: this store is a view of a {@link LongAtomicHashStore} whose keys are all <kbd>int</kbd>
+ * values, so they are stored as primitive values in the same internal tree structure, and the position of each key
+ * in the tree is computed from the key itself (previously mixed so that sequential keys are uniformly distributed).
+ * This means that hash collisions are not possible and lookups never need to call {@link Object#hashCode()} or
+ * {@link Object#equals(Object)} on keys.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings("unchecked")
+public final class IntAtomicHashStore<V> implements Serializable {
+
+    private static final long serialVersionUID = -6120754283391604657L;
+
+    // All operations are delegated, widening keys to long (see IntAtomicHashMap)
+    private final LongAtomicHashStore<V> store;
+
+
+
+    /**
+     * Creates a new, empty store.
+     */
+    public IntAtomicHashStore() {
+        this.store = new LongAtomicHashStore<>();
+    }
+
+    IntAtomicHashStore(final LongAtomicHashStore<V> store) {
+        this.store = store;
+    }
+
+
+    LongAtomicHashStore<V> innerStore() {
+        return this.store;
+    }
+
+
+    LongNode innerNode() {
+        return this.store.innerNode();
+    }
+
+
+    private IntAtomicHashStore<V> store(final LongAtomicHashStore<V> newStore) {
+        return (this.store != newStore) ? new IntAtomicHashStore<>(newStore) : this;
+    }
+
+
+    /**
+     * Returns the number of mappings in this store.
+     *
+     * @return the number of mappings.
+     */
+    public int size() {
+        return this.store.size();
+    }
+
+
+    /**
+     * Returns whether this store contains no mappings.
+     *
+     * @return {@code true} if the store contains no mappings.
+     */
+    public boolean isEmpty() {
+        return this.store.isEmpty();
+    }
+
+
+    /**
+     * Returns whether this store contains a mapping for the specified key.
+     *
+     * @param key the key to be checked.
+     * @return {@code true} if the key is mapped.
+     */
+    public boolean containsKey(final int key) {
+        return this.store.containsKey(key);
+    }
+
+    /**
+     * Returns whether this store maps any keys to the specified value, which requires traversing the whole store.
+     *
+     * @param value the value to be checked.
+     * @return {@code true} if any keys are mapped to the value.
+     */
+    public boolean containsValue(final Object value) {
+        return this.store.containsValue(value);
+    }
+
+
+    /**
+     * Returns the value mapped to the specified key, or {@code null} if the key is not mapped (or is mapped to
+     * {@code null}, see {@link #containsKey(int)}).
+     *
+     * @param key the key to be looked up.
+     * @return the value mapped to the key, or {@code null}.
+     */
+    public V get(final int key) {
+        return this.store.get(key);
+    }
+
+    /**
+     * Returns the value mapped to the specified key, or the specified default value if the key is not mapped.
+     *
+     * @param key the key to be looked up.
+     * @param defaultValue the value to be returned if the key is not mapped.
+     * @return the value mapped to the key, or the default value.
+     */
+    public V getOrDefault(final int key, final V defaultValue) {
+        return this.store.getOrDefault(key, defaultValue);
+    }
+
+
+    /**
+     * Returns the mappings for the specified keys, as a new map containing only the keys that are present.
+     *
+     * @param keys the keys to be looked up.
+     * @return a map containing the mappings found for the specified keys.
+     */
+    public Map<Integer,V> getAll(final int... keys) {
+        return (Map<Integer,V>) (Map<Integer,?>) this.store.innerNode().getAll(keys);
+    }
+
+
+    /**
+     * Maps the specified value to the specified key, replacing the previous value if the key was already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was already mapped to the same value.
+     */
+    public IntAtomicHashStore<V> put(final int key, final V newValue) {
+        return store(this.store.put(key, newValue));
+    }
+
+    /**
+     * Maps the specified value to the specified key, only if the key is not mapped (or is mapped to {@code null}).
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was already mapped to a non-null value.
+     */
+    public IntAtomicHashStore<V> putIfAbsent(final int key, final V newValue) {
+        return store(this.store.putIfAbsent(key, newValue));
+    }
+
+
+    /**
+     * Removes the mapping for the specified key, if present.
+     *
+     * @param key the key to be removed.
+     * @return the new store, or the same store if the key was not mapped.
+     */
+    public IntAtomicHashStore<V> remove(final int key) {
+        return store(this.store.remove(key));
+    }
+
+    /**
+     * Removes the mapping for the specified key, only if the key is currently mapped to the specified value.
+     *
+     * @param key the key to be removed.
+     * @param oldValue the value the key is expected to be mapped to.
+     * @return the new store, or the same store if the mapping was not removed.
+     */
+    public IntAtomicHashStore<V> remove(final int key, final Object oldValue) {
+        return store(this.store.remove(key, oldValue));
+    }
+
+
+    /**
+     * Removes all the mappings from this store.
+     *
+     * @return an empty store, or the same store if it was already empty.
+     */
+    public IntAtomicHashStore<V> clear() {
+        return store(this.store.clear());
+    }
+
+
+    /**
+     * Replaces the value mapped to the specified key, only if the key is already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was not mapped.
+     */
+    public IntAtomicHashStore<V> replace(final int key, final V newValue) {
+        return store(this.store.replace(key, newValue));
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the value computed by the
+     * specified function, unless that value is {@code null}.
+     *
+     * @param key the key.
+     * @param mappingFunction the function computing the value to be mapped to the key.
+     * @return the new store, or the same store if no value was mapped.
+     */
+    public IntAtomicHashStore<V> computeIfAbsent(final int key, final IntFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        return store(this.store.computeIfAbsent(key, k -> mappingFunction.apply(key)));
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the specified value. Otherwise,
+     * maps it to the result of applying the specified function to its current value and the specified one, or
+     * removes the mapping if the result is {@code null}.
+     *
+     * @param key the key.
+     * @param newValue the value to be merged with the current one (cannot be {@code null}).
+     * @param remappingFunction the function computing the new value from the current and the specified ones.
+     * @return the new store, or the same store if it was not modified.
+     */
+    public IntAtomicHashStore<V> merge(final int key, final V newValue,
+                                        final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return store(this.store.merge(key, newValue, remappingFunction));
+    }
+
+
+    /**
+     * Returns all the keys in this store.
+     *
+     * @return a new array containing all the keys, in iteration order.
+     */
+    public int[] keys() {
+        return this.store.innerNode().intKeys();
+    }
+
+
+    /**
+     * Performs the specified action for every mapping in this store.
+     *
+     * @param action the action to be performed.
+     */
+    public void forEach(final IntObjConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        this.store.forEach((key, value) -> action.accept((int) key, value));
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Map.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof IntAtomicHashStore<?>)) {
+            return false;
+        }
+        return this.store.equals(((IntAtomicHashStore<?>) other).store);
+    }
+
+
+    @Override
+    public int hashCode() {
+        // Implemented per the definition of Map.hashCode() for a Map<Integer,V>
+        return this.store.innerNode().mappingsHashCode(true);
+    }
+
+
+    @Override
+    public String toString() {
+        return this.store.toString();
+    }
+
+
+}
@@ -0,0 +1,110 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Striped per-key locks for the write operations of an AtomicHashMap (see ContentionStrategy#keyLocking()).
+ *
+ * Every single-key write operation holds the lock corresponding to the hash of its key while it executes, so the
+ * value mapped to the key cannot change during the operation. This allows the result of the operation (including
+ * any remapping functions) to be computed exactly once from the current value, after which it only needs to be
+ * applied (as a mere put or remove) on the latest root until the compare-and-swap of the root succeeds, even if
+ * writers of keys in other stripes keep modifying the map. Multi-key write operations hold all the locks.
+ *
+ * Locks are never used by read operations, which remain non-blocking.
+ */
+final class KeyLocks implements Serializable {
+
+    private static final long serialVersionUID = 7306120930557264398L;
+
+    private static final int MAX_STRIPES = 256;
+
+    // ReentrantLock objects are serializable, and always deserialized as unlocked
+    private final ReentrantLock[] stripes;
+
+
+
+    KeyLocks() {
+        super();
+        final int stripeCount =
+                Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() << 3));
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+
+
+    private ReentrantLock lock(final int hash) {
+        final ReentrantLock lock = this.stripes[hash & (this.stripes.length - 1)];
+        lock.lock();
+        return lock;
+    }
+
+
+    void lockAll() {
+        // Always acquired in the same order, so that multi-key operations can never deadlock among themselves
+        for (final ReentrantLock lock : this.stripes) {
+            lock.lock();
+        }
+    }
+
+
+    void unlockAll() {
+        for (int i = this.stripes.length - 1; i >= 0; i--) {
+            this.stripes[i].unlock();
+        }
+    }
+
+
+
+    // Applies a mutation holding the lock for its key. The mutation is applied (and therefore any functions it
+    // contains executed) exactly once: if the replacement of the root fails because of writes on other keys, its
+    // outcome is simply re-applied on the new root, as the value mapped to its key cannot have changed.
+    void mutate(final AtomicReference<Root> root, final Contention contention,
+                final int hash, final Object key, final Mutation mutation) {
+        final ReentrantLock lock = lock(hash);
+        try {
+            Root oldRoot = root.get();
+            Root newRoot = oldRoot.mutate(hash, key, mutation);
+            Mutation outcome = null;
+            int failed = 0;
+            while (oldRoot != newRoot && !root.compareAndSet(oldRoot, newRoot)) {
+                contention.failed(++failed);
+                if (outcome == null) {
+                    outcome = mutation.removes() ? new Mutation.Remove() : new Mutation.Put(mutation.current());
+                }
+                oldRoot = root.get();
+                newRoot = oldRoot.mutate(hash, key, outcome);
+            }
+            if (oldRoot != newRoot) {
+                contention.succeeded(failed);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
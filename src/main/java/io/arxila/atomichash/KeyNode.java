@@ -0,0 +1,1073 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/*
+ * Key-only counterpart of Node, used by the sets (AtomicHashSet and AtomicHashStoreSet).
+ *
+ * Trees have exactly the same shape as those of Node: keys are placed at each level by the same segments of the same
+ * hash, and hash collisions can only exist at MAX_LEVEL. But as there are no values, the content array only stores
+ * keys at its beginning, one slot per key instead of the two a mapping takes in Node, followed by the children nodes
+ * in reverse order: [k0, k1, ..., nodeN, ..., node0]. Collision buckets also take a single slot, as a Collision
+ * object containing all the colliding keys. Neither KeyNode nor Collision objects are visible outside this package,
+ * so they can never be mistaken for keys.
+ */
+final class KeyNode implements Serializable {
+    // NOTE that this class is meant to be immutable, as Node. The only exception is the lazily computed keysHash.
+
+    private static final long serialVersionUID = 6043527114935108376L;
+
+    static final KeyNode EMPTY_NODE = new KeyNode(0, 0, 0L, 0L, Node.EMPTY_CONTENT);
+
+    // Marks empty positions in bulk operations (null cannot be used for this, as it is a valid key)
+    private static final Object NONE = new Object();
+
+
+    final int level;
+    final int size;
+    final long nodesBitMap;
+    final long entriesBitMap;
+    final Object[] content;
+
+    // Aggregate Set.hashCode() of all the keys in this subtree, lazily computed (see Node#mappingsHash)
+    private transient int keysHash;
+
+
+
+    KeyNode(final int level, final int size, final long nodesBitMap, final long entriesBitMap,
+            final Object[] content) {
+        super();
+        this.level = level;
+        this.size = size;
+        this.nodesBitMap = nodesBitMap;
+        this.entriesBitMap = entriesBitMap;
+        this.content = content;
+    }
+
+
+
+    // Number of slots in the content array used by keys (one per key or collision bucket)
+    int entriesLength() {
+        return Long.bitCount(this.entriesBitMap);
+    }
+
+
+    int nodesLength() {
+        return Long.bitCount(this.nodesBitMap);
+    }
+
+
+    KeyNode nodeAt(final int nodePos) {
+        return (KeyNode) this.content[this.content.length - 1 - nodePos];
+    }
+
+
+    // Either a node, a key, a collision bucket or NONE if there is nothing at the position
+    Object childAt(final long mask) {
+        if ((mask & this.nodesBitMap) != 0L) {
+            return nodeAt(Node.pos(mask, this.nodesBitMap));
+        }
+        if ((mask & this.entriesBitMap) != 0L) {
+            return this.content[Node.pos(mask, this.entriesBitMap)];
+        }
+        return NONE;
+    }
+
+
+
+    private static KeyNode createNewLevel(final int level,
+                                          final Object key0, final int hash0, final Object key1, final int hash1) {
+
+        final long mask0 = Node.mask(hash0, level);
+        final long mask1 = Node.mask(hash1, level);
+
+        if (mask0 != mask1) {
+            return (Node.index(hash0, level) < Node.index(hash1, level)) ?
+                    new KeyNode(level, 2, 0L, (mask0 | mask1), new Object[] { key0, key1 }) :
+                    new KeyNode(level, 2, 0L, (mask0 | mask1), new Object[] { key1, key0 });
+        }
+
+        if (level == Node.MAX_LEVEL) {
+            // We have no more levels, so we need a collision bucket
+            return new KeyNode(level, 2, 0L, mask0, new Object[] { new Collision(new Object[] { key0, key1 }) });
+        }
+
+        // We have an index match at this level, so a new level is needed
+        final KeyNode deeperNode = createNewLevel(level + 1, key0, hash0, key1, hash1);
+        return new KeyNode(level, 2, mask0, 0L, new Object[] { deeperNode });
+
+    }
+
+
+    /*
+     * Bulk-loads a new tree containing the specified keys (ignoring duplicates). As in Node#build(), keys are
+     * recursively partitioned by the index their hash corresponds to at each level, so that every node of the new
+     * tree is created only once instead of copying the whole path to the root for every key.
+     */
+    static KeyNode build(final Object[] keys) {
+        if (keys.length == 0) {
+            return EMPTY_NODE;
+        }
+        final int[] hashes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = Entry.hash(keys[i]);
+        }
+        // Keys are partitioned back and forth between two pairs of arrays, so the specified one is not modified
+        return build(keys.clone(), hashes, new Object[keys.length], new int[keys.length], 0, keys.length, 0);
+    }
+
+
+    private static KeyNode build(final Object[] src, final int[] srcHashes, final Object[] dst, final int[] dstHashes,
+                                 final int from, final int to, final int level) {
+
+        // Counting sort: starts[index] is the offset at which the keys with that index start
+        final int[] starts = new int[Node.HASH_MASK + 2];
+        for (int i = from; i < to; i++) {
+            starts[Node.index(srcHashes[i], level) + 1]++;
+        }
+        long bitMap = 0L;
+        for (int index = 0; index <= Node.HASH_MASK; index++) {
+            if (starts[index + 1] != 0) {
+                bitMap |= (1L << index);
+            }
+            starts[index + 1] += starts[index];
+        }
+        final int[] next = Arrays.copyOf(starts, Node.HASH_MASK + 1);
+        int index, pos;
+        for (int i = from; i < to; i++) {
+            index = Node.index(srcHashes[i], level);
+            pos = from + next[index]++;
+            dst[pos] = src[i];
+            dstHashes[pos] = srcHashes[i];
+        }
+
+        final Object[] children = new Object[Long.bitCount(bitMap)];
+        int childIdx = 0, childFrom, childTo;
+        for (index = 0; index <= Node.HASH_MASK; index++) {
+            childFrom = from + starts[index];
+            childTo = from + starts[index + 1];
+            if (childFrom == childTo) {
+                continue;
+            }
+            if (childTo - childFrom == 1) {
+                children[childIdx++] = dst[childFrom];
+            } else if (level == Node.MAX_LEVEL) {
+                children[childIdx++] = Collision.of(dst, childFrom, childTo);
+            } else {
+                // The roles of both pairs of arrays are swapped for the next level
+                children[childIdx++] = build(dst, dstHashes, src, srcHashes, childFrom, childTo, level + 1);
+            }
+        }
+
+        return assemble(level, bitMap, children);
+
+    }
+
+
+    /*
+     * Creates a node from its children at each of the positions set in the bitmap (in the same order), which can be
+     * nodes, keys, collision buckets or NONE if nothing is left at that position. Children nodes containing a single
+     * key are reduced into that key. Returns null if no keys are left at all.
+     */
+    private static KeyNode assemble(final int level, final long bitMap, final Object[] children) {
+
+        long nodesBitMap = 0L, entriesBitMap = 0L;
+        int size = 0, entriesLen = 0;
+        long bits = bitMap, mask;
+        Object child;
+        for (int i = 0; bits != 0L; bits ^= mask, i++) {
+            mask = Long.lowestOneBit(bits);
+            child = children[i];
+            if (child == NONE) {
+                continue;
+            }
+            if (child instanceof KeyNode) {
+                final KeyNode node = (KeyNode) child;
+                if (!isReducible(node)) {
+                    nodesBitMap |= mask;
+                    size += node.size;
+                    continue;
+                }
+                children[i] = node.content[0];
+            }
+            entriesBitMap |= mask;
+            entriesLen++;
+            size += keyCount(children[i]);
+        }
+
+        if (size == 0) {
+            return null;
+        }
+
+        final Object[] content = new Object[entriesLen + Long.bitCount(nodesBitMap)];
+        int entryPos = 0, nodeIdx = content.length;
+        for (int i = 0; i < children.length; i++) {
+            child = children[i];
+            if (child instanceof KeyNode) {
+                content[--nodeIdx] = child;
+            } else if (child != NONE) {
+                content[entryPos++] = child;
+            }
+        }
+        return new KeyNode(level, size, nodesBitMap, entriesBitMap, content);
+
+    }
+
+
+    // Whether a node (not at level 0) can be reduced into its parent as a mere key
+    private static boolean isReducible(final KeyNode node) {
+        return node.nodesBitMap == 0L && node.content.length == 1 && !(node.content[0] instanceof Collision);
+    }
+
+
+    private static int keyCount(final Object entry) {
+        return (entry instanceof Collision) ? ((Collision) entry).keys.length : 1;
+    }
+
+
+
+    boolean contains(final Object key) {
+        return contains(Entry.hash(key), key);
+    }
+
+
+    boolean contains(final int hash, final Object key) {
+        return find(hash, key) != NONE;
+    }
+
+
+    // Returns the key contained in the tree that is equal to the specified one, or NONE if not found
+    private Object find(final int hash, final Object key) {
+        KeyNode node = this; long mask;
+        while(((mask = Node.mask(hash, node.level)) & node.nodesBitMap) != 0L) {
+            node = node.nodeAt(Node.pos(mask, node.nodesBitMap));
+        }
+        if ((mask & node.entriesBitMap) != 0L) {
+            final Object entry = node.content[Node.pos(mask, node.entriesBitMap)];
+            if (entry instanceof Collision) {
+                return ((Collision) entry).find(key);
+            }
+            return Node.eq(entry, key) ? entry : NONE;
+        }
+        return NONE;
+    }
+
+
+
+    KeyNode add(final Object key) {
+        return add(Entry.hash(key), key);
+    }
+
+
+    KeyNode add(final int hash, final Object key) {
+
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            // There is a node at the selected position: the operation is delegated to it
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final KeyNode node = nodeAt(nodePos);
+            final KeyNode newNode = node.add(hash, key);
+            if (newNode == node) {
+                return this;
+            }
+            final Object[] newContent = this.content.clone();
+            newContent[newContent.length - 1 - nodePos] = newNode;
+            return new KeyNode(this.level, this.size + 1, this.nodesBitMap, this.entriesBitMap, newContent);
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+
+        if (entryPos < 0) {
+            // There is nothing at the selected position: the key will be inserted
+            final int newEntryPos = (entryPos ^ Node.NEG_MASK);
+            final Object[] newContent = new Object[this.content.length + 1];
+            System.arraycopy(this.content, 0, newContent, 0, newEntryPos);
+            newContent[newEntryPos] = key;
+            System.arraycopy(this.content, newEntryPos, newContent, newEntryPos + 1, this.content.length - newEntryPos);
+            return new KeyNode(this.level, this.size + 1, this.nodesBitMap, this.entriesBitMap | mask, newContent);
+        }
+
+        final Object entry = this.content[entryPos];
+
+        if (entry instanceof Collision || this.level == Node.MAX_LEVEL) {
+            // All keys at this position have the same hash: the key will be added to the collision bucket
+            final Object newEntry = Collision.add(entry, key);
+            if (newEntry == entry) {
+                return this;
+            }
+            final Object[] newContent = this.content.clone();
+            newContent[entryPos] = newEntry;
+            return new KeyNode(this.level, this.size + 1, this.nodesBitMap, this.entriesBitMap, newContent);
+        }
+
+        if (Node.eq(entry, key)) {
+            // As in java.util.HashSet, the key already contained is kept
+            return this;
+        }
+
+        // A new level will be created, a node will replace the existing key
+        final KeyNode deeperNode = createNewLevel(this.level + 1, entry, Entry.hash(entry), key, hash);
+        final int deeperNodePos = (Node.pos(mask, this.nodesBitMap) ^ Node.NEG_MASK);
+
+        // The key is removed from the first part of the array, and the new node inserted in the last one
+        final Object[] newContent = new Object[this.content.length];
+        final int deeperNodeIdx = newContent.length - 1 - deeperNodePos;
+        System.arraycopy(this.content, 0, newContent, 0, entryPos);
+        System.arraycopy(this.content, entryPos + 1, newContent, entryPos, deeperNodeIdx - entryPos);
+        newContent[deeperNodeIdx] = deeperNode;
+        System.arraycopy(this.content, deeperNodeIdx + 1, newContent, deeperNodeIdx + 1,
+                         this.content.length - (deeperNodeIdx + 1));
+
+        return new KeyNode(this.level, this.size + 1,
+                           this.nodesBitMap | mask, this.entriesBitMap ^ mask, newContent);
+
+    }
+
+
+
+    KeyNode remove(final Object key) {
+        return remove(Entry.hash(key), key);
+    }
+
+
+    KeyNode remove(final int hash, final Object key) {
+
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+
+            // There is a node at the selected position: the operation is delegated to it
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final KeyNode node = nodeAt(nodePos);
+            final KeyNode newNode = node.remove(hash, key);
+            if (newNode == node) {
+                return this;
+            }
+
+            if (!isReducible(newNode)) {
+                final Object[] newContent = this.content.clone();
+                newContent[newContent.length - 1 - nodePos] = newNode;
+                return new KeyNode(this.level, this.size - 1, this.nodesBitMap, this.entriesBitMap, newContent);
+            }
+
+            // The new node can be reduced into this level as a mere key, which will live at the same position
+            final int reducedEntryPos = (Node.pos(mask, this.entriesBitMap) ^ Node.NEG_MASK);
+            final Object[] newContent = new Object[this.content.length];
+            final int nodeIdx = this.content.length - 1 - nodePos;
+            System.arraycopy(this.content, 0, newContent, 0, reducedEntryPos);
+            newContent[reducedEntryPos] = newNode.content[0];
+            System.arraycopy(this.content, reducedEntryPos, newContent, reducedEntryPos + 1, nodeIdx - reducedEntryPos);
+            System.arraycopy(this.content, nodeIdx + 1, newContent, nodeIdx + 1, this.content.length - (nodeIdx + 1));
+            return new KeyNode(this.level, this.size - 1,
+                               this.nodesBitMap ^ mask, this.entriesBitMap | mask, newContent);
+
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+        if (entryPos < 0) {
+            return this;
+        }
+
+        final Object entry = this.content[entryPos];
+
+        if (entry instanceof Collision) {
+            final Object newEntry = ((Collision) entry).remove(key);
+            if (newEntry == entry) {
+                return this;
+            }
+            final Object[] newContent = this.content.clone();
+            newContent[entryPos] = newEntry;
+            return new KeyNode(this.level, this.size - 1, this.nodesBitMap, this.entriesBitMap, newContent);
+        }
+
+        if (!Node.eq(entry, key)) {
+            return this;
+        }
+
+        if (this.size == 1) {
+            // Empty node: this can only happen at the root node, as nodes at any other level are reduced upwards
+            // when they have only one key
+            return EMPTY_NODE;
+        }
+
+        final Object[] newContent = new Object[this.content.length - 1];
+        System.arraycopy(this.content, 0, newContent, 0, entryPos);
+        System.arraycopy(this.content, entryPos + 1, newContent, entryPos, this.content.length - (entryPos + 1));
+        return new KeyNode(this.level, this.size - 1, this.nodesBitMap, this.entriesBitMap ^ mask, newContent);
+
+    }
+
+
+
+    /*
+     * Structural union: positions only occupied in one of the trees are taken from it as they are, without being
+     * traversed, and subtrees shared by both trees are kept. Keys in left are kept if also contained in right.
+     */
+    static KeyNode union(final KeyNode left, final KeyNode right) {
+
+        if (left == right || right.size == 0) {
+            return left;
+        }
+        if (left.size == 0) {
+            return right;
+        }
+
+        final long bitMap = (left.nodesBitMap | left.entriesBitMap) | (right.nodesBitMap | right.entriesBitMap);
+        final Object[] children = new Object[Long.bitCount(bitMap)];
+        boolean modified = false;
+
+        long bits = bitMap, mask;
+        Object leftChild, rightChild, child;
+        for (int i = 0; bits != 0L; bits ^= mask, i++) {
+            mask = Long.lowestOneBit(bits);
+            leftChild = left.childAt(mask);
+            rightChild = right.childAt(mask);
+            child = (rightChild == NONE) ? leftChild :
+                    (leftChild == NONE) ? rightChild : union(left.level, leftChild, rightChild);
+            modified |= (child != leftChild);
+            children[i] = child;
+        }
+
+        return modified ? assemble(left.level, bitMap, children) : left;
+
+    }
+
+
+    // Union of two children at the same position of a node at the specified level
+    private static Object union(final int level, final Object left, final Object right) {
+        if (left instanceof KeyNode) {
+            // Right is a single key: there can be no collision buckets at levels containing nodes
+            return (right instanceof KeyNode) ?
+                    union((KeyNode) left, (KeyNode) right) : ((KeyNode) left).add(Entry.hash(right), right);
+        }
+        if (right instanceof KeyNode) {
+            // The left key is wrapped into a node of its own, so that it is the one kept if right contains it too
+            final int hash = Entry.hash(left);
+            final KeyNode node = new KeyNode(level + 1, 1, 0L, Node.mask(hash, level + 1), new Object[] { left });
+            return union(node, (KeyNode) right);
+        }
+        if (level == Node.MAX_LEVEL) {
+            // All keys at this position have the same hash, so they are merged into a single collision bucket
+            Object entry = left;
+            if (right instanceof Collision) {
+                for (final Object key : ((Collision) right).keys) {
+                    entry = Collision.add(entry, key);
+                }
+                return entry;
+            }
+            return Collision.add(entry, right);
+        }
+        return Node.eq(left, right) ?
+                left : createNewLevel(level + 1, left, Entry.hash(left), right, Entry.hash(right));
+    }
+
+
+    /*
+     * Structural bulk removal of keys: removes from a tree all the keys that are (removeAll) or are not (retainAll)
+     * contained in another tree, or those matching a predicate (removeIf). As in Node#removeAll(), trees are walked
+     * in a single pass, subtrees with no positions in common with the other tree are not even traversed, and nodes
+     * left with a single key are reduced into their parents.
+     */
+
+    static KeyNode removeAll(final KeyNode node, final KeyNode keys) {
+        final KeyNode newNode = prune(node, keys, false, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static KeyNode retainAll(final KeyNode node, final KeyNode keys) {
+        final KeyNode newNode = prune(node, keys, true, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static KeyNode removeIf(final KeyNode node, final Predicate<Object> filter) {
+        final KeyNode newNode = prune(node, null, false, filter);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+
+    // Returns the same node if unchanged, or null if no keys are left. If filter is null, other is the tree at the
+    // same position (and level) in the tree of keys.
+    private static KeyNode prune(final KeyNode node, final KeyNode other, final boolean retain,
+                                 final Predicate<Object> filter) {
+
+        final long bitMap = node.nodesBitMap | node.entriesBitMap;
+        final long otherBitMap;
+        if (filter == null) {
+            if (node == other) {
+                return retain ? node : null;
+            }
+            otherBitMap = other.nodesBitMap | other.entriesBitMap;
+            if ((bitMap & otherBitMap) == 0L) {
+                return retain ? null : node;
+            }
+        } else {
+            otherBitMap = 0L;
+        }
+
+        // Children will only be collected (in bitmap order) once the first change is found
+        Object[] children = null;
+
+        long bits = bitMap, mask;
+        Object child, newChild;
+        for (int i = 0; bits != 0L; bits ^= mask, i++) {
+
+            mask = Long.lowestOneBit(bits);
+            child = node.childAt(mask);
+
+            if (filter == null && (mask & otherBitMap) == 0L) {
+                // Nothing at this position in the other tree: the whole child is either kept or removed
+                newChild = retain ? NONE : child;
+            } else if (child instanceof KeyNode) {
+                newChild = prune((KeyNode) child, other, mask, retain, filter);
+            } else if (child instanceof Collision) {
+                newChild = ((Collision) child).prune(other, retain, filter);
+            } else {
+                newChild = keeps(child, other, retain, filter) ? child : NONE;
+            }
+
+            if (newChild != child && children == null) {
+                children = new Object[Long.bitCount(bitMap)];
+                long previousBits = bitMap, previousMask;
+                for (int j = 0; j < i; j++, previousBits ^= previousMask) {
+                    previousMask = Long.lowestOneBit(previousBits);
+                    children[j] = node.childAt(previousMask);
+                }
+            }
+            if (children != null) {
+                children[i] = newChild;
+            }
+
+        }
+
+        return (children == null) ? node : assemble(node.level, bitMap, children);
+
+    }
+
+
+    // Prunes a child node, returning NONE instead of null if no keys are left
+    private static Object prune(final KeyNode child, final KeyNode other, final long mask, final boolean retain,
+                                final Predicate<Object> filter) {
+        final KeyNode result;
+        if (filter != null) {
+            result = prune(child, null, false, filter);
+        } else {
+            final Object otherChild = other.childAt(mask);
+            if (otherChild instanceof KeyNode) {
+                result = prune(child, (KeyNode) otherChild, retain, null);
+            } else {
+                // Only one key at this position in the other tree (collisions can only live at MAX_LEVEL)
+                final int hash = Entry.hash(otherChild);
+                if (retain) {
+                    return child.find(hash, otherChild);
+                }
+                result = child.remove(hash, otherChild);
+            }
+        }
+        return (result == null) ? NONE : result;
+    }
+
+
+    private static boolean keeps(final Object key, final KeyNode other, final boolean retain,
+                                 final Predicate<Object> filter) {
+        if (filter != null) {
+            return !filter.test(key);
+        }
+        // Other is at the same level, so it will directly look at the same position
+        return other.contains(Entry.hash(key), key) == retain;
+    }
+
+
+
+    void forEach(final Consumer<Object> action) {
+        final int entriesLen = entriesLength();
+        Object entry;
+        for (int i = 0; i < entriesLen; i++) {
+            entry = this.content[i];
+            if (entry instanceof Collision) {
+                for (final Object key : ((Collision) entry).keys) {
+                    action.accept(key);
+                }
+            } else {
+                action.accept(entry);
+            }
+        }
+        for (int i = this.content.length - 1; i >= entriesLen; i--) {
+            ((KeyNode) this.content[i]).forEach(action);
+        }
+    }
+
+
+    /*
+     * Returns the Set#hashCode() of all the keys in this subtree, cached at every node (see Node#mappingsHashCode())
+     * so that only the nodes created since the last call need to be computed.
+     */
+    int keysHashCode() {
+        int hashCode = this.keysHash;
+        if (hashCode == 0 && this.size > 0) {
+            final int entriesLen = entriesLength();
+            Object entry;
+            for (int i = 0; i < entriesLen; i++) {
+                entry = this.content[i];
+                if (entry instanceof Collision) {
+                    for (final Object key : ((Collision) entry).keys) {
+                        hashCode += (key == null) ? 0 : key.hashCode();
+                    }
+                } else {
+                    hashCode += (entry == null) ? 0 : entry.hashCode();
+                }
+            }
+            for (int i = entriesLen; i < this.content.length; i++) {
+                hashCode += ((KeyNode) this.content[i]).keysHashCode();
+            }
+            this.keysHash = hashCode;
+        }
+        return hashCode;
+    }
+
+
+    // Determines whether two trees contain the same keys (as per Set#equals()), skipping any shared subtrees
+    static boolean sameKeys(final KeyNode node1, final KeyNode node2) {
+
+        if (node1 == node2) {
+            return true;
+        }
+        if (node1.size != node2.size) {
+            return false;
+        }
+        final int hashCode1 = node1.keysHash;
+        final int hashCode2 = node2.keysHash;
+        if (hashCode1 != 0 && hashCode2 != 0 && hashCode1 != hashCode2) {
+            return false;
+        }
+        if (node1.nodesBitMap != node2.nodesBitMap || node1.entriesBitMap != node2.entriesBitMap) {
+            // There are hash prefixes that exist only in one of the trees, so their keys cannot be the same
+            return false;
+        }
+
+        // Both nodes have the same shape, so their children can be compared one by one
+        final int entriesLen = node1.entriesLength();
+        Object entry1, entry2;
+        for (int i = 0; i < entriesLen; i++) {
+            entry1 = node1.content[i];
+            entry2 = node2.content[i];
+            if (entry1 instanceof Collision && entry2 instanceof Collision) {
+                if (!((Collision) entry1).sameKeys((Collision) entry2)) {
+                    return false;
+                }
+            } else if (entry1 instanceof Collision || entry2 instanceof Collision || !Node.eq(entry1, entry2)) {
+                return false;
+            }
+        }
+        for (int i = entriesLen; i < node1.content.length; i++) {
+            if (!sameKeys((KeyNode) node1.content[i], (KeyNode) node2.content[i])) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+
+    // Views are lazy and backed by the (immutable) node, see Root#keySet()
+    Set<Object> asSet() {
+        return Collections.unmodifiableSet(new KeySet(this));
+    }
+
+
+    Iterator<Object> iterator() {
+        return new KeyIterator(this);
+    }
+
+
+    Spliterator<Object> spliterator() {
+        return new KeySpliterator(new Object[] { this }, 0, 1, this.size);
+    }
+
+
+
+
+    /*
+     * Bucket of keys with the same hash, which can only live at MAX_LEVEL. Buckets always contain two keys or more.
+     */
+    static final class Collision implements Serializable {
+
+        private static final long serialVersionUID = -2690375821094371652L;
+
+        final Object[] keys;
+
+        private Collision(final Object[] keys) {
+            super();
+            this.keys = keys;
+        }
+
+
+        // Removes duplicates among the specified keys, returning a single key if only one is left
+        private static Object of(final Object[] keys, final int from, final int to) {
+            Object entry = keys[from];
+            for (int i = from + 1; i < to; i++) {
+                entry = add(entry, keys[i]);
+            }
+            return entry;
+        }
+
+
+        // Entry is either a single key or a bucket. Returns the same entry if the key is already contained
+        private static Object add(final Object entry, final Object key) {
+            if (!(entry instanceof Collision)) {
+                return Node.eq(entry, key) ? entry : new Collision(new Object[] { entry, key });
+            }
+            final Object[] keys = ((Collision) entry).keys;
+            for (final Object k : keys) {
+                if (Node.eq(k, key)) {
+                    return entry;
+                }
+            }
+            final Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            newKeys[keys.length] = key;
+            return new Collision(newKeys);
+        }
+
+
+        private Object find(final Object key) {
+            for (final Object k : this.keys) {
+                if (Node.eq(k, key)) {
+                    return k;
+                }
+            }
+            return NONE;
+        }
+
+
+        // Returns this same bucket if the key is not contained, or a single key if only one is left
+        private Object remove(final Object key) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (Node.eq(this.keys[i], key)) {
+                    if (this.keys.length == 2) {
+                        return this.keys[1 - i];
+                    }
+                    final Object[] newKeys = new Object[this.keys.length - 1];
+                    System.arraycopy(this.keys, 0, newKeys, 0, i);
+                    System.arraycopy(this.keys, i + 1, newKeys, i, this.keys.length - (i + 1));
+                    return new Collision(newKeys);
+                }
+            }
+            return this;
+        }
+
+
+        // Returns this same bucket if all keys are kept, a single key if only one is, or NONE if none are
+        private Object prune(final KeyNode other, final boolean retain, final Predicate<Object> filter) {
+            final Object[] kept = new Object[this.keys.length];
+            int keptLen = 0;
+            for (final Object key : this.keys) {
+                if (keeps(key, other, retain, filter)) {
+                    kept[keptLen++] = key;
+                }
+            }
+            return (keptLen == this.keys.length) ? this :
+                    (keptLen == 0) ? NONE : (keptLen == 1) ? kept[0] : new Collision(Arrays.copyOf(kept, keptLen));
+        }
+
+
+        private boolean sameKeys(final Collision other) {
+            if (this.keys.length != other.keys.length) {
+                return false;
+            }
+            for (final Object key : this.keys) {
+                if (other.find(key) == NONE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+
+
+
+    /*
+     * Lazy iterator on the keys of a tree, see NodeIterator.
+     */
+    private static final class KeyIterator implements Iterator<Object> {
+
+        private final KeyNode[] nodeStack;
+        private final int[] posStack; // Position of the next child node to be visited at each depth
+        private int depth;
+        private int entryPos; // Position of the next key in the content array of the node at the top of the stack
+
+        private Object[] collisions;
+        private int collisionPos;
+
+        private boolean hasNext;
+        private Object next;
+
+
+        private KeyIterator(final KeyNode node) {
+            super();
+            this.nodeStack = new KeyNode[Node.MAX_LEVEL + 1];
+            this.posStack = new int[Node.MAX_LEVEL + 1];
+            this.nodeStack[0] = node;
+            this.depth = 0;
+            this.entryPos = 0;
+            this.collisions = null;
+            this.hasNext = advance();
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return this.hasNext;
+        }
+
+
+        @Override
+        public Object next() {
+            if (!this.hasNext) {
+                throw new NoSuchElementException();
+            }
+            final Object next = this.next;
+            this.hasNext = advance();
+            return next;
+        }
+
+
+        // Moves to the next key, returning false if all keys have already been visited
+        private boolean advance() {
+
+            if (this.collisions != null) {
+                if (this.collisionPos < this.collisions.length) {
+                    this.next = this.collisions[this.collisionPos++];
+                    return true;
+                }
+                this.collisions = null;
+            }
+
+            KeyNode node;
+            while (this.depth >= 0) {
+
+                node = this.nodeStack[this.depth];
+
+                if (this.entryPos < node.entriesLength()) {
+                    final Object entry = node.content[this.entryPos++];
+                    if (entry instanceof Collision) {
+                        this.collisions = ((Collision) entry).keys;
+                        this.collisionPos = 1;
+                        this.next = this.collisions[0];
+                    } else {
+                        this.next = entry;
+                    }
+                    return true;
+                }
+
+                if (this.posStack[this.depth] < node.nodesLength()) {
+                    // All keys in this node have been visited: go down into the next child node
+                    final KeyNode child = node.nodeAt(this.posStack[this.depth]++);
+                    this.depth++;
+                    this.nodeStack[this.depth] = child;
+                    this.posStack[this.depth] = 0;
+                    this.entryPos = 0;
+                } else {
+                    // All keys and children in this node have been visited: go back up
+                    this.nodeStack[this.depth--] = null;
+                    this.entryPos = Integer.MAX_VALUE; // keys in the parent node were visited before going down
+                }
+
+            }
+
+            this.next = null;
+            return false;
+
+        }
+
+    }
+
+
+
+
+    /*
+     * Splittable traversal of the keys of a tree, see NodeSpliterator. Parts are either KeyNode objects (whole
+     * subtrees) or single keys (collision buckets are always expanded).
+     */
+    private static final class KeySpliterator implements Spliterator<Object> {
+
+        private Object[] parts;
+        private int from;
+        private int to;
+        private long size; // Exact number of remaining keys
+        private Iterator<Object> current; // Traversal of a node part that has already been started
+
+
+        private KeySpliterator(final Object[] parts, final int from, final int to, final long size) {
+            super();
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.current = null;
+        }
+
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Object> action) {
+
+            Object part;
+            while (true) {
+
+                if (this.current != null) {
+                    if (this.current.hasNext()) {
+                        this.size--;
+                        action.accept(this.current.next());
+                        return true;
+                    }
+                    this.current = null;
+                }
+
+                if (this.from >= this.to) {
+                    return false;
+                }
+
+                part = this.parts[this.from++];
+                if (part instanceof KeyNode) {
+                    this.current = ((KeyNode) part).iterator();
+                } else {
+                    this.size--;
+                    action.accept(part);
+                    return true;
+                }
+
+            }
+
+        }
+
+
+        @Override
+        public Spliterator<Object> trySplit() {
+
+            while (this.current == null && (this.to - this.from) == 1 && this.parts[this.from] instanceof KeyNode) {
+                // Only one node left: it is replaced by its own keys and children nodes
+                final KeyNode node = (KeyNode) this.parts[this.from];
+                final int nodesLen = node.nodesLength();
+                int keysLen = node.size;
+                for (int i = 0; i < nodesLen; i++) {
+                    keysLen -= node.nodeAt(i).size;
+                }
+                final Object[] newParts = new Object[keysLen + nodesLen];
+                int pos = 0;
+                Object entry;
+                for (int i = 0, n = node.entriesLength(); i < n; i++) {
+                    entry = node.content[i];
+                    if (entry instanceof Collision) {
+                        final Object[] keys = ((Collision) entry).keys;
+                        System.arraycopy(keys, 0, newParts, pos, keys.length);
+                        pos += keys.length;
+                    } else {
+                        newParts[pos++] = entry;
+                    }
+                }
+                for (int i = 0; i < nodesLen; i++) {
+                    newParts[pos++] = node.nodeAt(i);
+                }
+                this.parts = newParts;
+                this.from = 0;
+                this.to = newParts.length;
+            }
+
+            if ((this.to - this.from) < 2) {
+                return null;
+            }
+
+            final int mid = (this.from + this.to) >>> 1;
+            long splitSize = 0L;
+            Object part;
+            for (int i = this.from; i < mid; i++) {
+                part = this.parts[i];
+                splitSize += (part instanceof KeyNode) ? ((KeyNode) part).size : 1;
+            }
+
+            final KeySpliterator prefix = new KeySpliterator(this.parts, this.from, mid, splitSize);
+            this.from = mid;
+            this.size -= splitSize;
+            return prefix;
+
+        }
+
+
+        @Override
+        public long estimateSize() {
+            return this.size;
+        }
+
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | SIZED | SUBSIZED | IMMUTABLE;
+        }
+
+    }
+
+
+
+
+    private static final class KeySet extends AbstractSet<Object> {
+
+        private final KeyNode node;
+
+        KeySet(final KeyNode node) {
+            super();
+            this.node = node;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return this.node.iterator();
+        }
+
+        @Override
+        public Spliterator<Object> spliterator() {
+            return this.node.spliterator();
+        }
+
+        @Override
+        public int size() {
+            return this.node.size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return this.node.contains(o);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,339 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe map specialized for primitive <kbd>long</kbd> keys, providing the same advanced concurrency
+ * features as {@link AtomicHashMap}.
+ * <p>
+ * This implementation is <strong>thread-safe</strong>, <strong>atomic</strong> and <strong>non-blocking</strong> for
+ * all of its methods, including multi-element methods such as {@link #getAll(long...)}. Its exact <em>snapshot</em>
+ * state can be obtained at any time as a {@link LongAtomicHashStore} by calling {@link #store()}.
+ * <p>
+ * Keys are never boxed: they are stored as <kbd>long</kbd> values in the internal tree structure, and the
+ * position of each key in the tree is computed from the full 64 bits of the key itself (previously mixed so that
+ * sequential keys are uniformly distributed). This means that hash collisions are not possible and lookups never
+ * need to call {@link Object#hashCode()} or {@link Object#equals(Object)} on keys.
+ * <p>
+ * Given keys are primitive values, this class does not implement the {@link java.util.Map} interface, though its
+ * methods follow the semantics of their equivalents in that interface.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings("unchecked")
+public final class LongAtomicHashMap<V> implements Serializable {
+
+    private static final long serialVersionUID = -3392785466812573109L;
+
+    private final AtomicReference<LongNode> node;
+
+
+
+    /**
+     * Creates a new, empty map.
+     */
+    public LongAtomicHashMap() {
+        super();
+        this.node = new AtomicReference<>();
+        this.node.set(LongNode.EMPTY_NODE);
+    }
+
+
+    /**
+     * Creates a new map containing the same mappings as the specified store.
+     *
+     * @param store the store containing the initial mappings of the map.
+     */
+    public LongAtomicHashMap(final LongAtomicHashStore<? extends V> store) {
+        super();
+        Objects.requireNonNull(store);
+        this.node = new AtomicReference<>();
+        this.node.set(store.innerNode());
+    }
+
+
+
+
+    private static <V> V value(final Object value) {
+        return (value == Entry.NOT_FOUND) ? null : (V) value;
+    }
+
+
+    LongNode innerNode() {
+        return this.node.get();
+    }
+
+
+    // Applies the mutation in a single traversal, retrying it until the new structure replaces the current one
+    private Mutation mutate(final long key, final Mutation mutation) {
+        LongNode node, newNode;
+        do {
+            node = this.node.get();
+            newNode = node.mutate(key, mutation);
+        } while (node != newNode && !this.node.compareAndSet(node, newNode));
+        return mutation;
+    }
+
+
+    /**
+     * Returns the exact <em>snapshot</em> state of this map, as an immutable {@link LongAtomicHashStore}.
+     *
+     * @return the current contents of the map.
+     */
+    public LongAtomicHashStore<V> store() {
+        return new LongAtomicHashStore<>(this.node.get());
+    }
+
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @return the number of mappings.
+     */
+    public int size() {
+        return this.node.get().size;
+    }
+
+
+    /**
+     * Returns whether this map contains no mappings.
+     *
+     * @return {@code true} if the map contains no mappings.
+     */
+    public boolean isEmpty() {
+        return this.node.get().size == 0;
+    }
+
+
+    /**
+     * Returns whether this map contains a mapping for the specified key.
+     *
+     * @param key the key to be checked.
+     * @return {@code true} if the key is mapped.
+     */
+    public boolean containsKey(final long key) {
+        return this.node.get().containsKey(key);
+    }
+
+    /**
+     * Returns whether this map maps any keys to the specified value, which requires traversing the whole map.
+     *
+     * @param value the value to be checked.
+     * @return {@code true} if any keys are mapped to the value.
+     */
+    public boolean containsValue(final Object value) {
+        return this.node.get().containsValue(value);
+    }
+
+
+    /**
+     * Returns the value mapped to the specified key, or {@code null} if the key is not mapped (or is mapped to
+     * {@code null}, see {@link #containsKey(long)}).
+     *
+     * @param key the key to be looked up.
+     * @return the value mapped to the key, or {@code null}.
+     */
+    public V get(final long key) {
+        return value(this.node.get().get(key));
+    }
+
+    /**
+     * Returns the value mapped to the specified key, or the specified default value if the key is not mapped.
+     *
+     * @param key the key to be looked up.
+     * @param defaultValue the value to be returned if the key is not mapped.
+     * @return the value mapped to the key, or the default value.
+     */
+    public V getOrDefault(final long key, final V defaultValue) {
+        final Object value = this.node.get().get(key);
+        return (value == Entry.NOT_FOUND) ? defaultValue : (V) value;
+    }
+
+
+    /**
+     * Returns the mappings for the specified keys, all of them looked up on the same snapshot of the map, as a new
+     * map containing only the keys that are present.
+     *
+     * @param keys the keys to be looked up.
+     * @return a map containing the mappings found for the specified keys.
+     */
+    public Map<Long,V> getAll(final long... keys) {
+        return (Map<Long,V>) (Map<Long,?>) this.node.get().getAll(keys);
+    }
+
+
+    /**
+     * Maps the specified value to the specified key, replacing the previous value if the key was already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V put(final long key, final V newValue) {
+        return (V) mutate(key, new Mutation.Put(newValue)).previous();
+    }
+
+    /**
+     * Maps the specified value to the specified key, only if the key is not mapped (or is mapped to {@code null}).
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped (and the new value was).
+     */
+    public V putIfAbsent(final long key, final V newValue) {
+        return (V) mutate(key, new Mutation.PutIfAbsent(newValue)).previous();
+    }
+
+
+    /**
+     * Removes the mapping for the specified key, if present.
+     *
+     * @param key the key to be removed.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V remove(final long key) {
+        return (V) mutate(key, new Mutation.Remove()).previous();
+    }
+
+    /**
+     * Removes the mapping for the specified key, only if the key is currently mapped to the specified value.
+     *
+     * @param key the key to be removed.
+     * @param oldValue the value the key is expected to be mapped to.
+     * @return {@code true} if the mapping was removed.
+     */
+    public boolean remove(final long key, final Object oldValue) {
+        return ((Mutation.RemoveIfEquals) mutate(key, new Mutation.RemoveIfEquals(oldValue))).removed();
+    }
+
+
+    /**
+     * Removes all the mappings from this map.
+     */
+    public void clear() {
+        this.node.set(LongNode.EMPTY_NODE);
+    }
+
+
+    /**
+     * Replaces the value mapped to the specified key, only if the key is already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the previous value mapped to the key, or {@code null} if it was not mapped.
+     */
+    public V replace(final long key, final V newValue) {
+        return (V) mutate(key, new Mutation.Replace(newValue)).previous();
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the value computed by the
+     * specified function, unless that value is {@code null}. The function might be executed more than once if the
+     * map is concurrently modified by other threads.
+     *
+     * @param key the key.
+     * @param mappingFunction the function computing the value to be mapped to the key.
+     * @return the value mapped to the key after the operation, or {@code null} if none.
+     */
+    public V computeIfAbsent(final long key, final LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        // Mutations applied to LongNode trees receive no key, so the function is applied to the primitive one
+        return (V) mutate(key, new Mutation.ComputeIfAbsent(k -> mappingFunction.apply(key))).current();
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the specified value. Otherwise,
+     * maps it to the result of applying the specified function to its current value and the specified one, or
+     * removes the mapping if the result is {@code null}. The function might be executed more than once if the map
+     * is concurrently modified by other threads.
+     *
+     * @param key the key.
+     * @param newValue the value to be merged with the current one (cannot be {@code null}).
+     * @param remappingFunction the function computing the new value from the current and the specified ones.
+     * @return the value mapped to the key after the operation, or {@code null} if none.
+     */
+    public V merge(final long key, final V newValue,
+                   final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Objects.requireNonNull(newValue);
+        final Mutation mutation = new Mutation.Merge(newValue, (BiFunction<Object,Object,Object>) remappingFunction);
+        return (V) mutate(key, mutation).current();
+    }
+
+
+    /**
+     * Returns all the keys in this map, obtained from a snapshot of the map.
+     *
+     * @return a new array containing all the keys, in iteration order.
+     */
+    public long[] keys() {
+        return this.node.get().keys();
+    }
+
+
+    /**
+     * Performs the specified action for every mapping in a snapshot of this map.
+     *
+     * @param action the action to be performed.
+     */
+    public void forEach(final LongObjConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        // Mappings are traversed directly on a snapshot of the internal structure
+        this.node.get().forEach((LongObjConsumer<Object>) action);
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Map.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof LongAtomicHashMap<?>)) {
+            return false;
+        }
+        return LongNode.sameMappings(this.node.get(), ((LongAtomicHashMap<?>) other).node.get());
+    }
+
+
+    @Override
+    public int hashCode() {
+        return store().hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return store().toString();
+    }
+
+}
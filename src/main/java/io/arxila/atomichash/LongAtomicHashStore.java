@@ -0,0 +1,314 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe, immutable key-value store specialized for primitive <kbd>long</kbd> keys.
+ * <p>
+ * This class is the <kbd>long</kbd>-keyed counterpart of {@link AtomicHashStore}, and corresponds to the internal
+ * data store used by {@link LongAtomicHashMap}. All of its operations are <strong>thread-safe</strong>,
+ * <strong>atomic</strong> and <strong>non-blocking</strong>, and all modifications return a new instance of
+ * {@link LongAtomicHashStore} containing the modified data.
+ * <p>
+ * Keys are never boxed: they are stored as <kbd>long</kbd> values in the internal tree structure, and the
+ * position of each key in the tree is computed from the full 64 bits of the key itself (previously mixed so that
+ * sequential keys are uniformly distributed). This means that hash collisions are not possible and lookups never
+ * need to call {@link Object#hashCode()} or {@link Object#equals(Object)} on keys.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings("unchecked")
+public final class LongAtomicHashStore<V> implements Serializable {
+
+    private static final long serialVersionUID = 2816034219475123861L;
+
+    private final LongNode node;
+
+
+
+    /**
+     * Creates a new, empty store.
+     */
+    public LongAtomicHashStore() {
+        this.node = LongNode.EMPTY_NODE;
+    }
+
+    LongAtomicHashStore(final LongNode node) {
+        this.node = node;
+    }
+
+
+    LongNode innerNode() {
+        return this.node;
+    }
+
+
+    private LongAtomicHashStore<V> store(final LongNode newNode) {
+        return (this.node != newNode) ? new LongAtomicHashStore<>(newNode) : this;
+    }
+
+
+    /**
+     * Returns the number of mappings in this store.
+     *
+     * @return the number of mappings.
+     */
+    public int size() {
+        return this.node.size;
+    }
+
+
+    /**
+     * Returns whether this store contains no mappings.
+     *
+     * @return {@code true} if the store contains no mappings.
+     */
+    public boolean isEmpty() {
+        return this.node.size == 0;
+    }
+
+
+    /**
+     * Returns whether this store contains a mapping for the specified key.
+     *
+     * @param key the key to be checked.
+     * @return {@code true} if the key is mapped.
+     */
+    public boolean containsKey(final long key) {
+        return this.node.containsKey(key);
+    }
+
+    /**
+     * Returns whether this store maps any keys to the specified value, which requires traversing the whole store.
+     *
+     * @param value the value to be checked.
+     * @return {@code true} if any keys are mapped to the value.
+     */
+    public boolean containsValue(final Object value) {
+        return this.node.containsValue(value);
+    }
+
+
+    /**
+     * Returns the value mapped to the specified key, or {@code null} if the key is not mapped (or is mapped to
+     * {@code null}, see {@link #containsKey(long)}).
+     *
+     * @param key the key to be looked up.
+     * @return the value mapped to the key, or {@code null}.
+     */
+    public V get(final long key) {
+        final Object value = this.node.get(key);
+        return (value == Entry.NOT_FOUND) ? null : (V) value;
+    }
+
+    /**
+     * Returns the value mapped to the specified key, or the specified default value if the key is not mapped.
+     *
+     * @param key the key to be looked up.
+     * @param defaultValue the value to be returned if the key is not mapped.
+     * @return the value mapped to the key, or the default value.
+     */
+    public V getOrDefault(final long key, final V defaultValue) {
+        final Object value = this.node.get(key);
+        return (value == Entry.NOT_FOUND) ? defaultValue : (V) value;
+    }
+
+
+    /**
+     * Returns the mappings for the specified keys, as a new map containing only the keys that are present.
+     *
+     * @param keys the keys to be looked up.
+     * @return a map containing the mappings found for the specified keys.
+     */
+    public Map<Long,V> getAll(final long... keys) {
+        return (Map<Long,V>) (Map<Long,?>) this.node.getAll(keys);
+    }
+
+
+    /**
+     * Maps the specified value to the specified key, replacing the previous value if the key was already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was already mapped to the same value.
+     */
+    public LongAtomicHashStore<V> put(final long key, final V newValue) {
+        return store(this.node.put(key, newValue));
+    }
+
+    /**
+     * Maps the specified value to the specified key, only if the key is not mapped (or is mapped to {@code null}).
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was already mapped to a non-null value.
+     */
+    public LongAtomicHashStore<V> putIfAbsent(final long key, final V newValue) {
+        return store(this.node.mutate(key, new Mutation.PutIfAbsent(newValue)));
+    }
+
+
+    /**
+     * Removes the mapping for the specified key, if present.
+     *
+     * @param key the key to be removed.
+     * @return the new store, or the same store if the key was not mapped.
+     */
+    public LongAtomicHashStore<V> remove(final long key) {
+        return store(this.node.remove(key));
+    }
+
+    /**
+     * Removes the mapping for the specified key, only if the key is currently mapped to the specified value.
+     *
+     * @param key the key to be removed.
+     * @param oldValue the value the key is expected to be mapped to.
+     * @return the new store, or the same store if the mapping was not removed.
+     */
+    public LongAtomicHashStore<V> remove(final long key, final Object oldValue) {
+        return store(this.node.mutate(key, new Mutation.RemoveIfEquals(oldValue)));
+    }
+
+
+    /**
+     * Removes all the mappings from this store.
+     *
+     * @return an empty store, or the same store if it was already empty.
+     */
+    public LongAtomicHashStore<V> clear() {
+        return store(LongNode.EMPTY_NODE);
+    }
+
+
+    /**
+     * Replaces the value mapped to the specified key, only if the key is already mapped.
+     *
+     * @param key the key.
+     * @param newValue the value to be mapped to the key.
+     * @return the new store, or the same store if the key was not mapped.
+     */
+    public LongAtomicHashStore<V> replace(final long key, final V newValue) {
+        return store(this.node.mutate(key, new Mutation.Replace(newValue)));
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the value computed by the
+     * specified function, unless that value is {@code null}.
+     *
+     * @param key the key.
+     * @param mappingFunction the function computing the value to be mapped to the key.
+     * @return the new store, or the same store if no value was mapped.
+     */
+    public LongAtomicHashStore<V> computeIfAbsent(final long key, final LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        // Mutations applied to LongNode trees receive no key, so the function is applied to the primitive one
+        return store(this.node.mutate(key, new Mutation.ComputeIfAbsent(k -> mappingFunction.apply(key))));
+    }
+
+
+    /**
+     * If the specified key is not mapped (or is mapped to {@code null}), maps it to the specified value. Otherwise,
+     * maps it to the result of applying the specified function to its current value and the specified one, or
+     * removes the mapping if the result is {@code null}.
+     *
+     * @param key the key.
+     * @param newValue the value to be merged with the current one (cannot be {@code null}).
+     * @param remappingFunction the function computing the new value from the current and the specified ones.
+     * @return the new store, or the same store if it was not modified.
+     */
+    public LongAtomicHashStore<V> merge(final long key, final V newValue,
+                                        final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Objects.requireNonNull(newValue);
+        final Mutation mutation = new Mutation.Merge(newValue, (BiFunction<Object,Object,Object>) remappingFunction);
+        return store(this.node.mutate(key, mutation));
+    }
+
+
+    /**
+     * Returns all the keys in this store.
+     *
+     * @return a new array containing all the keys, in iteration order.
+     */
+    public long[] keys() {
+        return this.node.keys();
+    }
+
+
+    /**
+     * Performs the specified action for every mapping in this store.
+     *
+     * @param action the action to be performed.
+     */
+    public void forEach(final LongObjConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        this.node.forEach((LongObjConsumer<Object>) action);
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Map.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof LongAtomicHashStore<?>)) {
+            return false;
+        }
+        return LongNode.sameMappings(this.node, ((LongAtomicHashStore<?>) other).node);
+    }
+
+
+    @Override
+    public int hashCode() {
+        // Implemented per the definition of Map.hashCode() for a Map<Long,V>
+        return this.node.mappingsHashCode(false);
+    }
+
+
+    @Override
+    public String toString() {
+        // Same as java.util.AbstractMap#toString() as it is what most users would expect
+        if (this.node.size == 0) {
+            return "{}";
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        this.node.forEach((key, value) -> {
+            if (sb.length() > 1) {
+                sb.append(',').append(' ');
+            }
+            sb.append(key).append('=').append(value == this ? "(this Map)" : value);
+        });
+        return sb.append('}').toString();
+    }
+
+
+}
@@ -0,0 +1,465 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Primitive-keyed counterpart of Node, used by the long- and int-keyed maps and stores.
+ *
+ * Keys are stored unboxed in a long[] array, and the 64-bit hash used for selecting positions in the tree is
+ * obtained from the key by means of a bijective mixing function, so that different keys always have different hashes.
+ * This means hash collisions are impossible and no collision buckets are needed: two different keys will always
+ * diverge at some level (there are ten 6-bit levels plus one final 4-bit level, 0 to 10).
+ *
+ * As in Node, values and children nodes share a single content array: values at the beginning (in the same order as
+ * their keys) and children nodes at the end, in reverse order.
+ */
+final class LongNode implements Serializable {
+    // NOTE that this class is meant to be immutable so that, in future versions, it can become a record (JDK17)
+    // and even a value type (Valhalla). As in Node, the only exception is the lazily computed mappingsHash cache.
+
+    private static final long serialVersionUID = -7461538011524716012L;
+
+    static final int MAX_LEVEL = 10;
+    static final int HASH_MASK = 0b111111;
+
+    static final long[] EMPTY_KEYS = new long[0];
+    static final Object[] EMPTY_CONTENT = new Object[0];
+    static final LongNode EMPTY_NODE = new LongNode(0, 0, 0L, 0L, EMPTY_KEYS, EMPTY_CONTENT);
+
+
+    final int level;
+    final int size;
+    final long nodesBitMap;
+    final long entriesBitMap;
+    final long[] keys;
+    final Object[] content;
+
+    // Aggregate hash code of all the mappings in this subtree, lazily computed (see Node#mappingsHash). Trees are
+    // never shared between the int- and long-keyed classes, so it is always computed for the same type of keys.
+    private transient int mappingsHash;
+
+
+
+    LongNode(final int level, final int size, final long nodesBitMap, final long entriesBitMap,
+             final long[] keys, final Object[] content) {
+        super();
+        this.level = level;
+        this.size = size;
+        this.nodesBitMap = nodesBitMap;
+        this.entriesBitMap = entriesBitMap;
+        this.keys = keys;
+        this.content = content;
+    }
+
+
+
+    /*
+     * Mixes the bits of the key so that sequential or otherwise patterned keys (very common for IDs) are uniformly
+     * distributed in the tree. This is the finalization step of MurmurHash3, which is a bijection on 64-bit values
+     * (every step can be reverted), and therefore never produces the same hash for two different keys.
+     */
+    static long hash(final long key) {
+        long h = key;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+
+    static long mask(final long hash, final int level) {
+        return 1L << ((int)(hash >>> (level * 6)) & HASH_MASK);
+    }
+
+
+    LongNode nodeAt(final int nodePos) {
+        return (LongNode) this.content[this.content.length - 1 - nodePos];
+    }
+
+
+
+    private static LongNode createNewLevel(final int level,
+                                           final long key0, final long hash0, final Object value0,
+                                           final long key1, final long hash1, final Object value1) {
+
+        final long mask0 = mask(hash0, level);
+        final long mask1 = mask(hash1, level);
+
+        if (mask0 != mask1) {
+            return (Long.compareUnsigned(mask0, mask1) < 0) ?
+                        new LongNode(level, 2, 0L, (mask0 | mask1), new long[] { key0, key1 }, new Object[] { value0, value1 }) :
+                        new LongNode(level, 2, 0L, (mask0 | mask1), new long[] { key1, key0 }, new Object[] { value1, value0 });
+        }
+
+        // We have an index match at this level, so a new level is needed. As hashes are known to be different,
+        // they will diverge at some point before going deeper than MAX_LEVEL.
+        final LongNode deeperNode = createNewLevel(level + 1, key0, hash0, value0, key1, hash1, value1);
+        return new LongNode(level, 2, mask0, 0L, EMPTY_KEYS, new Object[] { deeperNode });
+
+    }
+
+
+
+    boolean containsKey(final long key) {
+        return get(key) != Entry.NOT_FOUND;
+    }
+
+
+    boolean containsValue(final Object value) {
+        final int entriesLen = this.keys.length;
+        for (int i = 0; i < entriesLen; i++) {
+            if (eq(this.content[i], value)) {
+                return true;
+            }
+        }
+        for (int i = entriesLen; i < this.content.length; i++) {
+            if (((LongNode) this.content[i]).containsValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // May return Entry.NOT_FOUND if not found (so that it can be differentiated from a null value)
+    Object get(final long key) {
+        final long hash = hash(key);
+        LongNode node = this; long mask;
+        while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L) {
+            node = node.nodeAt(Node.pos(mask, node.nodesBitMap));
+        }
+        if ((mask & node.entriesBitMap) != 0L) {
+            final int entryPos = Node.pos(mask, node.entriesBitMap);
+            return (node.keys[entryPos] == key) ? node.content[entryPos] : Entry.NOT_FOUND;
+        }
+        return Entry.NOT_FOUND;
+    }
+
+
+    Map<Long,Object> getAll(final long... keys) {
+        if (keys == null || keys.length == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<Long,Object> map = new HashMap<>(keys.length + 1, 1.0f);
+        Object value;
+        for (final long key : keys) {
+            value = get(key);
+            if (value != Entry.NOT_FOUND) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+
+    Map<Integer,Object> getAll(final int... keys) {
+        if (keys == null || keys.length == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<Integer,Object> map = new HashMap<>(keys.length + 1, 1.0f);
+        Object value;
+        for (final int key : keys) {
+            value = get(key);
+            if (value != Entry.NOT_FOUND) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+
+
+    LongNode put(final long key, final Object value) {
+        return put(key, hash(key), value);
+    }
+
+
+    private LongNode put(final long key, final long hash, final Object value) {
+
+        final long mask = mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            // There is a node at the selected position: the operation is delegated to it
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final LongNode node = nodeAt(nodePos);
+            final LongNode newNode = node.put(key, hash, value);
+            return (newNode == node) ? this : withNode(mask, nodePos, node, newNode);
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+
+        if (entryPos < 0) {
+            // There is nothing at the selected position: an entry will be created
+            final int newEntryPos = (entryPos ^ Node.NEG_MASK);
+            final long[] newKeys = new long[this.keys.length + 1];
+            System.arraycopy(this.keys, 0, newKeys, 0, newEntryPos);
+            System.arraycopy(this.keys, newEntryPos, newKeys, newEntryPos + 1, this.keys.length - newEntryPos);
+            newKeys[newEntryPos] = key;
+            final Object[] newContent = new Object[this.content.length + 1];
+            System.arraycopy(this.content, 0, newContent, 0, newEntryPos);
+            System.arraycopy(this.content, newEntryPos, newContent, newEntryPos + 1, this.content.length - newEntryPos);
+            newContent[newEntryPos] = value;
+            return new LongNode(this.level, this.size + 1,
+                                this.nodesBitMap, this.entriesBitMap | mask, newKeys, newContent);
+        }
+
+        if (this.keys[entryPos] == key) {
+            // There is a match (key exists): value needs to be replaced (referential equality, see Entry#set())
+            if (this.content[entryPos] == value) {
+                return this;
+            }
+            final Object[] newContent = this.content.clone();
+            newContent[entryPos] = value;
+            return new LongNode(this.level, this.size, this.nodesBitMap, this.entriesBitMap, this.keys, newContent);
+        }
+
+        // A new level will be created, a node will replace the existing entry
+        final long oldKey = this.keys[entryPos];
+        final LongNode deeperNode =
+                createNewLevel(this.level + 1, oldKey, hash(oldKey), this.content[entryPos], key, hash, value);
+        final int deeperNodePos = (Node.pos(mask, this.nodesBitMap) ^ Node.NEG_MASK);
+
+        final long[] newKeys = (this.keys.length == 1) ? EMPTY_KEYS : new long[this.keys.length - 1];
+        System.arraycopy(this.keys, 0, newKeys, 0, entryPos);
+        System.arraycopy(this.keys, entryPos + 1, newKeys, entryPos, this.keys.length - (entryPos + 1));
+
+        // The value is removed from the first part of the array, and the new node inserted in the last one
+        final Object[] newContent = new Object[this.content.length];
+        final int deeperNodeIdx = newContent.length - 1 - deeperNodePos;
+        System.arraycopy(this.content, 0, newContent, 0, entryPos);
+        System.arraycopy(this.content, entryPos + 1, newContent, entryPos, deeperNodeIdx - entryPos);
+        newContent[deeperNodeIdx] = deeperNode;
+        System.arraycopy(this.content, deeperNodeIdx + 1, newContent, deeperNodeIdx + 1, this.content.length - (deeperNodeIdx + 1));
+
+        return new LongNode(this.level, this.size + 1,
+                            this.nodesBitMap | mask, this.entriesBitMap ^ mask, newKeys, newContent);
+
+    }
+
+
+
+    LongNode remove(final long key) {
+        return remove(key, hash(key));
+    }
+
+
+    private LongNode remove(final long key, final long hash) {
+
+        final long mask = mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final LongNode node = nodeAt(nodePos);
+            final LongNode newNode = node.remove(key, hash);
+            return (newNode == node) ? this : withNode(mask, nodePos, node, newNode);
+
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+
+        if (entryPos < 0 || this.keys[entryPos] != key) {
+            // Key was not found: nothing to remove
+            return this;
+        }
+
+        if (this.size == 1) {
+            // Empty node: this can only happen at the root node, when the map gets cleared
+            // At any other level, nodes are reduced upwards when they have only one entry
+            return EMPTY_NODE;
+        }
+
+        final long[] newKeys = (this.keys.length == 1) ? EMPTY_KEYS : new long[this.keys.length - 1];
+        System.arraycopy(this.keys, 0, newKeys, 0, entryPos);
+        System.arraycopy(this.keys, entryPos + 1, newKeys, entryPos, this.keys.length - (entryPos + 1));
+        final Object[] newContent = new Object[this.content.length - 1];
+        System.arraycopy(this.content, 0, newContent, 0, entryPos);
+        System.arraycopy(this.content, entryPos + 1, newContent, entryPos, this.content.length - (entryPos + 1));
+
+        return new LongNode(this.level, this.size - 1,
+                            this.nodesBitMap, this.entriesBitMap ^ mask, newKeys, newContent);
+
+    }
+
+
+
+    /*
+     * Single-traversal mutation of the mapping for a key (see Node#mutate()), the mutation reporting back previous
+     * and resulting values. Mutations receive a null key, as none of those applied to these trees need it.
+     */
+    LongNode mutate(final long key, final Mutation mutation) {
+        return mutate(key, hash(key), mutation);
+    }
+
+
+    private LongNode mutate(final long key, final long hash, final Mutation mutation) {
+
+        final long mask = mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            // There is a node at the selected position: the operation is delegated to it
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final LongNode node = nodeAt(nodePos);
+            final LongNode newNode = node.mutate(key, hash, mutation);
+            return (newNode == node) ? this : withNode(mask, nodePos, node, newNode);
+        }
+
+        // This is the node where the key is (or would be) mapped, so put() and remove() will not go any deeper
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+        final Object oldValue =
+                (entryPos >= 0 && this.keys[entryPos] == key) ? this.content[entryPos] : Entry.NOT_FOUND;
+        final Object newValue = mutation.apply(null, oldValue);
+
+        if (newValue == Mutation.KEEP || (newValue == Mutation.REMOVE && oldValue == Entry.NOT_FOUND)) {
+            return this;
+        }
+        return (newValue == Mutation.REMOVE) ? remove(key, hash) : put(key, hash, newValue);
+
+    }
+
+
+    // Replaces a child node that has been modified, reducing it into this level if it now contains a single mapping
+    private LongNode withNode(final long mask, final int nodePos, final LongNode node, final LongNode newNode) {
+
+        if (newNode.nodesBitMap != 0L || newNode.keys.length > 1) {
+            // The new node cannot be reduced into this level, it will be simply replaced
+            final Object[] newContent = this.content.clone();
+            newContent[newContent.length - 1 - nodePos] = newNode;
+            return new LongNode(this.level, this.size + (newNode.size - node.size),
+                                this.nodesBitMap, this.entriesBitMap, this.keys, newContent);
+        }
+
+        // The new node can be reduced into this level as a mere mapping, which will live at the same position
+        final int reducedEntryPos = (Node.pos(mask, this.entriesBitMap) ^ Node.NEG_MASK);
+
+        final long[] newKeys = new long[this.keys.length + 1];
+        System.arraycopy(this.keys, 0, newKeys, 0, reducedEntryPos);
+        System.arraycopy(this.keys, reducedEntryPos, newKeys, reducedEntryPos + 1, this.keys.length - reducedEntryPos);
+        newKeys[reducedEntryPos] = newNode.keys[0];
+
+        // The value is inserted in the first part of the array, and the node removed from the last one
+        final Object[] newContent = new Object[this.content.length];
+        final int nodeIdx = this.content.length - 1 - nodePos;
+        System.arraycopy(this.content, 0, newContent, 0, reducedEntryPos);
+        newContent[reducedEntryPos] = newNode.content[0];
+        System.arraycopy(this.content, reducedEntryPos, newContent, reducedEntryPos + 1, nodeIdx - reducedEntryPos);
+        System.arraycopy(this.content, nodeIdx + 1, newContent, nodeIdx + 1, this.content.length - (nodeIdx + 1));
+
+        return new LongNode(this.level, this.size + (newNode.size - node.size),
+                            this.nodesBitMap ^ mask, this.entriesBitMap | mask, newKeys, newContent);
+
+    }
+
+
+
+    void forEach(final LongObjConsumer<Object> action) {
+        final int entriesLen = this.keys.length;
+        for (int i = 0; i < entriesLen; i++) {
+            action.accept(this.keys[i], this.content[i]);
+        }
+        for (int i = this.content.length - 1; i >= entriesLen; i--) {
+            ((LongNode) this.content[i]).forEach(action);
+        }
+    }
+
+
+    /*
+     * Returns the Map#hashCode() of all the mappings in this subtree, for keys boxed as Integer if intKeys is true or
+     * as Long otherwise (their hash codes differ for negative keys). Cached at every node, see Node#mappingsHashCode().
+     */
+    int mappingsHashCode(final boolean intKeys) {
+        int hashCode = this.mappingsHash;
+        if (hashCode == 0 && this.size > 0) {
+            final int entriesLen = this.keys.length;
+            Object value;
+            for (int i = 0; i < entriesLen; i++) {
+                value = this.content[i];
+                // This follows the definition of java.util.Map.Entry#hashCode()
+                hashCode += (intKeys ? Integer.hashCode((int) this.keys[i]) : Long.hashCode(this.keys[i])) ^
+                            ((value == null) ? 0 : value.hashCode());
+            }
+            for (int i = entriesLen; i < this.content.length; i++) {
+                hashCode += ((LongNode) this.content[i]).mappingsHashCode(intKeys);
+            }
+            this.mappingsHash = hashCode;
+        }
+        return hashCode;
+    }
+
+
+    // Determines whether two trees contain the same mappings (as per Map#equals())
+    static boolean sameMappings(final LongNode node1, final LongNode node2) {
+        return (node1 == node2) || (node1.size == node2.size && node2.containsAll(node1));
+    }
+
+
+    private boolean containsAll(final LongNode other) {
+        final int entriesLen = other.keys.length;
+        Object value;
+        for (int i = 0; i < entriesLen; i++) {
+            value = get(other.keys[i]);
+            if (value == Entry.NOT_FOUND || !eq(other.content[i], value)) {
+                return false;
+            }
+        }
+        for (int i = entriesLen; i < other.content.length; i++) {
+            if (!containsAll((LongNode) other.content[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    long[] keys() {
+        final long[] keys = new long[this.size];
+        final int[] pos = new int[1];
+        forEach((key, value) -> keys[pos[0]++] = key);
+        return keys;
+    }
+
+
+    // Only for trees created by the int-keyed classes, in which all keys are known to be in the int range
+    int[] intKeys() {
+        final int[] keys = new int[this.size];
+        final int[] pos = new int[1];
+        forEach((key, value) -> keys[pos[0]++] = (int) key);
+        return keys;
+    }
+
+
+    /*
+     * Equivalent to Objects.equals(), but by being called only from
+     * this class we might benefit from runtime profile information on the
+     * type of o1. See java.util.AbstractMap#eq().
+     */
+    private static boolean eq(final Object o1, final Object o2) {
+        return (o1 == o2) || (o1 != null && o1.equals(o2));
+    }
+
+
+}
@@ -0,0 +1,40 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+/**
+ * Operation that accepts a primitive <kbd>long</kbd> key and an object value, and returns no result. This is the
+ * primitive specialization of {@link java.util.function.BiConsumer} used for iterating the mappings of
+ * {@link LongAtomicHashMap} and {@link LongAtomicHashStore} without boxing their keys.
+ *
+ * @param <V> the type of the value
+ */
+@FunctionalInterface
+public interface LongObjConsumer<V> {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    void accept(long key, V value);
+
+}
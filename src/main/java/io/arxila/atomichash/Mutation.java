@@ -0,0 +1,278 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+ * Mutation of the mapping for a single key, applied by Node#mutate() in a single traversal of the tree: the
+ * mutation receives the value currently mapped to the key (or Entry.NOT_FOUND) and decides the new one, which
+ * can also be a removal of the mapping (REMOVE) or no change at all (KEEP).
+ *
+ * Mutation objects also report back the previous and resulting values of the mapping, so that the write operations
+ * of maps do not need to look them up again once the new structure has been built. Mutations are therefore
+ * stateful, and can only be used by one thread, though they can be applied several times (e.g. when the
+ * compare-and-swap of the new structure fails and the operation is retried), only the last application counting.
+ */
+abstract class Mutation {
+
+    static final Object REMOVE = new Object(); // Always to be checked using reference equality
+    static final Object KEEP = new Object();   // Always to be checked using reference equality
+
+    private Object oldValue = Entry.NOT_FOUND;
+    private Object newValue = KEEP;
+
+
+
+    final Object apply(final Object key, final Object oldValue) {
+        this.oldValue = oldValue;
+        this.newValue = remap(key, oldValue);
+        return this.newValue;
+    }
+
+
+    // Old value might be Entry.NOT_FOUND. Must return the new value, REMOVE or KEEP
+    abstract Object remap(final Object key, final Object oldValue);
+
+
+    boolean wasMapped() {
+        return this.oldValue != Entry.NOT_FOUND;
+    }
+
+
+    // Whether the last application of the mutation removed (or tried to remove, if not mapped) the mapping
+    boolean removes() {
+        return this.newValue == REMOVE;
+    }
+
+
+    // Value mapped before the mutation, null if not mapped
+    Object previous() {
+        return (this.oldValue == Entry.NOT_FOUND) ? null : this.oldValue;
+    }
+
+
+    // Value mapped after the mutation, null if not mapped
+    Object current() {
+        return (this.newValue == KEEP) ? previous() : (this.newValue == REMOVE) ? null : this.newValue;
+    }
+
+
+    static boolean absent(final Object value) {
+        // Map#putIfAbsent(), Map#computeIfAbsent() and others consider null equivalent to absence
+        return (value == null || value == Entry.NOT_FOUND);
+    }
+
+
+
+
+    static final class Put extends Mutation {
+
+        private final Object value;
+
+        Put(final Object value) {
+            super();
+            this.value = value;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return this.value;
+        }
+
+    }
+
+
+    static final class PutIfAbsent extends Mutation {
+
+        private final Object value;
+
+        PutIfAbsent(final Object value) {
+            super();
+            this.value = value;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return absent(oldValue) ? this.value : KEEP;
+        }
+
+    }
+
+
+    static final class Remove extends Mutation {
+
+        Remove() {
+            super();
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return REMOVE;
+        }
+
+    }
+
+
+    static final class RemoveIfEquals extends Mutation {
+
+        private final Object expectedValue;
+
+        RemoveIfEquals(final Object expectedValue) {
+            super();
+            this.expectedValue = expectedValue;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return Objects.equals(oldValue, this.expectedValue) ? REMOVE : KEEP; // oldValue might be NOT_FOUND
+        }
+
+        boolean removed() {
+            return wasMapped() && Objects.equals(previous(), this.expectedValue);
+        }
+
+    }
+
+
+    static final class Replace extends Mutation {
+
+        private final Object value;
+
+        Replace(final Object value) {
+            super();
+            this.value = value;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return (oldValue != Entry.NOT_FOUND) ? this.value : KEEP;
+        }
+
+    }
+
+
+    static final class ReplaceIfEquals extends Mutation {
+
+        private final Object expectedValue;
+        private final Object value;
+
+        ReplaceIfEquals(final Object expectedValue, final Object value) {
+            super();
+            this.expectedValue = expectedValue;
+            this.value = value;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            return Objects.equals(oldValue, this.expectedValue) ? this.value : KEEP; // oldValue might be NOT_FOUND
+        }
+
+        boolean replaced() {
+            return wasMapped() && Objects.equals(previous(), this.expectedValue);
+        }
+
+    }
+
+
+    static final class Compute extends Mutation {
+
+        private final BiFunction<Object,Object,Object> remappingFunction;
+
+        Compute(final BiFunction<Object,Object,Object> remappingFunction) {
+            super();
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            final Object remappedValue =
+                    this.remappingFunction.apply(key, (oldValue == Entry.NOT_FOUND) ? null : oldValue);
+            return (remappedValue == null) ? REMOVE : remappedValue;
+        }
+
+    }
+
+
+    static final class ComputeIfAbsent extends Mutation {
+
+        private final Function<Object,Object> mappingFunction;
+
+        ComputeIfAbsent(final Function<Object,Object> mappingFunction) {
+            super();
+            this.mappingFunction = mappingFunction;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            if (!absent(oldValue)) {
+                return KEEP;
+            }
+            final Object mappedValue = this.mappingFunction.apply(key);
+            return (mappedValue == null) ? KEEP : mappedValue;
+        }
+
+    }
+
+
+    static final class ComputeIfPresent extends Mutation {
+
+        private final BiFunction<Object,Object,Object> remappingFunction;
+
+        ComputeIfPresent(final BiFunction<Object,Object,Object> remappingFunction) {
+            super();
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            if (absent(oldValue)) {
+                return KEEP;
+            }
+            final Object remappedValue = this.remappingFunction.apply(key, oldValue);
+            return (remappedValue == null) ? REMOVE : remappedValue;
+        }
+
+    }
+
+
+    static final class Merge extends Mutation {
+
+        private final Object value;
+        private final BiFunction<Object,Object,Object> remappingFunction;
+
+        Merge(final Object value, final BiFunction<Object,Object,Object> remappingFunction) {
+            super();
+            this.value = value;
+            this.remappingFunction = remappingFunction;
+        }
+
+        @Override
+        Object remap(final Object key, final Object oldValue) {
+            final Object remappedValue =
+                    absent(oldValue) ? this.value : this.remappingFunction.apply(oldValue, this.value);
+            return (remappedValue == null) ? REMOVE : remappedValue;
+        }
+
+    }
+
+}
@@ -20,98 +20,1145 @@
 package io.arxila.atomichash;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 
 final class Node implements Serializable {
-    // NOTE that this class is meant to be totally immutable so that, in future versions, it can become
-    // a record (JDK17) and even a value type (Valhalla)
+    // NOTE that this class is meant to be immutable so that, in future versions, it can become a record (JDK17)
+    // and even a value type (Valhalla). The only exception is mappingsHash, a lazily computed cache that is not a
+    // part of the state of the node and that would need to be computed at construction (or dropped) for that.
 
-    private static final long serialVersionUID = 5892440116260222326L;
+    private static final long serialVersionUID = 3318170224880637462L;
 
     static final int MAX_LEVEL = 5;
     static final int[] HASH_SHIFTS = new int[] { 0, 6, 12, 18, 24, 30 };
     static final int HASH_MASK = 0b111111;
     static final int NEG_MASK = 1 << 31; // will be used for turning 0..63 int positions into negative
 
-    static final Node[] EMPTY_NODES = new Node[0];
-    static final Entry[] EMPTY_ENTRIES = new Entry[0];
-    static final Node EMPTY_NODE = new Node(0, 0, 0L, EMPTY_NODES, 0L, EMPTY_ENTRIES);
+    static final Object[] EMPTY_CONTENT = new Object[0];
+    static final Node EMPTY_NODE = new Node(0, 0, 0L, 0L, EMPTY_CONTENT);
 
 
     final int level;
     final int size;
     final long nodesBitMap;
-    final Node[] nodes;
     final long entriesBitMap;
-    final Entry[] entries;
+    // Both mappings and children nodes are stored in a single array, so that every node (whatever its fan-out)
+    // only pays for one array. Keys and values are stored inline at the beginning, interleaved: [k0, v0, k1, v1, ...],
+    // and children nodes are stored at the end in reverse order, so that node N is at content[content.length - 1 - N]
+    // (no need to count entries for finding it). Collision buckets (which can only exist at MAX_LEVEL) are stored
+    // as a null key followed by an Entry object containing the collisions.
+    final Object[] content;
 
+    // Aggregate Map.hashCode() of all the mappings in this subtree, lazily computed. This is a mere cache and
+    // not a part of the state of the node: it follows the same racy single-check idiom as java.lang.String#hash
+    private transient int mappingsHash;
 
 
-    Node(final int level, final int size,
-         final long nodesBitMap, final Node[] nodes,
-         final long entriesBitMap, final Entry[] entries) {
+
+    Node(final int level, final int size, final long nodesBitMap, final long entriesBitMap, final Object[] content) {
         super();
         this.level = level;
         this.size = size;
         this.nodesBitMap = nodesBitMap;
-        this.nodes = nodes;
         this.entriesBitMap = entriesBitMap;
-        this.entries = entries;
+        this.content = content;
+    }
+
+
+
+    // Number of slots in the content array used by mappings (two per mapping or collision bucket)
+    int entriesLength() {
+        return Long.bitCount(this.entriesBitMap) << 1;
+    }
+
+
+    int nodesLength() {
+        return Long.bitCount(this.nodesBitMap);
+    }
+
+
+    Node nodeAt(final int nodePos) {
+        return (Node) this.content[this.content.length - 1 - nodePos];
+    }
+
+
+
+    static Node createNewLevel(final int level, final Entry entry0, final Entry entry1) {
+
+        final long newNodesBitMap;
+        final long newEntriesBitMap;
+        final Object[] newContent;
+
+        final long mask0 = mask(entry0.hash, level);
+        final long mask1 = mask(entry1.hash, level);
+
+        if (mask0 != mask1) {
+
+            final int index0 = index(entry0.hash, level);
+            final int index1 = index(entry1.hash, level);
+
+            newNodesBitMap = 0L;
+            newEntriesBitMap = (mask0 | mask1);
+            newContent =
+                    (index0 < index1) ?
+                        new Object[] { entry0.key, entry0.value, entry1.key, entry1.value } :
+                        new Object[] { entry1.key, entry1.value, entry0.key, entry0.value };
+
+        } else {
+            // We have an index match at this level, so we will need to (try) to create a new level
+            if (level == MAX_LEVEL) {
+                // We have no more levels, so we need an Entry with collisions
+
+                newNodesBitMap = 0L;
+                newEntriesBitMap = mask0;
+                newContent = new Object[] { null, entry0.add(entry1) };
+
+            } else {
+                // We need an additional level to further differentiate entries
+
+                newNodesBitMap = mask0;
+                newEntriesBitMap = 0L;
+                newContent = new Object[] { createNewLevel(level + 1, entry0, entry1) };
+
+            }
+        }
+
+        return new Node(level, 2, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
+
+    /*
+     * Bulk-loads a new tree containing all the specified (non-collision) entries. Instead of performing a put
+     * operation for each entry, which would copy the whole path from the modified position up to the root every
+     * time, entries are recursively partitioned by the index their hash corresponds to at each level (a radix sort
+     * in which the "digits" are the 6-bit hash segments used by the tree), so that every node is created exactly
+     * once with its final bitmaps and arrays of the exact required size.
+     *
+     * Entries with the same key are resolved in favour of the one appearing last in the array, mirroring the effect
+     * of putting them in order. The order of the elements in the array can be modified by this method.
+     */
+    static Node build(final Entry[] entries) {
+        if (entries.length == 0) {
+            return EMPTY_NODE;
+        }
+        return (Node) build(entries, new Entry[entries.length], 0, entries.length, 0);
+    }
+
+
+    // Builds the range of entries at the specified level, using dst as a buffer of the same size as src
+    static Object build(final Entry[] src, final Entry[] dst, final int from, final int to, final int level) {
+        final int[][] offsets = new int[MAX_LEVEL + 2][HASH_MASK + 2]; // One per level, plus one used as cursor
+        final Object[][] children = new Object[MAX_LEVEL + 1][HASH_MASK + 1];
+        return build(src, dst, from, to, level, offsets, children);
+    }
+
+
+    // Returns a Node, or a single Entry if the resulting node could be reduced into the upper level
+    private static Object build(final Entry[] src, final Entry[] dst, final int from, final int to, final int level,
+                                final int[][] offsets, final Object[][] children) {
+
+        final int[] offset = offsets[level];
+        partition(src, dst, from, to, level, offset, offsets[MAX_LEVEL + 1]);
+
+        // Each group of entries sharing the same index is turned into either an entry or a deeper node
+        final Object[] levelChildren = children[level];
+        int start, end;
+        for (int idx = 0; idx <= HASH_MASK; idx++) {
+            start = offset[idx];
+            end = offset[idx + 1];
+            if (start == end) {
+                continue;
+            }
+            if (end - start == 1) {
+                levelChildren[idx] = dst[start];
+            } else if (level == MAX_LEVEL) {
+                levelChildren[idx] = buildCollision(dst, start, end);
+            } else {
+                levelChildren[idx] = build(dst, src, start, end, level + 1, offsets, children);
+            }
+        }
+
+        return assemble(level, levelChildren);
+
+    }
+
+
+    // Stable counting sort of the range by index at this level (moves entries from src to dst). Once finished,
+    // entries with index idx will be in dst between offset[idx] (inclusive) and offset[idx + 1] (exclusive)
+    static void partition(final Entry[] src, final Entry[] dst, final int from, final int to, final int level,
+                          final int[] offset, final int[] cursor) {
+        Arrays.fill(offset, 0);
+        for (int i = from; i < to; i++) {
+            offset[index(src[i].hash, level) + 1]++;
+        }
+        offset[0] = from;
+        for (int i = 1; i < offset.length; i++) {
+            offset[i] += offset[i - 1];
+        }
+        System.arraycopy(offset, 0, cursor, 0, offset.length);
+        Entry entry;
+        for (int i = from; i < to; i++) {
+            entry = src[i];
+            dst[cursor[index(entry.hash, level)]++] = entry;
+        }
+    }
+
+
+    // Creates a node from the children (either entries or nodes) at each index, clearing the array. Returns a
+    // single Entry instead if the resulting node could be reduced into the upper level
+    static Object assemble(final int level, final Object[] levelChildren) {
+
+        int nodesLen = 0;
+        int entriesLen = 0;
+        Object child;
+        for (int idx = 0; idx <= HASH_MASK; idx++) {
+            child = levelChildren[idx];
+            if (child instanceof Node) {
+                nodesLen++;
+            } else if (child != null) {
+                entriesLen++;
+            }
+        }
+
+        Entry entry;
+        if (level > 0 && nodesLen == 0 && entriesLen == 1) {
+            // Only possible if several entries had the same key: reduce into the upper level if possible
+            for (int idx = 0; idx <= HASH_MASK; idx++) {
+                if (levelChildren[idx] != null) {
+                    entry = (Entry) levelChildren[idx];
+                    if (entry.collisions == null) {
+                        levelChildren[idx] = null;
+                        return entry;
+                    }
+                    break;
+                }
+            }
+        }
+
+        long newNodesBitMap = 0L;
+        long newEntriesBitMap = 0L;
+        final Object[] newContent = new Object[(entriesLen << 1) + nodesLen];
+        int newSize = 0;
+        int nodesPos = newContent.length;
+        int entriesPos = 0;
+        for (int idx = 0; idx <= HASH_MASK; idx++) {
+            child = levelChildren[idx];
+            if (child == null) {
+                continue;
+            }
+            levelChildren[idx] = null;
+            if (child instanceof Node) {
+                newNodesBitMap |= (1L << idx);
+                newContent[--nodesPos] = child;
+                newSize += ((Node) child).size;
+            } else {
+                entry = (Entry) child;
+                newEntriesBitMap |= (1L << idx);
+                setEntry(newContent, entriesPos++, entry);
+                newSize += (entry.collisions == null) ? 1 : entry.collisions.length;
+            }
+        }
+
+        return new Node(level, newSize, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
+
+    // All entries in the range are known to have the same hash, so they can only be either collisions or duplicates
+    static Entry buildCollision(final Entry[] entries, final int from, final int to) {
+        final Entry[] collisions = new Entry[to - from];
+        int len = 0;
+        Entry entry;
+        loop: for (int i = from; i < to; i++) {
+            entry = entries[i];
+            for (int j = 0; j < len; j++) {
+                if (collisions[j].containsKey(entry.hash, entry.key)) {
+                    collisions[j] = entry; // Duplicate key: last one wins
+                    continue loop;
+                }
+            }
+            collisions[len++] = entry;
+        }
+        if (len == 1) {
+            return collisions[0];
+        }
+        return new Entry(entries[from].hash, null, null, (len == collisions.length) ? collisions : Arrays.copyOf(collisions, len));
+    }
+
+
+    /*
+     * Structurally merges two trees (whose roots must be at the same level) by walking both of them in parallel.
+     * For keys mapped in both trees, the mapping in the right tree takes precedence, unless a remapping function
+     * is specified, in which case it will be called with (leftValue, rightValue) to compute the resulting value.
+     *
+     * Subtrees existing in only one of the trees are reused as they are, as are those that are identical (same
+     * reference) in both trees if no remapping function needs to be applied, so the cost of the operation depends
+     * on the size of the overlap between the trees and not on their sizes. Also, if the result is equivalent to
+     * any of the two trees, that same tree is returned.
+     */
+    static Node merge(final Node left, final Node right, final BiFunction<Object,Object,Object> remappingFunction) {
+        return merge(left, right, remappingFunction, null);
+    }
+
+
+    // Children at positions containing nodes in both trees can be specified as already merged (indexed by position),
+    // so that they can be computed beforehand (e.g. in parallel)
+    static Node merge(final Node left, final Node right, final BiFunction<Object,Object,Object> remappingFunction,
+                      final Node[] mergedChildren) {
+
+        if (left == right && remappingFunction == null) {
+            return left;
+        }
+
+        final int level = left.level;
+        final long leftBitMap = left.nodesBitMap | left.entriesBitMap;
+        final long rightBitMap = right.nodesBitMap | right.entriesBitMap;
+
+        // First pass: compute the bitmaps of the resulting node so that its arrays can be created with exact sizes
+        long newNodesBitMap = (left.nodesBitMap | right.nodesBitMap);
+        long newEntriesBitMap = (left.entriesBitMap | right.entriesBitMap) & ~newNodesBitMap;
+        long sharedEntriesBitMap = (level == MAX_LEVEL) ? 0L : (left.entriesBitMap & right.entriesBitMap);
+        long mask;
+        while (sharedEntriesBitMap != 0L) {
+            mask = Long.lowestOneBit(sharedEntriesBitMap);
+            sharedEntriesBitMap ^= mask;
+            // Below MAX_LEVEL there are no collision buckets, so entries are always single mappings
+            if (!eq(left.content[pos(mask, left.entriesBitMap) << 1], right.content[pos(mask, right.entriesBitMap) << 1])) {
+                // Two different keys at the same position: a new level will be needed
+                newNodesBitMap |= mask;
+                newEntriesBitMap ^= mask;
+            }
+        }
+
+        final Object[] newContent = new Object[(Long.bitCount(newEntriesBitMap) << 1) + Long.bitCount(newNodesBitMap)];
+
+        // Second pass: compute the contents of each of the positions
+        boolean sameAsLeft = (newNodesBitMap == left.nodesBitMap && newEntriesBitMap == left.entriesBitMap);
+        boolean sameAsRight = (newNodesBitMap == right.nodesBitMap && newEntriesBitMap == right.entriesBitMap);
+        int newSize = 0;
+        int nodesPos = newContent.length;
+        int entriesPos = 0;
+        long bitMap = leftBitMap | rightBitMap;
+        while (bitMap != 0L) {
+
+            mask = Long.lowestOneBit(bitMap);
+            bitMap ^= mask;
+
+            final Object leftChild = left.child(mask);
+            final Object rightChild = right.child(mask);
+
+            final Object child;
+            if (rightChild == null) {
+                child = leftChild;
+            } else if (leftChild == null) {
+                child = rightChild;
+            } else if (leftChild instanceof Node) {
+                child = (rightChild instanceof Node) ?
+                            ((mergedChildren != null) ?
+                                    mergedChildren[Long.numberOfTrailingZeros(mask)] :
+                                    merge((Node) leftChild, (Node) rightChild, remappingFunction)) :
+                            mergeEntry((Node) leftChild, (Entry) rightChild, remappingFunction);
+            } else if (rightChild instanceof Node) {
+                // The left entry is wrapped into a node of its own so that, in case of collisions, it keeps
+                // being the first mapping (exactly as if the right mappings had been put one by one)
+                final Entry leftEntry = (Entry) leftChild;
+                final Node leftNode =
+                        new Node(level + 1, 1, 0L, mask(leftEntry.hash, level + 1),
+                                 new Object[] { leftEntry.key, leftEntry.value });
+                child = merge(leftNode, (Node) rightChild, remappingFunction);
+            } else {
+                child = mergeEntries((Entry) leftChild, (Entry) rightChild, level, remappingFunction);
+            }
+
+            sameAsLeft &= sameChild(child, leftChild);
+            sameAsRight &= sameChild(child, rightChild);
+
+            if (child instanceof Node) {
+                newContent[--nodesPos] = child;
+                newSize += ((Node) child).size;
+            } else {
+                final Entry entry = (Entry) child;
+                setEntry(newContent, entriesPos++, entry);
+                newSize += (entry.collisions == null) ? 1 : entry.collisions.length;
+            }
+
+        }
+
+        if (sameAsLeft) {
+            return left;
+        }
+        if (sameAsRight) {
+            return right;
+        }
+        return new Node(level, newSize, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
+
+    // Merges a simple (non-collision) right entry into a left node. Collision entries never live next to nodes.
+    private static Node mergeEntry(final Node node, final Entry entry,
+                                   final BiFunction<Object,Object,Object> remappingFunction) {
+        final Object value = node.get(entry.key);
+        if (value == Entry.NOT_FOUND) {
+            return node.put(entry);
+        }
+        if (remappingFunction != null) {
+            final Object newValue = remappingFunction.apply(value, entry.value);
+            return (newValue == value) ? node : node.put(new Entry(entry.hash, entry.key, newValue, null));
+        }
+        return node.put(entry);
+    }
+
+
+    // Merges two entries living at the same position of nodes at the same level
+    private static Object mergeEntries(final Entry left, final Entry right, final int level,
+                                       final BiFunction<Object,Object,Object> remappingFunction) {
+
+        if (level < MAX_LEVEL) {
+            // Both entries are simple (non-collision) ones
+            if (left.containsKey(right.hash, right.key)) {
+                return mergeMapping(left, right, remappingFunction);
+            }
+            return createNewLevel(level + 1, left, right);
+        }
+
+        // At the deepest level, entries at the same position always have the same hash: collisions or same keys
+        Entry result = left;
+        final Entry[] rightMappings = (right.collisions == null) ? new Entry[] { right } : right.collisions;
+        for (final Entry rightMapping : rightMappings) {
+            if (!result.containsKey(rightMapping.hash, rightMapping.key)) {
+                result = result.add(rightMapping);
+            } else {
+                final Entry leftMapping = mappingFor(result, rightMapping.key);
+                final Entry newMapping = mergeMapping(leftMapping, rightMapping, remappingFunction);
+                if (newMapping != leftMapping) {
+                    result = result.set(newMapping);
+                }
+            }
+        }
+        return result;
+
+    }
+
+
+    private static Entry mergeMapping(final Entry left, final Entry right,
+                                      final BiFunction<Object,Object,Object> remappingFunction) {
+        if (remappingFunction == null) {
+            return left.set(right);
+        }
+        final Object newValue = remappingFunction.apply(left.value, right.value);
+        return (newValue == left.value) ? left : new Entry(left.hash, left.key, newValue, null);
+    }
+
+
+    private static Entry mappingFor(final Entry entry, final Object key) {
+        if (entry.collisions == null) {
+            return entry;
+        }
+        for (final Entry collision : entry.collisions) {
+            if (collision.containsKey(collision.hash, key)) {
+                return collision;
+            }
+        }
+        throw new IllegalStateException(); // Should never happen
+    }
+
+
+    /*
+     * Returns a node containing only the children (mappings or nodes) of this node living at the positions selected
+     * by the bitmap, which are reused as they are. The resulting node is not reduced in any way, so this must only be
+     * applied on nodes at level 0 (i.e. roots of trees).
+     */
+    Node retain(final long bitMap) {
+
+        final long newNodesBitMap = this.nodesBitMap & bitMap;
+        final long newEntriesBitMap = this.entriesBitMap & bitMap;
+
+        if (newNodesBitMap == this.nodesBitMap && newEntriesBitMap == this.entriesBitMap) {
+            return this;
+        }
+        if (newNodesBitMap == 0L && newEntriesBitMap == 0L) {
+            return EMPTY_NODE;
+        }
+
+        final Object[] newContent = new Object[(Long.bitCount(newEntriesBitMap) << 1) + Long.bitCount(newNodesBitMap)];
+        int newSize = 0;
+        int nodesPos = newContent.length;
+        int entriesPos = 0;
+        long mask;
+
+        long entriesBitMap = newEntriesBitMap;
+        while (entriesBitMap != 0L) {
+            mask = Long.lowestOneBit(entriesBitMap);
+            entriesBitMap ^= mask;
+            // Mappings (or collision buckets) are copied slot by slot, without creating Entry objects for them
+            final int keyPos = pos(mask, this.entriesBitMap) << 1;
+            final Object value = this.content[keyPos + 1];
+            newContent[entriesPos++] = this.content[keyPos];
+            newContent[entriesPos++] = value;
+            newSize += (this.level == MAX_LEVEL && isCollision(value)) ? ((Entry) value).collisions.length : 1;
+        }
+
+        long nodesBitMap = newNodesBitMap;
+        while (nodesBitMap != 0L) {
+            mask = Long.lowestOneBit(nodesBitMap);
+            nodesBitMap ^= mask;
+            final Node node = nodeAt(pos(mask, this.nodesBitMap));
+            newContent[--nodesPos] = node;
+            newSize += node.size;
+        }
+
+        return new Node(this.level, newSize, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
+
+    /*
+     * Replaces every value in a tree with the result of applying the function to its mapping. Given this never
+     * modifies the shape of the tree, every node is copied only once keeping its bitmaps, and nodes (and collision
+     * buckets) in which every value came back as the same object are reused as they are.
+     */
+    static Node replaceAll(final Node node, final BiFunction<Object,Object,Object> function) {
+
+        final Object[] content = node.content;
+        final int entriesLength = Long.bitCount(node.entriesBitMap) << 1;
+        Object[] newContent = null;
+
+        Object value, newValue;
+        for (int i = 0; i < entriesLength; i += 2) {
+            value = content[i + 1];
+            newValue = (node.level == MAX_LEVEL && isCollision(value)) ?
+                    replaceAll((Entry) value, function) : function.apply(content[i], value);
+            if (newValue != value) {
+                if (newContent == null) {
+                    newContent = content.clone();
+                }
+                newContent[i + 1] = newValue;
+            }
+        }
+
+        Node child, newChild;
+        for (int i = entriesLength; i < content.length; i++) {
+            child = (Node) content[i];
+            newChild = replaceAll(child, function);
+            if (newChild != child) {
+                if (newContent == null) {
+                    newContent = content.clone();
+                }
+                newContent[i] = newChild;
+            }
+        }
+
+        return (newContent == null) ?
+                node : new Node(node.level, node.size, node.nodesBitMap, node.entriesBitMap, newContent);
+
+    }
+
+
+    private static Entry replaceAll(final Entry bucket, final BiFunction<Object,Object,Object> function) {
+        final Entry[] collisions = bucket.collisions;
+        Entry[] newCollisions = null;
+        Entry collision;
+        Object newValue;
+        for (int i = 0; i < collisions.length; i++) {
+            collision = collisions[i];
+            newValue = function.apply(collision.key, collision.value);
+            if (newValue != collision.value) {
+                if (newCollisions == null) {
+                    newCollisions = collisions.clone();
+                }
+                newCollisions[i] = new Entry(collision.hash, collision.key, newValue, null);
+            }
+        }
+        return (newCollisions == null) ? bucket : new Entry(bucket.hash, null, null, newCollisions);
+    }
+
+
+    /*
+     * Structural bulk removal of mappings: removes from a tree all the mappings whose keys are (removeAll) or are
+     * not (retainAll) in another tree, or those matching a predicate (removeIf). Trees are walked in a single pass,
+     * rebuilding every affected node only once, dropping whole subtrees when emptied (or when there is nothing at
+     * their position in the other tree, for retainAll) and reducing nodes left with a single mapping into their
+     * parents. Subtrees with no positions in common with the other tree are not even traversed. As trees of keys
+     * have the same shape whether they contain mappings or only keys, the other tree can be either a Node or a
+     * KeyNode tree.
+     */
+
+    static Node removeAll(final Node node, final Node keys) {
+        final Node newNode = prune(node, keys, false, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static Node removeAll(final Node node, final KeyNode keys) {
+        final Node newNode = prune(node, keys, false, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static Node retainAll(final Node node, final Node keys) {
+        final Node newNode = prune(node, keys, true, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static Node retainAll(final Node node, final KeyNode keys) {
+        final Node newNode = prune(node, keys, true, null);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+    static Node removeIf(final Node node, final BiPredicate<Object,Object> filter) {
+        final Node newNode = prune(node, null, false, filter);
+        return (newNode == null) ? EMPTY_NODE : newNode;
+    }
+
+
+    // Returns the same node if unchanged, or null if no mappings are left. If filter is null, other is the tree at
+    // the same position (and level) in the tree of keys. The result might be a node with a single mapping that
+    // should be reduced into the parent node.
+    private static Node prune(final Node node, final Object other, final boolean retain,
+                              final BiPredicate<Object,Object> filter) {
+
+        final long bitMap = node.nodesBitMap | node.entriesBitMap;
+        final long otherBitMap;
+        if (filter == null) {
+            if (node == other) {
+                return retain ? node : null;
+            }
+            otherBitMap = (other instanceof KeyNode) ?
+                    (((KeyNode) other).nodesBitMap | ((KeyNode) other).entriesBitMap) :
+                    (((Node) other).nodesBitMap | ((Node) other).entriesBitMap);
+            if ((bitMap & otherBitMap) == 0L) {
+                return retain ? null : node;
+            }
+        } else {
+            otherBitMap = 0L;
+        }
+
+        // Children will only be collected (in bitmap order) once the first change is found. Positions with no
+        // changes are left null, removed ones are set to this same node
+        Object[] newChildren = null;
+
+        long bits = bitMap, mask;
+        int childIdx = 0, entryPos = 0, nodePos = 0;
+        Object newChild;
+        for ( ; bits != 0L; bits ^= mask, childIdx++) {
+
+            mask = Long.lowestOneBit(bits);
+            newChild = null;
+
+            if (filter == null && (mask & otherBitMap) == 0L) {
+                // Nothing at this position in the other tree: the whole child is either kept or removed
+                if (retain) {
+                    newChild = node;
+                }
+            } else if ((mask & node.entriesBitMap) != 0L) {
+                final Object key = node.content[entryPos << 1];
+                final Object value = node.content[(entryPos << 1) + 1];
+                if (node.level == MAX_LEVEL && isCollision(value)) {
+                    final Entry newBucket = pruneBucket((Entry) value, other, retain, filter);
+                    if (newBucket != value) {
+                        newChild = (newBucket == null) ? node : newBucket;
+                    }
+                } else if (!keeps(key, value, other, retain, filter)) {
+                    newChild = node;
+                }
+            } else {
+                final Node child = node.nodeAt(nodePos);
+                final Object result; // Either a Node, a single mapping (Entry) or null if no mappings are left
+                if (filter != null) {
+                    result = prune(child, null, false, filter);
+                } else {
+                    final Object otherChild = keysAt(other, mask);
+                    if (otherChild instanceof Node || otherChild instanceof KeyNode) {
+                        result = prune(child, otherChild, retain, null);
+                    } else {
+                        // Only one key at this position in the other tree (collisions can only live at MAX_LEVEL)
+                        final int hash = Entry.hash(otherChild);
+                        result = retain ? child.mappingIn(hash, otherChild) : child.remove(hash, otherChild);
+                    }
+                }
+                if (result != child) {
+                    newChild = (result == null) ? node : result;
+                }
+            }
+
+            if (newChild != null && newChildren == null) {
+                newChildren = new Object[Long.bitCount(bitMap)];
+            }
+            if (newChildren != null) {
+                newChildren[childIdx] = newChild;
+            }
+
+            if ((mask & node.entriesBitMap) != 0L) {
+                entryPos++;
+            } else {
+                nodePos++;
+            }
+
+        }
+
+        if (newChildren == null) {
+            return node;
+        }
+
+        // Nodes left with a single mapping are reduced into entries
+        long newNodesBitMap = 0L, newEntriesBitMap = 0L;
+        int newSize = 0;
+        bits = bitMap;
+        childIdx = 0; entryPos = 0; nodePos = 0;
+        for ( ; bits != 0L; bits ^= mask, childIdx++) {
+            mask = Long.lowestOneBit(bits);
+            newChild = newChildren[childIdx];
+            if (newChild == null) {
+                // Unchanged
+                if ((mask & node.entriesBitMap) != 0L) {
+                    newEntriesBitMap |= mask;
+                    final Object value = node.content[(entryPos << 1) + 1];
+                    newSize += (node.level == MAX_LEVEL && isCollision(value)) ? ((Entry) value).collisions.length : 1;
+                } else {
+                    newNodesBitMap |= mask;
+                    newSize += node.nodeAt(nodePos).size;
+                }
+            } else if (newChild != node) {
+                if (newChild instanceof Node && !isReducible((Node) newChild)) {
+                    newNodesBitMap |= mask;
+                } else {
+                    newEntriesBitMap |= mask;
+                }
+                newSize += mappingCount(newChild);
+            }
+            if ((mask & node.entriesBitMap) != 0L) {
+                entryPos++;
+            } else {
+                nodePos++;
+            }
+        }
+
+        if (newSize == 0) {
+            return null;
+        }
+
+        final Object[] newContent = new Object[(Long.bitCount(newEntriesBitMap) << 1) + Long.bitCount(newNodesBitMap)];
+        int newEntryPos = 0, newNodesPos = newContent.length;
+        bits = bitMap;
+        childIdx = 0; entryPos = 0; nodePos = 0;
+        for ( ; bits != 0L; bits ^= mask, childIdx++) {
+            mask = Long.lowestOneBit(bits);
+            newChild = newChildren[childIdx];
+            if (newChild == null) {
+                if ((mask & node.entriesBitMap) != 0L) {
+                    newContent[newEntryPos << 1] = node.content[entryPos << 1];
+                    newContent[(newEntryPos << 1) + 1] = node.content[(entryPos << 1) + 1];
+                    newEntryPos++;
+                } else {
+                    newContent[--newNodesPos] = node.nodeAt(nodePos);
+                }
+            } else if (newChild instanceof Node && newChild != node) {
+                final Node newNode = (Node) newChild;
+                if (isReducible(newNode)) {
+                    newContent[newEntryPos << 1] = newNode.content[0];
+                    newContent[(newEntryPos << 1) + 1] = newNode.content[1];
+                    newEntryPos++;
+                } else {
+                    newContent[--newNodesPos] = newNode;
+                }
+            } else if (newChild instanceof Entry) {
+                setEntry(newContent, newEntryPos++, (Entry) newChild);
+            }
+            if ((mask & node.entriesBitMap) != 0L) {
+                entryPos++;
+            } else {
+                nodePos++;
+            }
+        }
+
+        return new Node(node.level, newSize, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
+
+    // Either the child node (Node or KeyNode) or the key at a position present in a tree of keys, in which there
+    // cannot be collision buckets (as keysAt() is never called at MAX_LEVEL)
+    private static Object keysAt(final Object keys, final long mask) {
+        if (keys instanceof KeyNode) {
+            return ((KeyNode) keys).childAt(mask);
+        }
+        final Node node = (Node) keys;
+        return ((mask & node.nodesBitMap) != 0L) ?
+                node.nodeAt(pos(mask, node.nodesBitMap)) : node.content[pos(mask, node.entriesBitMap) << 1];
+    }
+
+
+    private static boolean keeps(final Object key, final Object value, final Object other, final boolean retain,
+                                 final BiPredicate<Object,Object> filter) {
+        if (filter != null) {
+            return !filter.test(key, value);
+        }
+        // Other is at the same level, so it will directly look at the same position
+        final boolean contained = (other instanceof KeyNode) ?
+                ((KeyNode) other).contains(key) : ((Node) other).get(key) != Entry.NOT_FOUND;
+        return contained == retain;
+    }
+
+
+    // Returns the same bucket if all mappings are kept, or null if none are
+    private static Entry pruneBucket(final Entry bucket, final Object other, final boolean retain,
+                                     final BiPredicate<Object,Object> filter) {
+        Entry newBucket = bucket;
+        for (final Entry mapping : bucket.collisions) {
+            if (!keeps(mapping.key, mapping.value, other, retain, filter)) {
+                newBucket = newBucket.remove(mapping.hash, mapping.key);
+                if (newBucket == null) {
+                    return null;
+                }
+            }
+        }
+        return newBucket;
+    }
+
+
+    // Returns the mapping for the key in this subtree, or null if not found
+    private Entry mappingIn(final int hash, final Object key) {
+        Node node = this; long mask;
+        while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L) {
+            node = node.nodeAt(pos(mask, node.nodesBitMap));
+        }
+        if ((mask & node.entriesBitMap) == 0L) {
+            return null;
+        }
+        final Entry entry = node.entryAt(pos(mask, node.entriesBitMap));
+        return entry.containsKey(hash, key) ? mappingFor(entry, key) : null;
+    }
+
+
+    // Whether a node (not at level 0) can be reduced into its parent as a mere mapping
+    private static boolean isReducible(final Node node) {
+        return node.nodesBitMap == 0L && node.content.length == 2 &&
+                !(node.level == MAX_LEVEL && isCollision(node.content[1]));
+    }
+
+
+
+    /*
+     * Computes the differences between a newer and an older tree, adding to the corresponding maps the mappings
+     * only existing in the newer tree, those only existing in the older tree and the new values of those mapped in
+     * both trees to values that are not equal. Subtrees shared by reference are never traversed, so the cost of
+     * this operation depends on the amount of differences and not on the size of the trees.
+     */
+    static void diff(final Node newer, final Node older,
+                     final Map<Object,Object> added, final Map<Object,Object> removed, final Map<Object,Object> changed) {
+
+        if (newer == older) {
+            return;
+        }
+
+        long bitMap = newer.nodesBitMap | newer.entriesBitMap | older.nodesBitMap | older.entriesBitMap;
+        long mask;
+        while (bitMap != 0L) {
+
+            mask = Long.lowestOneBit(bitMap);
+            bitMap ^= mask;
+
+            final Object newerChild = newer.child(mask);
+            final Object olderChild = older.child(mask);
+
+            if (sameChild(newerChild, olderChild)) {
+                // Shared (or absent in both): no differences
+                continue;
+            }
+            if (newerChild instanceof Node && olderChild instanceof Node) {
+                diff((Node) newerChild, (Node) olderChild, added, removed, changed);
+                continue;
+            }
+
+            // At least one of the sides is an entry (or nothing), so the mappings at this position are few
+            for (final Entry mapping : mappings(newerChild)) {
+                final Object oldValue = valueIn(olderChild, mapping.key);
+                if (oldValue == Entry.NOT_FOUND) {
+                    added.put(mapping.key, mapping.value);
+                } else if (!Objects.equals(oldValue, mapping.value)) {
+                    changed.put(mapping.key, mapping.value);
+                }
+            }
+            for (final Entry mapping : mappings(olderChild)) {
+                if (valueIn(newerChild, mapping.key) == Entry.NOT_FOUND) {
+                    removed.put(mapping.key, mapping.value);
+                }
+            }
+
+        }
+
+    }
+
+
+    /*
+     * Joins two trees by walking them in lockstep, calling the action for every key mapped in both of them, and
+     * the left or right actions (if not null) for keys only mapped in the left or right tree. Positions mapped in
+     * only one of the trees are skipped without being traversed if there is no action for that side, and subtrees
+     * shared by reference are never compared (their mappings are passed to the action as mapped in both).
+     */
+    static void join(final Node left, final Node right, final TriConsumer<Object,Object,Object> action,
+                     final BiConsumer<Object,Object> leftAction, final BiConsumer<Object,Object> rightAction) {
+
+        if (left == right) {
+            left.forEach((key, value) -> action.accept(key, value, value));
+            return;
+        }
+
+        final long leftBitMap = left.nodesBitMap | left.entriesBitMap;
+        final long rightBitMap = right.nodesBitMap | right.entriesBitMap;
+        long bitMap = (leftBitMap & rightBitMap);
+        if (leftAction != null) {
+            bitMap |= leftBitMap;
+        }
+        if (rightAction != null) {
+            bitMap |= rightBitMap;
+        }
+
+        long mask;
+        while (bitMap != 0L) {
+
+            mask = Long.lowestOneBit(bitMap);
+            bitMap ^= mask;
+
+            final Object leftChild = left.child(mask);
+            final Object rightChild = right.child(mask);
+
+            if (leftChild instanceof Node && rightChild instanceof Node) {
+                join((Node) leftChild, (Node) rightChild, action, leftAction, rightAction);
+                continue;
+            }
+
+            // At least one of the sides is an entry (or nothing). Mappings in the left side only need to be
+            // iterated if there is an action for them, otherwise they are just looked up from the right side
+            if (leftAction == null) {
+                for (final Entry mapping : mappings(rightChild)) {
+                    final Object leftValue = valueIn(leftChild, mapping.key);
+                    if (leftValue != Entry.NOT_FOUND) {
+                        action.accept(mapping.key, leftValue, mapping.value);
+                    } else if (rightAction != null) {
+                        rightAction.accept(mapping.key, mapping.value);
+                    }
+                }
+                continue;
+            }
+            for (final Entry mapping : mappings(leftChild)) {
+                final Object rightValue = valueIn(rightChild, mapping.key);
+                if (rightValue != Entry.NOT_FOUND) {
+                    action.accept(mapping.key, mapping.value, rightValue);
+                } else {
+                    leftAction.accept(mapping.key, mapping.value);
+                }
+            }
+            if (rightAction != null) {
+                for (final Entry mapping : mappings(rightChild)) {
+                    if (valueIn(leftChild, mapping.key) == Entry.NOT_FOUND) {
+                        rightAction.accept(mapping.key, mapping.value);
+                    }
+                }
+            }
+
+        }
+
     }
 
 
+    private static Iterable<Entry> mappings(final Object child) {
+        if (child == null) {
+            return Collections.emptySet();
+        }
+        if (child instanceof Node) {
+            return () -> NodeIterator.entries((Node) child);
+        }
+        final Entry entry = (Entry) child;
+        return (entry.collisions == null) ? Collections.singleton(entry) : Arrays.asList(entry.collisions);
+    }
 
-    static Node createNewLevel(final int level, final Entry entry0, final Entry entry1) {
 
-        final long newNodesBitMap;
-        final long newEntriesBitMap;
-        final Node[] newNodes;
-        final Entry[] newEntries;
+    // May return Entry.NOT_FOUND if not found (so that it can be differentiated from a null value)
+    private static Object valueIn(final Object child, final Object key) {
+        if (child == null) {
+            return Entry.NOT_FOUND;
+        }
+        return (child instanceof Node) ? ((Node) child).get(key) : ((Entry) child).get(key);
+    }
 
-        final long mask0 = mask(entry0.hash, level);
-        final long mask1 = mask(entry1.hash, level);
 
-        if (mask0 != mask1) {
+    /*
+     * Returns the node or entry at the position selected by the mask, or null if there is none. As mappings are
+     * stored inline, an Entry object is created for them (collision buckets are returned as they are).
+     */
+    private Object child(final long mask) {
+        if ((this.nodesBitMap & mask) != 0L) {
+            return nodeAt(pos(mask, this.nodesBitMap));
+        }
+        if ((this.entriesBitMap & mask) != 0L) {
+            return entryAt(pos(mask, this.entriesBitMap));
+        }
+        return null;
+    }
 
-            final int index0 = index(entry0.hash, level);
-            final int index1 = index(entry1.hash, level);
 
-            newNodesBitMap = 0L;
-            newNodes = EMPTY_NODES;
+    // Returns an Entry for the mapping or collision bucket at the specified entry position (content[2 * entryPos])
+    Entry entryAt(final int entryPos) {
+        final Object key = this.content[entryPos << 1];
+        final Object value = this.content[(entryPos << 1) + 1];
+        if (this.level == MAX_LEVEL && isCollision(value)) {
+            return (Entry) value;
+        }
+        return new Entry(Entry.hash(key), key, value, null);
+    }
 
-            newEntriesBitMap = (mask0 | mask1);
-            newEntries = (index0 < index1) ? new Entry[] {entry0, entry1} : new Entry[] {entry1, entry0};
 
+    // Stores an entry (single mapping or collision bucket) at the specified entry position in a content array
+    static void setEntry(final Object[] content, final int entryPos, final Entry entry) {
+        if (entry.collisions == null) {
+            content[entryPos << 1] = entry.key;
+            content[(entryPos << 1) + 1] = entry.value;
         } else {
-            // We have an index match at this level, so we will need to (try) to create a new level
-            if (level == MAX_LEVEL) {
-                // We have no more levels, so we need an Entry with collisions
+            content[entryPos << 1] = null;
+            content[(entryPos << 1) + 1] = entry;
+        }
+    }
 
-                newNodesBitMap = 0L;
-                newNodes = EMPTY_NODES;
 
-                newEntriesBitMap = mask0;
-                newEntries = new Entry[] { entry0.add(entry1) };
+    /*
+     * Determines whether the value slot of an entry (at MAX_LEVEL) contains a collision bucket. Entry objects with
+     * collisions are never exposed outside the tree, so they can never be a value in a mapping.
+     */
+    static boolean isCollision(final Object value) {
+        return (value instanceof Entry) && ((Entry) value).collisions != null;
+    }
 
-            } else {
-                // We need an additional level to further differentiate entries
 
-                newNodesBitMap = mask0;
-                newNodes = new Node[] { createNewLevel(level + 1, entry0, entry1) };
+    // Children are the same if they are the same node or contain the same key and value objects
+    private static boolean sameChild(final Object child1, final Object child2) {
+        if (child1 == child2) {
+            return true;
+        }
+        if (!(child1 instanceof Entry) || !(child2 instanceof Entry)) {
+            return false;
+        }
+        final Entry entry1 = (Entry) child1;
+        final Entry entry2 = (Entry) child2;
+        return entry1.collisions == null && entry2.collisions == null &&
+               entry1.key == entry2.key && entry1.value == entry2.value;
+    }
 
-                newEntriesBitMap = 0L;
-                newEntries = EMPTY_ENTRIES;
 
+    /*
+     * Equivalent to Objects.equals(), but by being called only from
+     * this class we might benefit from runtime profile information on the
+     * type of o1. See java.util.AbstractMap#eq().
+     */
+    static boolean eq(final Object o1, final Object o2) {
+        return (o1 == o2) || (o1 != null && o1.equals(o2));
+    }
+
+
+    /*
+     * Returns the sum of the Map.Entry#hashCode() of all the mappings in this subtree (i.e. its Map#hashCode()).
+     * Once computed, it is cached at every node, so that it only needs to be recomputed for the nodes that are
+     * new in a tree derived from another one (a hash equal to 0 is simply recomputed each time).
+     */
+    int mappingsHashCode() {
+        int hashCode = this.mappingsHash;
+        if (hashCode == 0 && this.size > 0) {
+            final Object[] content = this.content;
+            final int entriesLen = entriesLength();
+            Object key, value;
+            for (int i = 0; i < entriesLen; i += 2) {
+                key = content[i];
+                value = content[i + 1];
+                if (this.level == MAX_LEVEL && isCollision(value)) {
+                    hashCode += value.hashCode();
+                } else {
+                    // This follows the definition of java.util.Map.Entry#hashCode()
+                    hashCode += ((key == null) ? 0 : key.hashCode()) ^ ((value == null) ? 0 : value.hashCode());
+                }
+            }
+            for (int i = entriesLen; i < content.length; i++) {
+                hashCode += ((Node) content[i]).mappingsHashCode();
+            }
+            this.mappingsHash = hashCode;
+        }
+        return hashCode;
+    }
+
+
+    /*
+     * Determines whether two trees contain the same mappings (as per Map#equals()). Subtrees shared by reference are
+     * never traversed, and subtrees are discarded as soon as their sizes or their (already computed) hash codes
+     * differ, so comparing a tree with another derived from it only requires examining the differing parts.
+     */
+    static boolean sameMappings(final Node node1, final Node node2) {
+
+        if (node1 == node2) {
+            return true;
+        }
+        if (node1.size != node2.size) {
+            return false;
+        }
+        final int hashCode1 = node1.mappingsHash;
+        final int hashCode2 = node2.mappingsHash;
+        if (hashCode1 != 0 && hashCode2 != 0 && hashCode1 != hashCode2) {
+            return false;
+        }
+
+        long bitMap = node1.nodesBitMap | node1.entriesBitMap;
+        if (bitMap != (node2.nodesBitMap | node2.entriesBitMap)) {
+            // There are hash prefixes that exist only in one of the trees, so their keys cannot be the same
+            return false;
+        }
+
+        long mask;
+        while (bitMap != 0L) {
+
+            mask = Long.lowestOneBit(bitMap);
+            bitMap ^= mask;
+
+            final Object child1 = node1.child(mask);
+            final Object child2 = node2.child(mask);
+
+            if (sameChild(child1, child2)) {
+                continue;
+            }
+            if (child1 instanceof Node && child2 instanceof Node) {
+                if (!sameMappings((Node) child1, (Node) child2)) {
+                    return false;
+                }
+                continue;
+            }
+
+            // At least one of the sides is an entry, so the mappings at this position are few
+            if (mappingCount(child1) != mappingCount(child2)) {
+                return false;
+            }
+            for (final Entry mapping : mappings(child1)) {
+                final Object value = valueIn(child2, mapping.key);
+                if (value == Entry.NOT_FOUND || !Objects.equals(mapping.value, value)) {
+                    return false;
+                }
             }
+
         }
 
-        return new Node(level, 2, newNodesBitMap, newNodes, newEntriesBitMap, newEntries);
+        return true;
+
+    }
+
 
+    private static int mappingCount(final Object child) {
+        if (child instanceof Node) {
+            return ((Node) child).size;
+        }
+        final Entry entry = (Entry) child;
+        return (entry.collisions == null) ? 1 : entry.collisions.length;
     }
 
 
@@ -144,10 +1191,15 @@ boolean containsKey(final Object key) {
         final int hash = Entry.hash(key);
         Node node = this; long mask;
         while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L) {
-            node = node.nodes[pos(mask, node.nodesBitMap)];
+            node = node.nodeAt(pos(mask, node.nodesBitMap));
         }
         if ((mask & node.entriesBitMap) != 0L) {
-            return node.entries[pos(mask, node.entriesBitMap)].containsKey(hash, key);
+            final int entryPos = pos(mask, node.entriesBitMap) << 1;
+            final Object value = node.content[entryPos + 1];
+            if (node.level == MAX_LEVEL && isCollision(value)) {
+                return ((Entry) value).containsKey(hash, key);
+            }
+            return eq(node.content[entryPos], key);
         }
         return false;
     }
@@ -164,8 +1216,16 @@ boolean containsValue(final Object value) {
         do {
 
             if (node.entriesBitMap != 0L) {
-                for (final Entry entry : node.entries) {
-                    if (entry.containsValue(value)) {
+                final Object[] content = node.content;
+                final int entriesLen = node.entriesLength();
+                Object entryValue;
+                for (int i = 1; i < entriesLen; i += 2) {
+                    entryValue = content[i];
+                    if (node.level == MAX_LEVEL && isCollision(entryValue)) {
+                        if (((Entry) entryValue).containsValue(value)) {
+                            return true;
+                        }
+                    } else if (eq(entryValue, value)) {
                         return true;
                     }
                 }
@@ -179,11 +1239,11 @@ boolean containsValue(final Object value) {
                 nodeStack[nodeLevel] = node;
                 posStack[nodeLevel] = 0;
             } else {
-                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodes.length));
+                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodesLength()));
             }
 
             if (nodeLevel >= 0) {
-                node = nodeStack[nodeLevel].nodes[posStack[nodeLevel]];
+                node = nodeStack[nodeLevel].nodeAt(posStack[nodeLevel]);
                 nodeLevel++;
             }
 
@@ -199,15 +1259,114 @@ Object get(final Object key) {
         final int hash = Entry.hash(key);
         Node node = this; long mask;
         while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L) {
-            node = node.nodes[pos(mask, node.nodesBitMap)];
+            node = node.nodeAt(pos(mask, node.nodesBitMap));
         }
         if ((mask & node.entriesBitMap) != 0L) {
-            return node.entries[pos(mask, node.entriesBitMap)].get(key);
+            final int entryPos = pos(mask, node.entriesBitMap) << 1;
+            final Object value = node.content[entryPos + 1];
+            if (node.level == MAX_LEVEL && isCollision(value)) {
+                return ((Entry) value).get(key);
+            }
+            return eq(node.content[entryPos], key) ? value : Entry.NOT_FOUND;
         }
         return Entry.NOT_FOUND;
     }
 
 
+    // Whether these exact key and value objects are already mapped (referential equality, see Entry#set()), in
+    // which case putting them would not modify the tree
+    boolean containsSame(final int hash, final Object key, final Object value) {
+        Node node = this; long mask;
+        while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L) {
+            node = node.nodeAt(pos(mask, node.nodesBitMap));
+        }
+        if ((mask & node.entriesBitMap) != 0L) {
+            final int entryPos = pos(mask, node.entriesBitMap) << 1;
+            final Object mapped = node.content[entryPos + 1];
+            if (node.level == MAX_LEVEL && isCollision(mapped)) {
+                return ((Entry) mapped).containsSame(key, value);
+            }
+            return node.content[entryPos] == key && mapped == value;
+        }
+        return false;
+    }
+
+
+    /*
+     * Batched lookup of several keys, which must be sorted beforehand (see paths()) so that all keys sharing a
+     * path prefix in the tree are contiguous. This way every node in the paths of the keys is visited only once,
+     * no matter how many of the keys are located below it.
+     *
+     * The value for each key (or the specified notFound object if not mapped) is set at its same position in the
+     * values array. Returns the number of keys found.
+     */
+    int getAll(final Object[] keys, final int[] hashes, final long[] paths,
+               final Object[] values, final Object notFound) {
+        return getAll(this, keys, hashes, paths, 0, paths.length, values, notFound);
+    }
+
+
+    private static int getAll(final Node node, final Object[] keys, final int[] hashes, final long[] paths,
+                              final int from, final int to, final Object[] values, final Object notFound) {
+        int found = 0, i = from, j, k, index;
+        Object result;
+        long mask;
+        while (i < to) {
+            index = index(hashes[(int) paths[i]], node.level);
+            j = i + 1;
+            while (j < to && index(hashes[(int) paths[j]], node.level) == index) {
+                j++;
+            }
+            mask = 1L << index;
+            if ((mask & node.nodesBitMap) != 0L) {
+                found += getAll(node.nodeAt(pos(mask, node.nodesBitMap)), keys, hashes, paths, i, j, values, notFound);
+            } else if ((mask & node.entriesBitMap) != 0L) {
+                final int entryPos = pos(mask, node.entriesBitMap) << 1;
+                final Object key = node.content[entryPos];
+                final Object value = node.content[entryPos + 1];
+                final boolean collision = (node.level == MAX_LEVEL && isCollision(value));
+                for (; i < j; i++) {
+                    k = (int) paths[i];
+                    result = collision ? ((Entry) value).get(keys[k]) : eq(key, keys[k]) ? value : Entry.NOT_FOUND;
+                    if (result != Entry.NOT_FOUND) {
+                        values[k] = result;
+                        found++;
+                    } else {
+                        values[k] = notFound;
+                    }
+                }
+            } else {
+                for (; i < j; i++) {
+                    values[(int) paths[i]] = notFound;
+                }
+            }
+            i = j;
+        }
+        return found;
+    }
+
+
+    /*
+     * Computes the path of each hash in the tree (its hash segments rearranged so that the one used at level 0
+     * becomes the most significant), packed together with the position of the hash in the array and sorted, so
+     * that hashes sharing a path prefix are contiguous.
+     */
+    static long[] paths(final int[] hashes) {
+        final long[] paths = new long[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            paths[i] = ((long) path(hashes[i]) << 32) | i;
+        }
+        Arrays.sort(paths);
+        return paths;
+    }
+
+
+    static int path(final int hash) {
+        return (index(hash, 0) << 26) | (index(hash, 1) << 20) | (index(hash, 2) << 14) |
+               (index(hash, 3) << 8) | (index(hash, 4) << 2) | index(hash, 5);
+    }
+
+
 
     Node put(final Entry entry) {
 
@@ -232,92 +1391,141 @@ Node put(final Entry entry) {
                 stackIdx++;
                 nodeStack[stackIdx] = node;
                 posStack[stackIdx] = pos = pos(mask, node.nodesBitMap);
-                node = node.nodes[pos];
+                node = node.nodeAt(pos);
             } while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L);
 
         }
 
-        Node newNode;
+        final Node newNode = putAt(node, mask, hash, entry.key, entry.value, entry, false);
+        if (newNode == node) {
+            // No need to change anything at any level if changes were not made
+            return this;
+        }
+        return putUpwards(nodeStack, posStack, stackIdx, node, newNode);
+
+    }
+
+
+    // Puts a mapping into the node at which its key is or should be (i.e. the node at which descent stopped),
+    // returning the new version of that node, or the same node if no changes were needed. The entry might be null,
+    // in which case it will only be created if needed. If matched, the key is already known to be at the (non-collision)
+    // position selected by the mask, so it does not need to be compared again.
+    private static Node putAt(final Node node, final long mask, final int hash,
+                              final Object key, final Object value, final Entry entry, final boolean matched) {
+
         final int entryPos = pos(mask, node.entriesBitMap);
 
         if (entryPos < 0) {
             // There is nothing at the selected position: an entry will be created
 
-            final int newEntryPos = (entryPos ^ NEG_MASK); // Turn negative entryPos positive
+            final int newKeyPos = (entryPos ^ NEG_MASK) << 1; // Turn negative entryPos positive
 
             final long newEntriesBitMap = node.entriesBitMap | mask;
-            final Entry[] newEntries = new Entry[node.entries.length + 1];
-            System.arraycopy(node.entries, 0, newEntries, 0, newEntryPos);
-            System.arraycopy(node.entries, newEntryPos, newEntries, newEntryPos + 1, node.entries.length - newEntryPos);
-            newEntries[newEntryPos] = entry;
+            final Object[] newContent = new Object[node.content.length + 2];
+            System.arraycopy(node.content, 0, newContent, 0, newKeyPos);
+            System.arraycopy(node.content, newKeyPos, newContent, newKeyPos + 2, node.content.length - newKeyPos);
+            newContent[newKeyPos] = key;
+            newContent[newKeyPos + 1] = value;
 
-            newNode = new Node(node.level, node.size + 1, node.nodesBitMap, node.nodes, newEntriesBitMap, newEntries);
+            return new Node(node.level, node.size + 1, node.nodesBitMap, newEntriesBitMap, newContent);
 
-        } else {
-            // There is an entry at the selected position: either replace (if keys match) or create level / collision
+        }
 
-            final Entry oldEntry = node.entries[entryPos];
+        // There is an entry at the selected position: either replace (if keys match) or create level / collision
 
-            if (oldEntry.containsKey(hash, entry.key)) {
-                // There is a match (key exists): entry needs to be replaced
+        final int keyPos = entryPos << 1;
+        final Object oldKey = node.content[keyPos];
+        final Object oldValue = node.content[keyPos + 1];
 
-                final Entry newEntry = oldEntry.set(entry);
-                if (newEntry == oldEntry) {
-                    // No need to change anything at any level if changes were not made
-                    return this;
-                }
+        if (!matched && node.level == MAX_LEVEL && isCollision(oldValue)) {
+            // There is a collision bucket at the selected position: mapping will be replaced or added to it
 
-                final Entry[] newEntries = Arrays.copyOf(node.entries, node.entries.length, Entry[].class);
-                newEntries[entryPos] = newEntry;
+            final Entry newEntry = (entry != null) ? entry : new Entry(hash, key, value, null);
+            final Entry oldCollision = (Entry) oldValue;
+            final boolean exists = oldCollision.containsKey(hash, key);
+            final Entry newCollision = exists ? oldCollision.set(newEntry) : oldCollision.add(newEntry);
+            if (newCollision == oldCollision) {
+                return node;
+            }
 
-                newNode = new Node(node.level, node.size, node.nodesBitMap, node.nodes, node.entriesBitMap, newEntries);
+            final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+            newContent[keyPos + 1] = newCollision;
 
-            } else if (node.level == MAX_LEVEL) {
-                // No new levels can be created, so a collision entry will be created or expanded
+            return new Node(node.level, node.size + (exists ? 0 : 1), node.nodesBitMap, node.entriesBitMap, newContent);
 
-                final Entry[] newEntries = Arrays.copyOf(node.entries, node.entries.length, Entry[].class);
-                newEntries[entryPos] = oldEntry.add(entry);
+        }
 
-                newNode = new Node(node.level, node.size + 1, node.nodesBitMap, node.nodes, node.entriesBitMap, newEntries);
+        if (matched || eq(oldKey, key)) {
+            // There is a match (key exists): mapping needs to be replaced
 
-            } else {
-                // A new level will be created, a node will replace the existing entry
+            // In order to determine whether a mapping already exists, key and value will be applied
+            // referential equality and not object equality (see Entry#set())
+            if (oldKey == key && oldValue == value) {
+                return node;
+            }
 
-                final Node deeperNode = createNewLevel(node.level + 1, oldEntry, entry);
-                final int deeperNodePos = (pos(mask, node.nodesBitMap) ^ NEG_MASK);
+            final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+            newContent[keyPos] = key;
+            newContent[keyPos + 1] = value;
 
-                final long newNodesBitMap = node.nodesBitMap ^ mask;
-                final long newEntriesBitMap = node.entriesBitMap ^ mask;
+            return new Node(node.level, node.size, node.nodesBitMap, node.entriesBitMap, newContent);
 
-                final Node[] newNodes = new Node[node.nodes.length + 1];
-                System.arraycopy(node.nodes, 0, newNodes, 0, deeperNodePos);
-                System.arraycopy(node.nodes, deeperNodePos, newNodes, deeperNodePos + 1, node.nodes.length - deeperNodePos);
-                newNodes[deeperNodePos] = deeperNode;
+        }
 
-                final Entry[] newEntries = new Entry[node.entries.length - 1];
-                System.arraycopy(node.entries, 0, newEntries, 0, entryPos);
-                System.arraycopy(node.entries, entryPos + 1, newEntries, entryPos, node.entries.length - (entryPos + 1));
+        final Entry newEntry = (entry != null) ? entry : new Entry(hash, key, value, null);
 
-                newNode = new Node(node.level, node.size + 1, newNodesBitMap, newNodes, newEntriesBitMap, newEntries);
+        if (node.level == MAX_LEVEL) {
+            // No new levels can be created, so a collision bucket will be created (hashes are known to be equal)
 
-            }
+            final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+            newContent[keyPos] = null;
+            newContent[keyPos + 1] = new Entry(hash, oldKey, oldValue, null).add(newEntry);
+
+            return new Node(node.level, node.size + 1, node.nodesBitMap, node.entriesBitMap, newContent);
 
         }
 
-        Node oldNode;
-        for ( ; stackIdx >= 0; stackIdx--) {
+        // A new level will be created, a node will replace the existing entry
+
+        final Entry oldEntry = new Entry(Entry.hash(oldKey), oldKey, oldValue, null);
+        final Node deeperNode = createNewLevel(node.level + 1, oldEntry, newEntry);
+        final int deeperNodePos = (pos(mask, node.nodesBitMap) ^ NEG_MASK);
+
+        final long newNodesBitMap = node.nodesBitMap ^ mask;
+        final long newEntriesBitMap = node.entriesBitMap ^ mask;
+
+        // The mapping is removed from the first part of the array, and the new node inserted in the last one
+        final Object[] content = node.content;
+        final Object[] newContent = new Object[content.length - 1];
+        final int deeperNodeIdx = newContent.length - 1 - deeperNodePos;
+        System.arraycopy(content, 0, newContent, 0, keyPos);
+        System.arraycopy(content, keyPos + 2, newContent, keyPos, deeperNodeIdx - keyPos);
+        newContent[deeperNodeIdx] = deeperNode;
+        System.arraycopy(content, deeperNodeIdx + 2, newContent, deeperNodeIdx + 1, content.length - (deeperNodeIdx + 2));
+
+        return new Node(node.level, node.size + 1, newNodesBitMap, newEntriesBitMap, newContent);
+
+    }
+
 
-            oldNode = node;
+    // Replaces a modified node (resulting from a put) in all the nodes stacked during descent, up to the root
+    private static Node putUpwards(final Node[] nodeStack, final int[] posStack, final int stackTop,
+                                   final Node oldNode, final Node newNode) {
+
+        Node node = oldNode, newParent = newNode, oldChild;
+        for (int stackIdx = stackTop; stackIdx >= 0; stackIdx--) {
+
+            oldChild = node;
             node = nodeStack[stackIdx];
 
-            final Node[] newNodes = Arrays.copyOf(node.nodes, node.nodes.length, Node[].class);
-            newNodes[posStack[stackIdx]] = newNode;
+            final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+            newContent[newContent.length - 1 - posStack[stackIdx]] = newParent;
 
-            newNode = new Node(node.level, node.size + (newNode.size - oldNode.size), node.nodesBitMap, newNodes, node.entriesBitMap, node.entries);
+            newParent = new Node(node.level, node.size + (newParent.size - oldChild.size), node.nodesBitMap, node.entriesBitMap, newContent);
 
         }
 
-        return newNode;
+        return newParent;
 
     }
 
@@ -344,201 +1552,186 @@ Node remove(final int hash, final Object key) {
                 stackIdx++;
                 nodeStack[stackIdx] = node;
                 posStack[stackIdx] = pos = pos(mask, node.nodesBitMap);
-                node = node.nodes[pos];
+                node = node.nodeAt(pos);
             } while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L);
 
         }
 
-        Node newNode;
+        final Node newNode = removeAt(node, mask, hash, key, false);
+        if (newNode == node) {
+            // No need to change anything at any level if changes were not made (key was not found)
+            return this;
+        }
+        return removeUpwards(nodeStack, posStack, stackIdx, hash, newNode);
+
+    }
+
+
+    // Removes a mapping from the node at which its key is or should be (i.e. the node at which descent stopped),
+    // returning the new version of that node, or the same node if the key was not found. If matched, the key is
+    // already known to be at the (non-collision) position selected by the mask.
+    private static Node removeAt(final Node node, final long mask, final int hash, final Object key,
+                                 final boolean matched) {
+
         final int entryPos = pos(mask, node.entriesBitMap);
 
         if (entryPos < 0) {
             // There is nothing at the position that the removed key should be at: nothing to remove
-            return this;
+            return node;
         }
 
-        final Entry oldEntry = node.entries[entryPos];
-        final Entry newEntry = oldEntry.remove(hash, key);
+        final int keyPos = entryPos << 1;
+        final Object oldValue = node.content[keyPos + 1];
+
+        if (!matched && node.level == MAX_LEVEL && isCollision(oldValue)) {
+            // This is a collision bucket from which a mapping might be removed
+
+            final Entry oldCollision = (Entry) oldValue;
+            final Entry newCollision = oldCollision.remove(hash, key);
+            if (newCollision == oldCollision) {
+                return node;
+            }
+
+            final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+            setEntry(newContent, entryPos, newCollision); // Might be a single mapping now
+            return new Node(node.level, node.size - 1, node.nodesBitMap, node.entriesBitMap, newContent);
 
-        if (newEntry == oldEntry) {
-            // No need to change anything at any level if changes were not made (key was not found)
-            return this;
         }
 
-        if (newEntry != null) {
-            // This was a collision entry from which a collision mapping was removed
+        if (!matched && !eq(node.content[keyPos], key)) {
+            return node;
+        }
 
-            final Entry[] newEntries = Arrays.copyOf(node.entries, node.entries.length, Entry[].class);
-            newEntries[entryPos] = newEntry;
-            newNode = new Node(node.level, node.size - 1, node.nodesBitMap, node.nodes, node.entriesBitMap, newEntries);
+        final long newEntriesBitMap = node.entriesBitMap ^ mask;
+        if (newEntriesBitMap == 0L && node.nodesBitMap == 0L) {
+            // Empty node: this can only happen at the root node (no stack), when the map gets cleared
+            // At any other level, we would reduce nodes upwards when they have only one (non-collision) entry
+            return EMPTY_NODE;
+        }
 
-        } else {
+        final Object[] newContent = new Object[node.content.length - 2];
+        System.arraycopy(node.content, 0, newContent, 0, keyPos);
+        System.arraycopy(node.content, keyPos + 2, newContent, keyPos, node.content.length - (keyPos + 2));
 
-            final long newEntriesBitMap = node.entriesBitMap ^ mask;
-            final Entry[] newEntries;
-            if (newEntriesBitMap == 0L) {
-                newEntries = EMPTY_ENTRIES;
-                if (node.nodesBitMap == 0L) {
-                    // Empty node: this can only happen at the root node (no stack), when the map gets cleared
-                    // At any other level, we would reduce nodes upwards when they have only one (non-collision) entry
-                    return EMPTY_NODE;
-                }
-            } else {
-                newEntries = new Entry[node.entries.length - 1];
-                System.arraycopy(node.entries, 0, newEntries, 0, entryPos);
-                System.arraycopy(node.entries, entryPos + 1, newEntries, entryPos, node.entries.length - (entryPos + 1));
-            }
+        return new Node(node.level, node.size - 1, node.nodesBitMap, newEntriesBitMap, newContent);
+
+    }
 
-            newNode = new Node(node.level, node.size - 1, node.nodesBitMap, node.nodes, newEntriesBitMap, newEntries);
 
-        }
+    // Replaces a modified node (resulting from a remove) in all the nodes stacked during descent, up to the root,
+    // reducing nodes into mere mappings of their parents when possible
+    private static Node removeUpwards(final Node[] nodeStack, final int[] posStack, final int stackTop,
+                                      final int hash, final Node newNode) {
 
+        Node node, newParent = newNode;
         int nodePos;
-        for ( ; stackIdx >= 0; stackIdx--) {
+        for (int stackIdx = stackTop; stackIdx >= 0; stackIdx--) {
 
             node = nodeStack[stackIdx];
             nodePos = posStack[stackIdx];
 
-            if (newNode.nodes.length > 0 || newNode.entries.length > 1 || newNode.entries[0].collisions != null) {
-                // The new node has at least one node, or two entries, or one collision entry that must live at level 5
+            if (!isReducible(newParent)) {
+                // The new node has at least one node, or two entries, or one collision bucket that must live at level 5
                 // There is no possibility to "reduce" the node into the upper level. The node will be simply replaced
 
-                final Node[] newNodes = Arrays.copyOf(node.nodes, node.nodes.length, Node[].class);
-                newNodes[nodePos] = newNode;
+                final Object[] newContent = Arrays.copyOf(node.content, node.content.length);
+                newContent[newContent.length - 1 - nodePos] = newParent;
 
-                newNode = new Node(node.level, node.size - 1, node.nodesBitMap, newNodes, node.entriesBitMap, node.entries);
+                newParent = new Node(node.level, node.size - 1, node.nodesBitMap, node.entriesBitMap, newContent);
 
             } else {
-                // The new node can be reduced into the upper level as a mere Entry
+                // The new node can be reduced into the upper level as a mere mapping, which will live at the same
+                // position the node was (i.e. the position selected by the hash of the removed key at this level)
 
-                final Entry reducedEntry = newNode.entries[0];
-                final long reducedEntryMask = mask(reducedEntry.hash, node.level);
+                final long reducedEntryMask = mask(hash, node.level);
                 // The pos computed below cannot be positive because there is no entry at that index given there is a node
-                final int reducedEntryPos = (pos(reducedEntryMask, node.entriesBitMap) ^ NEG_MASK);
+                final int reducedKeyPos = (pos(reducedEntryMask, node.entriesBitMap) ^ NEG_MASK) << 1;
 
                 final long newNodesBitMap = node.nodesBitMap ^ reducedEntryMask;      // Remove mask from node bitmap
                 final long newEntriesBitMap = node.entriesBitMap ^ reducedEntryMask;  // Add mask to entry bitmap
 
-                final Entry[] newEntries = new Entry[node.entries.length + 1];
-                System.arraycopy(node.entries, 0, newEntries, 0, reducedEntryPos);
-                System.arraycopy(node.entries, reducedEntryPos, newEntries, reducedEntryPos + 1, node.entries.length - reducedEntryPos);
-                newEntries[reducedEntryPos] = reducedEntry;
+                // The mapping is inserted in the first part of the array, and the node removed from the last one
+                final Object[] content = node.content;
+                final Object[] newContent = new Object[content.length + 1];
+                final int nodeIdx = content.length - 1 - nodePos;
+                System.arraycopy(content, 0, newContent, 0, reducedKeyPos);
+                newContent[reducedKeyPos] = newParent.content[0];
+                newContent[reducedKeyPos + 1] = newParent.content[1];
+                System.arraycopy(content, reducedKeyPos, newContent, reducedKeyPos + 2, nodeIdx - reducedKeyPos);
+                System.arraycopy(content, nodeIdx + 1, newContent, nodeIdx + 2, content.length - (nodeIdx + 1));
 
-                final Node[] newNodes = new Node[node.nodes.length - 1];
-                System.arraycopy(node.nodes, 0, newNodes, 0, nodePos);
-                System.arraycopy(node.nodes, nodePos + 1, newNodes, nodePos, node.nodes.length - (nodePos + 1));
-
-                newNode = new Node(node.level, node.size - 1, newNodesBitMap, newNodes, newEntriesBitMap, newEntries);
+                newParent = new Node(node.level, node.size - 1, newNodesBitMap, newEntriesBitMap, newContent);
 
             }
 
         }
 
-        return newNode;
-
+        return newParent;
 
     }
 
 
-    Set<Entry> allEntries() {
 
-        final Set<Entry> entrySet = new HashSet<>(this.size + 1, 1.0f);
+    // Applies a mutation to the mapping of a key in a single traversal of the tree: the current value is looked up,
+    // the mutation decides on the new one (or on a removal) and the path is copied upwards, all from the same
+    // descent. The mutation object is also used for reporting back both the previous and resulting values.
+    Node mutate(final int hash, final Object key, final Mutation mutation) {
 
         Node[] nodeStack = null;
         int[] posStack = null;
+        int stackIdx = -1;
 
         Node node = this;
-        int nodeLevel = 0;
-
-        Entry[] collisions;
-        do {
-
-            if (node.entriesBitMap != 0L) {
-                for (final Entry entry : node.entries) {
-                    collisions = entry.collisions;
-                    if (collisions == null) {
-                        entrySet.add(entry);
-                    } else {
-                        Collections.addAll(entrySet, collisions);
-                    }
-                }
-            }
-
-            if (node.nodesBitMap != 0L) {
-                if (nodeStack == null) {
-                    nodeStack = new Node[MAX_LEVEL];
-                    posStack = new int[MAX_LEVEL];
-                }
-                nodeStack[nodeLevel] = node;
-                posStack[nodeLevel] = 0;
-            } else {
-                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodes.length));
-            }
-
-            if (nodeLevel >= 0) {
-                node = nodeStack[nodeLevel].nodes[posStack[nodeLevel]];
-                nodeLevel++;
-            }
-
-        } while (nodeLevel >= 0);
-
-        return entrySet;
-
-    }
-
-
-    Set<Object> allKeys() {
+        long mask = mask(hash, node.level);
 
-        final Set<Object> keySet = new HashSet<>(this.size + 1, 1.0f);
+        if ((mask & node.nodesBitMap) != 0L) {
 
-        Node[] nodeStack = null;
-        int[] posStack = null;
+            nodeStack = new Node[MAX_LEVEL];
+            posStack = new int[MAX_LEVEL];
 
-        Node node = this;
-        int nodeLevel = 0;
+            int pos;
+            do {
+                stackIdx++;
+                nodeStack[stackIdx] = node;
+                posStack[stackIdx] = pos = pos(mask, node.nodesBitMap);
+                node = node.nodeAt(pos);
+            } while(((mask = mask(hash, node.level)) & node.nodesBitMap) != 0L);
 
-        Entry[] collisions;
-        do {
+        }
 
-            if (node.entriesBitMap != 0L) {
-                for (final Entry entry : node.entries) {
-                    collisions = entry.collisions;
-                    if (collisions == null) {
-                        keySet.add(entry.key);
-                    } else {
-                        for (final Entry collision : collisions) {
-                            keySet.add(collision.key);
-                        }
-                    }
-                }
+        Object oldValue = Entry.NOT_FOUND;
+        boolean matched = false; // Whether the key was found at a non-collision position (no need to compare again)
+        if ((mask & node.entriesBitMap) != 0L) {
+            final int keyPos = pos(mask, node.entriesBitMap) << 1;
+            final Object value = node.content[keyPos + 1];
+            if (node.level == MAX_LEVEL && isCollision(value)) {
+                oldValue = ((Entry) value).get(key);
+            } else if (eq(node.content[keyPos], key)) {
+                oldValue = value;
+                matched = true;
             }
+        }
 
-            if (node.nodesBitMap != 0L) {
-                if (nodeStack == null) {
-                    nodeStack = new Node[MAX_LEVEL];
-                    posStack = new int[MAX_LEVEL];
-                }
-                nodeStack[nodeLevel] = node;
-                posStack[nodeLevel] = 0;
-            } else {
-                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodes.length));
-            }
+        final Object newValue = mutation.apply(key, oldValue);
 
-            if (nodeLevel >= 0) {
-                node = nodeStack[nodeLevel].nodes[posStack[nodeLevel]];
-                nodeLevel++;
-            }
+        if (newValue == Mutation.KEEP || (newValue == Mutation.REMOVE && oldValue == Entry.NOT_FOUND)) {
+            return this;
+        }
 
-        } while (nodeLevel >= 0);
+        if (newValue == Mutation.REMOVE) {
+            return removeUpwards(nodeStack, posStack, stackIdx, hash, removeAt(node, mask, hash, key, matched));
+        }
 
-        return keySet;
+        final Node newNode = putAt(node, mask, hash, key, newValue, null, matched);
+        if (newNode == node) {
+            return this;
+        }
+        return putUpwards(nodeStack, posStack, stackIdx, node, newNode);
 
     }
 
 
-    List<Object> allValues() {
-
-        final List<Object> valueList = new ArrayList<>(this.size);
+    void forEach(final BiConsumer<Object,Object> action) {
 
         Node[] nodeStack = null;
         int[] posStack = null;
@@ -546,18 +1739,22 @@ List<Object> allValues() {
         Node node = this;
         int nodeLevel = 0;
 
-        Entry[] collisions;
+        Object[] content;
+        int entriesLen;
+        Object value;
         do {
 
             if (node.entriesBitMap != 0L) {
-                for (final Entry entry : node.entries) {
-                    collisions = entry.collisions;
-                    if (collisions == null) {
-                        valueList.add(entry.value);
-                    } else {
-                        for (final Entry collision : collisions) {
-                            valueList.add(collision.value);
+                content = node.content;
+                entriesLen = node.entriesLength();
+                for (int i = 0; i < entriesLen; i += 2) {
+                    value = content[i + 1];
+                    if (node.level == MAX_LEVEL && isCollision(value)) {
+                        for (final Entry collision : ((Entry) value).collisions) {
+                            action.accept(collision.key, collision.value);
                         }
+                    } else {
+                        action.accept(content[i], value);
                     }
                 }
             }
@@ -570,18 +1767,16 @@ List<Object> allValues() {
                 nodeStack[nodeLevel] = node;
                 posStack[nodeLevel] = 0;
             } else {
-                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodes.length));
+                while (--nodeLevel >= 0 && (++posStack[nodeLevel] >= nodeStack[nodeLevel].nodesLength()));
             }
 
             if (nodeLevel >= 0) {
-                node = nodeStack[nodeLevel].nodes[posStack[nodeLevel]];
+                node = nodeStack[nodeLevel].nodeAt(posStack[nodeLevel]);
                 nodeLevel++;
             }
 
         } while (nodeLevel >= 0);
 
-        return valueList;
-
     }
 
 
@@ -0,0 +1,194 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Lazy iterator on the mappings of a tree of (immutable) nodes.
+ *
+ * Nodes are traversed depth-first by means of a stack of nodes and positions that is never deeper than the
+ * maximum number of levels in the tree, so iterating requires no up-front copy of the contents of the tree and only
+ * O(depth) memory. Entries in each node are visited before its children nodes.
+ */
+abstract class NodeIterator<T> implements Iterator<T> {
+
+    private final Node[] nodeStack;
+    private final int[] posStack; // Position of the next child node to be visited at each depth
+    private int depth;
+    private int entryPos; // Position of the next key in the content array of the node at the top of the stack
+
+    private Entry[] collisions;
+    private int collisionPos;
+
+    private boolean hasNext;
+    private Object nextKey;
+    private Object nextValue;
+
+
+
+    static Iterator<Entry> entries(final Node node) {
+        return new EntryIterator(node);
+    }
+
+    static Iterator<Object> keys(final Node node) {
+        return new KeyIterator(node);
+    }
+
+    static Iterator<Object> values(final Node node) {
+        return new ValueIterator(node);
+    }
+
+
+
+    private NodeIterator(final Node node) {
+        super();
+        this.nodeStack = new Node[Node.MAX_LEVEL + 1];
+        this.posStack = new int[Node.MAX_LEVEL + 1];
+        this.nodeStack[0] = node;
+        this.depth = 0;
+        this.entryPos = 0;
+        this.collisions = null;
+        this.hasNext = advance();
+    }
+
+
+    abstract T value(final Object key, final Object value);
+
+
+    @Override
+    public final boolean hasNext() {
+        return this.hasNext;
+    }
+
+
+    @Override
+    public final T next() {
+        if (!this.hasNext) {
+            throw new NoSuchElementException();
+        }
+        final T value = value(this.nextKey, this.nextValue);
+        this.hasNext = advance();
+        return value;
+    }
+
+
+    // Moves to the next mapping (never a collision bucket), returning false if all mappings have already been visited
+    private boolean advance() {
+
+        if (this.collisions != null) {
+            if (this.collisionPos < this.collisions.length) {
+                next(this.collisions[this.collisionPos++]);
+                return true;
+            }
+            this.collisions = null;
+        }
+
+        Node node;
+        while (this.depth >= 0) {
+
+            node = this.nodeStack[this.depth];
+
+            if (this.entryPos < node.entriesLength()) {
+                final Object key = node.content[this.entryPos++];
+                final Object value = node.content[this.entryPos++];
+                if (node.level == Node.MAX_LEVEL && Node.isCollision(value)) {
+                    this.collisions = ((Entry) value).collisions;
+                    this.collisionPos = 1;
+                    next(this.collisions[0]);
+                } else {
+                    this.nextKey = key;
+                    this.nextValue = value;
+                }
+                return true;
+            }
+
+            if (this.posStack[this.depth] < node.nodesLength()) {
+                // All entries in this node have been visited: go down into the next child node
+                final Node child = node.nodeAt(this.posStack[this.depth]++);
+                this.depth++;
+                this.nodeStack[this.depth] = child;
+                this.posStack[this.depth] = 0;
+                this.entryPos = 0;
+            } else {
+                // All entries and children in this node have been visited: go back up
+                this.nodeStack[this.depth--] = null;
+                this.entryPos = Integer.MAX_VALUE; // entries in the parent node were visited before going down
+            }
+
+        }
+
+        this.nextKey = null;
+        this.nextValue = null;
+        return false;
+
+    }
+
+
+    private void next(final Entry entry) {
+        this.nextKey = entry.key;
+        this.nextValue = entry.value;
+    }
+
+
+
+    private static final class EntryIterator extends NodeIterator<Entry> {
+
+        private EntryIterator(final Node node) {
+            super(node);
+        }
+
+        @Override
+        Entry value(final Object key, final Object value) {
+            return new Entry(Entry.hash(key), key, value, null);
+        }
+
+    }
+
+
+    private static final class KeyIterator extends NodeIterator<Object> {
+
+        private KeyIterator(final Node node) {
+            super(node);
+        }
+
+        @Override
+        Object value(final Object key, final Object value) {
+            return key;
+        }
+
+    }
+
+
+    private static final class ValueIterator extends NodeIterator<Object> {
+
+        private ValueIterator(final Node node) {
+            super(node);
+        }
+
+        @Override
+        Object value(final Object key, final Object value) {
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * Splittable traversal of the mappings of a tree of (immutable) nodes, used for (parallel) streams.
+ *
+ * Each spliterator covers a range of "parts", each of which is either a Node (a whole subtree) or an Entry (a
+ * single mapping). Splitting divides the range of parts in two halves and, when only one node is left, replaces it by
+ * its own mappings (collision buckets being expanded) and children nodes. As the size of every node is known, estimated sizes are
+ * always exact (SIZED and SUBSIZED).
+ */
+abstract class NodeSpliterator<T> implements Spliterator<T> {
+
+    private Object[] parts; // Elements are either Node (a whole subtree) or Entry (a single mapping)
+    private int from;
+    private int to;
+    private long size; // Exact number of remaining mappings
+    private Iterator<T> current; // Traversal of a node part that has already been started
+
+
+
+    static Spliterator<Entry> entries(final Node node) {
+        return new EntrySpliterator(new Object[] { node }, 0, 1, node.size);
+    }
+
+    static Spliterator<Object> keys(final Node node) {
+        return new KeySpliterator(new Object[] { node }, 0, 1, node.size);
+    }
+
+    static Spliterator<Object> values(final Node node) {
+        return new ValueSpliterator(new Object[] { node }, 0, 1, node.size);
+    }
+
+
+
+    private NodeSpliterator(final Object[] parts, final int from, final int to, final long size) {
+        super();
+        this.parts = parts;
+        this.from = from;
+        this.to = to;
+        this.size = size;
+        this.current = null;
+    }
+
+
+    abstract T value(final Entry entry);
+
+    abstract Iterator<T> iterator(final Node node);
+
+    abstract NodeSpliterator<T> split(final Object[] parts, final int from, final int to, final long size);
+
+
+    @Override
+    public final boolean tryAdvance(final Consumer<? super T> action) {
+
+        Object part;
+        while (true) {
+
+            if (this.current != null) {
+                if (this.current.hasNext()) {
+                    this.size--;
+                    action.accept(this.current.next());
+                    return true;
+                }
+                this.current = null;
+            }
+
+            if (this.from >= this.to) {
+                return false;
+            }
+
+            part = this.parts[this.from++];
+            if (part instanceof Node) {
+                this.current = iterator((Node) part);
+            } else {
+                this.size--;
+                action.accept(value((Entry) part));
+                return true;
+            }
+
+        }
+
+    }
+
+
+    @Override
+    public final Spliterator<T> trySplit() {
+
+        while (this.current == null && (this.to - this.from) == 1 && this.parts[this.from] instanceof Node) {
+            // Only one node left: it is replaced by its own mappings and children nodes
+            final Node node = (Node) this.parts[this.from];
+            final int nodesLen = node.nodesLength();
+            int entriesSize = node.size;
+            for (int i = 0; i < nodesLen; i++) {
+                entriesSize -= node.nodeAt(i).size;
+            }
+            final Object[] newParts = new Object[entriesSize + nodesLen];
+            int pos = 0;
+            Entry entry;
+            for (int i = 0, n = node.entriesLength() >> 1; i < n; i++) {
+                entry = node.entryAt(i);
+                if (entry.collisions == null) {
+                    newParts[pos++] = entry;
+                } else {
+                    System.arraycopy(entry.collisions, 0, newParts, pos, entry.collisions.length);
+                    pos += entry.collisions.length;
+                }
+            }
+            for (int i = 0; i < nodesLen; i++) {
+                newParts[pos++] = node.nodeAt(i);
+            }
+            this.parts = newParts;
+            this.from = 0;
+            this.to = newParts.length;
+        }
+
+        if ((this.to - this.from) < 2) {
+            return null;
+        }
+
+        final int mid = (this.from + this.to) >>> 1;
+        long splitSize = 0L;
+        Object part;
+        for (int i = this.from; i < mid; i++) {
+            part = this.parts[i];
+            splitSize += (part instanceof Node) ? ((Node) part).size : 1;
+        }
+
+        final NodeSpliterator<T> prefix = split(this.parts, this.from, mid, splitSize);
+        this.from = mid;
+        this.size -= splitSize;
+        return prefix;
+
+    }
+
+
+    @Override
+    public final long estimateSize() {
+        return this.size;
+    }
+
+
+    private static final class EntrySpliterator extends NodeSpliterator<Entry> {
+
+        private EntrySpliterator(final Object[] parts, final int from, final int to, final long size) {
+            super(parts, from, to, size);
+        }
+
+        @Override
+        Entry value(final Entry entry) {
+            return entry;
+        }
+
+        @Override
+        Iterator<Entry> iterator(final Node node) {
+            return NodeIterator.entries(node);
+        }
+
+        @Override
+        NodeSpliterator<Entry> split(final Object[] parts, final int from, final int to, final long size) {
+            return new EntrySpliterator(parts, from, to, size);
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+
+    }
+
+
+    private static final class KeySpliterator extends NodeSpliterator<Object> {
+
+        private KeySpliterator(final Object[] parts, final int from, final int to, final long size) {
+            super(parts, from, to, size);
+        }
+
+        @Override
+        Object value(final Entry entry) {
+            return entry.key;
+        }
+
+        @Override
+        Iterator<Object> iterator(final Node node) {
+            return NodeIterator.keys(node);
+        }
+
+        @Override
+        NodeSpliterator<Object> split(final Object[] parts, final int from, final int to, final long size) {
+            return new KeySpliterator(parts, from, to, size);
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | SIZED | SUBSIZED | IMMUTABLE;
+        }
+
+    }
+
+
+    private static final class ValueSpliterator extends NodeSpliterator<Object> {
+
+        private ValueSpliterator(final Object[] parts, final int from, final int to, final long size) {
+            super(parts, from, to, size);
+        }
+
+        @Override
+        Object value(final Entry entry) {
+            return entry.value;
+        }
+
+        @Override
+        Iterator<Object> iterator(final Node node) {
+            return NodeIterator.values(node);
+        }
+
+        @Override
+        NodeSpliterator<Object> split(final Object[] parts, final int from, final int to, final long size) {
+            return new ValueSpliterator(parts, from, to, size);
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | IMMUTABLE;
+        }
+
+    }
+
+}
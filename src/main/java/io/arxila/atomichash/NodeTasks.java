@@ -0,0 +1,426 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/*
+ * Parallel bulk operations on a tree of (immutable) nodes, executed as fork-join tasks in the common pool.
+ *
+ * Every node with a size (number of mappings) equal to or greater than the parallelism threshold forks a task for
+ * each of its children nodes, while processing its own mappings itself. Nodes below the threshold are traversed
+ * sequentially, so a threshold of Long.MAX_VALUE means no parallelism at all and a threshold of 1 means maximum
+ * parallelism.
+ *
+ * Trees can also be bulk-built and merged in parallel, given subtrees at different positions of a node are
+ * completely independent from each other: each of them is built (or merged) by a different task, and the parent
+ * node is assembled only once all of them are finished.
+ */
+final class NodeTasks {
+
+
+    static void forEach(final Node node, final long parallelismThreshold, final BiConsumer<Object,Object> action) {
+        if (node.size > 0) {
+            new ForEachTask(node, parallelismThreshold, action).invoke();
+        }
+    }
+
+
+    static Object search(final Node node, final long parallelismThreshold,
+                         final BiFunction<Object,Object,Object> searchFunction) {
+        if (node.size == 0) {
+            return null;
+        }
+        final AtomicReference<Object> result = new AtomicReference<>();
+        new SearchTask(node, parallelismThreshold, searchFunction, result).invoke();
+        return result.get();
+    }
+
+
+    static Object reduce(final Node node, final long parallelismThreshold,
+                         final BiFunction<Object,Object,Object> transformer,
+                         final BiFunction<Object,Object,Object> reducer) {
+        if (node.size == 0) {
+            return null;
+        }
+        return new ReduceTask(node, parallelismThreshold, transformer, reducer).invoke();
+    }
+
+
+
+    static Node build(final Entry[] entries, final long parallelismThreshold) {
+        if (entries.length < 2 || entries.length < parallelismThreshold) {
+            return Node.build(entries);
+        }
+        return (Node) new BuildTask(entries, new Entry[entries.length], 0, entries.length, 0, parallelismThreshold)
+                .invoke();
+    }
+
+
+    static Node merge(final Node left, final Node right, final BiFunction<Object,Object,Object> remappingFunction,
+                      final long parallelismThreshold) {
+        return new MergeTask(left, right, remappingFunction, parallelismThreshold).invoke();
+    }
+
+
+
+    private static boolean isParallel(final Node node, final long parallelismThreshold) {
+        return node.nodesBitMap != 0L && node.size >= parallelismThreshold;
+    }
+
+
+    private static void forEachEntry(final Node node, final BiConsumer<Object,Object> action) {
+        final Object[] content = node.content;
+        final int entriesLen = node.entriesLength();
+        Object value;
+        for (int i = 0; i < entriesLen; i += 2) {
+            value = content[i + 1];
+            if (node.level == Node.MAX_LEVEL && Node.isCollision(value)) {
+                for (final Entry collision : ((Entry) value).collisions) {
+                    action.accept(collision.key, collision.value);
+                }
+            } else {
+                action.accept(content[i], value);
+            }
+        }
+    }
+
+
+    // Returns true if a result has been found (by this or any other task), so that the search can be stopped
+    private static boolean searchEntries(final Node node, final BiFunction<Object,Object,Object> searchFunction,
+                                         final AtomicReference<Object> result) {
+        final Object[] content = node.content;
+        final int entriesLen = node.entriesLength();
+        Object value, found;
+        for (int i = 0; i < entriesLen; i += 2) {
+            if (result.get() != null) {
+                return true;
+            }
+            value = content[i + 1];
+            if (node.level == Node.MAX_LEVEL && Node.isCollision(value)) {
+                for (final Entry collision : ((Entry) value).collisions) {
+                    if ((found = searchFunction.apply(collision.key, collision.value)) != null) {
+                        result.compareAndSet(null, found);
+                        return true;
+                    }
+                }
+            } else if ((found = searchFunction.apply(content[i], value)) != null) {
+                result.compareAndSet(null, found);
+                return true;
+            }
+        }
+        return result.get() != null;
+    }
+
+
+    private static boolean search(final Node node, final BiFunction<Object,Object,Object> searchFunction,
+                                  final AtomicReference<Object> result) {
+        if (searchEntries(node, searchFunction, result)) {
+            return true;
+        }
+        final Object[] content = node.content;
+        for (int i = node.entriesLength(); i < content.length; i++) {
+            if (search((Node) content[i], searchFunction, result)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static Object reduceEntries(final Node node, final BiFunction<Object,Object,Object> transformer,
+                                        final BiFunction<Object,Object,Object> reducer, final Object initial) {
+        final Object[] content = node.content;
+        final int entriesLen = node.entriesLength();
+        Object reduced = initial, value;
+        for (int i = 0; i < entriesLen; i += 2) {
+            value = content[i + 1];
+            if (node.level == Node.MAX_LEVEL && Node.isCollision(value)) {
+                for (final Entry collision : ((Entry) value).collisions) {
+                    reduced = reduce(reducer, reduced, transformer.apply(collision.key, collision.value));
+                }
+            } else {
+                reduced = reduce(reducer, reduced, transformer.apply(content[i], value));
+            }
+        }
+        return reduced;
+    }
+
+
+    private static Object reduce(final Node node, final BiFunction<Object,Object,Object> transformer,
+                                 final BiFunction<Object,Object,Object> reducer) {
+        Object reduced = reduceEntries(node, transformer, reducer, null);
+        final Object[] content = node.content;
+        for (int i = node.entriesLength(); i < content.length; i++) {
+            reduced = reduce(reducer, reduced, reduce((Node) content[i], transformer, reducer));
+        }
+        return reduced;
+    }
+
+
+    // Null results (from the transformer or from empty subtrees) are ignored
+    private static Object reduce(final BiFunction<Object,Object,Object> reducer, final Object r1, final Object r2) {
+        return (r1 == null) ? r2 : (r2 == null) ? r1 : reducer.apply(r1, r2);
+    }
+
+
+
+    private static final class ForEachTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 7519632403628749015L;
+
+        private final Node node;
+        private final long parallelismThreshold;
+        private final transient BiConsumer<Object,Object> action;
+
+        ForEachTask(final Node node, final long parallelismThreshold, final BiConsumer<Object,Object> action) {
+            super();
+            this.node = node;
+            this.parallelismThreshold = parallelismThreshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (!isParallel(this.node, this.parallelismThreshold)) {
+                this.node.forEach(this.action);
+                return;
+            }
+            final Object[] content = this.node.content;
+            final int entriesLen = this.node.entriesLength();
+            final ForEachTask[] tasks = new ForEachTask[content.length - entriesLen];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new ForEachTask((Node) content[entriesLen + i], this.parallelismThreshold, this.action);
+                tasks[i].fork();
+            }
+            forEachEntry(this.node, this.action);
+            for (int i = tasks.length - 1; i >= 0; i--) {
+                tasks[i].join();
+            }
+        }
+
+    }
+
+
+    private static final class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -2290370548573236154L;
+
+        private final Node node;
+        private final long parallelismThreshold;
+        private final transient BiFunction<Object,Object,Object> searchFunction;
+        private final AtomicReference<Object> result;
+
+        SearchTask(final Node node, final long parallelismThreshold,
+                   final BiFunction<Object,Object,Object> searchFunction, final AtomicReference<Object> result) {
+            super();
+            this.node = node;
+            this.parallelismThreshold = parallelismThreshold;
+            this.searchFunction = searchFunction;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.result.get() != null) {
+                return;
+            }
+            if (!isParallel(this.node, this.parallelismThreshold)) {
+                search(this.node, this.searchFunction, this.result);
+                return;
+            }
+            final Object[] content = this.node.content;
+            final int entriesLen = this.node.entriesLength();
+            final SearchTask[] tasks = new SearchTask[content.length - entriesLen];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new SearchTask(
+                        (Node) content[entriesLen + i], this.parallelismThreshold, this.searchFunction, this.result);
+                tasks[i].fork();
+            }
+            searchEntries(this.node, this.searchFunction, this.result);
+            for (int i = tasks.length - 1; i >= 0; i--) {
+                tasks[i].join(); // Pending tasks will return immediately once a result is found
+            }
+        }
+
+    }
+
+
+    private static final class ReduceTask extends RecursiveTask<Object> {
+
+        private static final long serialVersionUID = 3360814217260584963L;
+
+        private final Node node;
+        private final long parallelismThreshold;
+        private final transient BiFunction<Object,Object,Object> transformer;
+        private final transient BiFunction<Object,Object,Object> reducer;
+
+        ReduceTask(final Node node, final long parallelismThreshold,
+                   final BiFunction<Object,Object,Object> transformer, final BiFunction<Object,Object,Object> reducer) {
+            super();
+            this.node = node;
+            this.parallelismThreshold = parallelismThreshold;
+            this.transformer = transformer;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected Object compute() {
+            if (!isParallel(this.node, this.parallelismThreshold)) {
+                return reduce(this.node, this.transformer, this.reducer);
+            }
+            final Object[] content = this.node.content;
+            final int entriesLen = this.node.entriesLength();
+            final ReduceTask[] tasks = new ReduceTask[content.length - entriesLen];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new ReduceTask(
+                        (Node) content[entriesLen + i], this.parallelismThreshold, this.transformer, this.reducer);
+                tasks[i].fork();
+            }
+            Object reduced = reduceEntries(this.node, this.transformer, this.reducer, null);
+            for (int i = tasks.length - 1; i >= 0; i--) {
+                reduced = reduce(this.reducer, reduced, tasks[i].join());
+            }
+            return reduced;
+        }
+
+    }
+
+
+
+    private static final class BuildTask extends RecursiveTask<Object> {
+
+        private static final long serialVersionUID = -6417290935514926137L;
+
+        private final Entry[] src;
+        private final Entry[] dst;
+        private final int from;
+        private final int to;
+        private final int level;
+        private final long parallelismThreshold;
+
+        BuildTask(final Entry[] src, final Entry[] dst, final int from, final int to, final int level,
+                  final long parallelismThreshold) {
+            super();
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+            this.parallelismThreshold = parallelismThreshold;
+        }
+
+        // Returns a Node, or a single Entry if the resulting node could be reduced into the upper level
+        @Override
+        protected Object compute() {
+            if (this.to - this.from < this.parallelismThreshold) {
+                return Node.build(this.src, this.dst, this.from, this.to, this.level);
+            }
+            // Ranges of entries at different indexes are disjoint, so each of them can be built independently
+            final int[] offset = new int[Node.HASH_MASK + 2];
+            Node.partition(this.src, this.dst, this.from, this.to, this.level, offset, new int[Node.HASH_MASK + 2]);
+            final Object[] children = new Object[Node.HASH_MASK + 1];
+            final BuildTask[] tasks = new BuildTask[Node.HASH_MASK + 1];
+            int start, end;
+            for (int idx = 0; idx <= Node.HASH_MASK; idx++) {
+                start = offset[idx];
+                end = offset[idx + 1];
+                if (start == end) {
+                    continue;
+                }
+                if (end - start == 1) {
+                    children[idx] = this.dst[start];
+                } else if (this.level == Node.MAX_LEVEL) {
+                    children[idx] = Node.buildCollision(this.dst, start, end);
+                } else {
+                    tasks[idx] = new BuildTask(this.dst, this.src, start, end, this.level + 1, this.parallelismThreshold);
+                    tasks[idx].fork();
+                }
+            }
+            for (int idx = Node.HASH_MASK; idx >= 0; idx--) {
+                if (tasks[idx] != null) {
+                    children[idx] = tasks[idx].join();
+                }
+            }
+            return Node.assemble(this.level, children);
+        }
+
+    }
+
+
+    private static final class MergeTask extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1893626468137307145L;
+
+        private final Node left;
+        private final Node right;
+        private final transient BiFunction<Object,Object,Object> remappingFunction;
+        private final long parallelismThreshold;
+
+        MergeTask(final Node left, final Node right, final BiFunction<Object,Object,Object> remappingFunction,
+                  final long parallelismThreshold) {
+            super();
+            this.left = left;
+            this.right = right;
+            this.remappingFunction = remappingFunction;
+            this.parallelismThreshold = parallelismThreshold;
+        }
+
+        @Override
+        protected Node compute() {
+            final long sharedNodesBitMap = this.left.nodesBitMap & this.right.nodesBitMap;
+            if ((this.left == this.right && this.remappingFunction == null) || sharedNodesBitMap == 0L ||
+                    (long) this.left.size + this.right.size < this.parallelismThreshold) {
+                return Node.merge(this.left, this.right, this.remappingFunction);
+            }
+            // Only children that are nodes in both trees need to be merged recursively, so only those are forked
+            final MergeTask[] tasks = new MergeTask[Node.HASH_MASK + 1];
+            long bits = sharedNodesBitMap, mask;
+            for ( ; bits != 0L; bits ^= mask) {
+                mask = Long.lowestOneBit(bits);
+                final MergeTask task = new MergeTask(
+                        this.left.nodeAt(Node.pos(mask, this.left.nodesBitMap)),
+                        this.right.nodeAt(Node.pos(mask, this.right.nodesBitMap)),
+                        this.remappingFunction, this.parallelismThreshold);
+                tasks[Long.numberOfTrailingZeros(mask)] = task;
+                task.fork();
+            }
+            final Node[] mergedChildren = new Node[Node.HASH_MASK + 1];
+            for (int idx = Node.HASH_MASK; idx >= 0; idx--) {
+                if (tasks[idx] != null) {
+                    mergedChildren[idx] = tasks[idx].join();
+                }
+            }
+            return Node.merge(this.left, this.right, this.remappingFunction, mergedChildren);
+        }
+
+    }
+
+
+
+    private NodeTasks() {
+        super();
+    }
+
+}
@@ -20,15 +20,22 @@
 package io.arxila.atomichash;
 
 import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 final class Root implements Serializable {
 
@@ -38,16 +45,16 @@ final class Root implements Serializable {
 
     final Node node;
 
-    transient Set<Entry> entrySet;
-    transient Set<Object> keySet;
-    transient List<Object> valueList;
-
 
 
     static Root of() {
         return Root.EMPTY_ROOT;
     }
 
+    static Root of(final Node node) {
+        return (node == Node.EMPTY_NODE) ? Root.EMPTY_ROOT : new Root(node);
+    }
+
     static Root of(final Entry e1) {
         Node node = Node.EMPTY_NODE;
         node = node.put(e1);
@@ -158,15 +165,6 @@ static Root of(final Entry e1, final Entry e2, final Entry e3, final Entry e4, f
         return new Root(node);
     }
 
-    private static Entry entry(final Object key, final Object value) {
-        return entry(Entry.hash(key), key, value);
-    }
-
-    private static Entry entry(final int hash, final Object key, final Object value) {
-        return new Entry(hash, key, value, null);
-    }
-
-
     private Root(final Node node) {
         this.node = node;
     }
@@ -193,7 +191,7 @@ boolean containsValue(final Object value) {
 
     Object get(final Object key) {
         final Object value = this.node.get(key);
-        return (value == Entry.NOT_FOUND) ? null : this.node.get(key);
+        return (value == Entry.NOT_FOUND) ? null : value;
     }
 
     Object getOrDefault(final Object key, final Object defaultValue) {
@@ -206,15 +204,52 @@ Map<Object,Object> getAll(final Object... keys) {
         if (keys == null || keys.length == 0) {
             return Collections.emptyMap();
         }
-        final Map<Object,Object> map = new HashMap<>(keys.length + 1, 1.0f);
-        Object value;
-        for (final Object key : keys) {
-            value = this.node.get(key);
-            if (value != Entry.NOT_FOUND) {
-                map.put(key, value);
+        final int[] hashes = hashes(keys);
+        final long[] paths = Node.paths(hashes);
+        final Object[] values = new Object[keys.length];
+        if (this.node.getAll(keys, hashes, paths, values, Entry.NOT_FOUND) == 0) {
+            return Collections.emptyMap();
+        }
+        // Mappings are collected in path order, so that repeated keys can only appear among those with equal hash
+        final Entry[] entries = new Entry[keys.length];
+        int size = 0, hashStart = 0, k;
+        for (final long path : paths) {
+            k = (int) path;
+            if (values[k] == Entry.NOT_FOUND) {
+                continue;
+            }
+            if (size == 0 || entries[size - 1].hash != hashes[k]) {
+                hashStart = size;
+            } else if (ResultMap.find(entries, hashStart, size, keys[k]) >= 0) {
+                continue;
             }
+            entries[size++] = new Entry(hashes[k], keys[k], values[k], null);
         }
-        return map;
+        return new ResultMap((size == entries.length) ? entries : Arrays.copyOf(entries, size));
+    }
+
+    Map<Object,Object> getAll(final Collection<?> keys) {
+        return getAll(keys.toArray());
+    }
+
+    int getAll(final Object[] keys, final Object[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException(
+                    "Values array length (" + values.length + ") is smaller than the number of keys (" + keys.length + ")");
+        }
+        if (keys.length == 0) {
+            return 0;
+        }
+        final int[] hashes = hashes(keys);
+        return this.node.getAll(keys, hashes, Node.paths(hashes), values, null);
+    }
+
+    private static int[] hashes(final Object[] keys) {
+        final int[] hashes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = Entry.hash(keys[i]);
+        }
+        return hashes;
     }
 
 
@@ -225,19 +260,38 @@ Root put(final Entry entry) {
     }
 
     Root putIfAbsent(final Entry entry) {
-        // Map#putIfAbsent() considers null equivalent to absence
-        final Object value = this.node.get(entry.key);
-        return (value == null || value == Entry.NOT_FOUND) ? new Root(this.node.put(entry)): this;
+        return mutate(entry.hash, entry.key, new Mutation.PutIfAbsent(entry.value));
     }
 
-    Root putAll(final Set<Entry> newEntries) {
-        Node newNode = this.node;
-        for (final Entry entry : newEntries) {
-            newNode = newNode.put(entry);
+    Root putAll(final Entry[] newEntries) {
+        if (newEntries.length == 0) {
+            return this;
+        }
+        if (newEntries.length == 1) {
+            return put(newEntries[0]);
         }
+        // New entries are bulk-loaded into a tree of their own, which is then structurally merged
+        final Node newNode = Node.merge(this.node, Node.build(newEntries), null);
         return (this.node == newNode) ? this : new Root(newNode);
     }
 
+    Root putAll(final Root other, final BiFunction<Object,Object,Object> remappingFunction) {
+        final Node newNode = Node.merge(this.node, other.node, remappingFunction);
+        return (this.node == newNode) ? this : (other.node == newNode) ? other : new Root(newNode);
+    }
+
+    // Parallel versions: bulk-loading and merging are executed as fork-join tasks (see NodeTasks)
+
+    static Root build(final Entry[] entries, final long parallelismThreshold) {
+        return of(NodeTasks.build(entries, parallelismThreshold));
+    }
+
+    Root putAll(final Root other, final BiFunction<Object,Object,Object> remappingFunction,
+                final long parallelismThreshold) {
+        final Node newNode = NodeTasks.merge(this.node, other.node, remappingFunction, parallelismThreshold);
+        return (this.node == newNode) ? this : (other.node == newNode) ? other : new Root(newNode);
+    }
+
 
     Root remove(final int hash, final Object key) {
         final Node newNode = this.node.remove(hash, key);
@@ -245,97 +299,364 @@ Root remove(final int hash, final Object key) {
     }
 
     Root remove(final int hash, final Object key, final Object oldValue) {
-        final Object value = this.node.get(key); // May be NOT_FOUND if not mapped
-        return (Objects.equals(value, oldValue)) ? new Root(this.node.remove(hash, key)) : this;
+        return mutate(hash, key, new Mutation.RemoveIfEquals(oldValue));
+    }
+
+
+    Root removeAll(final Collection<?> keys) {
+        return (isEmpty() || keys.isEmpty()) ? this : removeAll(keysNode(keys));
+    }
+
+    Root removeAll(final Node keys) {
+        final Node newNode = Node.removeAll(this.node, keys);
+        return (this.node == newNode) ? this : of(newNode);
+    }
+
+    Root removeAll(final KeyNode keys) {
+        final Node newNode = Node.removeAll(this.node, keys);
+        return (this.node == newNode) ? this : of(newNode);
+    }
+
+    Root retainAll(final Collection<?> keys) {
+        return isEmpty() ? this : retainAll(keysNode(keys));
+    }
+
+    Root retainAll(final Node keys) {
+        final Node newNode = Node.retainAll(this.node, keys);
+        return (this.node == newNode) ? this : of(newNode);
+    }
+
+    Root retainAll(final KeyNode keys) {
+        final Node newNode = Node.retainAll(this.node, keys);
+        return (this.node == newNode) ? this : of(newNode);
+    }
+
+    // Set algebra: mappings in other are only used for their keys, except in union (in which this takes precedence)
+
+    Root union(final Root other) {
+        return other.putAll(this, null);
+    }
+
+    Root intersect(final Root other) {
+        return retainAll(other.node);
+    }
+
+    Root difference(final Root other) {
+        return removeAll(other.node);
+    }
+
+    Root removeIf(final BiPredicate<Object,Object> filter) {
+        final Node newNode = Node.removeIf(this.node, filter);
+        return (this.node == newNode) ? this : of(newNode);
+    }
+
+    Root removeKeysIf(final Predicate<Object> filter) {
+        return removeIf((key, value) -> filter.test(key));
+    }
+
+    // Keys are bulk-loaded into a (key-only) tree of their own, so that they can be structurally matched with the
+    // mappings
+    static KeyNode keysNode(final Collection<?> keys) {
+        return KeyNode.build(keys.toArray());
     }
 
 
     Root replace(final Entry newEntry) {
+        final Mutation.Replace mutation = new Mutation.Replace(newEntry.value);
+        final Root newRoot = mutate(newEntry.hash, newEntry.key, mutation);
         // If key is mapped, the Map interface considers there is a replacement -> new Root object.
-        return (this.node.containsKey(newEntry.key)) ? new Root(this.node.put(newEntry)) : this;
+        return (newRoot == this && mutation.wasMapped()) ? new Root(this.node) : newRoot;
     }
 
     Root replace(final Entry newEntry, final Object oldValue) {
-        final Object value = this.node.get(newEntry.key); // May be NOT_FOUND if not mapped
+        final Mutation.ReplaceIfEquals mutation = new Mutation.ReplaceIfEquals(oldValue, newEntry.value);
+        final Root newRoot = mutate(newEntry.hash, newEntry.key, mutation);
         // If oldValue matches, the Map interface considers there is a replacement -> new Root object.
-        return (Objects.equals(value, oldValue)) ? new Root(this.node.put(newEntry)) : this;
+        return (newRoot == this && mutation.replaced()) ? new Root(this.node) : newRoot;
     }
 
     Root replaceAll(final BiFunction<Object, Object, Object> function) {
-        Node newNode = this.node;
-        for (final Entry entry : entrySet()) {
-            newNode = newNode.put(entry(entry.key, function.apply(entry.key, entry.value)));
-        }
+        final Node newNode = Node.replaceAll(this.node, function);
         return (this.node == newNode) ? this : new Root(newNode);
     }
 
 
     Root compute(final int hash, final Object key, final BiFunction<Object,Object,Object> remappingFunction) {
-        final Object value = this.node.get(key);
-        final Object remappedValue = remappingFunction.apply(key, (value == Entry.NOT_FOUND) ? null : value);
-        final Node newNode =
-                (remappedValue == null) ? this.node.remove(hash, key) : this.node.put(entry(hash, key, remappedValue));
-        return (this.node == newNode) ? this : new Root(newNode);
+        return mutate(hash, key, new Mutation.Compute(remappingFunction));
     }
 
     Root computeIfAbsent(final int hash, final Object key, final Function<Object,Object> mappingFunction) {
         Objects.requireNonNull(mappingFunction);
-        final Object value = this.node.get(key);
-        final Object mappedValue =
-                (value == null || value == Entry.NOT_FOUND) ? mappingFunction.apply(key) : null;
-        final Node newNode =
-                (mappedValue == null) ? this.node : this.node.put(entry(hash, key, mappedValue));
-        return (this.node == newNode) ? this : new Root(newNode);
+        return mutate(hash, key, new Mutation.ComputeIfAbsent(mappingFunction));
     }
 
     Root computeIfPresent(final int hash, final Object key, final BiFunction<Object,Object,Object> remappingFunction) {
-        final Object value = this.node.get(key);
-        final Object remappedValue =
-                (value != null && value != Entry.NOT_FOUND) ? remappingFunction.apply(key, value) : null;
-        final Node newNode =
-                (value == null || value == Entry.NOT_FOUND) ?
-                    this.node :  // Not present -> no changes
-                    ((remappedValue == null) ? this.node.remove(hash, key) : this.node.put(entry(hash, key, remappedValue)));
-        return (this.node == newNode) ? this : new Root(newNode);
+        return mutate(hash, key, new Mutation.ComputeIfPresent(remappingFunction));
     }
 
 
     Root merge(final int hash, final Object key, final Object newValue, final BiFunction<Object,Object,Object> remappingFunction) {
-        final Object value = this.node.get(key);
-        final Object remappedValue =
-                (value == null || value == Entry.NOT_FOUND) ? newValue : remappingFunction.apply(value, newValue);
-        final Node newNode =
-                (remappedValue == null) ? this.node.remove(hash, key) : this.node.put(entry(hash, key, remappedValue));
+        return mutate(hash, key, new Mutation.Merge(newValue, remappingFunction));
+    }
+
+
+    // Single-traversal mutation of the mapping for a key, the mutation reporting back previous and resulting values.
+    // Modified roots are always new objects (never the shared empty root), as ShardedAtomicHashMap relies on
+    // single-key writes never installing a root instance that could have been seen before
+    Root mutate(final int hash, final Object key, final Mutation mutation) {
+        final Node newNode = this.node.mutate(hash, key, mutation);
         return (this.node == newNode) ? this : new Root(newNode);
     }
 
 
+    void diff(final Root older,
+              final Map<Object,Object> added, final Map<Object,Object> removed, final Map<Object,Object> changed) {
+        Node.diff(this.node, older.node, added, removed, changed);
+    }
+
+
+    void join(final Root other, final TriConsumer<Object,Object,Object> action,
+              final BiConsumer<Object,Object> leftAction, final BiConsumer<Object,Object> rightAction) {
+        Node.join(this.node, other.node, action, leftAction, rightAction);
+    }
+
+
+    boolean sameMappings(final Root other) {
+        return Node.sameMappings(this.node, other.node);
+    }
+
+
+    int mappingsHashCode() {
+        return this.node.mappingsHashCode();
+    }
+
+
+    void forEach(final BiConsumer<Object,Object> action) {
+        this.node.forEach(action);
+    }
+
+    void forEach(final long parallelismThreshold, final BiConsumer<Object,Object> action) {
+        NodeTasks.forEach(this.node, parallelismThreshold, action);
+    }
+
+    Object search(final long parallelismThreshold, final BiFunction<Object,Object,Object> searchFunction) {
+        return NodeTasks.search(this.node, parallelismThreshold, searchFunction);
+    }
+
+    Object reduce(final long parallelismThreshold, final BiFunction<Object,Object,Object> transformer,
+                  final BiFunction<Object,Object,Object> reducer) {
+        return NodeTasks.reduce(this.node, parallelismThreshold, transformer, reducer);
+    }
+
+
+    // Views are lazy and backed by the (immutable) node, so they are O(1) to create and never copy any mappings
+
     Set<Object> keySet() {
-        Set<Object> keySet;
-        if ((keySet = this.keySet) != null) {
-            return keySet;
-        }
-        keySet = this.node.allKeys();
-        return this.keySet = Collections.unmodifiableSet(keySet);
+        return Collections.unmodifiableSet(new KeySet(this.node));
     }
-    
+
     Collection<Object> values() {
-        List<Object> valueList;
-        if ((valueList = this.valueList) != null) {
-            return valueList;
+        return Collections.unmodifiableCollection(new Values(this.node));
+    }
+
+    Set<Entry> entrySet() {
+        return Collections.unmodifiableSet(new EntrySet(this.node));
+    }
+
+
+
+    private static final class KeySet extends AbstractSet<Object> {
+
+        private final Node node;
+
+        KeySet(final Node node) {
+            super();
+            this.node = node;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return NodeIterator.keys(this.node);
+        }
+
+        @Override
+        public Spliterator<Object> spliterator() {
+            return NodeSpliterator.keys(this.node);
         }
-        valueList = this.node.allValues();
-        return this.valueList = Collections.unmodifiableList(valueList);
+
+        @Override
+        public int size() {
+            return this.node.size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return this.node.containsKey(o);
+        }
+
     }
 
 
-    Set<Entry> entrySet() {
-        Set<Entry> entrySet;
-        if ((entrySet = this.entrySet) != null) {
-            return entrySet;
+    private static final class Values extends AbstractCollection<Object> {
+
+        private final Node node;
+
+        Values(final Node node) {
+            super();
+            this.node = node;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return NodeIterator.values(this.node);
         }
-        entrySet = this.node.allEntries();
-        return this.entrySet = Collections.unmodifiableSet(entrySet);
+
+        @Override
+        public Spliterator<Object> spliterator() {
+            return NodeSpliterator.values(this.node);
+        }
+
+        @Override
+        public int size() {
+            return this.node.size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return this.node.containsValue(o);
+        }
+
+    }
+
+
+    private static final class EntrySet extends AbstractSet<Entry> {
+
+        private final Node node;
+
+        EntrySet(final Node node) {
+            super();
+            this.node = node;
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            return NodeIterator.entries(this.node);
+        }
+
+        @Override
+        public Spliterator<Entry> spliterator() {
+            return NodeSpliterator.entries(this.node);
+        }
+
+        @Override
+        public int size() {
+            return this.node.size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry<?,?>)) {
+                return false;
+            }
+            final Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            final Object value = this.node.get(entry.getKey()); // May be NOT_FOUND if not mapped
+            return (value != Entry.NOT_FOUND) && Objects.equals(value, entry.getValue());
+        }
+
+    }
+
+
+    /*
+     * Compact, read-only map returned by batched lookups. Mappings are kept in an array sorted by path in the tree
+     * (see Node.paths()), which allows binary searching them by hash.
+     */
+    private static final class ResultMap extends AbstractMap<Object,Object> implements Serializable {
+
+        private static final long serialVersionUID = -3146912480575839120L;
+
+        private final io.arxila.atomichash.Entry[] entries; // Sorted by path
+
+        ResultMap(final io.arxila.atomichash.Entry[] entries) {
+            super();
+            this.entries = entries;
+        }
+
+        @Override
+        public int size() {
+            return this.entries.length;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return find(this.entries, key) >= 0;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final int i = find(this.entries, key);
+            return (i < 0) ? null : this.entries[i].value;
+        }
+
+        @Override
+        public Object getOrDefault(final Object key, final Object defaultValue) {
+            final int i = find(this.entries, key);
+            return (i < 0) ? defaultValue : this.entries[i].value;
+        }
+
+        @Override
+        public Set<Map.Entry<Object,Object>> entrySet() {
+            return new AbstractSet<Map.Entry<Object,Object>>() {
+
+                @Override
+                public Iterator<Map.Entry<Object,Object>> iterator() {
+                    final Map.Entry<Object,Object>[] entries = ResultMap.this.entries;
+                    return Arrays.asList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return ResultMap.this.entries.length;
+                }
+
+            };
+        }
+
+        private static int find(final io.arxila.atomichash.Entry[] entries, final Object key) {
+            final int hash = io.arxila.atomichash.Entry.hash(key);
+            final int path = Node.path(hash);
+            int low = 0, high = entries.length - 1, mid, midPath;
+            while (low <= high) {
+                mid = (low + high) >>> 1;
+                midPath = Node.path(entries[mid].hash);
+                if (midPath < path) {
+                    low = mid + 1;
+                } else if (midPath > path) {
+                    high = mid - 1;
+                } else {
+                    // Equal paths mean equal hashes, and all entries with the same hash are contiguous
+                    while (mid > 0 && entries[mid - 1].hash == hash) {
+                        mid--;
+                    }
+                    high = mid + 1;
+                    while (high < entries.length && entries[high].hash == hash) {
+                        high++;
+                    }
+                    return find(entries, mid, high, key);
+                }
+            }
+            return -1;
+        }
+
+        private static int find(final io.arxila.atomichash.Entry[] entries,
+                                final int from, final int to, final Object key) {
+            for (int i = from; i < to; i++) {
+                if (Objects.equals(entries[i].key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
     }
 
 
@@ -0,0 +1,653 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe implementation of the {@link java.util.Map} interface that distributes its mappings among a number
+ * of independent <em>shards</em>, meant for scenarios with a high number of concurrent writer threads.
+ * <p>
+ * Each shard is an immutable hash-trie exactly like the one used by {@link AtomicHashMap}, with its own
+ * compare-and-swap-managed root. Keys are assigned to shards by the lowest bits of their (modified) hash code, so
+ * single-key operations such as {@link #put(Object, Object)}, {@link #remove(Object)} or
+ * {@link #compute(Object, BiFunction)} only need to compare-and-swap the root of one of the shards, and writer
+ * threads operating on different shards never make each other retry.
+ * <p>
+ * Given these bits are the same ones that select positions at the first level of the tries, the shards are
+ * disjoint parts of what would be a single trie, and obtaining a snapshot of the whole map as an
+ * {@link AtomicHashStore} by calling {@link #store()} does not need to copy any mappings.
+ * <p>
+ * Operations involving several shards are <strong>atomic</strong>: this includes writes such as
+ * {@link #putAll(Map)}, {@link #replaceAll(BiFunction)} or {@link #clear()}, as well as snapshot-based reads such as
+ * {@link #store()}, {@link #getAll(Object...)}, {@link #size()}, {@link #equals(Object)} or iteration. These
+ * operations are coordinated by means of a sequence number (a <em>seqlock</em>): snapshots first try to
+ * optimistically read the roots of all the shards (succeeding if no shard changed while reading them), and only if
+ * that fails, or if a multi-shard write is needed, the sequence is acquired in exclusive mode. Single-key writes
+ * briefly wait while the sequence is acquired, so that they can never make a multi-shard write or a snapshot appear
+ * partially applied. Single-key reads never wait, and therefore a single-key read performed while a multi-shard
+ * write is in progress might see the mappings of some of the affected shards already modified. The new contents of
+ * all the shards affected by a multi-shard write are computed before any of them is replaced, so if a function
+ * passed to such a write throws an exception, the map is left unchanged.
+ * <p>
+ * As in {@link AtomicHashMap}, the hash code of each shard is cached once computed and used for telling unequal
+ * maps apart, so keys and values must not be modified in any way that changes their {@code equals} or
+ * {@code hashCode} while they are in the map.
+ * <p>
+ * The number of shards is always a power of two between 1 and 64. By default, it will be the number of available
+ * processors rounded up to the nearest power of two.
+ * <p>
+ * Note that this implementation does not keep the insertion order. Iteration order is not guaranteed to be
+ * consistent.
+ *
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+@SuppressWarnings("unchecked")
+public final class ShardedAtomicHashMap<K,V> implements Map<K, V>, Serializable {
+
+    private static final long serialVersionUID = 2968264391506270157L;
+
+    private static final int MAX_SHARDS = Node.HASH_MASK + 1;
+    // Roots of different shards are spread in the array so that they never share a cache line
+    private static final int SHARD_SPREAD_SHIFT = 4;
+
+    private final int shardCount;
+    private final long[] shardBitMaps;
+    private final AtomicReferenceArray<Root> shards;
+    // Even when idle, odd while acquired for a multi-shard write or an exclusive snapshot
+    private final AtomicLong sequence;
+
+
+
+    private static int powerOfTwo(final int value) {
+        final int powerOfTwo = Integer.highestOneBit(value);
+        return (powerOfTwo == value) ? value : powerOfTwo << 1;
+    }
+
+
+
+    public ShardedAtomicHashMap() {
+        this(Math.min(MAX_SHARDS, powerOfTwo(Runtime.getRuntime().availableProcessors())));
+    }
+
+
+    /**
+     * Creates a new, empty map with (at least) the specified number of shards, which will be rounded up to the
+     * nearest power of two.
+     *
+     * @param shardCount the number of shards, between 1 and 64.
+     */
+    public ShardedAtomicHashMap(final int shardCount) {
+        super();
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("Number of shards must be between 1 and " + MAX_SHARDS);
+        }
+        this.shardCount = powerOfTwo(shardCount);
+        // Each shard owns the positions at the first level of the tries whose lowest bits match the shard index
+        this.shardBitMaps = new long[this.shardCount];
+        for (int index = 0; index < MAX_SHARDS; index++) {
+            this.shardBitMaps[index & (this.shardCount - 1)] |= (1L << index);
+        }
+        this.shards = new AtomicReferenceArray<>(this.shardCount << SHARD_SPREAD_SHIFT);
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            this.shards.set(shard << SHARD_SPREAD_SHIFT, Root.EMPTY_ROOT);
+        }
+        this.sequence = new AtomicLong(0L);
+    }
+
+
+    public ShardedAtomicHashMap(final Map<? extends K, ? extends V> map) {
+        this();
+        Objects.requireNonNull(map);
+        setShards(Node.build(io.arxila.atomichash.Entry.entries(map)));
+    }
+
+
+    // Only to be called during construction, as it is not atomic
+    private void setShards(final Node node) {
+        final Root[] parts = split(node);
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            this.shards.set(shard << SHARD_SPREAD_SHIFT, parts[shard]);
+        }
+    }
+
+
+
+
+    private int shard(final int hash) {
+        return hash & (this.shardCount - 1);
+    }
+
+
+    private Root root(final int shard) {
+        return this.shards.get(shard << SHARD_SPREAD_SHIFT);
+    }
+
+
+    // Roots obtained by this method can be replaced by single-key writes without breaking multi-shard atomicity.
+    // The sequence is checked again after reading the root, so that roots are never read after the sequence has
+    // been acquired: once a multi-shard write replaces a root, no single-key write can replace it until released.
+    private Root writableRoot(final int shard) {
+        long seq;
+        Root root;
+        do {
+            while (((seq = this.sequence.get()) & 1L) != 0L) {
+                Thread.onSpinWait();
+            }
+            root = this.shards.get(shard << SHARD_SPREAD_SHIFT);
+        } while (this.sequence.get() != seq);
+        return root;
+    }
+
+
+    private boolean compareAndSetRoot(final int shard, final Root root, final Root newRoot) {
+        return this.shards.compareAndSet(shard << SHARD_SPREAD_SHIFT, root, newRoot);
+    }
+
+
+    // Applies a mutation on the mapping for a single key, which reports back both the previous and resulting values
+    // of the mapping, so that they do not need to be looked up again once the root has been replaced
+    private void mutate(final int hash, final Object key, final Mutation mutation) {
+        final int shard = shard(hash);
+        Root root, newRoot;
+        do {
+            root = writableRoot(shard);
+            newRoot = root.mutate(hash, key, mutation);
+        } while (root != newRoot && !compareAndSetRoot(shard, root, newRoot));
+    }
+
+
+    private long acquire() {
+        long seq;
+        while (((seq = this.sequence.get()) & 1L) != 0L || !this.sequence.compareAndSet(seq, seq + 1L)) {
+            Thread.onSpinWait();
+        }
+        return seq + 1L;
+    }
+
+
+    private void release(final long seq) {
+        this.sequence.set(seq + 1L);
+    }
+
+
+    /*
+     * Returns the roots of all the shards as they were at a single point in time. An optimistic read is tried
+     * first: if the sequence did not change and no root was replaced while reading all of them, then all of them
+     * were the current roots at the moment the first read finished. Roots are always new objects when replaced by
+     * single-key writes, and multi-shard writes always change the sequence, so any changes will be detected.
+     */
+    private Root[] snapshot() {
+        final Root[] roots = new Root[this.shardCount];
+        final long seq = this.sequence.get();
+        if ((seq & 1L) == 0L) {
+            for (int shard = 0; shard < roots.length; shard++) {
+                roots[shard] = root(shard);
+            }
+            boolean unchanged = true;
+            for (int shard = 0; unchanged && shard < roots.length; shard++) {
+                unchanged = (roots[shard] == root(shard));
+            }
+            if (unchanged && this.sequence.get() == seq) {
+                return roots;
+            }
+        }
+        // Single-key writes already in progress might still replace roots while the sequence is acquired, but
+        // none of them can have started after any other that is not seen by this snapshot
+        final long acquired = acquire();
+        for (int shard = 0; shard < roots.length; shard++) {
+            roots[shard] = root(shard);
+        }
+        release(acquired);
+        return roots;
+    }
+
+
+    // Splits a tree into the parts corresponding to each of the shards, reusing all of its structure
+    private Root[] split(final Node node) {
+        final Root[] parts = new Root[this.shardCount];
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            parts[shard] = Root.of(node.retain(this.shardBitMaps[shard]));
+        }
+        return parts;
+    }
+
+
+    // Joins the roots of all the shards into a single tree. Shards are disjoint, so no mappings are ever merged.
+    private static Root join(final Root[] roots) {
+        Node node = Node.EMPTY_NODE;
+        for (final Root root : roots) {
+            node = Node.merge(node, root.node, null);
+        }
+        return Root.of(node);
+    }
+
+
+    /*
+     * Applies a multi-shard write with the sequence acquired. The new roots of all the shards are computed before
+     * any of them is installed, so that an exception thrown by the update (i.e. by a user function) leaves the map
+     * unchanged. Single-key writes that read a root before the sequence was acquired might still replace it in the
+     * meantime, in which case the update is computed again for that shard only. If that fails, the shards already
+     * installed are restored, as no single-key write can have replaced their roots since (see writableRoot()).
+     */
+    private void updateAll(final ShardUpdate update) {
+        final long acquired = acquire();
+        try {
+            final Root[] roots = new Root[this.shardCount];
+            final Root[] newRoots = new Root[this.shardCount];
+            for (int shard = 0; shard < this.shardCount; shard++) {
+                roots[shard] = root(shard);
+                newRoots[shard] = update.apply(shard, roots[shard]);
+            }
+            int installed = 0;
+            try {
+                for (; installed < this.shardCount; installed++) {
+                    while (roots[installed] != newRoots[installed] &&
+                            !compareAndSetRoot(installed, roots[installed], newRoots[installed])) {
+                        roots[installed] = root(installed);
+                        newRoots[installed] = update.apply(installed, roots[installed]);
+                    }
+                }
+            } catch (final RuntimeException | Error e) {
+                for (int shard = 0; shard < installed; shard++) {
+                    compareAndSetRoot(shard, newRoots[shard], roots[shard]);
+                }
+                throw e;
+            }
+        } finally {
+            release(acquired);
+        }
+    }
+
+
+    private void putAll(final Root[] parts, final BiFunction<Object,Object,Object> remappingFunction) {
+        int affected = 0;
+        int lastAffected = 0;
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            if (!parts[shard].isEmpty()) {
+                affected++;
+                lastAffected = shard;
+            }
+        }
+        if (affected > 1) {
+            updateAll((shard, root) -> parts[shard].isEmpty() ? root : root.putAll(parts[shard], remappingFunction));
+        } else if (affected == 1) {
+            // A single shard is affected: no need to acquire the sequence
+            final int shard = lastAffected;
+            Root root, newRoot;
+            do {
+                root = writableRoot(shard);
+                newRoot = root.putAll(parts[shard], remappingFunction);
+            } while (root != newRoot && !compareAndSetRoot(shard, root, newRoot));
+        }
+    }
+
+
+
+
+    public AtomicHashStore<K,V> store() {
+        return new AtomicHashStore<>(join(snapshot()));
+    }
+
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Root root : snapshot()) {
+            size += root.size();
+        }
+        return size;
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        for (final Root root : snapshot()) {
+            if (!root.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return root(shard(io.arxila.atomichash.Entry.hash(key))).containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        for (final Root root : snapshot()) {
+            if (root.containsValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    @Override
+    public V get(final Object key) {
+        return (V) root(shard(io.arxila.atomichash.Entry.hash(key))).get(key);
+    }
+
+    @Override
+    public V getOrDefault(final Object key, final V defaultValue) {
+        return (V) root(shard(io.arxila.atomichash.Entry.hash(key))).getOrDefault(key, defaultValue);
+    }
+
+
+    // Not a part of the java.util.Map interface
+    public Map<K,V> getAll(final Object... keys) {
+        if (keys == null || keys.length == 0) {
+            return Collections.emptyMap();
+        }
+        // Shards are joined (an operation only involving their roots) so that keys can be looked up in a single
+        // batched traversal, returning the same read-only result as AtomicHashMap
+        return (Map<K,V>) join(snapshot()).getAll(keys);
+    }
+
+    // Not a part of the java.util.Map interface
+    public Map<K,V> getAll(final Collection<?> keys) {
+        Objects.requireNonNull(keys);
+        return getAll(keys.toArray());
+    }
+
+
+    @Override
+    public V put(final K key, final V newValue) {
+        final Mutation mutation = new Mutation.Put(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V newValue) {
+        final Mutation mutation = new Mutation.PutIfAbsent(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        if (newMappings instanceof AtomicHashMap<?,?>) {
+            // Structures can be directly split and merged: no need to create new Entry objects
+            putAll(((AtomicHashMap<? extends K, ? extends V>) newMappings).store());
+            return;
+        }
+        // New mappings are bulk-loaded and split into shards outside the critical (and repeatable) region
+        putAll(split(Node.build(io.arxila.atomichash.Entry.entries(newMappings))), null);
+    }
+
+
+    // Not a part of the java.util.Map interface
+    public void putAll(final AtomicHashStore<? extends K, ? extends V> newMappings) {
+        Objects.requireNonNull(newMappings);
+        putAll(split(newMappings.innerRoot().node), null);
+    }
+
+    // Not a part of the java.util.Map interface
+    public void putAll(final AtomicHashStore<? extends K, ? extends V> newMappings,
+                       final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(newMappings);
+        Objects.requireNonNull(remappingFunction);
+        putAll(split(newMappings.innerRoot().node), (BiFunction<Object,Object,Object>) remappingFunction);
+    }
+
+
+    @Override
+    public V remove(final Object key) {
+        final Mutation mutation = new Mutation.Remove();
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object oldValue) {
+        final Mutation.RemoveIfEquals mutation = new Mutation.RemoveIfEquals(oldValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return mutation.removed();
+    }
+
+
+    @Override
+    public void clear() {
+        final long acquired = acquire();
+        for (int shard = 0; shard < this.shardCount; shard++) {
+            this.shards.set(shard << SHARD_SPREAD_SHIFT, Root.EMPTY_ROOT);
+        }
+        release(acquired);
+    }
+
+
+    @Override
+    public Set<K> keySet() {
+        return (Set<K>) join(snapshot()).keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return (Collection<V>) join(snapshot()).values();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return (Set<Entry<K,V>>) (Set<?>) join(snapshot()).entrySet();
+    }
+
+
+    // Not a part of the java.util.Map interface
+    public Stream<Entry<K,V>> stream() {
+        // Streams always operate on the snapshot of the map existing at the moment of their creation
+        return entrySet().stream();
+    }
+
+    // Not a part of the java.util.Map interface
+    public Stream<Entry<K,V>> parallelStream() {
+        return entrySet().parallelStream();
+    }
+
+
+    @Override
+    public void forEach(final BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (final Root root : snapshot()) {
+            root.forEach((BiConsumer<Object,Object>) action);
+        }
+    }
+
+
+    @Override
+    public V replace(final K key, final V newValue) {
+        final Mutation mutation = new Mutation.Replace(newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.previous();
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        final Mutation.ReplaceIfEquals mutation = new Mutation.ReplaceIfEquals(oldValue, newValue);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return mutation.replaced();
+    }
+
+    @Override
+    public void replaceAll(final BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        updateAll((shard, root) -> root.replaceAll((BiFunction<Object,Object,Object>) function));
+    }
+
+
+    @Override
+    public V compute(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        final Mutation mutation = new Mutation.Compute((BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
+    }
+
+    @Override
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        final Mutation mutation = new Mutation.ComputeIfAbsent((Function<Object,Object>) mappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
+    }
+
+    @Override
+    public V computeIfPresent(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        final Mutation mutation = new Mutation.ComputeIfPresent((BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
+    }
+
+
+    @Override
+    public V merge(final K key, final V newValue, final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Objects.requireNonNull(newValue);
+        final Mutation mutation = new Mutation.Merge(newValue, (BiFunction<Object,Object,Object>) remappingFunction);
+        mutate(io.arxila.atomichash.Entry.hash(key), key, mutation);
+        return (V) mutation.current();
+    }
+
+
+    @Override
+    public boolean equals(final Object other) {
+        // Implemented per the definition of Map.equals()
+        if (other == this) {
+            return true;
+        }
+        if (!(other instanceof Map)) {
+            return false;
+        }
+        if (other instanceof ShardedAtomicHashMap<?,?>) {
+            return store().equals(((ShardedAtomicHashMap<?,?>) other).store());
+        }
+        if (other instanceof AtomicHashMap<?,?>) {
+            return store().equals(((AtomicHashMap<?,?>) other).store());
+        }
+        // Only one call (".entrySet()") will be performed on each map, see AtomicHashMap#equals()
+        final Set<Entry<K,V>> entrySet = entrySet();
+        final Map<?,?> otherMap = (Map<?,?>) other;
+        return entrySet.equals(otherMap.entrySet());
+    }
+
+
+    @Override
+    public int hashCode() {
+        // Implemented per the definition of Map.hashCode(), though hash codes are cached in the internal structure
+        // (which assumes the hash codes of values do not change while they are in the map)
+        int hashCode = 0;
+        for (final Root root : snapshot()) {
+            hashCode += root.mappingsHashCode();
+        }
+        return hashCode;
+    }
+
+
+    @Override
+    public String toString() {
+        // Same as java.util.AbstractMap#toString() as it is what most users would expect
+        final Iterator<Entry<K,V>> i = entrySet().iterator();
+        if (!i.hasNext()) {
+            return "{}";
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (;;) {
+            final Entry<K,V> e = i.next();
+            final K key = e.getKey();
+            final V value = e.getValue();
+            sb.append(key == this ? "(this Map)" : key);
+            sb.append('=');
+            sb.append(value == this ? "(this Map)" : value);
+            if (!i.hasNext()) {
+                return sb.append('}').toString();
+            }
+            sb.append(',').append(' ');
+        }
+    }
+
+
+
+    /*
+     * Serialization is performed by means of a proxy containing a snapshot of all the shards joined into a single
+     * tree, so that a map is never serialized in a partially modified state, nor with its sequence acquired
+     * by a multi-shard write in progress. Deserialized maps are always created anew (sequence at 0).
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this.shardCount, join(snapshot()));
+    }
+
+    private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Deserialization requires a serialization proxy");
+    }
+
+
+    // Computes the new root of a shard in a multi-shard write
+    private interface ShardUpdate {
+
+        Root apply(int shard, Root root);
+
+    }
+
+
+    private static final class SerializationProxy implements Serializable {
+
+        private static final long serialVersionUID = -4172580958614336305L;
+
+        private final int shardCount;
+        private final Root root;
+
+        SerializationProxy(final int shardCount, final Root root) {
+            super();
+            this.shardCount = shardCount;
+            this.root = root;
+        }
+
+        private Object readResolve() {
+            final ShardedAtomicHashMap<Object,Object> map = new ShardedAtomicHashMap<>(this.shardCount);
+            map.setShards(this.root.node);
+            return map;
+        }
+
+    }
+
+}
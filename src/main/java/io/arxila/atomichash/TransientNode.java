@@ -0,0 +1,353 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Arrays;
+
+/*
+ * Mutable counterpart of Node, used for bulk construction of tries (similar to Clojure's "transients").
+ *
+ * A TransientNode is always owned by a single builder, so it can be modified in place without any path copying. Its
+ * children can be either TransientNode objects (owned, mutable) or Node objects (shared, immutable), the latter
+ * being converted into the former only when a modification needs to go through them. Once construction finishes,
+ * freeze() turns the whole structure into an ordinary tree of immutable Node objects, reusing any Node subtrees
+ * that were never touched.
+ *
+ * Unlike Node, mappings and children nodes are kept in separate arrays (which are joined when freezing) so that both
+ * can grow independently. Arrays in this class can have a larger capacity than the number of elements they contain (which can always be
+ * obtained from the corresponding bitmap), so that several insertions in the same node do not need to reallocate.
+ *
+ * Instances of this class are NOT thread-safe and must never be shared.
+ */
+final class TransientNode {
+
+    private static final Object[] EMPTY_OBJECTS = new Object[0];
+    private static final int MAX_CAPACITY = 64; // In number of elements (i.e. pairs for entries)
+
+    final int level;
+    int size;
+    long nodesBitMap;
+    Object[] nodes; // Elements are either Node (shared, immutable) or TransientNode (owned, mutable)
+    long entriesBitMap;
+    Object[] entries; // Keys and values interleaved, same as in the first part of Node#content
+
+
+
+    private TransientNode(final int level, final int size,
+                          final long nodesBitMap, final Object[] nodes,
+                          final long entriesBitMap, final Object[] entries) {
+        super();
+        this.level = level;
+        this.size = size;
+        this.nodesBitMap = nodesBitMap;
+        this.nodes = nodes;
+        this.entriesBitMap = entriesBitMap;
+        this.entries = entries;
+    }
+
+
+    static TransientNode of(final Node node) {
+        final int nodesLen = node.nodesLength();
+        final Object[] nodes = (nodesLen == 0) ? EMPTY_OBJECTS : new Object[nodesLen];
+        for (int i = 0; i < nodesLen; i++) {
+            nodes[i] = node.nodeAt(i);
+        }
+        final int entriesLen = node.entriesLength();
+        final Object[] entries = (entriesLen == 0) ? EMPTY_OBJECTS : Arrays.copyOf(node.content, entriesLen);
+        return new TransientNode(node.level, node.size, node.nodesBitMap, nodes, node.entriesBitMap, entries);
+    }
+
+
+
+    // May return Entry.NOT_FOUND if not found (so that it can be differentiated from a null value)
+    Object get(final int hash, final Object key) {
+
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            final Object node = this.nodes[Node.pos(mask, this.nodesBitMap)];
+            return (node instanceof TransientNode) ? ((TransientNode) node).get(hash, key) : ((Node) node).get(key);
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+        if (entryPos < 0) {
+            return Entry.NOT_FOUND;
+        }
+
+        final int keyPos = entryPos << 1;
+        final Object value = this.entries[keyPos + 1];
+        if (this.level == Node.MAX_LEVEL && Node.isCollision(value)) {
+            return ((Entry) value).get(key);
+        }
+        return Node.eq(this.entries[keyPos], key) ? value : Entry.NOT_FOUND;
+
+    }
+
+
+    // Whether these exact key and value objects are already mapped (see Node#containsSame())
+    boolean containsSame(final int hash, final Object key, final Object value) {
+
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            final Object node = this.nodes[Node.pos(mask, this.nodesBitMap)];
+            return (node instanceof TransientNode) ?
+                    ((TransientNode) node).containsSame(hash, key, value) :
+                    ((Node) node).containsSame(hash, key, value);
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+        if (entryPos < 0) {
+            return false;
+        }
+
+        final int keyPos = entryPos << 1;
+        final Object mapped = this.entries[keyPos + 1];
+        if (this.level == Node.MAX_LEVEL && Node.isCollision(mapped)) {
+            return ((Entry) mapped).containsSame(key, value);
+        }
+        return this.entries[keyPos] == key && mapped == value;
+
+    }
+
+
+    // Returns the increase in size (0 if an existing mapping was replaced, 1 if a new mapping was added)
+    int put(final Entry entry) {
+
+        final int hash = entry.hash;
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+            // There is a node at the selected position: the operation is delegated to it
+            final int delta = child(Node.pos(mask, this.nodesBitMap)).put(entry);
+            this.size += delta;
+            return delta;
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+
+        if (entryPos < 0) {
+            // There is nothing at the selected position: the entry will be inserted
+            insertEntry((entryPos ^ Node.NEG_MASK), entry.key, entry.value);
+            this.entriesBitMap |= mask;
+            this.size++;
+            return 1;
+        }
+
+        final int keyPos = entryPos << 1;
+        final Object oldKey = this.entries[keyPos];
+        final Object oldValue = this.entries[keyPos + 1];
+
+        if (this.level == Node.MAX_LEVEL && Node.isCollision(oldValue)) {
+            // There is a collision bucket: the mapping is replaced or added to it
+            final Entry oldCollision = (Entry) oldValue;
+            if (oldCollision.containsKey(hash, entry.key)) {
+                this.entries[keyPos + 1] = oldCollision.set(entry);
+                return 0;
+            }
+            this.entries[keyPos + 1] = oldCollision.add(entry);
+            this.size++;
+            return 1;
+        }
+
+        final Entry oldEntry = new Entry(Entry.hash(oldKey), oldKey, oldValue, null);
+
+        if (oldEntry.containsKey(hash, entry.key)) {
+            // There is a match (key exists): mapping is replaced in place
+            this.entries[keyPos] = entry.key;
+            this.entries[keyPos + 1] = entry.value;
+            return 0;
+        }
+
+        if (this.level == Node.MAX_LEVEL) {
+            // No new levels can be created, so a collision bucket will be created
+            Node.setEntry(this.entries, entryPos, oldEntry.add(entry));
+            this.size++;
+            return 1;
+        }
+
+        // A new level will be created, a node will replace the existing entry
+        final Node deeperNode = Node.createNewLevel(this.level + 1, oldEntry, entry);
+        removeEntry(entryPos);
+        this.entriesBitMap ^= mask;
+        insertNode((Node.pos(mask, this.nodesBitMap) ^ Node.NEG_MASK), deeperNode);
+        this.nodesBitMap |= mask;
+        this.size++;
+        return 1;
+
+    }
+
+
+    // Returns whether a mapping was actually removed
+    boolean remove(final int hash, final Object key) {
+
+        final long mask = Node.mask(hash, this.level);
+
+        if ((mask & this.nodesBitMap) != 0L) {
+
+            final int nodePos = Node.pos(mask, this.nodesBitMap);
+            final Object node = this.nodes[nodePos];
+            if (node instanceof Node && !((Node) node).containsKey(key)) {
+                // Avoid converting an immutable node into a transient one if there is nothing to remove
+                return false;
+            }
+
+            final TransientNode child = child(nodePos);
+            if (!child.remove(hash, key)) {
+                return false;
+            }
+            this.size--;
+
+            if (child.nodesBitMap == 0L && Long.bitCount(child.entriesBitMap) == 1 &&
+                    !(child.level == Node.MAX_LEVEL && Node.isCollision(child.entries[1]))) {
+                // The child node can be reduced into this level as a mere mapping (it will be at the same position)
+                final Object reducedKey = child.entries[0];
+                final Object reducedValue = child.entries[1];
+                removeNode(nodePos);
+                this.nodesBitMap ^= mask;
+                insertEntry((Node.pos(mask, this.entriesBitMap) ^ Node.NEG_MASK), reducedKey, reducedValue);
+                this.entriesBitMap |= mask;
+            }
+
+            return true;
+
+        }
+
+        final int entryPos = Node.pos(mask, this.entriesBitMap);
+
+        if (entryPos < 0) {
+            // There is nothing at the position that the removed key should be at: nothing to remove
+            return false;
+        }
+
+        final int keyPos = entryPos << 1;
+        final Object oldValue = this.entries[keyPos + 1];
+
+        if (this.level == Node.MAX_LEVEL && Node.isCollision(oldValue)) {
+            final Entry oldCollision = (Entry) oldValue;
+            final Entry newCollision = oldCollision.remove(hash, key);
+            if (newCollision == oldCollision) {
+                // Key was not found
+                return false;
+            }
+            // This was a collision bucket from which a mapping was removed (it might be a single mapping now)
+            Node.setEntry(this.entries, entryPos, newCollision);
+            this.size--;
+            return true;
+        }
+
+        if (!(new Entry(hash, this.entries[keyPos], oldValue, null)).containsKey(hash, key)) {
+            // Key was not found
+            return false;
+        }
+
+        removeEntry(entryPos);
+        this.entriesBitMap ^= mask;
+        this.size--;
+        return true;
+
+    }
+
+
+    /*
+     * Turns this transient node (and all its transient descendants) into immutable Node objects. Once a transient
+     * node has been frozen it must not be modified anymore, as its arrays might have been handed over to the
+     * new immutable nodes.
+     */
+    Node freeze() {
+
+        if (this.size == 0) {
+            // Can only happen at the root level, when all mappings have been removed
+            return Node.EMPTY_NODE;
+        }
+
+        final int nodesLen = Long.bitCount(this.nodesBitMap);
+        final int entriesLen = Long.bitCount(this.entriesBitMap) << 1;
+
+        final Object[] newContent =
+                (nodesLen == 0 && entriesLen == this.entries.length) ?
+                    this.entries : Arrays.copyOf(this.entries, entriesLen + nodesLen);
+        Object node;
+        for (int i = 0; i < nodesLen; i++) {
+            node = this.nodes[i];
+            newContent[newContent.length - 1 - i] = (node instanceof TransientNode) ? ((TransientNode) node).freeze() : node;
+        }
+
+        return new Node(this.level, this.size, this.nodesBitMap, this.entriesBitMap, newContent);
+
+    }
+
+
+
+    private TransientNode child(final int nodePos) {
+        final Object node = this.nodes[nodePos];
+        if (node instanceof TransientNode) {
+            return (TransientNode) node;
+        }
+        final TransientNode child = of((Node) node);
+        this.nodes[nodePos] = child;
+        return child;
+    }
+
+
+    private void insertEntry(final int pos, final Object key, final Object value) {
+        final int len = Long.bitCount(this.entriesBitMap) << 1;
+        if (len == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, capacity(len >> 1) << 1);
+        }
+        final int keyPos = pos << 1;
+        System.arraycopy(this.entries, keyPos, this.entries, keyPos + 2, len - keyPos);
+        this.entries[keyPos] = key;
+        this.entries[keyPos + 1] = value;
+    }
+
+
+    private void removeEntry(final int pos) {
+        final int len = Long.bitCount(this.entriesBitMap) << 1;
+        final int keyPos = pos << 1;
+        System.arraycopy(this.entries, keyPos + 2, this.entries, keyPos, len - (keyPos + 2));
+        this.entries[len - 2] = null;
+        this.entries[len - 1] = null;
+    }
+
+
+    private void insertNode(final int pos, final Object node) {
+        final int len = Long.bitCount(this.nodesBitMap);
+        if (len == this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, capacity(len));
+        }
+        System.arraycopy(this.nodes, pos, this.nodes, pos + 1, len - pos);
+        this.nodes[pos] = node;
+    }
+
+
+    private void removeNode(final int pos) {
+        final int len = Long.bitCount(this.nodesBitMap);
+        System.arraycopy(this.nodes, pos + 1, this.nodes, pos, len - (pos + 1));
+        this.nodes[len - 1] = null;
+    }
+
+
+    private static int capacity(final int len) {
+        return Math.min(MAX_CAPACITY, Math.max(2, len << 1));
+    }
+
+
+}
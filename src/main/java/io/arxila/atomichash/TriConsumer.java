@@ -0,0 +1,43 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+/**
+ * Operation that accepts a key and the two values mapped to it in two different stores, and returns no result.
+ * This is the three-arity specialization of {@link java.util.function.BiConsumer} used for joining the mappings of
+ * two {@link AtomicHashStore} instances (see {@link AtomicHashStore#join(AtomicHashStore, TriConsumer)}).
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value in the first (left) store
+ * @param <W> the type of the value in the second (right) store
+ */
+@FunctionalInterface
+public interface TriConsumer<K,V,W> {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param key the key.
+     * @param leftValue the value mapped to the key in the first (left) store.
+     * @param rightValue the value mapped to the key in the second (right) store.
+     */
+    void accept(K key, V leftValue, W rightValue);
+
+}
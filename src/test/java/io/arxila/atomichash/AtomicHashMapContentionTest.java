@@ -0,0 +1,286 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashMapContentionTest {
+
+
+    @Test
+    void testCounters() {
+
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>();
+        assertSame(ContentionStrategy.none(), map.contentionStrategy());
+        assertEquals(0L, map.casAttempts());
+
+        map.put("one", "ONE");
+        map.put("two", "TWO");
+        map.put("two", "TWO"); // Not modified: no attempts needed
+        map.remove("three");   // Not modified: no attempts needed
+        map.remove("one");
+        assertEquals(3L, map.casAttempts());
+        assertEquals(0L, map.casFailures());
+
+        assertThrows(IllegalArgumentException.class, () -> ContentionStrategy.exponentialBackoff(0));
+        assertThrows(IllegalArgumentException.class, () -> ContentionStrategy.adaptiveBackoff(-1));
+        assertEquals(ContentionStrategy.exponentialBackoff(), ContentionStrategy.exponentialBackoff(1024));
+
+    }
+
+
+    @Test
+    void testStrategies() throws Exception {
+        testStrategy(ContentionStrategy.none());
+        testStrategy(ContentionStrategy.exponentialBackoff());
+        testStrategy(ContentionStrategy.exponentialBackoff(16));
+        testStrategy(ContentionStrategy.adaptiveBackoff());
+        testStrategy(ContentionStrategy.adaptiveBackoff(16));
+        testStrategy(ContentionStrategy.keyLocking());
+    }
+
+
+    private static void testStrategy(final ContentionStrategy strategy) throws Exception {
+
+        final int threads = 4;
+        final int increments = 20000;
+
+        final AtomicHashMap<Integer,Integer> map = new AtomicHashMap<>(strategy);
+        assertSame(strategy, map.contentionStrategy());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < increments; i++) {
+                    map.merge(i % 10, 1, Integer::sum);
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(threads * increments / 10, map.get(i));
+        }
+        // Every merge modifies the map, so it must have succeeded exactly once
+        assertEquals((long) threads * increments, map.casAttempts() - map.casFailures());
+
+    }
+
+
+
+    @Test
+    void testCombining() throws Exception {
+
+        final int threads = 4;
+        final int operations = 20000;
+
+        final AtomicHashMap<Integer,Integer> map = new AtomicHashMap<>(ContentionStrategy.combining());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < operations; i++) {
+                    map.merge(i % 10, 1, Integer::sum);
+                    final int key = 100 + thread * operations + i;
+                    assertNull(map.put(key, i));
+                    assertEquals(i, map.put(key, -i));
+                    assertEquals(-i, map.remove(key));
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(10, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(threads * operations / 10, map.get(i));
+        }
+        // Operations are applied in batches, so there can never be more attempts than operations
+        assertTrue(map.casAttempts() <= 4L * threads * operations);
+
+        // Failures in remapping functions are rethrown in the calling thread, and do not affect the map
+        assertThrows(IllegalStateException.class, () -> map.merge(0, 1, (v1, v2) -> { throw new IllegalStateException(); }));
+        assertEquals(threads * operations / 10, map.get(0));
+        assertNull(map.merge(0, 1, (v1, v2) -> null));
+        assertEquals(9, map.size());
+
+        // Operations that leave the mappings unchanged do not replace the internal structure
+        final long attempts = map.casAttempts();
+        final Integer value = map.get(1);
+        assertSame(value, map.put(1, value));
+        assertSame(value, map.merge(1, 5, (v1, v2) -> v1));
+        assertNull(map.remove(0));
+        assertEquals(attempts, map.casAttempts());
+
+        // Putting an equal but different key object does replace the key object itself (as Root#put() does)
+        final AtomicHashMap<String,String> strings = new AtomicHashMap<>(ContentionStrategy.combining());
+        final String key = new String("key");
+        final String other = new String("key");
+        strings.put(key, "value");
+        assertSame(key, strings.keySet().iterator().next());
+        assertEquals("value", strings.put(other, "value"));
+        assertSame(other, strings.keySet().iterator().next());
+
+        // Writes performed by remapping functions are applied by the combiner itself instead of waiting for it
+        assertEquals(2, map.merge(1, 1, (v1, v2) -> {
+            assertNull(map.put(50, 50));
+            assertEquals(51, map.merge(50, 1, Integer::sum));
+            return v2 + 1;
+        }));
+        assertEquals(2, map.get(1));
+        assertEquals(51, map.get(50));
+        assertEquals(10, map.size());
+
+    }
+
+
+    @Test
+    void testKeyLocking() throws Exception {
+
+        final int threads = 4;
+        final int operations = 20000;
+
+        final AtomicHashMap<Integer,Integer> map = new AtomicHashMap<>(ContentionStrategy.keyLocking());
+        final AtomicInteger executions = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < operations; i++) {
+                    map.compute(i % 10, (k, v) -> {
+                        executions.incrementAndGet();
+                        return (v == null) ? 1 : v + 1;
+                    });
+                    map.computeIfAbsent(10 + (i % 10), k -> {
+                        executions.incrementAndGet();
+                        return k;
+                    });
+                    // Keys only written by this thread, modifying the map concurrently with the computations
+                    final int key = 100 + thread * operations + i;
+                    assertNull(map.put(key, i));
+                    assertEquals(i, map.remove(key));
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Functions are executed exactly once per call (computeIfAbsent only for the first call on each key)
+        assertEquals(threads * operations + 10, executions.get());
+        assertEquals(20, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(threads * operations / 10, map.get(i));
+            assertEquals(10 + i, map.get(10 + i));
+        }
+
+        // Semantics of all single-key operations are the same as in any other mode
+        final AtomicHashMap<String,String> locked = new AtomicHashMap<>(ContentionStrategy.keyLocking());
+        final HashMap<String,String> expected = new HashMap<>();
+        for (final Map<String,String> m : Arrays.asList(locked, expected)) {
+            assertNull(m.put("one", "ONE"));
+            assertEquals("ONE", m.put("one", "UNO"));
+            assertNull(m.putIfAbsent("two", null));
+            assertNull(m.putIfAbsent("two", "TWO"));
+            assertEquals("TWO", m.putIfAbsent("two", "DOS"));
+            assertNull(m.replace("three", "THREE"));
+            assertFalse(m.replace("one", "ONE", "EINS"));
+            assertTrue(m.replace("one", "UNO", "EINS"));
+            assertEquals("EINS", m.replace("one", "ONE"));
+            assertFalse(m.remove("one", "UNO"));
+            assertNull(m.remove("four"));
+            assertEquals("threenull", m.compute("three", (k, v) -> k + v));
+            assertNull(m.computeIfPresent("three", (k, v) -> null));
+            assertNull(m.computeIfPresent("five", (k, v) -> "FIVE"));
+            assertEquals("SIX", m.computeIfAbsent("six", k -> "SIX"));
+            assertNull(m.computeIfAbsent("seven", k -> null));
+            assertEquals("SIXSIX", m.merge("six", "SIX", String::concat));
+            assertNull(m.merge("six", "SIX", (v1, v2) -> null));
+            assertTrue(m.remove("one", "ONE"));
+        }
+        assertEquals(expected, locked);
+
+        locked.putAll(expected);
+        locked.replaceAll((k, v) -> k);
+        assertEquals("two", locked.get("two"));
+        locked.clear();
+        assertTrue(locked.isEmpty());
+
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCombiningSerialization() throws Exception {
+
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>(ContentionStrategy.combining());
+        map.put("one", "ONE");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        final AtomicHashMap<String,String> deserialized;
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (AtomicHashMap<String,String>) in.readObject();
+        }
+
+        assertEquals(ContentionStrategy.combining(), deserialized.contentionStrategy());
+        assertEquals("ONE", deserialized.put("one", "UNO"));
+        assertEquals("UNO", deserialized.get("one"));
+        assertEquals("ONE", map.get("one"));
+
+    }
+
+}
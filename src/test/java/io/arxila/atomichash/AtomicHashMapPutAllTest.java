@@ -116,6 +116,62 @@ public void testPutAllWithLargeDataSet() {
     }
 
 
+    @Test
+    public void testConstructorWithLargeDataSet() {
+        final KeyValue<String, String>[] entries = TestUtils.generateStringStringKeyValues(100000, 80, 100);
+        final Map<String, String> entriesMap = new HashMap<>();
+        for (KeyValue<String, String> entry : entries) {
+            entriesMap.put(entry.getKey(), entry.getValue());
+        }
+        entriesMap.put(null, "NULL KEY");
+
+        final AtomicHashMap<String, String> m = new AtomicHashMap<>(entriesMap);
+        TestUtils.validate(m.innerRoot());
+
+        Assertions.assertEquals(entriesMap.size(), m.size(), "All entries should be added to the map");
+        for (Map.Entry<String, String> entry : entriesMap.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), m.get(entry.getKey()), "Key should map to the correct value");
+        }
+
+        // A map built by putting the mappings one by one must have the exact same structure
+        final AtomicHashMap<String, String> m2 = new AtomicHashMap<>();
+        for (Map.Entry<String, String> entry : entriesMap.entrySet()) {
+            m2.put(entry.getKey(), entry.getValue());
+        }
+        Assertions.assertEquals(PrettyPrinter.printRoot(m2.innerRoot()), PrettyPrinter.printRoot(m.innerRoot()));
+    }
+
+    @Test
+    public void testBuildWithDuplicateKeys() {
+        final Entry[] entries = new Entry[] {
+                new Entry(Entry.hash("one"), "one", "ONE", null),
+                new Entry(Entry.hash("pOe"), "pOe", "COLLISION_ONE", null),
+                new Entry(Entry.hash("two"), "two", "TWO", null),
+                new Entry(Entry.hash("q0e"), "q0e", "COLLISION_TWO", null),
+                new Entry(Entry.hash("one"), "one", "ONE_NEW", null),
+                new Entry(Entry.hash("pOe"), "pOe", "COLLISION_ONE_NEW", null),
+                new Entry(Entry.hash("two"), "two", "TWO_NEW", null),
+                new Entry(Entry.hash("two"), "two", "TWO_NEWEST", null)
+        };
+
+        final Root root = Root.of(Node.build(entries));
+        TestUtils.validate(root);
+
+        Assertions.assertEquals(4, root.size());
+        Assertions.assertEquals("ONE_NEW", root.get("one"));
+        Assertions.assertEquals("TWO_NEWEST", root.get("two"));
+        Assertions.assertEquals("COLLISION_ONE_NEW", root.get("pOe"));
+        Assertions.assertEquals("COLLISION_TWO", root.get("q0e"));
+
+        final Root root2 = Root.of(Node.build(new Entry[] {
+                new Entry(Entry.hash("one"), "one", "ONE", null),
+                new Entry(Entry.hash("one"), "one", "ONE_NEW", null) }));
+        TestUtils.validate(root2);
+        Assertions.assertEquals(1, root2.size());
+        Assertions.assertEquals("ONE_NEW", root2.get("one"));
+    }
+
+
     @SafeVarargs
     private static <K, V> void putAll(AtomicHashMap<K, V> map, Object... keyValues) {
         Map<K, V> tempMap = new HashMap<>();
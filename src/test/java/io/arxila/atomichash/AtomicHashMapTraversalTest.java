@@ -0,0 +1,108 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Every single-key operation should traverse the tree only once, i.e. compare the key with the mappings in the
+ * tree only once, whatever the number of levels and whether the operation needs to report the previous value.
+ */
+public class AtomicHashMapTraversalTest {
+
+    private static final int SIZE = 10000;
+
+    private AtomicHashMap<CountingKey,Integer> map;
+
+
+    @BeforeEach
+    void setUp() {
+        this.map = new AtomicHashMap<>();
+        for (int i = 1; i <= SIZE; i++) {
+            this.map.put(new CountingKey(i), i);
+        }
+    }
+
+
+    @Test
+    void testSingleTraversal() {
+
+        // Keys used are always equal but never identical to the ones in the map, so that they need to be compared
+        assertComparisons(1, key -> assertEquals(key.id, this.map.get(key)));
+        assertComparisons(1, key -> assertEquals(key.id, this.map.put(key, -key.id)));
+        assertComparisons(1, key -> assertEquals(-key.id, this.map.putIfAbsent(key, key.id)));
+        assertComparisons(1, key -> assertEquals(-key.id, this.map.replace(key, key.id)));
+        assertComparisons(1, key -> assertTrue(this.map.replace(key, key.id, -key.id)));
+        assertComparisons(1, key -> assertFalse(this.map.replace(key, key.id, -key.id)));
+        assertComparisons(1, key -> assertEquals(key.id, this.map.compute(key, (k, v) -> -v)));
+        assertComparisons(1, key -> assertEquals(key.id, this.map.computeIfAbsent(key, k -> 0)));
+        assertComparisons(1, key -> assertEquals(-key.id, this.map.computeIfPresent(key, (k, v) -> -v)));
+        assertComparisons(1, key -> assertEquals(0, this.map.merge(key, key.id, (v1, v2) -> v1 + v2)));
+        assertComparisons(1, key -> assertFalse(this.map.remove(key, -1)));
+        assertComparisons(1, key -> assertTrue(this.map.remove(key, 0)));
+        assertEquals(0, this.map.size());
+
+        setUp();
+        assertComparisons(1, key -> assertEquals(key.id, this.map.remove(key)));
+        assertEquals(0, this.map.size());
+
+    }
+
+
+    private void assertComparisons(final int expected, final Consumer<CountingKey> operation) {
+        for (int i = 1; i <= SIZE; i++) {
+            final CountingKey key = new CountingKey(i);
+            CountingKey.comparisons = 0;
+            operation.accept(key);
+            assertEquals(expected, CountingKey.comparisons);
+        }
+    }
+
+
+    private static final class CountingKey {
+
+        static int comparisons = 0;
+
+        final int id;
+
+        CountingKey(final int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            comparisons++;
+            return (o instanceof CountingKey) && ((CountingKey) o).id == this.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id * 0x9E3779B9;
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashMapUpdateTest {
+
+
+    @Test
+    void testUpdate() {
+
+        final AtomicHashMap<String,Integer> map = AtomicHashMap.of("a", 1, "b", 2, "d", 4);
+
+        final AtomicHashStore<String,Integer> result =
+                map.update(store -> store.put("c", store.get("a") + store.get("b")).remove("d"));
+        assertEquals(AtomicHashStore.of("a", 1, "b", 2, "c", 3), result);
+        assertEquals(result, map.store());
+        assertNull(map.get("d"));
+
+        // Returning the same snapshot does not modify the map
+        final long attempts = map.casAttempts();
+        final AtomicHashStore<String,Integer> current = map.store();
+        assertSame(current.innerRoot(), map.update(store -> store).innerRoot());
+        assertEquals(attempts, map.casAttempts());
+
+        assertThrows(NullPointerException.class, () -> map.update(store -> null));
+        assertEquals(result, map.store());
+
+    }
+
+
+    @Test
+    void testCompareAndSetStore() {
+
+        final AtomicHashMap<String,Integer> map = AtomicHashMap.of("a", 1);
+
+        final long attempts = map.casAttempts();
+        final long failures = map.casFailures();
+
+        final AtomicHashStore<String,Integer> snapshot = map.store();
+        assertTrue(map.compareAndSetStore(snapshot, snapshot.put("b", 2)));
+        assertEquals(2, map.get("b"));
+
+        // The snapshot is no longer current
+        assertFalse(map.compareAndSetStore(snapshot, snapshot.put("c", 3)));
+        assertNull(map.get("c"));
+
+        // Replacements are counted as any other attempt to replace the contents of the map
+        assertEquals(attempts + 2, map.casAttempts());
+        assertEquals(failures + 1, map.casFailures());
+
+        // Equal stores not obtained from the map do not match
+        assertFalse(map.compareAndSetStore(AtomicHashStore.of("a", 1, "b", 2), AtomicHashStore.of()));
+        assertEquals(2, map.size());
+
+    }
+
+
+    @Test
+    void testConcurrentUpdates() throws Exception {
+        testConcurrentUpdates(ContentionStrategy.none());
+        testConcurrentUpdates(ContentionStrategy.keyLocking());
+    }
+
+
+    private static void testConcurrentUpdates(final ContentionStrategy strategy) throws Exception {
+
+        final int threads = 4;
+        final int transfers = 20000;
+
+        final AtomicHashMap<Integer,Integer> map = new AtomicHashMap<>(strategy);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, 1000);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transfers; i++) {
+                    final int from = (thread + i) % 10;
+                    final int to = (thread + 3 * i + 1) % 10;
+                    // Transfers between two keys must never be observed half-applied
+                    map.update(store -> store.put(from, store.get(from) - 1).put(to, store.get(to) + 1));
+                    int total = 0;
+                    for (final Integer value : map.store().values()) {
+                        total += value;
+                    }
+                    assertEquals(10000, total);
+                }
+                return null;
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int total = 0;
+        for (final Integer value : map.values()) {
+            total += value;
+        }
+        assertEquals(10000, total);
+
+    }
+
+}
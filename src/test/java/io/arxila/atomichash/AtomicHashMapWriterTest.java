@@ -0,0 +1,126 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashMapWriterTest {
+
+
+    @Test
+    void testWriter() throws Exception {
+
+        final AtomicHashMap<String,String> map = AtomicHashMap.of("one", "ONE");
+        final AtomicHashMap.Writer<String,String> writer = map.writer();
+
+        writer.put("two", "TWO").put("three", "THREE").remove("one");
+        assertEquals("TWO", writer.get("two"));
+        assertNull(writer.get("one"));
+        assertEquals(2, writer.size());
+
+        // Nothing is visible until published
+        assertEquals(1, map.size());
+        assertEquals("ONE", map.get("one"));
+        assertNull(map.get("two"));
+
+        writer.publish();
+        final Map<String,String> expected = new HashMap<>();
+        expected.put("two", "TWO");
+        expected.put("three", "THREE");
+        assertEquals(expected, map);
+        TestUtils.validate(map);
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(20000, 20, 100);
+        for (final KeyValue<String,String> entry : entries) {
+            writer.put(entry.getKey(), entry.getValue());
+            expected.put(entry.getKey(), entry.getValue());
+        }
+        for (int i = 0; i < entries.length; i += 3) {
+            writer.remove(entries[i].getKey());
+            expected.remove(entries[i].getKey());
+        }
+        writer.publish();
+        assertEquals(expected, map);
+        TestUtils.validate(map);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<?> future = executor.submit(() -> writer.put("four", "FOUR"));
+        final Exception exception = assertThrows(Exception.class, future::get);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        executor.shutdown();
+
+        map.put("five", "FIVE");
+        writer.put("six", "SIX");
+        assertThrows(ConcurrentModificationException.class, writer::publish);
+
+        assertThrows(IllegalArgumentException.class, () -> map.writer(0));
+
+    }
+
+
+    @Test
+    void testPublishInterval() throws Exception {
+
+        // Readers should only ever see a number of mappings that is a multiple of the publish interval
+        final AtomicHashMap<Integer,Integer> map = new AtomicHashMap<>();
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<?> reader = executor.submit(() -> {
+            while (!finished.get()) {
+                final AtomicHashStore<Integer,Integer> store = map.store();
+                assertEquals(0, store.size() % 10);
+                for (int i = 0; i < store.size(); i++) {
+                    assertEquals(i, store.get(i));
+                }
+            }
+            return null;
+        });
+        final Future<?> writer = executor.submit(() -> {
+            final AtomicHashMap.Writer<Integer,Integer> mapWriter = map.writer(10);
+            for (int i = 0; i < 10000; i++) {
+                mapWriter.put(i, i);
+            }
+            finished.set(true);
+            return null;
+        });
+
+        writer.get();
+        reader.get();
+        executor.shutdown();
+
+        assertEquals(10000, map.size());
+        TestUtils.validate(map);
+
+    }
+
+}
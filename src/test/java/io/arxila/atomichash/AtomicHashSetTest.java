@@ -0,0 +1,274 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashSetTest {
+
+
+    @Test
+    void testSet() {
+
+        final AtomicHashSet<String> set = new AtomicHashSet<>();
+        assertTrue(set.isEmpty());
+        assertEquals("[]", set.toString());
+
+        assertTrue(set.add("one"));
+        assertFalse(set.add("one"));
+        assertTrue(set.add(null));
+        assertTrue(set.addAll(Arrays.asList("two", "three", "pOe", "q0e", "two")));
+        assertFalse(set.addAll(Arrays.asList("one", "two")));
+
+        final Set<String> expected = new HashSet<>(Arrays.asList("one", null, "two", "three", "pOe", "q0e"));
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertTrue(set.contains("pOe"));
+        assertTrue(set.contains(null));
+        assertTrue(set.containsAll(Arrays.asList("one", "q0e")));
+        assertFalse(set.containsAll(Arrays.asList("one", "four")));
+
+        assertTrue(set.remove("pOe"));
+        assertFalse(set.remove("pOe"));
+        assertTrue(set.removeAll(Arrays.asList("one", "four")));
+        assertFalse(set.removeAll(Arrays.asList("one", "four")));
+        assertTrue(set.retainAll(Arrays.asList("two", "three", "q0e")));
+        assertEquals(new HashSet<>(Arrays.asList("two", "three", "q0e")), set);
+        assertTrue(set.removeIf(e -> e.startsWith("t")));
+        assertEquals(new HashSet<>(Arrays.asList("q0e")), set);
+
+        final Object[] array = set.toArray();
+        assertEquals(1, array.length);
+        assertEquals("q0e", set.toArray(new String[0])[0]);
+
+        // Iterators operate on snapshots and are unmodifiable
+        final Iterator<String> iterator = set.iterator();
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertTrue(iterator.hasNext());
+        assertEquals("q0e", iterator.next());
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+
+    }
+
+
+    @Test
+    void testStore() {
+
+        final AtomicHashStoreSet<String> store = AtomicHashStoreSet.of("one", "two", "three");
+        assertEquals(3, store.size());
+        assertSame(store, store.add("one"));
+        assertSame(store, store.remove("four"));
+        assertSame(store, store.removeAll(Arrays.asList("four", "five")));
+        assertSame(store, store.retainAll(Arrays.asList("one", "two", "three", "four")));
+
+        final AtomicHashStoreSet<String> store2 = store.add("four").remove("one");
+        assertTrue(store.contains("one"));
+        assertFalse(store2.contains("one"));
+        assertEquals(new HashSet<>(Arrays.asList("two", "three", "four")), store2.toSet());
+        assertEquals(store2.toSet(), store2.stream().collect(Collectors.toSet()));
+        assertEquals(store2.toSet(), store2.parallelStream().collect(Collectors.toSet()));
+
+        final AtomicHashStoreSet<String> union = store.addAll(store2);
+        assertEquals(new HashSet<>(Arrays.asList("one", "two", "three", "four")), union.toSet());
+        assertSame(union.innerNode(), union.addAll(store).innerNode());
+
+        assertEquals(store, store2.remove("four").add(new String("one")));
+        assertNotEquals(store, store2);
+        assertEquals(store.toSet().hashCode(), store.hashCode());
+
+        final List<String> visited = new ArrayList<>();
+        store.forEach(visited::add);
+        assertEquals(store.toSet(), new HashSet<>(visited));
+        assertEquals(store, new AtomicHashSet<>(store).store());
+
+        assertTrue(store.clear().isEmpty());
+
+    }
+
+
+    @Test
+    void testLarge() {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(50000, 50, 100);
+        final List<String> elements = new ArrayList<>();
+        for (final KeyValue<String,String> entry : entries) {
+            elements.add(entry.getKey());
+        }
+
+        final AtomicHashSet<String> set = new AtomicHashSet<>(elements);
+        final Set<String> expected = new HashSet<>(elements);
+        assertEquals(expected, set);
+        assertEquals(expected.hashCode(), set.hashCode());
+        TestUtils.validate(set.innerNode());
+
+        final AtomicHashSet<String> set2 = new AtomicHashSet<>();
+        for (final String element : elements) {
+            set2.add(element);
+        }
+        assertEquals(set, set2);
+        assertEquals(set2, set);
+
+        set2.removeAll(elements.subList(0, elements.size() / 2));
+        expected.removeAll(elements.subList(0, elements.size() / 2));
+        assertEquals(expected, set2);
+        TestUtils.validate(set2.innerNode());
+
+    }
+
+
+    @Test
+    void testKeyOnlyNodes() {
+
+        final List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            elements.add("element" + i);
+        }
+        final AtomicHashStoreSet<String> large = new AtomicHashStoreSet<String>().addAll(elements);
+        TestUtils.validate(large.innerNode());
+        // Every element takes a single slot in the content array of its node
+        assertEquals(elements.size(), keySlots(large.innerNode()));
+        assertEquals(new HashSet<>(elements), large.toSet());
+        assertEquals(elements.size(), large.stream().count());
+        assertEquals(elements.size(), large.parallelStream().distinct().count());
+
+        final List<String> half = elements.subList(0, elements.size() / 2);
+        final AtomicHashStoreSet<String> difference = large.removeAll(half);
+        final AtomicHashStoreSet<String> intersection = large.retainAll(half);
+        TestUtils.validate(difference.innerNode());
+        TestUtils.validate(intersection.innerNode());
+        assertEquals(new HashSet<>(half), intersection.toSet());
+        assertEquals(large, difference.addAll(intersection));
+        assertEquals(large.hashCode(), difference.addAll(intersection).hashCode());
+        assertTrue(large.difference(intersection).difference(difference).isEmpty());
+        assertEquals(intersection, large.removeIf(e -> !half.contains(e)));
+
+    }
+
+
+    private static int keySlots(final KeyNode node) {
+        int slots = node.entriesLength();
+        for (int i = 0; i < node.nodesLength(); i++) {
+            slots += keySlots(node.nodeAt(i));
+        }
+        return slots;
+    }
+
+
+    @Test
+    void testCollisions() {
+
+        final List<CollidingObject> elements = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            elements.add(new CollidingObject("element" + i));
+        }
+
+        final AtomicHashSet<CollidingObject> set = new AtomicHashSet<>();
+        for (final CollidingObject element : elements) {
+            assertTrue(set.add(element));
+            TestUtils.validate(set.innerNode());
+        }
+        assertFalse(set.add(new CollidingObject("element0")));
+        assertEquals(new HashSet<>(elements), set);
+        assertEquals(set, AtomicHashSet.of(elements.toArray(new CollidingObject[0])));
+        assertEquals(set, new AtomicHashSet<>(elements));
+
+        final AtomicHashSet<CollidingObject> set2 = new AtomicHashSet<>(set);
+        assertTrue(set2.removeAll(elements.subList(0, 9)));
+        TestUtils.validate(set2.innerNode());
+        assertEquals(1, set2.size());
+        assertTrue(set2.addAll(set.store()));
+        TestUtils.validate(set2.innerNode());
+        assertEquals(set, set2);
+
+        assertTrue(set2.retainAll(elements.subList(3, 5)));
+        TestUtils.validate(set2.innerNode());
+        assertEquals(new HashSet<>(elements.subList(3, 5)), set2);
+        assertTrue(set2.remove(new CollidingObject("element3")));
+        TestUtils.validate(set2.innerNode());
+        assertEquals(1, set2.size());
+        assertTrue(set2.removeIf(e -> true));
+        assertTrue(set2.isEmpty());
+
+    }
+
+
+    private static final class CollidingObject {
+
+        private final String value;
+
+        CollidingObject(final String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1; // Forces a hash collision
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof CollidingObject) && this.value.equals(((CollidingObject) obj).value);
+        }
+
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSerialization() throws Exception {
+
+        final AtomicHashSet<String> set = AtomicHashSet.of("one", "two", "three");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(set);
+        }
+        final AtomicHashSet<String> deserialized;
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (AtomicHashSet<String>) in.readObject();
+        }
+
+        assertEquals(set, deserialized);
+        assertFalse(deserialized.add("one"));
+        assertTrue(deserialized.add("four"));
+
+    }
+
+}
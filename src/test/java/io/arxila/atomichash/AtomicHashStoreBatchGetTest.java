@@ -0,0 +1,123 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreBatchGetTest {
+
+
+    @Test
+    void testCollisions() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,String> store =
+                AtomicHashStore.of("AaAa", "one", "AaBB", "two", "BBAa", "three", "x", null, null, "nil");
+
+        final Map<String,String> result = store.getAll("BBAa", "AaAa", "BBBB", "AaAa", "x", null, "y", "BBAa");
+        assertEquals(4, result.size());
+        assertEquals("one", result.get("AaAa"));
+        assertEquals("three", result.get("BBAa"));
+        assertEquals("nil", result.get(null));
+        assertNull(result.get("x"));
+        assertTrue(result.containsKey("x"));
+        assertFalse(result.containsKey("AaBB"));
+        assertFalse(result.containsKey("BBBB"));
+        assertEquals("none", result.getOrDefault("BBBB", "none"));
+
+        final Map<String,String> expected = new HashMap<>();
+        expected.put("AaAa", "one");
+        expected.put("BBAa", "three");
+        expected.put("x", null);
+        expected.put(null, "nil");
+        assertEquals(expected, result);
+        assertEquals(result, expected);
+        assertEquals(expected.hashCode(), result.hashCode());
+
+        assertThrows(UnsupportedOperationException.class, () -> result.put("AaBB", "two"));
+        assertThrows(UnsupportedOperationException.class, () -> result.remove("AaAa"));
+        assertThrows(UnsupportedOperationException.class, () -> result.entrySet().iterator().next().setValue("four"));
+
+        final String[] values = new String[9];
+        assertEquals(6, store.getAll(new Object[] { "BBAa", "AaAa", "BBBB", "AaAa", "x", null, "y", "BBAa" }, values));
+        assertEquals(Arrays.asList("three", "one", null, "one", null, "nil", null, "three", null), Arrays.asList(values));
+
+        assertThrows(IllegalArgumentException.class, () -> store.getAll(new Object[] { "AaAa", "x" }, new String[1]));
+        assertEquals(0, store.getAll(new Object[0], new String[0]));
+
+    }
+
+
+    @Test
+    void testLarge() {
+        TestUtils.testStringStringKeyValues(10, AtomicHashStoreBatchGetTest::testLarge);
+    }
+
+
+    private static void testLarge(final KeyValue<String,String>[] entries) {
+
+        final Map<String,String> mappings = TestUtils.toMap(entries);
+        final AtomicHashStore<String,String> store = AtomicHashStore.<String,String>of().putAll(mappings);
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>(mappings);
+
+        // Select one in three keys (some of them repeated), plus some absent ones
+        final List<String> keys = new ArrayList<>();
+        final Map<String,String> expected = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 3) {
+            keys.add(entries[i].getKey());
+            keys.add(entries[i].getKey() + "x");
+            expected.put(entries[i].getKey(), mappings.get(entries[i].getKey()));
+        }
+
+        assertEquals(expected, store.getAll(keys));
+        assertEquals(expected, store.getAll(keys.toArray()));
+        assertEquals(expected, map.getAll(keys));
+        assertEquals(expected, map.getAll(keys.toArray()));
+
+        final Map<String,String> result = store.getAll(keys);
+        for (final String key : keys) {
+            assertEquals(expected.get(key), result.get(key));
+            assertEquals(expected.containsKey(key), result.containsKey(key));
+        }
+
+        final String[] values = new String[keys.size()];
+        int found = 0;
+        for (final String key : keys) {
+            found += expected.containsKey(key) ? 1 : 0;
+        }
+        assertEquals(found, map.getAll(keys.toArray(), values));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(mappings.get(keys.get(i)), values[i]);
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreBuilderTest {
+
+
+    @Test
+    void testEmptyBuilder() {
+        final AtomicHashStore<String,String> store = AtomicHashStore.<String,String>builder().build();
+
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.size());
+        TestUtils.validate(store);
+    }
+
+
+    @Test
+    void testPutAndRemove() {
+        final AtomicHashStore.Builder<String,String> builder = AtomicHashStore.builder();
+        builder.put("one", "ONE").put("two", "TWO").put("three", "THREE").put(null, null);
+        builder.put("pOe", "ONE COLLISION").put("q0e", "ANOTHER COLLISION");
+        builder.put("one", "ONE AGAIN");
+        builder.remove("two").remove("nonexistent");
+
+        assertEquals(5, builder.size());
+
+        final AtomicHashStore<String,String> store = builder.build();
+        TestUtils.validate(store);
+
+        assertEquals(5, store.size());
+        assertEquals("ONE AGAIN", store.get("one"));
+        assertFalse(store.containsKey("two"));
+        assertEquals("THREE", store.get("three"));
+        assertTrue(store.containsKey(null));
+        assertEquals("ONE COLLISION", store.get("pOe"));
+        assertEquals("ANOTHER COLLISION", store.get("q0e"));
+
+        builder.remove("pOe");
+        final AtomicHashStore<String,String> store2 = builder.build();
+        TestUtils.validate(store2);
+
+        assertEquals(4, store2.size());
+        assertNull(store2.get("pOe"));
+        assertEquals("ANOTHER COLLISION", store2.get("q0e"));
+
+        // The previously built store must not be affected by further modifications in the builder
+        assertEquals(5, store.size());
+        assertEquals("ONE COLLISION", store.get("pOe"));
+    }
+
+
+    @Test
+    void testToBuilder() {
+        final AtomicHashStore<String,String> store = AtomicHashStore.of("one", "ONE", "two", "TWO", "three", "THREE");
+
+        final AtomicHashStore<String,String> store2 = store.toBuilder().put("four", "FOUR").remove("one").build();
+        TestUtils.validate(store2);
+
+        assertEquals(3, store2.size());
+        assertNull(store2.get("one"));
+        assertEquals("FOUR", store2.get("four"));
+
+        // The original store must not be affected
+        assertEquals(3, store.size());
+        assertEquals("ONE", store.get("one"));
+        assertFalse(store.containsKey("four"));
+    }
+
+
+    @Test
+    void testRemoveAll() {
+        final AtomicHashStore.Builder<String,String> builder = AtomicHashStore.builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            builder.remove("key" + i);
+        }
+        final AtomicHashStore<String,String> store = builder.build();
+        TestUtils.validate(store);
+
+        assertTrue(store.isEmpty());
+        assertEquals(new AtomicHashStore<String,String>(), store);
+    }
+
+
+    @Test
+    void testLarge() {
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(100000, 50, 100);
+
+        final Map<String,String> expected = new HashMap<>();
+        AtomicHashStore<String,String> expectedStore = AtomicHashStore.of("initial", "INITIAL");
+        final AtomicHashStore.Builder<String,String> builder = expectedStore.toBuilder();
+        expected.put("initial", "INITIAL");
+
+        for (int i = 0; i < entries.length; i++) {
+            if (i % 7 == 0) {
+                expected.remove(entries[i].getKey());
+                expectedStore = expectedStore.remove(entries[i].getKey());
+                builder.remove(entries[i].getKey());
+            } else {
+                expected.put(entries[i].getKey(), entries[i].getValue());
+                expectedStore = expectedStore.put(entries[i].getKey(), entries[i].getValue());
+                builder.put(entries[i].getKey(), entries[i].getValue());
+            }
+        }
+
+        final AtomicHashStore<String,String> store = builder.build();
+        TestUtils.validate(store);
+
+        assertEquals(expected.size(), store.size());
+        for (final Map.Entry<String,String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+        assertEquals(expectedStore, store);
+    }
+
+
+}
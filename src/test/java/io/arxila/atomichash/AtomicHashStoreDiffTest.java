@@ -0,0 +1,151 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AtomicHashStoreDiffTest {
+
+
+    @Test
+    public void testNoDifferences() {
+
+        final AtomicHashStore<String,String> st = AtomicHashStore.of("one", "ONE", "two", "TWO", "pOe", "ONE COLLISION");
+
+        Assertions.assertTrue(st.diff(st).isEmpty());
+        Assertions.assertTrue(new AtomicHashStore<String,String>().diff(new AtomicHashStore<>()).isEmpty());
+
+        // Equal values in different objects are not considered changes
+        final AtomicHashStore<String,String> st2 = st.put("one", new String("ONE"));
+        Assertions.assertNotSame(st, st2);
+        Assertions.assertTrue(st2.diff(st).isEmpty());
+
+    }
+
+
+    @Test
+    public void testDifferences() {
+
+        final AtomicHashStore<String,String> st =
+                AtomicHashStore.of("one", "ONE", "two", "TWO", "three", "THREE", "pOe", "ONE COLLISION", null, "NULL");
+
+        final AtomicHashStore<String,String> st2 =
+                st.put("four", "FOUR").put("two", "NEW TWO").remove("three").put("q0e", "ANOTHER COLLISION").remove(null);
+
+        final AtomicHashStore.Diff<String,String> diff = st2.diff(st);
+        Assertions.assertFalse(diff.isEmpty());
+
+        Assertions.assertEquals(TestUtils.map("four", "FOUR", "q0e", "ANOTHER COLLISION"), diff.added());
+        Assertions.assertEquals(TestUtils.map("three", "THREE", null, "NULL"), diff.removed());
+        Assertions.assertEquals(TestUtils.map("two", "NEW TWO"), diff.changed());
+
+        // The reverse diff swaps additions and removals
+        final AtomicHashStore.Diff<String,String> reverse = st.diff(st2);
+        Assertions.assertEquals(diff.removed(), reverse.added());
+        Assertions.assertEquals(diff.added(), reverse.removed());
+        Assertions.assertEquals(TestUtils.map("two", "TWO"), reverse.changed());
+
+        final AtomicHashStore.Diff<String,String> fromEmpty = st.diff(new AtomicHashStore<>());
+        Assertions.assertEquals(
+                TestUtils.map("one", "ONE", "two", "TWO", "three", "THREE", "pOe", "ONE COLLISION", null, "NULL"),
+                fromEmpty.added());
+        Assertions.assertTrue(fromEmpty.removed().isEmpty());
+        Assertions.assertTrue(fromEmpty.changed().isEmpty());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> diff.added().put("five", "FIVE"));
+
+    }
+
+
+    @Test
+    public void testCollisions() {
+
+        // "one", "pOe" and "q0e" all have the same hash
+        final AtomicHashStore<String,String> st = AtomicHashStore.of("one", "ONE", "pOe", "ONE COLLISION");
+        final AtomicHashStore<String,String> st2 = st.put("q0e", "ANOTHER COLLISION").put("one", "NEW ONE");
+        final AtomicHashStore<String,String> st3 = st2.remove("pOe");
+
+        Assertions.assertEquals(TestUtils.map("q0e", "ANOTHER COLLISION"), st2.diff(st).added());
+        Assertions.assertEquals(TestUtils.map("one", "NEW ONE"), st2.diff(st).changed());
+        Assertions.assertTrue(st2.diff(st).removed().isEmpty());
+
+        Assertions.assertEquals(TestUtils.map("pOe", "ONE COLLISION"), st3.diff(st2).removed());
+        Assertions.assertTrue(st3.diff(st2).added().isEmpty());
+        Assertions.assertTrue(st3.diff(st2).changed().isEmpty());
+
+    }
+
+
+    @Test
+    public void testLarge() {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(50000, 50, 100);
+
+        AtomicHashStore<String,String> older = new AtomicHashStore<>();
+        for (int i = 0; i < entries.length / 2; i++) {
+            older = older.put(entries[i].getKey(), entries[i].getValue());
+        }
+
+        AtomicHashStore<String,String> newer = older;
+        for (int i = 0; i < entries.length; i += 3) {
+            if (i % 2 == 0) {
+                newer = newer.remove(entries[i].getKey());
+            } else {
+                newer = newer.put(entries[i].getKey(), entries[(i + 1) % entries.length].getValue());
+            }
+        }
+
+        final Map<String,String> olderMap = TestUtils.toMap(older);
+        final Map<String,String> newerMap = TestUtils.toMap(newer);
+
+        final Map<String,String> added = new HashMap<>();
+        final Map<String,String> removed = new HashMap<>();
+        final Map<String,String> changed = new HashMap<>();
+        for (final Map.Entry<String,String> entry : newerMap.entrySet()) {
+            if (!olderMap.containsKey(entry.getKey())) {
+                added.put(entry.getKey(), entry.getValue());
+            } else if (!entry.getValue().equals(olderMap.get(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (final Map.Entry<String,String> entry : olderMap.entrySet()) {
+            if (!newerMap.containsKey(entry.getKey())) {
+                removed.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        final AtomicHashStore.Diff<String,String> diff = newer.diff(older);
+        Assertions.assertEquals(added, diff.added());
+        Assertions.assertEquals(removed, diff.removed());
+        Assertions.assertEquals(changed, diff.changed());
+
+        // Applying the differences to the older store must produce the newer one
+        AtomicHashStore<String,String> applied = older.putAll(diff.added()).putAll(diff.changed());
+        for (final String key : diff.removed().keySet()) {
+            applied = applied.remove(key);
+        }
+        Assertions.assertEquals(newer, applied);
+
+    }
+
+}
@@ -20,6 +20,7 @@
 package io.arxila.atomichash;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.RandomUtils;
@@ -130,6 +131,58 @@ public void test03() throws Exception {
 
 
 
+    @Test
+    public void test04() throws Exception {
+
+        final KeyValue<String,String>[] entries =
+                TestUtils.generateStringStringKeyValues(50000, 30, 100);
+
+        AtomicHashStore<String,String> st = this.store;
+        for (int i = 0; i < entries.length; i++) {
+            st = st.put(entries[i].getKey(), entries[i].getValue());
+        }
+        final int hashCode = st.hashCode();
+
+        // Snapshots derived from another one and compared with it
+        final AtomicHashStore<String,String> st2 = st.put("one", "ONE");
+        final AtomicHashStore<String,String> st3 = st2.put("one", "ANOTHER ONE");
+        final AtomicHashStore<String,String> st4 = st3.put("one", new String("ONE"));
+        final AtomicHashStore<String,String> st5 = st4.remove("one");
+
+        Assertions.assertNotEquals(st, st2);
+        Assertions.assertNotEquals(st2, st3);
+        Assertions.assertEquals(st2, st4);
+        Assertions.assertEquals(st2.hashCode(), st4.hashCode());
+        Assertions.assertNotEquals(st3.hashCode(), st4.hashCode());
+        Assertions.assertEquals(st, st5);
+        Assertions.assertEquals(hashCode, st5.hashCode());
+        Assertions.assertEquals(hashCode + new KeyValue<>("one", "ONE").hashCode(), st2.hashCode());
+
+        // Collisions inserted in different order
+        final AtomicHashStore<String,String> c1 = st.put("pOe", "ONE COLLISION").put("q0e", "ANOTHER COLLISION");
+        final AtomicHashStore<String,String> c2 = st.put("q0e", "ANOTHER COLLISION").put("pOe", "ONE COLLISION");
+        Assertions.assertEquals(c1, c2);
+        Assertions.assertEquals(c1.hashCode(), c2.hashCode());
+        Assertions.assertNotEquals(c1, c2.put("pOe", "CHANGED"));
+
+        // Maps
+        final Map<String,String> hashMap = new HashMap<>();
+        c1.forEach(hashMap::put);
+        final AtomicHashMap<String,String> m1 = new AtomicHashMap<>(hashMap);
+        final AtomicHashMap<String,String> m2 = new AtomicHashMap<>();
+        c2.forEach(m2::put);
+        Assertions.assertEquals(m1, m2);
+        Assertions.assertEquals(hashMap, m1);
+        Assertions.assertEquals(m1, hashMap);
+        Assertions.assertEquals(hashMap.hashCode(), m1.hashCode());
+        Assertions.assertEquals(m1.hashCode(), m2.hashCode());
+        m2.remove("pOe");
+        Assertions.assertNotEquals(m1, m2);
+        Assertions.assertNotEquals(m2, hashMap);
+
+    }
+
+
 
     private static void check(final AtomicHashStore<String,String> store) {
 
@@ -150,6 +203,10 @@ private static void check(final AtomicHashStore<String,String> store) {
         }
 
         Assertions.assertTrue(store.equals(store2));
+        Assertions.assertEquals(store.hashCode(), store2.hashCode());
+        final Map<String,String> map = new HashMap<>();
+        store.forEach(map::put);
+        Assertions.assertEquals(map.hashCode(), store.hashCode());
 
         if (entries.size() > 0) {
 
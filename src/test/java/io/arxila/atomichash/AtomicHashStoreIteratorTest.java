@@ -19,9 +19,14 @@
  */
 package io.arxila.atomichash;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -44,6 +49,83 @@ public void testEntryIterator() throws Exception {
     }
 
 
+    @Test
+    public void testKeyAndValueIterators() throws Exception {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(10000, 20, 30);
+
+        AtomicHashStore<String,String> store = AtomicHashStore.of(null, "NULL KEY", "pOe", "ONE COLLISION");
+        for (int i = 0; i < entries.length; i++) {
+            store = store.put(entries[i].getKey(), entries[i].getValue());
+        }
+        store = store.put("q0e", "ANOTHER COLLISION");
+
+        final Map<String,String> expected = new HashMap<>();
+        store.forEach(expected::put);
+        Assertions.assertEquals(store.size(), expected.size());
+
+        final Set<String> keys = new HashSet<>();
+        final Iterator<String> keyIterator = store.keySet().iterator();
+        while (keyIterator.hasNext()) {
+            Assertions.assertTrue(keys.add(keyIterator.next()));
+        }
+        Assertions.assertThrows(NoSuchElementException.class, keyIterator::next);
+        Assertions.assertEquals(expected.keySet(), keys);
+
+        final List<String> values = new ArrayList<>(store.values());
+        Assertions.assertEquals(expected.size(), values.size());
+        Assertions.assertEquals(new HashSet<>(expected.values()), new HashSet<>(values));
+
+        Assertions.assertEquals(expected.entrySet(), store.entrySet());
+        Assertions.assertEquals(store.entrySet(), expected.entrySet());
+
+    }
+
+
+    @Test
+    public void testViews() throws Exception {
+
+        final AtomicHashStore<String,String> empty = new AtomicHashStore<>();
+        Assertions.assertFalse(empty.entrySet().iterator().hasNext());
+        Assertions.assertThrows(NoSuchElementException.class, () -> empty.keySet().iterator().next());
+        Assertions.assertTrue(empty.values().isEmpty());
+
+        final AtomicHashStore<String,String> store =
+                AtomicHashStore.of("one", "ONE", "two", "TWO", "pOe", "ONE COLLISION", null, null);
+
+        Assertions.assertEquals(4, store.keySet().size());
+        Assertions.assertTrue(store.keySet().contains("pOe"));
+        Assertions.assertTrue(store.keySet().contains(null));
+        Assertions.assertFalse(store.keySet().contains("q0e"));
+
+        Assertions.assertEquals(4, store.values().size());
+        Assertions.assertTrue(store.values().contains("ONE COLLISION"));
+        Assertions.assertTrue(store.values().contains(null));
+        Assertions.assertFalse(store.values().contains("THREE"));
+
+        Assertions.assertTrue(store.entrySet().contains(new KeyValue<>("two", "TWO")));
+        Assertions.assertTrue(store.entrySet().contains(new KeyValue<>(null, null)));
+        Assertions.assertFalse(store.entrySet().contains(new KeyValue<>("two", "ONE")));
+        Assertions.assertFalse(store.entrySet().contains(new KeyValue<>("q0e", null)));
+        Assertions.assertFalse(store.entrySet().contains("two"));
+
+        // Views are snapshots of the store they were obtained from
+        final Set<String> keySet = store.keySet();
+        final AtomicHashStore<String,String> store2 = store.put("three", "THREE");
+        Assertions.assertEquals(4, keySet.size());
+        Assertions.assertFalse(keySet.contains("three"));
+        Assertions.assertTrue(store2.keySet().contains("three"));
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> store.keySet().remove("one"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> store.values().clear());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> store.entrySet().add(new KeyValue<>("a", "b")));
+        final Iterator<Map.Entry<String,String>> entryIterator = store.entrySet().iterator();
+        entryIterator.next();
+        Assertions.assertThrows(UnsupportedOperationException.class, entryIterator::remove);
+
+    }
+
+
     private void testIterator(final int size) {
 
         AtomicHashStore<String,String> store = new AtomicHashStore<>();
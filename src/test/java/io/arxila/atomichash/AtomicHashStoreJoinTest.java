@@ -0,0 +1,139 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreJoinTest {
+
+
+    @Test
+    void testCollisions() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,String> left = AtomicHashStore.of("AaAa", "a1", "AaBB", "a2", "BBAa", "a3", "x", null);
+        final AtomicHashStore<String,Integer> right = AtomicHashStore.of("AaBB", 2, "BBBB", 5, "x", 4, "y", 6);
+
+        final Map<String,String> both = new HashMap<>();
+        final Map<String,String> leftOnly = new HashMap<>();
+        final Map<String,Integer> rightOnly = new HashMap<>();
+        left.join(right, (k, v, w) -> both.put(k, v + w), leftOnly::put, rightOnly::put);
+
+        assertEquals(TestUtils.map("AaBB", "a22", "x", "null4"), both);
+        assertEquals(TestUtils.map("AaAa", "a1", "BBAa", "a3"), leftOnly);
+        assertEquals(2, rightOnly.size());
+        assertEquals(5, rightOnly.get("BBBB"));
+        assertEquals(6, rightOnly.get("y"));
+
+        both.clear();
+        left.join(right, (k, v, w) -> both.put(k, v + w));
+        assertEquals(TestUtils.map("AaBB", "a22", "x", "null4"), both);
+
+        both.clear();
+        left.join(AtomicHashStore.of(), (k, v, w) -> both.put(k, v + w));
+        assertTrue(both.isEmpty());
+
+    }
+
+
+    @Test
+    void testShared() {
+
+        final AtomicHashStore<String,String> left = AtomicHashStore.of("one", "ONE", "two", "TWO", "three", "THREE");
+        final AtomicHashStore<String,String> right = left.remove("two").put("four", "FOUR").put("one", "1");
+
+        final Map<String,String> both = new HashMap<>();
+        final Map<String,String> leftOnly = new HashMap<>();
+        final Map<String,String> rightOnly = new HashMap<>();
+
+        left.join(left, (k, v, w) -> both.put(k, v + w), leftOnly::put, rightOnly::put);
+        assertEquals(TestUtils.map("one", "ONEONE", "two", "TWOTWO", "three", "THREETHREE"), both);
+        assertTrue(leftOnly.isEmpty());
+        assertTrue(rightOnly.isEmpty());
+
+        both.clear();
+        left.join(right, (k, v, w) -> both.put(k, v + w), leftOnly::put, null);
+        assertEquals(TestUtils.map("one", "ONE1", "three", "THREETHREE"), both);
+        assertEquals(TestUtils.map("two", "TWO"), leftOnly);
+        assertTrue(rightOnly.isEmpty());
+
+        both.clear();
+        leftOnly.clear();
+        left.join(right, (k, v, w) -> both.put(k, v + w), null, rightOnly::put);
+        assertEquals(TestUtils.map("one", "ONE1", "three", "THREETHREE"), both);
+        assertTrue(leftOnly.isEmpty());
+        assertEquals(TestUtils.map("four", "FOUR"), rightOnly);
+
+    }
+
+
+    @Test
+    void testLarge() {
+        TestUtils.testStringStringKeyValues(5, AtomicHashStoreJoinTest::testLarge);
+    }
+
+
+    private static void testLarge(final KeyValue<String,String>[] entries) {
+
+        final Map<String,String> mapLeft = new HashMap<>();
+        final Map<String,String> mapRight = new HashMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (i % 3 != 1) {
+                mapLeft.put(entries[i].getKey(), entries[i].getValue());
+            }
+            if (i % 3 != 2) {
+                mapRight.put(entries[i].getKey(), (i % 2 == 0) ? entries[i].getValue() : "r" + i);
+            }
+        }
+        final AtomicHashStore<String,String> left = AtomicHashStore.<String,String>of().putAll(mapLeft);
+        final AtomicHashStore<String,String> right = AtomicHashStore.<String,String>of().putAll(mapRight);
+
+        final Map<String,String> expectedBoth = new HashMap<>();
+        final Map<String,String> expectedLeftOnly = new HashMap<>();
+        final Map<String,String> expectedRightOnly = new HashMap<>(mapRight);
+        for (final Map.Entry<String,String> entry : mapLeft.entrySet()) {
+            if (mapRight.containsKey(entry.getKey())) {
+                expectedBoth.put(entry.getKey(), entry.getValue() + "|" + mapRight.get(entry.getKey()));
+                expectedRightOnly.remove(entry.getKey());
+            } else {
+                expectedLeftOnly.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        final Map<String,String> both = new HashMap<>();
+        final Map<String,String> leftOnly = new HashMap<>();
+        final Map<String,String> rightOnly = new HashMap<>();
+        left.join(right, (k, v, w) -> both.put(k, v + "|" + w), leftOnly::put, rightOnly::put);
+        assertEquals(expectedBoth, both);
+        assertEquals(expectedLeftOnly, leftOnly);
+        assertEquals(expectedRightOnly, rightOnly);
+
+        both.clear();
+        left.join(right, (k, v, w) -> both.put(k, v + "|" + w));
+        assertEquals(expectedBoth, both);
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class AtomicHashStoreParallelPutAllTest {
+
+    private static final long[] THRESHOLDS = new long[] { 1L, 2L, 100L, 10000L, Long.MAX_VALUE };
+
+
+    @Test
+    void testCollisions() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final Map<String,String> mappings = new HashMap<>();
+        mappings.put("AaAa", "one");
+        mappings.put("AaBB", "two");
+        mappings.put("BBAa", "three");
+        mappings.put(null, "nil");
+
+        final AtomicHashStore<String,String> store = AtomicHashStore.of("BBBB", "four", "AaAa", "ONE");
+        for (final long threshold : THRESHOLDS) {
+            final AtomicHashStore<String,String> store2 = store.putAll(threshold, mappings);
+            assertEquals(5, store2.size());
+            assertEquals("one", store2.get("AaAa"));
+            assertEquals("four", store2.get("BBBB"));
+            assertEquals("nil", store2.get(null));
+            assertEquals(store.putAll(mappings), store2);
+            TestUtils.validate(store2);
+        }
+
+    }
+
+
+    @Test
+    void testLarge() {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(200000, 80, 1000);
+        final KeyValue<String,String>[] entries2 = TestUtils.generateStringStringKeyValues(50000, 20, 100);
+
+        final Map<String,String> mappings = new HashMap<>();
+        for (final KeyValue<String,String> entry : entries) {
+            mappings.put(entry.getKey(), entry.getValue());
+        }
+        final Map<String,String> mappings2 = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 4) {
+            // Overlap with the first mappings, so that existing subtrees need to be merged
+            mappings2.put(entries[i].getKey(), entries[i].getValue() + "x");
+        }
+        for (final KeyValue<String,String> entry : entries2) {
+            mappings2.put(entry.getKey(), entry.getValue());
+        }
+        final Map<String,String> expected = new HashMap<>(mappings);
+        expected.putAll(mappings2);
+
+        final AtomicHashStore<String,String> sequential =
+                AtomicHashStore.<String,String>of().putAll(mappings).putAll(mappings2);
+
+        for (final long threshold : THRESHOLDS) {
+
+            final AtomicHashStore<String,String> store =
+                    AtomicHashStore.<String,String>of().putAll(threshold, mappings).putAll(threshold, mappings2);
+            assertEquals(expected.size(), store.size());
+            assertEquals(sequential, store);
+            TestUtils.validate(store);
+            assertSame(store, store.putAll(threshold, new HashMap<>()));
+
+            final AtomicHashMap<String,String> map = new AtomicHashMap<>();
+            map.putAll(threshold, mappings);
+            map.putAll(threshold, mappings2);
+            assertEquals(expected, map);
+            TestUtils.validate(map);
+
+            final AtomicHashMap<String,String> map2 = new AtomicHashMap<>(mappings2);
+            map2.putAll(threshold, new AtomicHashMap<>(mappings));
+            assertEquals(expected.size(), map2.size());
+            TestUtils.validate(map2);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreParallelTest {
+
+    private static final long[] THRESHOLDS = new long[] { 1L, 100L, 10000L, Long.MAX_VALUE };
+
+
+    @Test
+    void testEmpty() {
+
+        final AtomicHashStore<String,String> store = AtomicHashStore.of();
+        final AtomicInteger count = new AtomicInteger();
+        store.forEach(1L, (k, v) -> count.incrementAndGet());
+        assertEquals(0, count.get());
+        assertNull(store.search(1L, (k, v) -> k));
+        assertNull(store.reduce(1L, (k, v) -> k, (s1, s2) -> s1 + s2));
+        assertNull(store.reduceValues(1L, (s1, s2) -> s1 + s2));
+
+    }
+
+
+    @Test
+    void testCollisions() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,Integer> store = AtomicHashStore.of("AaAa", 1, "AaBB", 2, "BBAa", 3, "x", null);
+        for (final long threshold : THRESHOLDS) {
+            final Map<String,Integer> visited = new ConcurrentHashMap<>();
+            store.forEach(threshold, (k, v) -> visited.put(k, (v == null) ? -1 : v));
+            assertEquals(4, visited.size());
+            assertEquals(2, visited.get("AaBB"));
+            assertEquals("BBAa", store.search(threshold, (k, v) -> (v != null && v == 3) ? k : null));
+            assertNull(store.search(threshold, (k, v) -> (v != null && v == 4) ? k : null));
+            assertEquals(6, store.reduceValues(threshold, Integer::sum));
+            assertEquals(4, store.reduce(threshold, (k, v) -> 1, Integer::sum));
+        }
+
+    }
+
+
+    @Test
+    void testLarge() {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(100000, 80, 100);
+        final Map<String,String> mappings = new HashMap<>();
+        for (final KeyValue<String,String> entry : entries) {
+            mappings.put(entry.getKey(), entry.getValue());
+        }
+        long totalLength = 0L;
+        for (final String value : mappings.values()) {
+            totalLength += value.length();
+        }
+
+        final String maxValue = Collections.max(mappings.values());
+
+        final AtomicHashStore<String,String> store = AtomicHashStore.<String,String>of().putAll(mappings);
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>(mappings);
+        final String target = entries[entries.length / 2].getKey();
+
+        for (final long threshold : THRESHOLDS) {
+
+            final Map<String,String> visited = new ConcurrentHashMap<>();
+            store.forEach(threshold, visited::put);
+            assertEquals(mappings, visited);
+            visited.clear();
+            map.forEach(threshold, visited::put);
+            assertEquals(mappings, visited);
+
+            assertEquals(mappings.get(target), store.search(threshold, (k, v) -> k.equals(target) ? v : null));
+            assertEquals(mappings.get(target), map.search(threshold, (k, v) -> k.equals(target) ? v : null));
+            assertNull(map.search(threshold, (k, v) -> k.equals(target + "x") ? v : null));
+            final String found = store.search(threshold, (k, v) -> k.startsWith("a") ? k : null);
+            assertTrue(found == null || mappings.containsKey(found) && found.startsWith("a"));
+
+            assertEquals(totalLength, store.reduce(threshold, (k, v) -> (long) v.length(), Long::sum));
+            assertEquals(totalLength, map.reduce(threshold, (k, v) -> (long) v.length(), Long::sum));
+            assertEquals(Integer.valueOf(mappings.size()), map.reduce(threshold, (k, v) -> 1, Integer::sum));
+            assertEquals(maxValue, map.reduceValues(threshold, (v1, v2) -> (v1.compareTo(v2) >= 0) ? v1 : v2));
+
+        }
+
+    }
+
+}
@@ -129,6 +129,77 @@ public void test03() throws Exception {
 
 
 
+    @Test
+    public void test04() throws Exception {
+
+        AtomicHashStore<String,String> st = AtomicHashStore.of("one", "ONE", "two", "TWO", "pOe", "ONE COLLISION");
+
+        Assertions.assertSame(st, st.putAll(st));
+        Assertions.assertSame(st, st.putAll(new AtomicHashStore<>()));
+        Assertions.assertSame(st.innerRoot(), new AtomicHashStore<String,String>().putAll(st).innerRoot());
+
+        final AtomicHashStore<String,String> st2 =
+                st.putAll(AtomicHashStore.of("two", "TWO NEW", "three", "THREE", "q0e", "ANOTHER COLLISION"));
+        TestUtils.validate(st2);
+        Assertions.assertEquals(5, st2.size());
+        Assertions.assertEquals("ONE", st2.get("one"));
+        Assertions.assertEquals("TWO NEW", st2.get("two"));
+        Assertions.assertEquals("THREE", st2.get("three"));
+        Assertions.assertEquals("ONE COLLISION", st2.get("pOe"));
+        Assertions.assertEquals("ANOTHER COLLISION", st2.get("q0e"));
+
+        final AtomicHashStore<String,String> st3 =
+                st2.putAll(AtomicHashStore.of("one", "1", "q0e", "2", "four", "4"), (v1, v2) -> v1 + "+" + v2);
+        TestUtils.validate(st3);
+        Assertions.assertEquals(6, st3.size());
+        Assertions.assertEquals("ONE+1", st3.get("one"));
+        Assertions.assertEquals("TWO NEW", st3.get("two"));
+        Assertions.assertEquals("ANOTHER COLLISION+2", st3.get("q0e"));
+        Assertions.assertEquals("4", st3.get("four"));
+
+    }
+
+
+    @Test
+    public void test05() throws Exception {
+
+        final KeyValue<String,String>[] entries0 = TestUtils.generateStringStringKeyValues(20000, 30, 100);
+        final KeyValue<String,String>[] entries1 = TestUtils.generateStringStringKeyValues(5000, 30, 100);
+
+        final Map<String,String> expected = new HashMap<>();
+        AtomicHashStore<String,String> st0 = this.store;
+        for (int i = 0; i < entries0.length; i++) {
+            expected.put(entries0[i].getKey(), entries0[i].getValue());
+            st0 = st0.put(entries0[i].getKey(), entries0[i].getValue());
+        }
+        // Overlap: the delta store contains modifications of some of the mappings in the first store
+        AtomicHashStore<String,String> st1 = this.store;
+        for (int i = 0; i < entries1.length; i++) {
+            final String key = (i % 3 == 0) ? entries0[i].getKey() : entries1[i].getKey();
+            expected.put(key, entries1[i].getValue());
+            st1 = st1.put(key, entries1[i].getValue());
+        }
+
+        final AtomicHashStore<String,String> st2 = st0.putAll(st1);
+        TestUtils.validate(st2);
+
+        Assertions.assertEquals(expected.size(), st2.size());
+        for (final Map.Entry<String,String> entry : expected.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), st2.get(entry.getKey()));
+        }
+        final Map<String,String> st1Map = new HashMap<>();
+        st1.forEach(st1Map::put);
+        Assertions.assertEquals(PrettyPrinter.print(st0.putAll(st1Map)), PrettyPrinter.print(st2));
+
+        // A snapshot derived from another one should share most of its structure
+        final AtomicHashStore<String,String> st3 = st2.put("new key", "new value");
+        Assertions.assertSame(st3.innerRoot(), st2.putAll(st3).innerRoot());
+
+    }
+
+
+
+
     private static <K,V> AtomicHashStore<K,V> addAll(final AtomicHashStore<K,V> store, final Map<K,V> map) {
 
         AtomicHashStore<K,V> store2, store3;
@@ -0,0 +1,138 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreRemoveAllTest {
+
+
+    @Test
+    void testStore() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,String> store =
+                AtomicHashStore.of("one", "ONE", "AaAa", "AAAA", "AaBB", "aa", "BBAa", "Bb", "BBBB", "bb");
+
+        assertSame(store, store.removeAll(Collections.emptyList()));
+        assertSame(store, store.removeAll(Arrays.asList("two", "AaAaAa", "BBBBBB")));
+        assertSame(store, store.retainAll(Arrays.asList("one", "AaAa", "AaBB", "BBAa", "BBBB", "two")));
+        assertSame(store, store.removeIf((k, v) -> k.equals("two")));
+
+        AtomicHashStore<String,String> store2 = store.removeAll(Arrays.asList("AaBB", "two", "one"));
+        assertEquals(3, store2.size());
+        assertEquals(TestUtils.map("AaAa", "AAAA", "BBAa", "Bb", "BBBB", "bb"), TestUtils.toMap(store2));
+        assertEquals(5, store.size());
+        TestUtils.validate(store2);
+
+        store2 = store.retainAll(Arrays.asList("AaBB", "two", "one"));
+        assertEquals(TestUtils.map("one", "ONE", "AaBB", "aa"), TestUtils.toMap(store2));
+        TestUtils.validate(store2);
+
+        store2 = store.removeIf((k, v) -> v.toLowerCase().equals(v));
+        assertEquals(TestUtils.map("one", "ONE", "AaAa", "AAAA", "BBAa", "Bb"), TestUtils.toMap(store2));
+        TestUtils.validate(store2);
+
+        assertTrue(store.retainAll(Collections.emptyList()).isEmpty());
+        assertTrue(store.removeAll(store.keySet()).isEmpty());
+        assertTrue(store.removeIf((k, v) -> true).isEmpty());
+
+    }
+
+
+    @Test
+    void testMap() {
+
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>(
+                TestUtils.map("one", "ONE", "two", "TWO", "three", "THREE", "AaAa", "AAAA", "BBBB", "bb"));
+
+        assertFalse(map.removeAll(Arrays.asList("four", "AaBB")));
+        assertTrue(map.removeAll(Arrays.asList("four", "AaAa")));
+        assertFalse(map.retainAll(Arrays.asList("one", "two", "three", "BBBB")));
+        assertTrue(map.retainAll(Arrays.asList("one", "two", "BBBB")));
+        assertFalse(map.removeIf((k, v) -> k.length() > 4));
+        assertTrue(map.removeIf((k, v) -> v.equals("bb")));
+        assertEquals(TestUtils.map("one", "ONE", "two", "TWO"), map);
+        TestUtils.validate(map);
+
+    }
+
+
+    @Test
+    void testLarge() {
+        TestUtils.testStringStringKeyValues(10, AtomicHashStoreRemoveAllTest::testLarge);
+    }
+
+
+    private static void testLarge(final KeyValue<String,String>[] entries) {
+
+        final Map<String,String> expected = TestUtils.toMap(entries);
+        final AtomicHashStore<String,String> store = AtomicHashStore.<String,String>of().putAll(expected);
+
+        // Select one in three keys, plus some absent ones
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < entries.length; i += 3) {
+            keys.add(entries[i].getKey());
+            keys.add(entries[i].getKey() + "x");
+        }
+        final Set<String> keySet = new HashSet<>(keys);
+
+        final Map<String,String> removed = new HashMap<>(expected);
+        removed.keySet().removeAll(keySet);
+        final AtomicHashStore<String,String> store2 = store.removeAll(keys);
+        assertEquals(removed, TestUtils.toMap(store2));
+        assertEquals(removed.size(), store2.size());
+        TestUtils.validate(store2);
+
+        final Map<String,String> retained = new HashMap<>(expected);
+        retained.keySet().retainAll(keySet);
+        final AtomicHashStore<String,String> store3 = store.retainAll(keys);
+        assertEquals(retained, TestUtils.toMap(store3));
+        assertEquals(retained.size(), store3.size());
+        TestUtils.validate(store3);
+
+        final Map<String,String> filtered = new HashMap<>(expected);
+        filtered.entrySet().removeIf(e -> e.getValue().charAt(0) < 'a');
+        final AtomicHashStore<String,String> store4 = store.removeIf((k, v) -> v.charAt(0) < 'a');
+        assertEquals(filtered, TestUtils.toMap(store4));
+        assertEquals(filtered.size(), store4.size());
+        TestUtils.validate(store4);
+
+        // Removing everything that is left must result in an empty store
+        assertTrue(store2.removeAll(store2.keySet()).isEmpty());
+        assertTrue(store3.retainAll(removed.keySet()).isEmpty());
+        assertEquals(expected, TestUtils.toMap(store));
+
+    }
+
+}
@@ -107,4 +107,74 @@ public void test01() throws Exception {
 
     }
 
+
+    @Test
+    public void test02() throws Exception {
+
+        final KeyValue<String,String>[] entries =
+                TestUtils.generateStringStringKeyValues(10000, 50, 0);
+
+        final Map<String,String> entriesMap = new HashMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            entriesMap.put(entries[i].getKey(), entries[i].getValue());
+        }
+
+        final AtomicHashStore<String,String> st = this.store.putAll(entriesMap);
+
+        // Returning the same value objects must not modify the store at all
+        Assertions.assertSame(st, st.replaceAll((k,v) -> v));
+
+        // Replacing a single value must only copy the nodes in its path, and keep the shape of the tree
+        final String key = entries[0].getKey();
+        final AtomicHashStore<String,String> st2 = st.replaceAll((k,v) -> k.equals(key) ? "[x]" : v);
+        Assertions.assertEquals("[x]", st2.get(key));
+        Assertions.assertEquals(entriesMap.get(key), st.get(key));
+        Assertions.assertEquals(st.size(), st2.size());
+        TestUtils.validate(st2);
+
+        final Node node = st.innerRoot().node;
+        final Node node2 = st2.innerRoot().node;
+        Assertions.assertEquals(node.nodesBitMap, node2.nodesBitMap);
+        Assertions.assertEquals(node.entriesBitMap, node2.entriesBitMap);
+        int changed = 0;
+        for (int i = 0; i < node.content.length; i++) {
+            if (node.content[i] != node2.content[i]) {
+                changed++;
+            }
+        }
+        Assertions.assertEquals(1, changed);
+
+        // Mapping values into a different type
+        final AtomicHashStore<String,Integer> st3 = st.mapValues((k,v) -> v.length());
+        Assertions.assertEquals(st.size(), st3.size());
+        TestUtils.validate(st3);
+        for (final Map.Entry<String,String> entry : entriesMap.entrySet()) {
+            Assertions.assertEquals(entry.getValue().length(), st3.get(entry.getKey()));
+        }
+
+    }
+
+
+    @Test
+    public void test03() throws Exception {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,String> st = AtomicHashStore.of("AaAa", "one", "AaBB", "two", "BBAa", "three");
+
+        Assertions.assertSame(st, st.replaceAll((k,v) -> v));
+
+        final AtomicHashStore<String,String> st2 = st.replaceAll((k,v) -> k.equals("AaBB") ? "TWO" : v);
+        Assertions.assertEquals("one", st2.get("AaAa"));
+        Assertions.assertEquals("TWO", st2.get("AaBB"));
+        Assertions.assertEquals("three", st2.get("BBAa"));
+        Assertions.assertEquals("two", st.get("AaBB"));
+        TestUtils.validate(st2);
+
+        final AtomicHashStore<String,Integer> st3 = st.mapValues((k,v) -> v.length());
+        Assertions.assertEquals(Integer.valueOf(3), st3.get("AaAa"));
+        Assertions.assertEquals(Integer.valueOf(5), st3.get("BBAa"));
+        Assertions.assertEquals(3, st3.size());
+
+    }
+
 }
@@ -0,0 +1,152 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AtomicHashStoreSetAlgebraTest {
+
+
+    @Test
+    void testCollisions() {
+
+        // "Aa" and "BB" have the same hash code, so these keys all collide
+        final AtomicHashStore<String,String> a = AtomicHashStore.of("AaAa", "a1", "AaBB", "a2", "BBAa", "a3", "x", "a4");
+        final AtomicHashStore<String,String> b = AtomicHashStore.of("AaBB", "b2", "BBBB", "b5", "x", "b4", "y", "b6");
+
+        final AtomicHashStore<String,String> union = a.union(b);
+        assertEquals(TestUtils.map("AaAa", "a1", "AaBB", "a2", "BBAa", "a3", "x", "a4", "BBBB", "b5", "y", "b6"),
+                     TestUtils.toMap(union));
+        TestUtils.validate(union);
+
+        final AtomicHashStore<String,String> intersection = a.intersect(b);
+        assertEquals(TestUtils.map("AaBB", "a2", "x", "a4"), TestUtils.toMap(intersection));
+        TestUtils.validate(intersection);
+
+        final AtomicHashStore<String,String> difference = a.difference(b);
+        assertEquals(TestUtils.map("AaAa", "a1", "BBAa", "a3"), TestUtils.toMap(difference));
+        TestUtils.validate(difference);
+
+        final AtomicHashStoreSet<String> keys = AtomicHashStoreSet.of("BBAa", "BBBB", "x");
+        assertEquals(TestUtils.map("BBAa", "a3", "x", "a4"), TestUtils.toMap(a.intersect(keys)));
+        assertEquals(TestUtils.map("AaAa", "a1", "AaBB", "a2"), TestUtils.toMap(a.difference(keys)));
+
+    }
+
+
+    @Test
+    void testIdentity() {
+
+        final AtomicHashStore<String,String> a = AtomicHashStore.of("one", "ONE", "two", "TWO", "three", "THREE");
+        final AtomicHashStore<String,String> b = a.put("four", "FOUR");
+
+        assertSame(a, a.union(a));
+        assertSame(a, a.intersect(a));
+        assertTrue(a.difference(a).isEmpty());
+        assertSame(b, b.union(a));
+        assertSame(a, a.intersect(b));
+        assertEquals(b, a.union(b));
+        assertSame(a, a.difference(AtomicHashStore.of("five", "FIVE")));
+        assertTrue(a.intersect(AtomicHashStore.of()).isEmpty());
+        assertEquals(AtomicHashStore.of("four", "FOUR"), b.difference(a));
+
+    }
+
+
+    @Test
+    void testSets() {
+
+        final AtomicHashStoreSet<String> a = AtomicHashStoreSet.of("one", "two", "three", "AaAa", "BBBB");
+        final AtomicHashStoreSet<String> b = AtomicHashStoreSet.of("two", "four", "BBBB", "AaBB");
+
+        assertEquals(new HashSet<>(Arrays.asList("two", "BBBB")), a.intersect(b).toSet());
+        assertEquals(new HashSet<>(Arrays.asList("one", "three", "AaAa")), a.difference(b).toSet());
+        assertSame(a, a.intersect(a));
+        assertTrue(a.difference(a).isEmpty());
+
+    }
+
+
+    @Test
+    void testLarge() {
+        TestUtils.testStringStringKeyValues(5, AtomicHashStoreSetAlgebraTest::testLarge);
+    }
+
+
+    private static void testLarge(final KeyValue<String,String>[] entries) {
+
+        // a and b share the first half of the entries (b with other values), plus some of the rest
+        final Map<String,String> mapA = new HashMap<>();
+        final Map<String,String> mapB = new HashMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (i < entries.length / 2) {
+                mapA.put(entries[i].getKey(), entries[i].getValue());
+                mapB.put(entries[i].getKey(), "b" + i);
+            } else if (i % 3 == 0) {
+                mapA.put(entries[i].getKey(), entries[i].getValue());
+            } else {
+                mapB.put(entries[i].getKey(), entries[i].getValue());
+            }
+        }
+
+        final AtomicHashStore<String,String> base = AtomicHashStore.<String,String>of().putAll(mapA);
+        // Derive from the same snapshot so that some of the structure is actually shared
+        final AtomicHashStore<String,String> a = base.put("shared", "s");
+        final AtomicHashStore<String,String> b = base.putAll(mapB).put("shared", "s");
+        mapA.put("shared", "s");
+        final Map<String,String> mapB2 = new HashMap<>(mapA);
+        mapB2.putAll(mapB);
+
+        final Map<String,String> union = new HashMap<>(mapB2);
+        union.putAll(mapA);
+        assertEquals(union, TestUtils.toMap(a.union(b)));
+        TestUtils.validate(a.union(b));
+
+        final Map<String,String> intersection = new HashMap<>(mapA);
+        intersection.keySet().retainAll(mapB2.keySet());
+        assertEquals(intersection, TestUtils.toMap(a.intersect(b)));
+        TestUtils.validate(a.intersect(b));
+
+        final Map<String,String> difference = new HashMap<>(mapB2);
+        difference.keySet().removeAll(mapA.keySet());
+        assertEquals(difference, TestUtils.toMap(b.difference(a)));
+        TestUtils.validate(b.difference(a));
+
+        final Set<String> keys = new HashSet<>(mapB.keySet());
+        final AtomicHashStoreSet<String> keySet = AtomicHashStoreSet.<String>of().addAll(keys);
+        final Map<String,String> notInKeys = new HashMap<>(mapA);
+        notInKeys.keySet().removeAll(keys);
+        assertEquals(notInKeys, TestUtils.toMap(a.difference(keySet)));
+        final Map<String,String> inKeys = new HashMap<>(mapA);
+        inKeys.keySet().retainAll(keys);
+        assertEquals(inKeys, TestUtils.toMap(a.intersect(keySet)));
+
+    }
+
+}
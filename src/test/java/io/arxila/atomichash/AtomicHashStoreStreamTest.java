@@ -0,0 +1,129 @@
+/*
+ * =========================================================================
+ *
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ *   implied. See the License for the specific language governing
+ *   permissions and limitations under the License.
+ *
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AtomicHashStoreStreamTest {
+
+
+    @Test
+    public void testStream() {
+
+        final AtomicHashStore<String,String> empty = new AtomicHashStore<>();
+        Assertions.assertEquals(0, empty.stream().count());
+        Assertions.assertEquals(0, empty.parallelStream().count());
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(100000, 50, 100);
+
+        AtomicHashStore<String,String> store = AtomicHashStore.of(null, "NULL KEY", "pOe", "ONE COLLISION", "q0e", "ANOTHER COLLISION");
+        for (int i = 0; i < entries.length; i++) {
+            store = store.put(entries[i].getKey(), entries[i].getValue());
+        }
+
+        final Map<String,String> expected = new HashMap<>();
+        store.forEach(expected::put);
+
+        final Map<String,String> sequential = new HashMap<>();
+        store.stream().forEach(e -> sequential.put(e.getKey(), e.getValue()));
+        Assertions.assertEquals(expected, sequential);
+
+        final Map<String,String> parallel =
+                store.parallelStream()
+                        .filter(e -> e.getKey() != null)
+                        .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
+        expected.remove(null);
+        Assertions.assertEquals(expected, parallel);
+
+        Assertions.assertEquals(store.size(), store.keySet().parallelStream().distinct().count());
+        Assertions.assertEquals(
+                store.values().stream().filter(v -> v != null).mapToLong(String::length).sum(),
+                store.values().parallelStream().filter(v -> v != null).mapToLong(String::length).sum());
+
+        final AtomicHashMap<String,String> map = new AtomicHashMap<>(sequential);
+        Assertions.assertEquals(store.size(), map.parallelStream().count());
+        Assertions.assertEquals(
+                store.stream().mapToInt(Map.Entry::hashCode).sum(),
+                map.parallelStream().mapToInt(Map.Entry::hashCode).sum());
+
+    }
+
+
+    @Test
+    public void testSplit() {
+
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(50000, 50, 0);
+
+        AtomicHashStore<String,String> store = new AtomicHashStore<>();
+        for (int i = 0; i < entries.length; i++) {
+            store = store.put(entries[i].getKey(), entries[i].getValue());
+        }
+
+        final Spliterator<Map.Entry<String,String>> spliterator = store.entrySet().spliterator();
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        Assertions.assertEquals(store.size(), spliterator.getExactSizeIfKnown());
+
+        // Recursively split, checking that sizes are always exact and that no mappings are lost or repeated
+        final List<Spliterator<Map.Entry<String,String>>> pending = new ArrayList<>();
+        pending.add(spliterator);
+        final Set<String> keys = new HashSet<>();
+        int splits = 0;
+        while (!pending.isEmpty()) {
+            final Spliterator<Map.Entry<String,String>> s = pending.remove(pending.size() - 1);
+            final long size = s.estimateSize();
+            final Spliterator<Map.Entry<String,String>> prefix = (splits < 1000) ? s.trySplit() : null;
+            if (prefix != null) {
+                splits++;
+                Assertions.assertEquals(size, prefix.estimateSize() + s.estimateSize());
+                pending.add(prefix);
+                pending.add(s);
+            } else {
+                final int before = keys.size();
+                s.forEachRemaining(e -> Assertions.assertTrue(keys.add(e.getKey())));
+                Assertions.assertEquals(size, keys.size() - before);
+                Assertions.assertEquals(0, s.estimateSize());
+            }
+        }
+        Assertions.assertTrue(splits > 64);
+        Assertions.assertEquals(store.size(), keys.size());
+
+        // A partially consumed spliterator can still be split
+        final Spliterator<Map.Entry<String,String>> spliterator2 = store.entrySet().spliterator();
+        Assertions.assertNotNull(spliterator2.trySplit());
+        Assertions.assertTrue(spliterator2.tryAdvance(e -> {}));
+        final long remaining = spliterator2.estimateSize();
+        final Spliterator<Map.Entry<String,String>> prefix2 = spliterator2.trySplit();
+        if (prefix2 != null) {
+            Assertions.assertEquals(remaining, prefix2.estimateSize() + spliterator2.estimateSize());
+        }
+
+    }
+
+}
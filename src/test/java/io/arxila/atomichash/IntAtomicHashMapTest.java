@@ -0,0 +1,116 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntAtomicHashMapTest {
+
+
+    @Test
+    void testBasic() {
+
+        final IntAtomicHashMap<String> map = new IntAtomicHashMap<>();
+        assertNull(map.put(1, "ONE"));
+        assertNull(map.put(-1, "MINUS ONE"));
+        assertNull(map.put(Integer.MIN_VALUE, "MIN"));
+        assertEquals("ONE", map.put(1, "NEW ONE"));
+
+        assertEquals(3, map.size());
+        assertEquals("MIN", map.get(Integer.MIN_VALUE));
+        assertNull(map.get(2));
+
+        final Map<Integer,String> all = map.getAll(1, 2, -1);
+        assertEquals(2, all.size());
+        assertEquals("MINUS ONE", all.get(-1));
+
+        final int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new int[] { Integer.MIN_VALUE, -1, 1 }, keys));
+
+        final Map<Integer,String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(3, visited.size());
+        assertEquals(visited.hashCode(), map.hashCode());
+
+        final AtomicInteger calls = new AtomicInteger();
+        assertEquals("TWO", map.computeIfAbsent(2, k -> { calls.incrementAndGet(); return "TWO"; }));
+        assertEquals("TWO", map.computeIfAbsent(2, k -> { calls.incrementAndGet(); return "OTHER"; }));
+        assertEquals(1, calls.get());
+
+        assertEquals("MIN", map.remove(Integer.MIN_VALUE));
+        assertFalse(map.containsKey(Integer.MIN_VALUE));
+
+    }
+
+
+    @Test
+    void testRandom() {
+
+        final Random random = new Random(17L);
+        final Map<Integer,Integer> expected = new HashMap<>();
+        IntAtomicHashStore<Integer> store = new IntAtomicHashStore<>();
+
+        for (int i = 0; i < 100000; i++) {
+            final int key = (i % 2 == 0) ? random.nextInt(20000) - 10000 : random.nextInt();
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                store = store.remove(key);
+            } else {
+                expected.put(key, i);
+                store = store.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (final Map.Entry<Integer,Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+        final Map<Integer,Integer> visited = new HashMap<>();
+        store.forEach(visited::put);
+        assertEquals(expected, visited);
+        assertEquals(expected.hashCode(), store.hashCode());
+
+        // Hash codes cached in the parts of the structure shared with the previous store are reused
+        for (int i = 0; i < 1000; i++) {
+            final int key = random.nextInt(20000) - 10000;
+            expected.merge(key, i, Integer::sum);
+            store = store.merge(key, i, Integer::sum);
+        }
+        assertEquals(expected.hashCode(), store.hashCode());
+
+        final IntAtomicHashMap<Integer> map = new IntAtomicHashMap<>(store);
+        assertEquals(store, map.store());
+        assertSame(store.innerNode(), map.store().innerNode());
+
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongAtomicHashMapTest {
+
+
+    @Test
+    void testBasic() {
+
+        final LongAtomicHashMap<String> map = new LongAtomicHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+        assertEquals("{}", map.toString());
+
+        assertNull(map.put(1L, "ONE"));
+        assertNull(map.put(-1L, "MINUS ONE"));
+        assertNull(map.put(Long.MIN_VALUE, "MIN"));
+        assertNull(map.put(Long.MAX_VALUE, "MAX"));
+        assertNull(map.put(0L, null));
+        assertEquals("ONE", map.put(1L, "NEW ONE"));
+
+        assertEquals(5, map.size());
+        assertEquals("NEW ONE", map.get(1L));
+        assertEquals("MIN", map.get(Long.MIN_VALUE));
+        assertTrue(map.containsKey(0L));
+        assertNull(map.get(0L));
+        assertEquals("DEFAULT", map.getOrDefault(2L, "DEFAULT"));
+        assertNull(map.getOrDefault(0L, "DEFAULT"));
+        assertTrue(map.containsValue("MAX"));
+        assertFalse(map.containsValue("ONE"));
+
+        final Map<Long,String> all = map.getAll(1L, 2L, 0L, Long.MAX_VALUE);
+        assertEquals(3, all.size());
+        assertEquals("NEW ONE", all.get(1L));
+        assertTrue(all.containsKey(0L));
+
+        assertEquals("NEW ONE", map.putIfAbsent(1L, "OTHER"));
+        assertNull(map.putIfAbsent(0L, "ZERO"));
+        assertEquals("ZERO", map.get(0L));
+
+        assertEquals("MINUS ONE", map.remove(-1L));
+        assertNull(map.remove(-1L));
+        assertFalse(map.remove(0L, "OTHER"));
+        assertTrue(map.remove(0L, "ZERO"));
+        assertNull(map.replace(5L, "FIVE"));
+        assertFalse(map.containsKey(5L));
+
+        assertEquals("FIVE", map.computeIfAbsent(5L, k -> "FIVE"));
+        assertEquals("FIVE", map.computeIfAbsent(5L, k -> "OTHER"));
+        assertNull(map.computeIfAbsent(6L, k -> null));
+        assertFalse(map.containsKey(6L));
+        assertEquals("7", map.computeIfAbsent(7L, String::valueOf));
+        assertEquals("7", map.remove(7L));
+        assertEquals("FIVEFIVE", map.merge(5L, "FIVE", String::concat));
+        assertNull(map.merge(5L, "FIVE", (v1, v2) -> null));
+        assertFalse(map.containsKey(5L));
+
+        final long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new long[] { Long.MIN_VALUE, 1L, Long.MAX_VALUE }, keys));
+
+        final LongAtomicHashStore<String> store = map.store();
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(3, store.size());
+        assertEquals("MAX", store.get(Long.MAX_VALUE));
+
+    }
+
+
+    @Test
+    void testStore() {
+
+        final LongAtomicHashStore<String> store = new LongAtomicHashStore<String>().put(1L, "ONE").put(2L, "TWO");
+
+        assertSame(store, store.put(1L, store.get(1L)));
+        assertSame(store, store.remove(3L));
+        assertSame(store, store.putIfAbsent(1L, "OTHER"));
+        assertSame(store, store.replace(3L, "THREE"));
+        assertSame(store, store.computeIfAbsent(2L, k -> "OTHER"));
+        assertSame(store, store.computeIfAbsent(3L, k -> null));
+        assertEquals("3", store.computeIfAbsent(3L, String::valueOf).get(3L));
+        assertSame(store, store.remove(1L, "OTHER"));
+        assertSame(store, store.merge(1L, "OTHER", (v1, v2) -> v1));
+
+        final LongAtomicHashStore<String> store2 = store.put(3L, "THREE").remove(1L);
+        assertEquals(2, store.size());
+        assertEquals(2, store2.size());
+        assertEquals("ONE", store.get(1L));
+        assertNull(store2.get(1L));
+        assertEquals("THREE", store2.get(3L));
+
+        assertEquals(store, store2.remove(3L).put(1L, new String("ONE")));
+        assertNotEquals(store, store2);
+        assertEquals(store.hashCode(), store2.remove(3L).put(1L, "ONE").hashCode());
+
+        final Map<Long,String> expected = new HashMap<>();
+        expected.put(1L, "ONE");
+        expected.put(2L, "TWO");
+        assertEquals(expected.hashCode(), store.hashCode());
+
+        final Map<Long,String> visited = new HashMap<>();
+        store.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        assertTrue(store.clear().isEmpty());
+        assertEquals(new LongAtomicHashMap<>(store), new LongAtomicHashMap<>(store.put(2L, "TWO")));
+
+    }
+
+
+    @Test
+    void testRandom() {
+
+        final Random random = new Random(31L);
+        final Map<Long,Integer> expected = new HashMap<>();
+        LongAtomicHashStore<Integer> store = new LongAtomicHashStore<>();
+
+        for (int i = 0; i < 200000; i++) {
+            // Mix of sequential keys, keys sharing low or high bits, and completely random keys
+            final long key;
+            switch (i % 4) {
+                case 0: key = random.nextInt(50000); break;
+                case 1: key = ((long) random.nextInt(1000)) << 40; break;
+                case 2: key = -random.nextInt(1000); break;
+                default: key = random.nextLong(); break;
+            }
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                store = store.remove(key);
+            } else {
+                expected.put(key, i);
+                store = store.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        validate(store.innerNode(), 0L);
+        for (final Map.Entry<Long,Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+        final Map<Long,Integer> visited = new HashMap<>();
+        store.forEach(visited::put);
+        assertEquals(expected, visited);
+        assertEquals(expected.hashCode(), store.hashCode());
+
+        // Removing all keys must leave the store empty
+        for (final long key : store.keys()) {
+            store = store.remove(key);
+        }
+        assertTrue(store.isEmpty());
+        assertSame(LongNode.EMPTY_NODE, store.innerNode());
+
+    }
+
+
+    // Checks the tree is canonical: every non-root node has either a child node or at least two entries
+    private static void validate(final LongNode node, final long prefix) {
+        assertEquals(Long.bitCount(node.entriesBitMap), node.keys.length);
+        assertEquals(node.keys.length + Long.bitCount(node.nodesBitMap), node.content.length);
+        assertEquals(0L, node.nodesBitMap & node.entriesBitMap);
+        if (node.level > 0) {
+            assertTrue(node.nodesBitMap != 0L || node.keys.length > 1);
+        }
+        final long levelMask = (node.level == 0) ? 0L : (-1L >>> (64 - (node.level * 6)));
+        int size = node.keys.length;
+        for (final long key : node.keys) {
+            assertEquals(prefix, LongNode.hash(key) & levelMask);
+            assertTrue((node.entriesBitMap & LongNode.mask(LongNode.hash(key), node.level)) != 0L);
+        }
+        int index = 0;
+        int nodePos = 0;
+        for (long mask = 1L; mask != 0L; mask <<= 1, index++) {
+            if ((node.nodesBitMap & mask) != 0L) {
+                final LongNode child = node.nodeAt(nodePos++);
+                assertEquals(node.level + 1, child.level);
+                validate(child, prefix | (((long) index) << (node.level * 6)));
+                size += child.size;
+            }
+        }
+        assertEquals(size, node.size);
+    }
+
+}
@@ -45,11 +45,11 @@ private static <K,V> void printNode(
 
         stringBuilder.append(indentForLevel(indentLevel));
         stringBuilder.append(String.format("[%1d|%02x] {\n", level, indexInLevel));
-        for (final Entry childEntry : node.entries) {
-            printEntry(indentLevel + 1, stringBuilder, childEntry);
+        for (int i = 0; i < (node.entriesLength() >> 1); i++) {
+            printEntry(indentLevel + 1, stringBuilder, node.entryAt(i));
         }
-        for (int i = 0; i < node.nodes.length; i++) {
-            final Node childNode = node.nodes[i];
+        for (int i = 0; i < node.nodesLength(); i++) {
+            final Node childNode = node.nodeAt(i);
             printNode(indentLevel + 1, level + 1, i, stringBuilder, childNode);
         }
         stringBuilder.append(indentForLevel(indentLevel));
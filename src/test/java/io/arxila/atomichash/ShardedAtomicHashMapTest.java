@@ -0,0 +1,271 @@
+/*
+ * =========================================================================
+ *                                                                          
+ *   Copyright (c) 2019-2025 Arxila OSS (https://arxila.io)                  
+ *                                                                          
+ *   Licensed under the Apache License, Version 2.0 (the "License");        
+ *   you may not use this file except in compliance with the License.       
+ *   You may obtain a copy of the License at                                
+ *                                                                          
+ *       http://www.apache.org/licenses/LICENSE-2.0                         
+ *                                                                          
+ *   Unless required by applicable law or agreed to in writing, software    
+ *   distributed under the License is distributed on an "AS IS" BASIS,      
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or        
+ *   implied. See the License for the specific language governing           
+ *   permissions and limitations under the License.                         
+ *                                                                          
+ * =========================================================================
+ */
+package io.arxila.atomichash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedAtomicHashMapTest {
+
+
+    @Test
+    void testMap() {
+
+        for (final int shardCount : new int[] { 1, 3, 8, 64 }) {
+
+            final ShardedAtomicHashMap<String,String> map = new ShardedAtomicHashMap<>(shardCount);
+            final Map<String,String> expected = new HashMap<>();
+            assertTrue(map.isEmpty());
+            assertEquals("{}", map.toString());
+
+            final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(5000, 20, 0);
+            for (final KeyValue<String,String> entry : entries) {
+                assertEquals(expected.put(entry.getKey(), entry.getValue()), map.put(entry.getKey(), entry.getValue()));
+            }
+            assertEquals(expected, map);
+            assertEquals(map, expected);
+            assertEquals(expected.hashCode(), map.hashCode());
+            assertEquals(expected.size(), map.size());
+
+            for (int i = 0; i < entries.length; i += 3) {
+                assertEquals(expected.remove(entries[i].getKey()), map.remove(entries[i].getKey()));
+                assertNull(map.get(entries[i].getKey()));
+            }
+            assertEquals(expected.merge(entries[1].getKey(), "x", String::concat),
+                         map.merge(entries[1].getKey(), "x", String::concat));
+            assertEquals(expected.computeIfAbsent("new", k -> "value"), map.computeIfAbsent("new", k -> "value"));
+            assertEquals(expected, map);
+
+            final AtomicHashStore<String,String> store = map.store();
+            assertEquals(expected.entrySet(), store.entrySet());
+            TestUtils.validate(store);
+            assertEquals(new AtomicHashMap<>(expected), map);
+            assertEquals(map, new AtomicHashMap<>(expected));
+            assertEquals(expected, new ShardedAtomicHashMap<>(expected));
+
+            final ShardedAtomicHashMap<String,String> map2 = new ShardedAtomicHashMap<>(shardCount);
+            map2.putAll(store);
+            assertEquals(map, map2);
+            map2.replaceAll((k, v) -> v + "!");
+            map2.putAll(store, (v1, v2) -> v2);
+            assertEquals(map, map2);
+            assertEquals(store.getAll("new", entries[1].getKey(), "none"),
+                         map2.getAll("new", entries[1].getKey(), "none"));
+            assertThrows(UnsupportedOperationException.class,
+                         () -> map2.getAll("new", entries[1].getKey()).put("other", "OTHER"));
+
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertEquals(0, map.size());
+            assertFalse(map.containsKey("new"));
+            assertEquals(expected.size(), store.size());
+
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedAtomicHashMap<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedAtomicHashMap<>(65));
+
+    }
+
+
+    @Test
+    void testAtomicPutAll() throws Exception {
+
+        // Pairs of keys (living in different shards) are always written together, so no snapshot
+        // should ever contain only one of them or contain them with different values
+        final ShardedAtomicHashMap<Integer,Integer> map = new ShardedAtomicHashMap<>(16);
+        final ExecutorService executor = Executors.newFixedThreadPool(6);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 3; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    final int key = thread * 1000 + (i % 500);
+                    final Map<Integer,Integer> pair = new HashMap<>();
+                    pair.put(key, i);
+                    pair.put(-key - 1, i);
+                    map.putAll(pair);
+                    map.put(1_000_000 + key, i);
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < 3; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    final AtomicHashStore<Integer,Integer> store = map.store();
+                    for (final Map.Entry<Integer,Integer> entry : store.entrySet()) {
+                        final int key = entry.getKey();
+                        if (key >= 0 && key < 1_000_000) {
+                            assertEquals(entry.getValue(), store.get(-key - 1));
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(4500, map.size());
+
+    }
+
+
+    @Test
+    void testSnapshotStates() throws Exception {
+
+        // Keys 0 and 1 live in different shards, and are written so that the map goes through the states
+        // {1} -> {0,1} -> {0} -> {0,1} -> {1}... Shards become empty and non-empty again all the time, but the map
+        // as a whole is never empty, so no snapshot should ever be
+        final ShardedAtomicHashMap<Integer,Integer> map = new ShardedAtomicHashMap<>(2);
+        map.put(1, 1);
+
+        // Optimistic snapshots rely on single-key writes never installing a root that could have been seen before
+        final Root root = Root.EMPTY_ROOT.mutate(0, 0, new Mutation.Put(0));
+        assertNotSame(Root.EMPTY_ROOT, root.mutate(0, 0, new Mutation.Remove()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 200000; i++) {
+                map.put(0, i);
+                map.remove(1);
+                map.put(1, i);
+                map.remove(0);
+            }
+            finished.set(true);
+            return null;
+        }));
+        for (int t = 0; t < 3; t++) {
+            futures.add(executor.submit(() -> {
+                while (!finished.get()) {
+                    assertFalse(map.store().isEmpty());
+                }
+                return null;
+            }));
+        }
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+    }
+
+
+    @Test
+    void testFailedMultiShardWrites() {
+
+        final int shardCount = 8;
+        final ShardedAtomicHashMap<Integer,Integer> map = new ShardedAtomicHashMap<>(shardCount);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        final AtomicHashStore<Integer,Integer> before = map.store();
+
+        // Shards are processed in order, so the function only throws once all the other shards have been computed
+        final BiFunction<Integer,Integer,Integer> function = (k, v) -> {
+            if ((Entry.hash(k) & (shardCount - 1)) == shardCount - 1) {
+                throw new IllegalStateException();
+            }
+            return v + 1;
+        };
+
+        assertThrows(IllegalStateException.class, () -> map.replaceAll(function));
+        assertEquals(before, map.store());
+
+        final AtomicHashStore<Integer,Integer> increments = before.replaceAll((k, v) -> 1);
+        assertThrows(IllegalStateException.class, () -> map.putAll(increments, function));
+        assertEquals(before, map.store());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i));
+        }
+
+        // Without failures, all shards are modified
+        map.replaceAll((k, v) -> v + 1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + 1, map.get(i));
+        }
+
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSerialization() throws Exception {
+
+        final ShardedAtomicHashMap<String,String> map = new ShardedAtomicHashMap<>(8);
+        final KeyValue<String,String>[] entries = TestUtils.generateStringStringKeyValues(5000, 20, 0);
+        for (final KeyValue<String,String> entry : entries) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        final ShardedAtomicHashMap<String,String> deserialized;
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (ShardedAtomicHashMap<String,String>) in.readObject();
+        }
+
+        assertEquals(map, deserialized);
+        assertEquals(map.size(), deserialized.size());
+        TestUtils.validate(deserialized.store());
+
+        // Both single-key and multi-shard writes must work on the deserialized map
+        assertEquals(entries[0].getValue(), deserialized.put(entries[0].getKey(), "x"));
+        final Map<String,String> pair = new HashMap<>();
+        pair.put("one", "ONE");
+        pair.put("two", "TWO");
+        deserialized.putAll(pair);
+        assertEquals("x", deserialized.get(entries[0].getKey()));
+        assertEquals("TWO", deserialized.get("two"));
+        assertEquals(map.size() + 2, deserialized.size());
+
+    }
+
+}
@@ -21,7 +21,10 @@
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 
@@ -141,6 +144,41 @@ public static void randomizeArray(final int[] array) {
     }
 
 
+    // Runs the test on the specified number of large sets of generated key-values (with collisions) plus two small ones
+    public static void testStringStringKeyValues(final int largeRuns, final Consumer<KeyValue<String,String>[]> test) {
+        for (int i = 0; i < largeRuns; i++) {
+            test.accept(generateStringStringKeyValues(20000, 80, 100));
+        }
+        test.accept(generateStringStringKeyValues(10, 5, 2));
+        test.accept(generateStringStringKeyValues(100, 50, 10));
+    }
+
+
+    public static Map<String,String> map(final String... keyValues) {
+        final Map<String,String> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+
+    public static <K,V> Map<K,V> toMap(final KeyValue<K,V>[] entries) {
+        final Map<K,V> map = new HashMap<>();
+        for (final KeyValue<K,V> entry : entries) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+
+    public static <K,V> Map<K,V> toMap(final AtomicHashStore<K,V> store) {
+        final Map<K,V> map = new HashMap<>();
+        store.forEach(map::put);
+        return map;
+    }
+
+
 
     public static <K,V> void validate(final AtomicHashStore<K,V> store) {
         validateRoot(store.innerRoot(), 0);
@@ -173,24 +211,25 @@ private static void validateNode(final Node node, int parentMask) {
         int nodeBitsCount = Long.bitCount(node.nodesBitMap);
         int entryBitsCount = Long.bitCount(node.entriesBitMap);
 
-        if (nodeBitsCount != node.nodes.length) {
-            throw new IllegalStateException("Invalid node: Mismatch between nodesBitMap count and Node array length. "
-                    + "Expected: " + nodeBitsCount + ", Found: " + node.nodes.length);
+        if ((entryBitsCount << 1) + nodeBitsCount != node.content.length) {
+            throw new IllegalStateException("Invalid node: Mismatch between bitmap counts and content array length. "
+                    + "Expected: " + ((entryBitsCount << 1) + nodeBitsCount) + ", Found: " + node.content.length);
         }
 
-        if (entryBitsCount != node.entries.length) {
-            throw new IllegalStateException("Invalid node: Mismatch between entriesBitMap count and Entry array length. "
-                    + "Expected: " + entryBitsCount + ", Found: " + node.entries.length);
+        for (int i = 0; i < nodeBitsCount; i++) {
+            if (!(node.content[node.content.length - 1 - i] instanceof Node)) {
+                throw new IllegalStateException("Invalid node: Children nodes must be at the end of the content array.");
+            }
         }
 
         // 3. Ensure collisions == null for all entries until MAX_LEVEL, and nodes[] is empty at MAX_LEVEL
         if (node.level == Node.MAX_LEVEL) {
-            if (node.nodes.length > 0) {
+            if (node.nodesLength() > 0) {
                 throw new IllegalStateException("Invalid node: At MAX_LEVEL, nodes array must be empty.");
             }
         } else {
-            for (Entry entry : node.entries) {
-                if (entry.collisions != null) {
+            for (int i = 0; i < entryBitsCount; i++) {
+                if (node.entryAt(i).collisions != null) {
                     throw new IllegalStateException("Invalid node: Collisions must be null for entries until MAX_LEVEL.");
                 }
             }
@@ -206,7 +245,7 @@ private static void validateNode(final Node node, int parentMask) {
         for (long mask = 1L; mask != 0L; mask <<= 1) {
             int pos = Node.pos(mask, node.entriesBitMap);
             if (pos >= 0) {
-                final Entry childEntry = node.entries[pos];
+                final Entry childEntry = node.entryAt(pos);
                 int maskedChildHash = childEntry.hash & levelMask;
                 if (maskedChildHash != (parentMask | (index << Node.HASH_SHIFTS[node.level]))) {
                     throw new IllegalStateException("Invalid entry: Entry hash does not match the mask at level " + node.level);
@@ -221,7 +260,7 @@ private static void validateNode(final Node node, int parentMask) {
         for (long mask = 1L; mask != 0L; mask <<= 1) {
             int pos = Node.pos(mask, node.nodesBitMap);
             if (pos >= 0) {
-                final Node childNode = node.nodes[pos];
+                final Node childNode = node.nodeAt(pos);
                 if (childNode.level != node.level + 1) {
                     throw new IllegalStateException("Invalid node: Child node level must be parent node level + 1.");
                 }
@@ -235,6 +274,101 @@ private static void validateNode(final Node node, int parentMask) {
 
 
 
+    public static void validate(final KeyNode node) {
+        validateKeyNode(node, 0);
+    }
+
+
+    private static void validateKeyNode(final KeyNode node, int parentMask) {
+
+        // 1. Ensure no overlap in bitmaps
+        if ((node.nodesBitMap & node.entriesBitMap) != 0) {
+            throw new IllegalStateException("Invalid node: A position cannot be present in both nodesBitMap and entriesBitMap.");
+        }
+
+        // 2. Validate that every key (or collision bucket) takes a single slot in the content array
+        int nodeBitsCount = Long.bitCount(node.nodesBitMap);
+        int entryBitsCount = Long.bitCount(node.entriesBitMap);
+
+        if (entryBitsCount + nodeBitsCount != node.content.length) {
+            throw new IllegalStateException("Invalid node: Mismatch between bitmap counts and content array length. "
+                    + "Expected: " + (entryBitsCount + nodeBitsCount) + ", Found: " + node.content.length);
+        }
+
+        for (int i = 0; i < nodeBitsCount; i++) {
+            if (!(node.content[node.content.length - 1 - i] instanceof KeyNode)) {
+                throw new IllegalStateException("Invalid node: Children nodes must be at the end of the content array.");
+            }
+        }
+
+        // 3. Ensure collisions only exist at MAX_LEVEL, and there are no children nodes at MAX_LEVEL
+        if (node.level == Node.MAX_LEVEL) {
+            if (nodeBitsCount > 0) {
+                throw new IllegalStateException("Invalid node: At MAX_LEVEL, there cannot be children nodes.");
+            }
+        } else {
+            for (int i = 0; i < entryBitsCount; i++) {
+                if (node.content[i] instanceof KeyNode.Collision) {
+                    throw new IllegalStateException("Invalid node: Collisions can only exist at MAX_LEVEL.");
+                }
+            }
+        }
+
+        int levelMask = 0;
+        for (int i = 0; i <= node.level; i++) {
+            levelMask |= (Node.HASH_MASK << Node.HASH_SHIFTS[i]);
+        }
+
+        // 4. Ensure all key hashes match the expected mask at all levels, and sizes are consistent
+        int size = 0;
+        int index = 0;
+        for (long mask = 1L; mask != 0L; mask <<= 1) {
+            int pos = Node.pos(mask, node.entriesBitMap);
+            if (pos >= 0) {
+                final Object entry = node.content[pos];
+                final boolean collision = (entry instanceof KeyNode.Collision);
+                final Object[] keys = collision ? ((KeyNode.Collision) entry).keys : new Object[] { entry };
+                if (collision && keys.length < 2) {
+                    throw new IllegalStateException("Invalid node: Collision buckets must contain two keys or more.");
+                }
+                for (final Object key : keys) {
+                    int maskedChildHash = Entry.hash(key) & levelMask;
+                    if (maskedChildHash != (parentMask | (index << Node.HASH_SHIFTS[node.level]))) {
+                        throw new IllegalStateException("Invalid key: Key hash does not match the mask at level " + node.level);
+                    }
+                }
+                size += keys.length;
+            }
+            index++;
+        }
+
+        // 5. Perform recursive validation for child nodes, which must not be reducible into a single key
+        index = 0;
+        for (long mask = 1L; mask != 0L; mask <<= 1) {
+            int pos = Node.pos(mask, node.nodesBitMap);
+            if (pos >= 0) {
+                final KeyNode childNode = node.nodeAt(pos);
+                if (childNode.level != node.level + 1) {
+                    throw new IllegalStateException("Invalid node: Child node level must be parent node level + 1.");
+                }
+                if (childNode.size < 2) {
+                    throw new IllegalStateException("Invalid node: Child nodes must contain two keys or more.");
+                }
+                validateKeyNode(childNode, parentMask | (index << Node.HASH_SHIFTS[node.level]));
+                size += childNode.size;
+            }
+            index++;
+        }
+
+        if (size != node.size) {
+            throw new IllegalStateException("Invalid node: Size " + node.size + " does not match contents: " + size);
+        }
+
+    }
+
+
+
+
     public static class ValueRef<V> {
         public V val = null;
         public boolean b = false;